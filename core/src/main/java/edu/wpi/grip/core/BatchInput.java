@@ -0,0 +1,123 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.util.ImageLoadingUtility;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * The recorded frames that are processed in batch mode, read one at a time in order. This is
+ * either every image in a directory, sorted by file name, or every frame of a video file.
+ */
+abstract class BatchInput implements Closeable {
+
+  private static final String[] IMAGE_EXTENSIONS = {
+      ".bmp", ".jpe", ".jpeg", ".jpg", ".jp2", ".png", ".pbm", ".pgm", ".ppm", ".tif", ".tiff"
+  };
+
+  /**
+   * Opens the frames in a directory of images or in a video file.
+   *
+   * @param file a directory or a video file
+   * @throws IOException if there are no images in the directory or the video couldn't be opened
+   */
+  static BatchInput open(File file) throws IOException {
+    checkNotNull(file, "file");
+    return file.isDirectory() ? new ImageDirectoryInput(file) : new VideoFileInput(file);
+  }
+
+  /**
+   * Reads the next frame.
+   *
+   * @param frame the image to store the frame in
+   * @return the name of the frame, or null if there are no frames left
+   * @throws IOException if the frame couldn't be read
+   */
+  abstract String next(Mat frame) throws IOException;
+
+  private static final class ImageDirectoryInput extends BatchInput {
+    private final File[] images;
+    private int index = 0;
+
+    ImageDirectoryInput(File directory) throws IOException {
+      images = directory.listFiles(file -> file.isFile() && isImage(file));
+      if (images == null || images.length == 0) {
+        throw new IOException("There are no images in " + directory);
+      }
+      Arrays.sort(images);
+    }
+
+    private static boolean isImage(File file) {
+      final String name = file.getName().toLowerCase(Locale.ENGLISH);
+      return Arrays.stream(IMAGE_EXTENSIONS).anyMatch(name::endsWith);
+    }
+
+    @Override
+    String next(Mat frame) throws IOException {
+      if (index == images.length) {
+        return null;
+      }
+      final File image = images[index++];
+      ImageLoadingUtility.loadImage(image.getAbsolutePath(), frame);
+      return image.getName();
+    }
+
+    @Override
+    public void close() {
+      /* no-op */
+    }
+  }
+
+  private static final class VideoFileInput extends BatchInput {
+    private final FFmpegFrameGrabber frameGrabber;
+    private final OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat();
+    private int frameNumber = 0;
+
+    VideoFileInput(File video) throws IOException {
+      frameGrabber = new FFmpegFrameGrabber(video);
+      try {
+        frameGrabber.start();
+      } catch (FrameGrabber.Exception e) {
+        throw new IOException("Could not open video file " + video, e);
+      }
+    }
+
+    @Override
+    String next(Mat frame) throws IOException {
+      try {
+        Mat image = null;
+        while (image == null) {
+          final Frame grabbed = frameGrabber.grabImage();
+          if (grabbed == null) {
+            return null;
+          }
+          image = converter.convert(grabbed);
+        }
+        image.copyTo(frame);
+        return Integer.toString(frameNumber++);
+      } catch (FrameGrabber.Exception e) {
+        throw new IOException("Could not read frame " + frameNumber, e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        frameGrabber.stop();
+      } catch (FrameGrabber.Exception e) {
+        throw new IOException("Could not close the video file", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,259 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.events.ExceptionEvent;
+import edu.wpi.grip.core.operations.CVOperations;
+import edu.wpi.grip.core.operations.Operations;
+import edu.wpi.grip.core.operations.network.BatchNetworkModule;
+import edu.wpi.grip.core.operations.network.RecordingPublisherFactory;
+import edu.wpi.grip.core.serialization.Project;
+import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.core.sources.GripSourcesHardwareModule;
+import edu.wpi.grip.core.util.DaemonThread;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * Runs a project over recorded frames as fast as possible, instead of waiting for its sources to
+ * produce new frames. The frames are fed into the first source of the project that has an image
+ * output, and anything else that source produces is ignored.
+ *
+ * <p>The project is loaded once for every replica, each in its own injector, so the replicas can
+ * process different frames at the same time. The values that each frame publishes are written out
+ * in the order the frames were read, no matter which replica finishes first. Frames that a step
+ * failed on are written out as failed, along with what went wrong, instead of with the values the
+ * pipeline published for them.</p>
+ */
+final class BatchProcessor implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(BatchProcessor.class.getName());
+
+  private final ImmutableList<Replica> replicas;
+
+  /**
+   * Loads a replica of the project for each thread that will process frames.
+   *
+   * @param primaryInjector the injector that was created with the network module
+   * @param projectFile     the save file of the project to run
+   * @param replicaCount    the number of frames to process at the same time
+   * @throws IOException if the project couldn't be loaded
+   */
+  BatchProcessor(Injector primaryInjector, File projectFile, int replicaCount) throws IOException {
+    checkNotNull(primaryInjector, "primaryInjector");
+    checkNotNull(projectFile, "projectFile");
+    checkArgument(replicaCount > 0, "There must be at least one replica");
+    final ImmutableList.Builder<Replica> replicas = ImmutableList.builder();
+    try {
+      for (int i = 0; i < replicaCount; i++) {
+        replicas.add(new Replica(primaryInjector, projectFile));
+      }
+    } catch (IOException | RuntimeException e) {
+      replicas.build().forEach(Replica::close);
+      throw e;
+    }
+    this.replicas = replicas.build();
+  }
+
+  /**
+   * Processes every frame of the input and writes the published values of each.
+   *
+   * @return the number of frames that were processed
+   * @throws IOException          if a frame couldn't be read or the results couldn't be written
+   * @throws InterruptedException if the thread was interrupted while waiting for a replica
+   */
+  long process(BatchInput input, BatchResultWriter output)
+      throws IOException, InterruptedException {
+    final BlockingQueue<Replica> idleReplicas =
+        new ArrayBlockingQueue<>(replicas.size(), false, replicas);
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(replicas.size(), DaemonThread::new);
+    final Deque<Future<FrameResult>> inFlight = new ArrayDeque<>();
+    long frameCount = 0;
+    try {
+      while (true) {
+        final Mat frame = new Mat();
+        final String name = input.next(frame);
+        if (name == null) {
+          frame.release();
+          break;
+        }
+        final long index = frameCount++;
+        // Waiting for a replica keeps the number of frames in memory bounded
+        final Replica replica = idleReplicas.take();
+        inFlight.addLast(executor.submit(() -> {
+          try {
+            return replica.process(index, name, frame);
+          } finally {
+            idleReplicas.add(replica);
+          }
+        }));
+        while (!inFlight.isEmpty() && inFlight.peekFirst().isDone()) {
+          write(inFlight.removeFirst(), output);
+        }
+      }
+      while (!inFlight.isEmpty()) {
+        write(inFlight.removeFirst(), output);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return frameCount;
+  }
+
+  /**
+   * Removes everything from the pipeline of every replica, which closes their publishers and stops
+   * their sources, and frees the images they still hold.
+   */
+  @Override
+  public void close() {
+    replicas.forEach(Replica::close);
+  }
+
+  private static void write(Future<FrameResult> future, BatchResultWriter output)
+      throws IOException, InterruptedException {
+    try {
+      final FrameResult result = future.get();
+      if (result.errors.isEmpty()) {
+        output.write(result.index, result.input, result.values);
+      } else {
+        output.writeFailure(result.index, result.input, result.errors);
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Could not process a frame", e.getCause());
+    }
+  }
+
+  private static final class FrameResult {
+    private final long index;
+    private final String input;
+    private final ImmutableMap<String, Object> values;
+    private final ImmutableList<String> errors;
+
+    FrameResult(long index, String input, ImmutableMap<String, Object> values,
+                ImmutableList<String> errors) {
+      this.index = index;
+      this.input = input;
+      this.values = values;
+      this.errors = errors;
+    }
+  }
+
+  /**
+   * One copy of the project. Its pipeline is run directly by the thread processing the frame, so
+   * the pipeline runner of the replica is stopped as soon as the project is loaded.
+   */
+  private static final class Replica {
+    private final Pipeline pipeline;
+    private final MatPool matPool;
+    private final RecordingPublisherFactory recorder = new RecordingPublisherFactory();
+    private final OutputSocket<Mat> frameSocket;
+    /**
+     * The last problem each step reported, which still applies for as long as its exception
+     * witness is flagged.
+     */
+    private final Map<Step, String> problems = new IdentityHashMap<>();
+    private Mat previousFrame;
+
+    @SuppressWarnings("unchecked")
+    Replica(Injector primaryInjector, File projectFile) throws IOException {
+      // Creating the core module replaces the uncaught exception handler
+      final Thread.UncaughtExceptionHandler exceptionHandler =
+          Thread.getDefaultUncaughtExceptionHandler();
+      final Injector injector = Guice.createInjector(Modules.override(new GripCoreModule(),
+          new GripFileModule(), new GripSourcesHardwareModule())
+          .with(new BatchNetworkModule(primaryInjector, recorder)));
+      Thread.setDefaultUncaughtExceptionHandler(exceptionHandler);
+
+      injector.getInstance(Operations.class).addOperations();
+      injector.getInstance(CVOperations.class).addOperations();
+      injector.getInstance(Project.class).open(projectFile);
+      injector.getInstance(PipelineRunner.class).stopAndAwait();
+      injector.getInstance(EventBus.class).register(this);
+      this.pipeline = injector.getInstance(Pipeline.class);
+      this.matPool = injector.getInstance(MatPool.class);
+      // Opening the project started every source, but the frames come from this processor
+      pipeline.getSources().forEach(Source::shutdown);
+      this.frameSocket = (OutputSocket<Mat>) pipeline.getSources().stream()
+          .flatMap(source -> source.getOutputSockets().stream())
+          .filter(socket -> Mat.class.equals(socket.getSocketHint().getType()))
+          .findFirst()
+          .orElseThrow(() -> new IOException(
+              projectFile + " has no source with an image output to feed the frames into"));
+      logger.log(Level.FINE, "Loaded a replica of " + projectFile);
+    }
+
+    /**
+     * Runs every step of the pipeline on a frame. The frame is released once the next frame has
+     * been processed, since the steps may still refer to it until then.
+     *
+     * @return the last value published under each key, along with what went wrong with every
+     *     step whose exception witness is flagged after the run
+     */
+    FrameResult process(long index, String name, Mat frame) {
+      frameSocket.setValue(frame);
+      final ExecutionPlan plan = pipeline.getExecutionPlan();
+      final ImmutableList.Builder<String> errors = ImmutableList.builder();
+      for (int i = 0; i < plan.getStepCount(); i++) {
+        final Step step = plan.getStep(i);
+        step.runPerform(false);
+        // A failed step resets its outputs, so what the steps after it publish can't be trusted
+        if (step.isFailing()) {
+          errors.add(problems.getOrDefault(step,
+              "The " + step.getOperationDescription().name() + " step failed"));
+        }
+      }
+      releasePreviousFrame();
+      previousFrame = frame;
+      return new FrameResult(index, name, recorder.getValues(), errors.build());
+    }
+
+    @Subscribe
+    public void onException(ExceptionEvent event) {
+      if (!(event.getOrigin() instanceof Step)) {
+        return;
+      }
+      final String cause = event.getException().map(Exception::getMessage).orElse(null);
+      problems.put((Step) event.getOrigin(), cause == null || cause.equals(event.getMessage())
+          ? event.getMessage()
+          : event.getMessage() + " " + cause);
+    }
+
+    void close() {
+      pipeline.clear();
+      releasePreviousFrame();
+      matPool.clear();
+    }
+
+    private void releasePreviousFrame() {
+      if (previousFrame != null) {
+        previousFrame.release();
+        previousFrame = null;
+      }
+    }
+  }
+}
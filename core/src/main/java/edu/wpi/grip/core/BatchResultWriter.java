@@ -0,0 +1,168 @@
+package edu.wpi.grip.core;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes the values that were published for each frame in batch mode. The frames must be written
+ * in the order they were read.
+ */
+abstract class BatchResultWriter implements Closeable {
+
+  protected final Writer writer;
+
+  BatchResultWriter(Writer writer) {
+    this.writer = checkNotNull(writer, "writer");
+  }
+
+  /**
+   * Creates a writer for the given file. Files ending in {@code .json} are written as a JSON array
+   * with one object per frame, anything else is written as CSV with one row per value.
+   */
+  static BatchResultWriter create(File file) throws IOException {
+    final Writer writer =
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+    return file.getName().toLowerCase(Locale.ENGLISH).endsWith(".json")
+        ? new Json(writer)
+        : new Csv(writer);
+  }
+
+  /**
+   * Writes the values that were published for one frame.
+   *
+   * @param frame  the index of the frame in the input
+   * @param input  the name of the frame, like the file it was read from
+   * @param values the last value published under each key
+   */
+  abstract void write(long frame, String input, Map<String, Object> values) throws IOException;
+
+  /**
+   * Writes that a step failed on a frame, in place of the values that were published for it.
+   *
+   * @param frame  the index of the frame in the input
+   * @param input  the name of the frame, like the file it was read from
+   * @param errors what went wrong with each step that failed
+   */
+  abstract void writeFailure(long frame, String input, List<String> errors) throws IOException;
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+
+  /**
+   * Writes one row for every element of every published value, so that reports with a different
+   * number of elements in each frame fit in the same columns. A frame that failed has a row for
+   * each step that failed instead, with only the error column filled in.
+   */
+  static final class Csv extends BatchResultWriter {
+
+    Csv(Writer writer) throws IOException {
+      super(writer);
+      writer.write("frame,input,key,index,value,error\n");
+    }
+
+    @Override
+    void write(long frame, String input, Map<String, Object> values) throws IOException {
+      final String prefix = frame + "," + escape(input) + ",";
+      for (Map.Entry<String, Object> entry : values.entrySet()) {
+        final List<?> elements = elementsOf(entry.getValue());
+        for (int i = 0; i < elements.size(); i++) {
+          writer.write(prefix + escape(entry.getKey()) + "," + i + ","
+              + escape(String.valueOf(elements.get(i))) + ",\n");
+        }
+      }
+    }
+
+    @Override
+    void writeFailure(long frame, String input, List<String> errors) throws IOException {
+      for (String error : errors) {
+        writer.write(frame + "," + escape(input) + ",,,," + escape(error) + "\n");
+      }
+    }
+
+    private static List<?> elementsOf(Object value) {
+      if (value.getClass().isArray()) {
+        final ImmutableList.Builder<Object> elements = ImmutableList.builder();
+        for (int i = 0; i < Array.getLength(value); i++) {
+          elements.add(Array.get(value, i));
+        }
+        return elements.build();
+      } else if (value instanceof Iterable) {
+        return ImmutableList.copyOf((Iterable<?>) value);
+      } else {
+        return ImmutableList.of(value);
+      }
+    }
+
+    private static String escape(String field) {
+      if (field.contains(",") || field.contains("\"") || field.contains("\n")) {
+        return "\"" + field.replace("\"", "\"\"") + "\"";
+      }
+      return field;
+    }
+  }
+
+  /**
+   * Writes a JSON array with one object for each frame. Frames that failed have a list of errors
+   * instead of values.
+   */
+  static final class Json extends BatchResultWriter {
+
+    private final Gson gson = new GsonBuilder()
+        .serializeSpecialFloatingPointValues()
+        .create();
+    private boolean first = true;
+
+    Json(Writer writer) throws IOException {
+      super(writer);
+      writer.write("[");
+    }
+
+    @Override
+    void write(long frame, String input, Map<String, Object> values) throws IOException {
+      final Map<String, Object> object = new LinkedHashMap<>();
+      object.put("frame", frame);
+      object.put("input", input);
+      object.put("values", values);
+      writeObject(object);
+    }
+
+    @Override
+    void writeFailure(long frame, String input, List<String> errors) throws IOException {
+      final Map<String, Object> object = new LinkedHashMap<>();
+      object.put("frame", frame);
+      object.put("input", input);
+      object.put("errors", errors);
+      writeObject(object);
+    }
+
+    private void writeObject(Map<String, Object> object) throws IOException {
+      writer.write(first ? "\n" : ",\n");
+      gson.toJson(object, writer);
+      first = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.write(first ? "]\n" : "\n]\n");
+      super.close();
+    }
+  }
+}
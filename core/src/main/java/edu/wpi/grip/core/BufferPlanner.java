@@ -0,0 +1,99 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.sockets.InputSocket;
+import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.core.sockets.Socket;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * Decides which steps write their result over the image that feeds them instead of into an image
+ * of their own. This saves an image, and the memory bandwidth of filling it, for every step that
+ * runs in place.
+ *
+ * <p>A step runs in place if its operation {@link Operation#canPerformInPlace() can}, its first
+ * input is connected to an image output of another step, and that output isn't connected to
+ * anything else. The step that produces the image also has to be {@link Operation#isCacheable()
+ * cacheable}, since operations that aren't might pass an image through from further up, such as
+ * one that belongs to a source. Outputs that are previewed are checked for every time the step
+ * runs, since previews are turned on and off without editing the pipeline.</p>
+ *
+ * <p>Once its output has been written over, the step that produced it performs again the next
+ * time the pipeline runs, even if its inputs haven't changed, so nothing ever reads the result of
+ * the step downstream in its place. To keep that from happening every run, a step only runs in
+ * place when the step that feeds it has just performed because its inputs changed.</p>
+ */
+final class BufferPlanner {
+
+  private BufferPlanner() {
+    /* no-op */
+  }
+
+  /**
+   * Plans which steps run in place and tells every step about it.
+   *
+   * @param steps       the steps in the pipeline
+   * @param connections the connections in the pipeline
+   */
+  static void assign(List<Step> steps, Iterable<? extends Connection> connections) {
+    final Map<Step, OutputSocket<?>> plan = plan(steps, connections);
+    for (Step step : steps) {
+      step.setInPlaceSource(plan.get(step));
+    }
+  }
+
+  /**
+   * @param steps       the steps in the pipeline
+   * @param connections the connections in the pipeline. Connections to or from anything that is
+   *                    not one of the given steps are ignored.
+   * @return the output that each step that runs in place writes over
+   */
+  static ImmutableMap<Step, OutputSocket<?>> plan(List<Step> steps,
+                                                  Iterable<? extends Connection> connections) {
+    checkNotNull(steps, "steps");
+    checkNotNull(connections, "connections");
+    // The pipeline is edited by posting events, so the sockets may not know about their
+    // connections yet. The connections are counted here instead.
+    final Map<Socket<?>, Integer> connectionCounts = new IdentityHashMap<>();
+    final Map<InputSocket<?>, OutputSocket<?>> feeds = new IdentityHashMap<>();
+    for (Connection<?> connection : connections) {
+      connectionCounts.merge(connection.getOutputSocket(), 1, Integer::sum);
+      feeds.put(connection.getInputSocket(), connection.getOutputSocket());
+    }
+    final Map<Step, Boolean> inPipeline = new IdentityHashMap<>();
+    for (Step step : steps) {
+      inPipeline.put(step, Boolean.TRUE);
+    }
+
+    final ImmutableMap.Builder<Step, OutputSocket<?>> plan = ImmutableMap.builder();
+    for (Step step : steps) {
+      if (!step.canPerformInPlace() || step.getInputSockets().isEmpty()
+          || step.getOutputSockets().isEmpty()
+          || !isImage(step.getOutputSockets().get(0))) {
+        continue;
+      }
+      final OutputSocket<?> source = feeds.get(step.getInputSockets().get(0));
+      if (source == null || !isImage(source) || connectionCounts.get(source) != 1) {
+        continue;
+      }
+      final Optional<Step> producer = source.getStep();
+      if (producer.isPresent() && producer.get() != step
+          && inPipeline.containsKey(producer.get()) && producer.get().isCacheable()) {
+        plan.put(step, source);
+      }
+    }
+    return plan.build();
+  }
+
+  private static boolean isImage(Socket<?> socket) {
+    return Mat.class.equals(socket.getSocketHint().getType());
+  }
+}
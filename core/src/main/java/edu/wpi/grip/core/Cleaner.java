@@ -1,5 +1,6 @@
 package edu.wpi.grip.core;
 
+import edu.wpi.grip.core.events.ProjectSettingsChangedEvent;
 import edu.wpi.grip.core.events.RunStoppedEvent;
 
 import com.google.common.base.Stopwatch;
@@ -28,6 +29,10 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
  * as a JVM argument with gradle, and it can't be adjusted based on the amount of memory on the
  * system it's installed on. For us, manually running System.gc() periodically is a better solution.
  * </p>
+ *
+ * <p>Images that are allocated every run should come from the {@link MatPool} instead, which frees
+ * or reuses them without waiting for the garbage collector. Projects where that covers enough of
+ * the memory can turn the periodic collections off with a project setting.</p>
  */
 @Singleton
 public class Cleaner {
@@ -53,9 +58,14 @@ public class Cleaner {
    */
   private int runsSinceLastGc = 0;
 
+  private volatile boolean enabled = true;
+
   @Subscribe
   @SuppressFBWarnings(value = "DM_GC", justification = "GC is called infrequently")
   public void onRunFinished(@Nullable RunStoppedEvent e) {
+    if (!enabled) {
+      return;
+    }
     runsSinceLastGc++;
     if (!stopwatch.isRunning()) {
       stopwatch.start();
@@ -67,4 +77,9 @@ public class Cleaner {
     }
   }
 
+  @Subscribe
+  public void onProjectSettingsChanged(ProjectSettingsChangedEvent event) {
+    enabled = !event.getProjectSettings().getSkipPeriodicGc();
+  }
+
 }
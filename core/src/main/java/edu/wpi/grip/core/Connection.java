@@ -2,7 +2,6 @@ package edu.wpi.grip.core;
 
 import edu.wpi.grip.core.events.ConnectionAddedEvent;
 import edu.wpi.grip.core.events.ConnectionRemovedEvent;
-import edu.wpi.grip.core.events.SocketChangedEvent;
 import edu.wpi.grip.core.events.SourceRemovedEvent;
 import edu.wpi.grip.core.events.StepRemovedEvent;
 import edu.wpi.grip.core.sockets.InputSocket;
@@ -19,6 +18,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * A connection is a rule that causes one socket to update to always the value of another socket.
+ * Once the connection has been added, the output socket pushes its new values directly to the
+ * input socket whenever it changes.
  */
 @XStreamAlias(value = "grip:Connection")
 public class Connection<T> {
@@ -62,13 +63,6 @@ public class Connection<T> {
     }
   }
 
-  @Subscribe
-  public void onOutputChanged(SocketChangedEvent e) {
-    if (e.isRegarding(outputSocket)) {
-      inputSocket.setValueOptional(outputSocket.getValue());
-    }
-  }
-
   @Subscribe
   public void onConnectionRemoved(ConnectionRemovedEvent e) {
     if (e.getConnection() == this) {
@@ -18,6 +18,8 @@ import org.apache.commons.cli.ParseException;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -33,12 +35,16 @@ public class CoreCommandLineHelper {
   public static final String PORT_OPTION = "p"; // "p" for "port"
   public static final String HELP_OPTION = "h"; // "h" for "help" (this is standard)
   public static final String VERSION_OPTION = "v"; // "v" for "version" (this is standard)
+  public static final String BATCH_OPTION = "b"; // "b" for "batch"
+  public static final String BATCH_OUTPUT_OPTION = "o"; // "o" for "output"
+  public static final String BATCH_REPLICAS_OPTION = "batch-replicas";
 
   private final Options options = new Options();
   private static final Option saveOption =
       Option.builder(FILE_OPTION)
           .longOpt("file")
-          .desc("Set the GRIP save file to load")
+          .desc("Set the GRIP save file to load. Repeat this to run several projects in the "
+              + "same process, each with its own pipeline")
           .hasArg()
           .numberOfArgs(1)
           .argName("path")
@@ -51,6 +57,33 @@ public class CoreCommandLineHelper {
           .numberOfArgs(1)
           .argName("port")
           .build();
+  private static final Option batchOption =
+      Option.builder(BATCH_OPTION)
+          .longOpt("batch")
+          .desc("Run the project given with --file over every image in a directory or every "
+              + "frame of a video file as fast as possible, then exit")
+          .hasArg()
+          .numberOfArgs(1)
+          .argName("path")
+          .build();
+  private static final Option batchOutputOption =
+      Option.builder(BATCH_OUTPUT_OPTION)
+          .longOpt("batch-output")
+          .desc("Set the file to write the values published for each frame to in batch mode. "
+              + "Files ending in .json are written as JSON, anything else as CSV")
+          .hasArg()
+          .numberOfArgs(1)
+          .argName("path")
+          .build();
+  private static final Option batchReplicasOption =
+      Option.builder()
+          .longOpt(BATCH_REPLICAS_OPTION)
+          .desc("Set the number of frames to process at the same time in batch mode. Defaults "
+              + "to the number of processors")
+          .hasArg()
+          .numberOfArgs(1)
+          .argName("count")
+          .build();
   private static final Option helpOption
       = new Option(HELP_OPTION, "help", false, "Prints the command line options");
   private static final Option versionOption
@@ -64,6 +97,9 @@ public class CoreCommandLineHelper {
     options.addOption(portOption);
     options.addOption(helpOption);
     options.addOption(versionOption);
+    options.addOption(batchOption);
+    options.addOption(batchOutputOption);
+    options.addOption(batchReplicasOption);
   }
 
   /**
@@ -167,6 +203,86 @@ public class CoreCommandLineHelper {
     }
   }
 
+  /**
+   * Gets every save file after the first one from the command line arguments. Each of these should
+   * be run as its own pipeline alongside the project loaded by {@link #loadFile}.
+   *
+   * @param args the parsed command line arguments
+   *
+   * @return the additional save files, in the order they were given
+   */
+  public List<File> getAdditionalFiles(CommandLine args) {
+    final String[] files = args.getOptionValues(FILE_OPTION);
+    if (files == null || files.length <= 1) {
+      return Collections.emptyList();
+    }
+    final List<File> additionalFiles = new ArrayList<>(files.length - 1);
+    for (int i = 1; i < files.length; i++) {
+      additionalFiles.add(new File(files[i]));
+    }
+    return additionalFiles;
+  }
+
+  /**
+   * @param args the parsed command line arguments
+   *
+   * @return true if the project should be run over recorded frames instead of its own sources
+   */
+  public boolean isBatchMode(CommandLine args) {
+    return args.hasOption(BATCH_OPTION);
+  }
+
+  /**
+   * Gets the directory of images or the video file to run the project over in batch mode.
+   *
+   * @param args the parsed command line arguments
+   *
+   * @return the batch input
+   */
+  public File getBatchInput(CommandLine args) {
+    return new File(args.getOptionValue(BATCH_OPTION));
+  }
+
+  /**
+   * Gets the file to write the results of batch mode to. If none was specified, the results are
+   * written as CSV to a file named after the input in the working directory.
+   *
+   * @param args the parsed command line arguments
+   *
+   * @return the batch output file
+   */
+  public File getBatchOutput(CommandLine args) {
+    if (args.hasOption(BATCH_OUTPUT_OPTION)) {
+      return new File(args.getOptionValue(BATCH_OUTPUT_OPTION));
+    }
+    return new File(getBatchInput(args).getName() + ".csv");
+  }
+
+  /**
+   * Gets the number of frames to process at the same time in batch mode. If none, or an invalid
+   * number, was specified, this is the number of processors.
+   *
+   * @param args the parsed command line arguments
+   *
+   * @return the number of pipeline replicas to use
+   */
+  public int getBatchReplicas(CommandLine args) {
+    final int processors = Runtime.getRuntime().availableProcessors();
+    if (args.hasOption(BATCH_REPLICAS_OPTION)) {
+      try {
+        final int replicas = Integer.parseInt(args.getOptionValue(BATCH_REPLICAS_OPTION));
+        if (replicas > 0) {
+          return replicas;
+        }
+      } catch (NumberFormatException e) {
+        // Fall through to the warning
+      }
+      logger.warning("Not a valid number of replicas: "
+          + args.getOptionValue(BATCH_REPLICAS_OPTION));
+    }
+    return processors;
+  }
+
   /**
    * Tries to set the internal server port from the command line arguments. Does nothing if no port
    * was specified.
@@ -0,0 +1,36 @@
+package edu.wpi.grip.core;
+
+/**
+ * The strategy that the {@link PipelineRunner} uses to run the steps in the pipeline.
+ */
+public enum ExecutionMode {
+  /**
+   * Every step is run one after another on the pipeline thread, in the order they appear in the
+   * pipeline.
+   */
+  SEQUENTIAL("Sequential"),
+
+  /**
+   * Steps that do not depend on each other are run concurrently on a bounded thread pool. A step
+   * is only run after every step that feeds one of its inputs has finished.
+   */
+  PARALLEL("Parallel"),
+
+  /**
+   * Several frames are kept in flight at once. Each step processes frames in order, but can start
+   * on the next frame while later steps are still working on the previous one. Every frame has its
+   * own copy of the values produced by the pipeline.
+   */
+  FRAME_PIPELINED("Frame pipelined");
+
+  private final String label;
+
+  ExecutionMode(String label) {
+    this.label = label;
+  }
+
+  @Override
+  public String toString() {
+    return label;
+  }
+}
@@ -0,0 +1,140 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.sockets.OutputSocket;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An immutable snapshot of everything the {@link PipelineRunner} needs to run the pipeline once.
+ * The {@link Pipeline} compiles a new plan every time it is edited and publishes it through a
+ * volatile reference, so the runner only has to read that one reference for each frame instead of
+ * taking locks and copying the lists of sources and steps.
+ *
+ * <p>Sources, their output sockets, and steps are kept in flat arrays that are indexed directly,
+ * and the dependencies between the steps are computed ahead of time. None of the accessors
+ * allocate.</p>
+ */
+final class ExecutionPlan {
+
+  private static final Source[] NO_SOURCES = new Source[0];
+  private static final Step[] NO_STEPS = new Step[0];
+
+  /**
+   * The plan for a pipeline with nothing in it.
+   */
+  static final ExecutionPlan EMPTY = new ExecutionPlan(0, ImmutableList.of(), ImmutableList.of(),
+      StepGraph.of(ImmutableList.of()));
+
+  private final long version;
+  private final Source[] sources;
+  private final OutputSocket<?>[][] sourceOutputs;
+  private final Step[] steps;
+  private final StepGraph graph;
+
+  private ExecutionPlan(long version, List<Source> sources, List<Step> steps, StepGraph graph) {
+    this.version = version;
+    this.sources = sources.toArray(NO_SOURCES);
+    this.sourceOutputs = new OutputSocket<?>[this.sources.length][];
+    for (int i = 0; i < this.sources.length; i++) {
+      // Sources create their list of sockets every time they are asked for it
+      this.sourceOutputs[i] = this.sources[i].getOutputSockets().toArray(new OutputSocket<?>[0]);
+    }
+    this.steps = steps.toArray(NO_STEPS);
+    this.graph = graph;
+  }
+
+  /**
+   * Compiles a plan for a snapshot of the pipeline.
+   *
+   * @param version     the version of the pipeline that this plan was compiled from
+   * @param sources     the sources in the pipeline
+   * @param steps       the steps in the pipeline, in pipeline order
+   * @param connections the connections in the pipeline
+   * @return the compiled plan
+   */
+  static ExecutionPlan of(long version, List<Source> sources, List<Step> steps,
+                          Iterable<? extends Connection> connections) {
+    checkNotNull(sources, "sources");
+    checkNotNull(steps, "steps");
+    return new ExecutionPlan(version, sources, steps, StepGraph.of(steps, connections));
+  }
+
+  /**
+   * Compiles an unversioned plan for a snapshot of the pipeline, using the connections that the
+   * input sockets of the steps currently have.
+   */
+  static ExecutionPlan of(List<Source> sources, List<Step> steps) {
+    checkNotNull(sources, "sources");
+    checkNotNull(steps, "steps");
+    return new ExecutionPlan(0, sources, steps, StepGraph.of(steps));
+  }
+
+  /**
+   * Creates a plan that only runs some of the steps in this one. The sources and version are
+   * unchanged.
+   *
+   * @param retained the steps to keep, in pipeline order
+   */
+  ExecutionPlan retainSteps(List<Step> retained) {
+    checkNotNull(retained, "retained");
+    return new ExecutionPlan(version, ImmutableList.copyOf(sources), retained,
+        StepGraph.of(retained));
+  }
+
+  /**
+   * @return the version of the pipeline this plan was compiled from. This increases every time
+   *     the pipeline is edited.
+   */
+  long getVersion() {
+    return version;
+  }
+
+  int getSourceCount() {
+    return sources.length;
+  }
+
+  Source getSource(int index) {
+    return sources[index];
+  }
+
+  /**
+   * @return the number of output sockets that the source at the given index has.
+   */
+  int getSourceOutputCount(int sourceIndex) {
+    return sourceOutputs[sourceIndex].length;
+  }
+
+  OutputSocket<?> getSourceOutput(int sourceIndex, int socketIndex) {
+    return sourceOutputs[sourceIndex][socketIndex];
+  }
+
+  int getStepCount() {
+    return steps.length;
+  }
+
+  Step getStep(int index) {
+    return steps[index];
+  }
+
+  /**
+   * @return the dependencies between the steps in this plan. Step indices in the graph are the
+   *     same as in this plan.
+   */
+  StepGraph getGraph() {
+    return graph;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("version", version)
+        .add("sources", sources.length)
+        .add("steps", steps.length)
+        .toString();
+  }
+}
@@ -0,0 +1,158 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.sockets.FrameContext;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps several frames in flight through the pipeline at the same time. Each step is a stage that
+ * processes frames one at a time in the order they were submitted, so step {@code k} can work on
+ * frame {@code n + 1} while step {@code k + 1} is still working on frame {@code n}.
+ *
+ * <p>Every frame gets its own {@link FrameContext}, so the values the steps read and write for one
+ * frame are never seen by another. Frames finish in the order they were submitted, which means
+ * that publishing steps always emit results in frame order.</p>
+ */
+final class FramePipeliner {
+
+  private final ExecutorService executor;
+  private final MatPool matPool;
+  private final int parallelism;
+  private final FrameContext[] slots;
+  private final CompletableFuture<?>[] slotCompletion;
+
+  /**
+   * The last frame that was run by each step. A step will not start a new frame until it has
+   * finished the previous one.
+   */
+  private final Map<Step, CompletableFuture<?>> lastRun = new HashMap<>();
+  private CompletableFuture<?> lastFrame = CompletableFuture.completedFuture(null);
+  private long frameCount = 0;
+
+  /**
+   * @param framesInFlight the maximum number of frames that can be in the pipeline at once
+   * @param parallelism    the number of threads used to run the steps
+   * @param matPool        the pool the images of sources come from
+   */
+  FramePipeliner(int framesInFlight, int parallelism, MatPool matPool) {
+    checkArgument(framesInFlight > 0, "Frames in flight must be positive");
+    checkArgument(parallelism > 0, "Parallelism must be positive");
+    this.parallelism = parallelism;
+    this.matPool = checkNotNull(matPool, "matPool");
+    this.executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+        .setNameFormat("Pipeline Stage Worker %d")
+        .setDaemon(true)
+        .build());
+    this.slots = new FrameContext[framesInFlight];
+    this.slotCompletion = new CompletableFuture<?>[framesInFlight];
+    for (int i = 0; i < framesInFlight; i++) {
+      slots[i] = new FrameContext();
+      slotCompletion[i] = CompletableFuture.completedFuture(null);
+    }
+  }
+
+  int getFramesInFlight() {
+    return slots.length;
+  }
+
+  int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Submits a frame to the pipeline. The sources must have already been updated. If the maximum
+   * number of frames are already in flight, this blocks until the oldest one has finished.
+   *
+   * @param plan            the sources whose current outputs make up the frame, and the steps to
+   *                        run
+   * @param isRunning       polled before each step is started. Once this returns false no
+   *                        further steps are started.
+   * @param onSkipped       called on a worker thread for each step that was not started because
+   *                        {@code isRunning} returned false
+   * @param onFrameFinished called after the frame has finished and its results have been made
+   *                        visible outside of the pipeline. This is called in frame order.
+   */
+  void submit(ExecutionPlan plan, Supplier<Boolean> isRunning, Consumer<Step> onSkipped,
+              Runnable onFrameFinished) {
+    checkNotNull(plan, "plan");
+    checkNotNull(isRunning, "isRunning");
+    checkNotNull(onSkipped, "onSkipped");
+    checkNotNull(onFrameFinished, "onFrameFinished");
+    final int slotIndex = (int) (frameCount++ % slots.length);
+    final FrameContext context = slots[slotIndex];
+    // Wait for the frame that last used this slot to be done with it
+    try {
+      slotCompletion[slotIndex].join();
+    } catch (CompletionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+
+    for (int i = 0; i < plan.getSourceCount(); i++) {
+      for (int j = 0; j < plan.getSourceOutputCount(i); j++) {
+        context.snapshot(plan.getSourceOutput(i, j), matPool);
+      }
+    }
+
+    final StepGraph graph = plan.getGraph();
+    lastRun.keySet().retainAll(graph.getSteps());
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[graph.size() + 1];
+    for (int i = 0; i < graph.size(); i++) {
+      final Step step = graph.getSteps().get(i);
+      final int[] predecessors = graph.getPredecessors(i);
+      final CompletableFuture<?>[] dependencies =
+          new CompletableFuture<?>[predecessors.length + 1];
+      for (int j = 0; j < predecessors.length; j++) {
+        dependencies[j] = futures[predecessors[j]];
+      }
+      dependencies[predecessors.length] =
+          lastRun.getOrDefault(step, CompletableFuture.completedFuture(null));
+      futures[i] = CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+        if (!isRunning.get()) {
+          onSkipped.accept(step);
+          return;
+        }
+        context.enter();
+        try {
+          // The dirty flags on the inputs are shared by every frame, so they can't be used to
+          // tell if this frame's inputs have changed.
+          step.runPerform(true);
+        } finally {
+          FrameContext.exit();
+        }
+      }, executor);
+      lastRun.put(step, futures[i]);
+    }
+    futures[graph.size()] = lastFrame;
+
+    lastFrame = CompletableFuture.allOf(futures).thenRun(() -> {
+      try {
+        context.commit(matPool);
+        onFrameFinished.run();
+      } finally {
+        // The results have been shown, so the sources can have their images back
+        context.release(matPool);
+      }
+    });
+    slotCompletion[slotIndex] = lastFrame;
+  }
+
+  /**
+   * Stops the worker threads. Steps that are currently running are allowed to finish.
+   */
+  void shutdown() {
+    executor.shutdown();
+  }
+}
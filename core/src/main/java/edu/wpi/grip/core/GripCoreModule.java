@@ -1,5 +1,6 @@
 package edu.wpi.grip.core;
 
+import edu.wpi.grip.core.events.CoalescingEventBus;
 import edu.wpi.grip.core.events.EventLogger;
 import edu.wpi.grip.core.events.UnexpectedThrowableEvent;
 import edu.wpi.grip.core.metrics.BenchmarkRunner;
@@ -12,7 +13,9 @@ import edu.wpi.grip.core.sockets.OutputSocket;
 import edu.wpi.grip.core.sockets.OutputSocketImpl;
 import edu.wpi.grip.core.sources.CameraSource;
 import edu.wpi.grip.core.sources.ClassifierSource;
+import edu.wpi.grip.core.sources.DirectorySource;
 import edu.wpi.grip.core.sources.HttpSource;
+import edu.wpi.grip.core.sources.ImageCache;
 import edu.wpi.grip.core.sources.ImageFileSource;
 import edu.wpi.grip.core.sources.MultiImageFileSource;
 import edu.wpi.grip.core.sources.NetworkTableEntrySource;
@@ -107,7 +110,7 @@ public class GripCoreModule extends AbstractModule {
    */
   @SuppressWarnings("JavadocMethod")
   public GripCoreModule() {
-    this.eventBus = new EventBus(this::onSubscriberException);
+    this.eventBus = new CoalescingEventBus(this::onSubscriberException);
     // TODO: HACK! Don't assign the global thread handler to an instance method. Creates global
     // state.
     Thread.setDefaultUncaughtExceptionHandler(this::onThreadException);
@@ -161,6 +164,9 @@ public class GripCoreModule extends AbstractModule {
     install(new FactoryModuleBuilder()
         .implement(VideoFileSource.class, VideoFileSource.class)
         .build(VideoFileSource.Factory.class));
+    install(new FactoryModuleBuilder()
+        .implement(DirectorySource.class, DirectorySource.class)
+        .build(DirectorySource.Factory.class));
 
     install(new FactoryModuleBuilder().build(ExceptionWitness.Factory.class));
     install(new FactoryModuleBuilder().build(Timer.Factory.class));
@@ -168,6 +174,11 @@ public class GripCoreModule extends AbstractModule {
     bind(BenchmarkRunner.class).asEagerSingleton();
 
     bind(Cleaner.class).asEagerSingleton();
+    bind(ImageCache.class).asEagerSingleton();
+    bind(MatPool.class).asEagerSingleton();
+    bind(NativeMemoryAccountant.class).asEagerSingleton();
+    bind(StepResultCache.class).asEagerSingleton();
+    bind(StepWatchdog.class).asEagerSingleton();
   }
 
   protected void onSubscriberException(Throwable exception, @Nullable SubscriberExceptionContext
@@ -0,0 +1,89 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.sockets.OutputSocket;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Filters the steps in the pipeline down to the ones whose results are actually used. A step is
+ * live if it is a {@link Operation#isSink() sink}, if one of its outputs is being previewed, or if
+ * it feeds a live step. Every other step can be skipped without changing anything that can be
+ * seen from outside of the pipeline.
+ *
+ * <p>The filtered plan is cached and only recomputed after {@link #invalidate()} is called or a new
+ * execution plan is published.</p>
+ */
+final class LiveStepFilter {
+
+  private final AtomicBoolean stale = new AtomicBoolean(true);
+  private ExecutionPlan lastPlan = ExecutionPlan.EMPTY;
+  private ExecutionPlan livePlan = ExecutionPlan.EMPTY;
+
+  /**
+   * Flags that the set of live steps needs to be recomputed the next time it is used.
+   */
+  void invalidate() {
+    stale.set(true);
+  }
+
+  /**
+   * @param plan the plan for the whole pipeline
+   * @return a plan that only runs the live steps
+   */
+  synchronized ExecutionPlan filter(ExecutionPlan plan) {
+    checkNotNull(plan, "plan");
+    // Clear the flag before computing so that changes made while computing are not lost
+    if (stale.getAndSet(false) || plan != lastPlan) {
+      lastPlan = plan;
+      livePlan = plan.retainSteps(computeLiveSteps(plan.getGraph()));
+    }
+    return livePlan;
+  }
+
+  /**
+   * Walks the pipeline backwards from the steps whose results are used.
+   */
+  static ImmutableList<Step> computeLiveSteps(List<Step> steps) {
+    return computeLiveSteps(StepGraph.of(steps));
+  }
+
+  private static ImmutableList<Step> computeLiveSteps(StepGraph graph) {
+    final boolean[] live = new boolean[graph.size()];
+    // Predecessors always come before a step, so a single backwards pass finds every live step
+    for (int i = graph.size() - 1; i >= 0; i--) {
+      if (!live[i] && isDemanded(graph.getSteps().get(i))) {
+        live[i] = true;
+      }
+      if (live[i]) {
+        for (int predecessor : graph.getPredecessors(i)) {
+          live[predecessor] = true;
+        }
+      }
+    }
+
+    final ImmutableList.Builder<Step> builder = ImmutableList.builder();
+    for (int i = 0; i < graph.size(); i++) {
+      if (live[i]) {
+        builder.add(graph.getSteps().get(i));
+      }
+    }
+    return builder.build();
+  }
+
+  private static boolean isDemanded(Step step) {
+    if (step.isSink()) {
+      return true;
+    }
+    for (OutputSocket<?> socket : step.getOutputSockets()) {
+      if (socket.isPreviewed()) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
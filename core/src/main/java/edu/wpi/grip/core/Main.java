@@ -8,6 +8,7 @@ import edu.wpi.grip.core.http.HttpPipelineSwitcher;
 import edu.wpi.grip.core.operations.CVOperations;
 import edu.wpi.grip.core.operations.Operations;
 import edu.wpi.grip.core.operations.network.GripNetworkModule;
+import edu.wpi.grip.core.operations.network.SharedNetworkModule;
 import edu.wpi.grip.core.serialization.Project;
 import edu.wpi.grip.core.settings.SettingsProvider;
 import edu.wpi.grip.core.sources.GripSourcesHardwareModule;
@@ -22,6 +23,7 @@ import com.google.inject.util.Modules;
 
 import org.apache.commons.cli.CommandLine;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -51,6 +53,8 @@ public class Main {
   private GripServer gripServer;
   @Inject
   private HttpPipelineSwitcher pipelineSwitcher;
+  @Inject
+  private Injector injector;
 
   @SuppressWarnings("JavadocMethod")
   public static void main(String[] args) throws IOException, InterruptedException {
@@ -70,6 +74,12 @@ public class Main {
     CoreCommandLineHelper commandLineHelper = new CoreCommandLineHelper();
     CommandLine parsedArgs = commandLineHelper.parse(args);
 
+    if (commandLineHelper.isBatchMode(parsedArgs)) {
+      runBatch(commandLineHelper, parsedArgs);
+      SafeShutdown.exit(0);
+      return;
+    }
+
     commandLineHelper.loadFile(parsedArgs, project);
     commandLineHelper.setServerPort(parsedArgs, settingsProvider, eventBus);
 
@@ -90,6 +100,10 @@ public class Main {
       pipelineRunner.startAsync();
     }
 
+    for (File file : commandLineHelper.getAdditionalFiles(parsedArgs)) {
+      startAdditionalPipeline(file);
+    }
+
     // This is done in order to indicate to the user using the deployment UI that this is running
     logger.log(Level.INFO, "SUCCESS! The project is running in headless mode!");
     // There's nothing more to do in the main thread since we're in headless mode - sleep forever
@@ -98,6 +112,75 @@ public class Main {
     }
   }
 
+  /**
+   * Runs another project in this process. It gets its own event bus, pipeline, runner thread, and
+   * sources, but shares the HTTP server, the network connections, the image pool and caches, the
+   * step watchdog and the memory accountant with the first project. How much processor time it
+   * uses is controlled by its own execution and frame rate settings, but its memory and step time
+   * limits are the ones of the first project.
+   *
+   * @param file the save file of the project to run
+   *
+   * @throws IOException if the file couldn't be loaded
+   */
+  private void startAdditionalPipeline(File file) throws IOException {
+    // Creating the core module replaces the uncaught exception handler, but uncaught exceptions
+    // should still be reported through the first project.
+    final Thread.UncaughtExceptionHandler exceptionHandler =
+        Thread.getDefaultUncaughtExceptionHandler();
+    final Injector pipelineInjector = Guice.createInjector(Modules.override(new GripCoreModule(),
+        new GripFileModule(), new GripSourcesHardwareModule())
+        .with(new SharedNetworkModule(injector), new SharedResourcesModule(injector)));
+    Thread.setDefaultUncaughtExceptionHandler(exceptionHandler);
+
+    pipelineInjector.getInstance(EventBus.class).register(this);
+    pipelineInjector.getInstance(Operations.class).addOperations();
+    pipelineInjector.getInstance(CVOperations.class).addOperations();
+    try {
+      // Opening the project starts its pipeline
+      pipelineInjector.getInstance(Project.class).open(file);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Invalid file: " + file, e);
+      throw e;
+    }
+    logger.log(Level.INFO, "Running " + file + " as an additional pipeline");
+  }
+
+  /**
+   * Runs the project given on the command line over recorded frames, writes out what it published
+   * for each frame, and returns once every frame has been processed. Neither the HTTP server nor
+   * the pipeline of this injector are started.
+   *
+   * @throws IOException if the project or the frames couldn't be read, or the results couldn't be
+   *                     written
+   */
+  private void runBatch(CoreCommandLineHelper commandLineHelper, CommandLine parsedArgs)
+      throws IOException, InterruptedException {
+    if (!parsedArgs.hasOption(CoreCommandLineHelper.FILE_OPTION)) {
+      logger.log(Level.SEVERE, "Batch mode needs a project to run, given with --file");
+      SafeShutdown.exit(1);
+      return;
+    }
+    final File projectFile =
+        new File(parsedArgs.getOptionValue(CoreCommandLineHelper.FILE_OPTION));
+    final File inputFile = commandLineHelper.getBatchInput(parsedArgs);
+    final File outputFile = commandLineHelper.getBatchOutput(parsedArgs);
+    final int replicas = commandLineHelper.getBatchReplicas(parsedArgs);
+
+    try (BatchProcessor processor = new BatchProcessor(injector, projectFile, replicas)) {
+      final long startTime = System.nanoTime();
+      final long frameCount;
+      try (BatchInput input = BatchInput.open(inputFile);
+           BatchResultWriter output = BatchResultWriter.create(outputFile)) {
+        frameCount = processor.process(input, output);
+      }
+      final double seconds = (System.nanoTime() - startTime) / 1e9;
+      logger.log(Level.INFO, String.format("Processed %d frames from %s in %.1f seconds using %d "
+          + "replicas. The results were written to %s", frameCount, inputFile, seconds, replicas,
+          outputFile));
+    }
+  }
+
   @Subscribe
   public final void onExceptionEvent(ExceptionEvent event) {
     Logger.getLogger(event.getOrigin().getClass().getName()).log(
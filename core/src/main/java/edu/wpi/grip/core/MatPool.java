@@ -0,0 +1,340 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.events.ProjectSettingsChangedEvent;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Singleton;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * A pool of images that are reused instead of being left for the garbage collector. JavaCV only
+ * frees the native memory of an image when the Java object is collected, and the Java object is so
+ * small that the heap can hold enough of them to use up gigabytes of native memory before a
+ * collection happens. Images taken from this pool are freed or reused as soon as they are released
+ * instead.
+ *
+ * <p>Images are pooled by size and type. Every image handed out is reference counted: it starts
+ * with one reference, anything else that keeps it has to {@link #retain} it, and every reference
+ * has to be {@link #release released} exactly once. When the last reference is released the image
+ * goes back to the pool, where it is handed out again to the next caller that asks for the same
+ * size and type.</p>
+ *
+ * <p>The project can limit how much native memory the pool may hold. Idle images are freed to stay
+ * under the limit, and once images in use go over it, released images are freed right away
+ * instead of being kept around.</p>
+ */
+@Singleton
+public class MatPool {
+
+  private static final Logger logger = Logger.getLogger(MatPool.class.getName());
+  private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+  // Guarded by this
+  private final Map<Key, Deque<Mat>> idle = new HashMap<>();
+  private final Map<Mat, Lease> leases = new IdentityHashMap<>();
+  private long idleBytes = 0;
+  private long leasedBytes = 0;
+  private long limit = 0;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Takes an image of the given size and type out of the pool, or creates one if there isn't one.
+   * The contents of the image are undefined.
+   *
+   * @return an image with one reference, which has to be {@link #release released}
+   */
+  public synchronized Mat acquire(int rows, int cols, int type) {
+    checkArgument(rows >= 0 && cols >= 0, "Size cannot be negative");
+    final Key key = new Key(rows, cols, type);
+    final Deque<Mat> images = idle.get(key);
+    final Mat mat;
+    if (images == null || images.isEmpty()) {
+      misses.incrementAndGet();
+      mat = new Mat(rows, cols, type);
+    } else {
+      hits.incrementAndGet();
+      mat = images.removeLast();
+      idleBytes -= Key.size(mat);
+    }
+    final Lease lease = new Lease(key, Key.size(mat));
+    leases.put(mat, lease);
+    leasedBytes += lease.bytes;
+    trimToLimit();
+    return mat;
+  }
+
+  /**
+   * Takes an image with the same size and type as another one out of the pool.
+   *
+   * @see #acquire(int, int, int)
+   */
+  public Mat acquireLike(Mat mat) {
+    checkNotNull(mat, "mat");
+    return acquire(mat.rows(), mat.cols(), mat.type());
+  }
+
+  /**
+   * Takes over an image that was allocated somewhere else, such as by a decoder, so that it is
+   * reference counted and reused like the images acquired from this pool.
+   *
+   * @return the image, with one reference, which has to be {@link #release released}
+   * @throws IllegalArgumentException if the image is already in use from this pool
+   */
+  public synchronized Mat adopt(Mat mat) {
+    checkArgument(!leases.containsKey(checkNotNull(mat, "mat")), "The image is already pooled");
+    final Lease lease = new Lease(new Key(mat.rows(), mat.cols(), mat.type()), Key.size(mat));
+    leases.put(mat, lease);
+    leasedBytes += lease.bytes;
+    trimToLimit();
+    return mat;
+  }
+
+  /**
+   * Adds a reference to an image that was acquired from this pool.
+   *
+   * @throws IllegalArgumentException if the image didn't come from this pool or was already
+   *                                  released
+   */
+  public synchronized void retain(Mat mat) {
+    final Lease lease = leases.get(checkNotNull(mat, "mat"));
+    checkArgument(lease != null, "The image is not in use from this pool");
+    lease.references++;
+  }
+
+  /**
+   * Adds a reference to an image if it was acquired from this pool and is still in use.
+   *
+   * @return true if a reference was added, false if the image doesn't belong to this pool
+   */
+  public synchronized boolean tryRetain(Mat mat) {
+    final Lease lease = leases.get(checkNotNull(mat, "mat"));
+    if (lease == null) {
+      return false;
+    }
+    lease.references++;
+    return true;
+  }
+
+  /**
+   * @return true if the image was acquired from this pool and is still in use
+   */
+  public synchronized boolean isLeased(Mat mat) {
+    return leases.containsKey(checkNotNull(mat, "mat"));
+  }
+
+  /**
+   * Removes a reference to an image that was acquired from this pool. Once no references are left
+   * the image is reused or freed, so it must not be used by the caller again.
+   *
+   * @throws IllegalArgumentException if the image didn't come from this pool or was already
+   *                                  released
+   */
+  public synchronized void release(Mat mat) {
+    final Lease lease = leases.get(checkNotNull(mat, "mat"));
+    checkArgument(lease != null, "The image is not in use from this pool");
+    if (--lease.references > 0) {
+      return;
+    }
+    leases.remove(mat);
+    leasedBytes -= lease.bytes;
+    if (!lease.key.matches(mat)) {
+      // Whoever had it reallocated it, so it can't be found by its size anymore
+      mat.deallocate();
+      return;
+    }
+    if (limit > 0 && leasedBytes + idleBytes + lease.bytes > limit) {
+      evictions.incrementAndGet();
+      mat.deallocate();
+      return;
+    }
+    idle.computeIfAbsent(lease.key, k -> new ArrayDeque<>()).addLast(mat);
+    idleBytes += lease.bytes;
+  }
+
+  /**
+   * Frees idle images until the pool is under its limit.
+   */
+  private void trimToLimit() {
+    if (limit == 0) {
+      return;
+    }
+    final Iterator<Deque<Mat>> iterator = idle.values().iterator();
+    while (leasedBytes + idleBytes > limit && iterator.hasNext()) {
+      final Deque<Mat> images = iterator.next();
+      while (leasedBytes + idleBytes > limit && !images.isEmpty()) {
+        final Mat mat = images.removeFirst();
+        idleBytes -= Key.size(mat);
+        mat.deallocate();
+        evictions.incrementAndGet();
+      }
+      if (images.isEmpty()) {
+        iterator.remove();
+      }
+    }
+    if (leasedBytes > limit) {
+      logger.fine(() -> "Images in use take up " + leasedBytes / BYTES_PER_MEGABYTE
+          + " MB, which is over the native memory limit");
+    }
+  }
+
+  /**
+   * Frees every idle image.
+   */
+  public synchronized void clear() {
+    for (Deque<Mat> images : idle.values()) {
+      for (Mat mat : images) {
+        mat.deallocate();
+        evictions.incrementAndGet();
+      }
+    }
+    idle.clear();
+    idleBytes = 0;
+  }
+
+  /**
+   * @param limit the number of bytes of native memory the pool may hold, or zero for no limit
+   */
+  @VisibleForTesting
+  synchronized void setLimit(long limit) {
+    checkArgument(limit >= 0, "The limit cannot be negative");
+    this.limit = limit;
+    trimToLimit();
+  }
+
+  /**
+   * @return the number of times an image was reused instead of being allocated.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of times an image had to be allocated because none was idle.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of images that were freed to stay under the limit.
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * @return the number of bytes taken up by images that are in use.
+   */
+  public synchronized long getLeasedBytes() {
+    return leasedBytes;
+  }
+
+  /**
+   * @return the number of bytes taken up by images that are waiting to be reused.
+   */
+  public synchronized long getIdleBytes() {
+    return idleBytes;
+  }
+
+  /**
+   * @param counted images that were already counted somewhere else. The images in use that are
+   *                counted here are added to it.
+   * @return the number of bytes taken up by idle images, and by images in use that haven't been
+   *     counted yet
+   */
+  public synchronized long getUncountedBytes(Set<Object> counted) {
+    checkNotNull(counted, "counted");
+    long uncounted = idleBytes;
+    for (Map.Entry<Mat, Lease> entry : leases.entrySet()) {
+      if (counted.add(entry.getKey())) {
+        uncounted += entry.getValue().bytes;
+      }
+    }
+    return uncounted;
+  }
+
+  @Subscribe
+  public void onProjectSettingsChanged(ProjectSettingsChangedEvent event) {
+    setLimit(event.getProjectSettings().getNativeMemoryLimit() * BYTES_PER_MEGABYTE);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hits", hits.get())
+        .add("misses", misses.get())
+        .add("evictions", evictions.get())
+        .add("leasedBytes", getLeasedBytes())
+        .add("idleBytes", getIdleBytes())
+        .toString();
+  }
+
+  /**
+   * The size and type of an image.
+   */
+  private static final class Key {
+    private final int rows;
+    private final int cols;
+    private final int type;
+
+    Key(int rows, int cols, int type) {
+      this.rows = rows;
+      this.cols = cols;
+      this.type = type;
+    }
+
+    boolean matches(Mat mat) {
+      return mat.rows() == rows && mat.cols() == cols && mat.type() == type;
+    }
+
+    static long size(Mat mat) {
+      return mat.total() * mat.elemSize();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return rows == other.rows && cols == other.cols && type == other.type;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * rows + cols) + type;
+    }
+  }
+
+  private static final class Lease {
+    private final Key key;
+    private final long bytes;
+    private int references = 1;
+
+    Lease(Key key, long bytes) {
+      this.key = key;
+      this.bytes = bytes;
+    }
+  }
+}
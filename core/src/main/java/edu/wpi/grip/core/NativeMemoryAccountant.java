@@ -0,0 +1,407 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.events.ProjectSettingsChangedEvent;
+import edu.wpi.grip.core.events.SourceRemovedEvent;
+import edu.wpi.grip.core.events.StepRemovedEvent;
+import edu.wpi.grip.core.events.WarningEvent;
+import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.core.sources.ImageCache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.bytedeco.javacpp.opencv_core.MatVector;
+
+/**
+ * Keeps track of which parts of the pipeline hold native memory. JavaCV images keep their pixels in
+ * native memory that the Java heap knows nothing about, so the process can use gigabytes more than
+ * the heap without anything saying where it went.
+ *
+ * <p>Each sample adds up the images and other native values held by each step's output sockets
+ * and operation, and by each source's sockets and buffers, along with the images held by the
+ * {@link MatPool} and the {@link ImageCache}. The highest amount seen for each of them is kept
+ * until it is removed from the pipeline. Looking at everything the pipeline holds takes a while,
+ * so samples are only taken when someone asks for the numbers, and about once a second on a
+ * thread of its own while there is a budget. When the total goes over the budget set in the
+ * project settings, a {@link WarningEvent} is posted once, until the total drops back under the
+ * budget.</p>
+ *
+ * <p>Pipelines that run alongside the first one in the same process share its accountant, and are
+ * counted along with it once they have been added with {@link #addPipeline}.</p>
+ */
+@Singleton
+public class NativeMemoryAccountant {
+
+  private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+  /**
+   * How often the budget is checked, and how old a sample can be before asking for the numbers
+   * takes a new one.
+   */
+  private static final long SAMPLE_PERIOD = TimeUnit.SECONDS.toNanos(1);
+
+  private final EventBus eventBus;
+  /**
+   * The first pipeline, followed by any that run alongside it in the same process.
+   */
+  private final List<Pipeline> pipelines = new CopyOnWriteArrayList<>();
+  private final MatPool matPool;
+  private final StepResultCache stepResultCache;
+  private final ImageCache imageCache;
+
+  // Guarded by this
+  private final Map<Object, Usage> owners = new IdentityHashMap<>();
+  private final Usage stepCache = new Usage("Step cache");
+  private final Usage imagePool = new Usage("Image pool", Collections.singletonList(stepCache));
+  private final Usage imageFileCache = new Usage("Image file cache");
+  private final Usage total = new Usage("Total");
+  // The values the current sample has already counted, since steps that run in place share an
+  // image with the step that feeds them. Reused by every sample.
+  private final Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+  private final List<Usage> steps = new ArrayList<>();
+  private final List<Usage> sources = new ArrayList<>();
+  private long budget = 0;
+  private boolean overBudget = false;
+  private long lastSampleTime;
+  private boolean sampled = false;
+  @Nullable
+  private ScheduledExecutorService sampler;
+  @Nullable
+  private ScheduledFuture<?> sampleTask;
+
+  @Inject
+  NativeMemoryAccountant(EventBus eventBus, Pipeline pipeline, MatPool matPool,
+                         StepResultCache stepResultCache, ImageCache imageCache) {
+    this.eventBus = checkNotNull(eventBus, "eventBus");
+    this.pipelines.add(checkNotNull(pipeline, "pipeline"));
+    this.matPool = checkNotNull(matPool, "matPool");
+    this.stepResultCache = checkNotNull(stepResultCache, "stepResultCache");
+    this.imageCache = checkNotNull(imageCache, "imageCache");
+  }
+
+  /**
+   * @return the number of bytes of native memory held by a socket value, or zero if it doesn't
+   *     hold any that is known about.
+   */
+  public static long sizeOf(@Nullable Object value) {
+    if (value instanceof Mat) {
+      final Mat mat = (Mat) value;
+      return mat.total() * mat.elemSize();
+    } else if (value instanceof MatVector) {
+      final MatVector vector = (MatVector) value;
+      long bytes = 0;
+      for (long i = 0; i < vector.size(); i++) {
+        bytes += sizeOf(vector.get(i));
+      }
+      return bytes;
+    } else if (value instanceof NativeMemoryHolder) {
+      return ((NativeMemoryHolder) value).getNativeBytes();
+    }
+    return 0;
+  }
+
+  /**
+   * Adds another pipeline that runs in the same process and shares the image pool and caches, so
+   * that what its steps and sources hold is counted too. Its steps and sources are listed after
+   * those of the pipelines that were added before it.
+   */
+  public void addPipeline(Pipeline pipeline) {
+    pipelines.add(checkNotNull(pipeline, "pipeline"));
+  }
+
+  /**
+   * Adds up the native memory held by every step and source in every pipeline.
+   */
+  public void sample() {
+    final List<Step> allSteps = new ArrayList<>();
+    final List<Source> allSources = new ArrayList<>();
+    for (Pipeline pipeline : pipelines) {
+      allSteps.addAll(pipeline.getSteps());
+      allSources.addAll(pipeline.getSources());
+    }
+    sample(allSteps, allSources);
+  }
+
+  /**
+   * Takes a new sample unless the last one was taken very recently. Anything that shows the
+   * numbers should call this first, so that asking for them often doesn't cost a sample each
+   * time.
+   */
+  public void sampleIfStale() {
+    synchronized (this) {
+      if (sampled && System.nanoTime() - lastSampleTime < SAMPLE_PERIOD) {
+        return;
+      }
+    }
+    sample();
+  }
+
+  @VisibleForTesting
+  synchronized void sample(List<Step> pipelineSteps, List<Source> pipelineSources) {
+    long sum = 0;
+    counted.clear();
+    steps.clear();
+    for (Step step : pipelineSteps) {
+      final Usage usage = owners.computeIfAbsent(step, s -> createUsage(
+          step.getOperationDescription().name(), step.getOutputSockets(), "Operation"));
+      sum += usage.update(step.getOutputSockets(), step.getScratchBytes(), counted);
+      steps.add(usage);
+    }
+    sources.clear();
+    for (Source source : pipelineSources) {
+      final Usage usage = owners.computeIfAbsent(source, s -> createUsage(
+          source.getName(), source.getOutputSockets(), "Buffers"));
+      sum += usage.update(source.getOutputSockets(), source instanceof NativeMemoryHolder
+          ? ((NativeMemoryHolder) source).getNativeBytes() : 0, counted);
+      if (source instanceof NativeMemoryHolder) {
+        ((NativeMemoryHolder) source).addPooledImages(counted);
+      }
+      sources.add(usage);
+    }
+    // Only the images that no source is showing, since those were counted with the source. The
+    // cached images are pooled too, so they have to be counted before the pool is.
+    imageFileCache.set(imageCache.getUncountedSize(counted));
+    sum += imageFileCache.bytes;
+    // The step cache keeps its images in the pool, so it is only counted as part of the pool.
+    // Pooled images that sources or the image cache hold were already counted with them.
+    stepCache.set(stepResultCache.getSize());
+    imagePool.set(matPool.getUncountedBytes(counted));
+    sum += imagePool.bytes;
+    total.set(sum);
+    // The set must not keep the pipeline's images alive until the next sample
+    counted.clear();
+    sampled = true;
+    lastSampleTime = System.nanoTime();
+    checkBudget(steps);
+  }
+
+  private static Usage createUsage(String name, List<OutputSocket> sockets, String scratchName) {
+    final List<Usage> parts = new ArrayList<>(sockets.size() + 1);
+    for (OutputSocket<?> socket : sockets) {
+      parts.add(new Usage(socket.getSocketHint().getIdentifier()));
+    }
+    parts.add(new Usage(scratchName));
+    return new Usage(name, parts);
+  }
+
+  private void checkBudget(List<Usage> stepUsages) {
+    if (budget == 0 || total.bytes <= budget) {
+      overBudget = false;
+      return;
+    }
+    if (overBudget) {
+      return;
+    }
+    overBudget = true;
+    final StringBuilder body = new StringBuilder(String.format(
+        "%d MB of native memory is in use, which is over the budget of %d MB in the project "
+            + "settings.", total.bytes / BYTES_PER_MEGABYTE, budget / BYTES_PER_MEGABYTE));
+    stepUsages.stream()
+        .max((a, b) -> Long.compare(a.bytes, b.bytes))
+        .filter(largest -> largest.bytes > 0)
+        .ifPresent(largest -> body.append(String.format(
+            "\n\nThe step holding the most is %s, with %d MB.", largest.name,
+            largest.bytes / BYTES_PER_MEGABYTE)));
+    eventBus.post(new WarningEvent("Native memory budget exceeded", body.toString()));
+  }
+
+  /**
+   * @return how much native memory the whole pipeline holds.
+   */
+  public synchronized Usage getTotal() {
+    return total.copy();
+  }
+
+  /**
+   * @param owner a step or source in the pipeline
+   * @return how much native memory the step or source holds, if it has been sampled yet
+   */
+  public synchronized Optional<Usage> getUsage(Object owner) {
+    return Optional.ofNullable(owners.get(owner)).map(Usage::copy);
+  }
+
+  /**
+   * @return a breakdown of the native memory held by every pipeline as of the last sample, with
+   *     steps and sources in the order they are in their pipelines.
+   */
+  public synchronized Map<String, Object> getReport() {
+    final Map<String, Object> report = new LinkedHashMap<>();
+    report.put("pipelines", pipelines.size());
+    report.put("budgetBytes", budget);
+    report.put("total", total.copy());
+    report.put("steps", copyAll(steps));
+    report.put("sources", copyAll(sources));
+    report.put("imagePool", imagePool.copy());
+    report.put("imageFileCache", imageFileCache.copy());
+    return report;
+  }
+
+  private static List<Usage> copyAll(List<Usage> usages) {
+    final List<Usage> copies = new ArrayList<>(usages.size());
+    for (Usage usage : usages) {
+      copies.add(usage.copy());
+    }
+    return copies;
+  }
+
+  @VisibleForTesting
+  synchronized void setBudget(long budget) {
+    checkArgument(budget >= 0, "The budget cannot be negative");
+    this.budget = budget;
+  }
+
+  /**
+   * Checks the budget on a thread of its own while there is one, so that the pipeline thread never
+   * has to look at everything it holds.
+   */
+  private synchronized void scheduleSampling() {
+    if (budget == 0) {
+      if (sampleTask != null) {
+        sampleTask.cancel(false);
+        sampleTask = null;
+      }
+      return;
+    }
+    if (sampleTask != null) {
+      return;
+    }
+    if (sampler == null) {
+      sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("Native Memory Accountant")
+          .setDaemon(true)
+          .build());
+    }
+    sampleTask = sampler.scheduleAtFixedRate(this::sample, SAMPLE_PERIOD, SAMPLE_PERIOD,
+        TimeUnit.NANOSECONDS);
+  }
+
+  @Subscribe
+  public synchronized void onStepRemoved(StepRemovedEvent event) {
+    owners.remove(event.getStep());
+  }
+
+  @Subscribe
+  public synchronized void onSourceRemoved(SourceRemovedEvent event) {
+    owners.remove(event.getSource());
+  }
+
+  @Subscribe
+  public void onProjectSettingsChanged(ProjectSettingsChangedEvent event) {
+    setBudget(event.getProjectSettings().getNativeMemoryBudget() * BYTES_PER_MEGABYTE);
+    scheduleSampling();
+  }
+
+  /**
+   * How much native memory something holds, and the most it has held.
+   */
+  public static final class Usage {
+    private final String name;
+    private long bytes;
+    private long peakBytes;
+    @Nullable
+    private final List<Usage> parts;
+
+    Usage(String name) {
+      this(name, null);
+    }
+
+    Usage(String name, @Nullable List<Usage> parts) {
+      this.name = checkNotNull(name, "name");
+      this.parts = parts;
+    }
+
+    private Usage(Usage usage) {
+      this.name = usage.name;
+      this.bytes = usage.bytes;
+      this.peakBytes = usage.peakBytes;
+      this.parts = usage.parts == null ? null : copyAll(usage.parts);
+    }
+
+    void set(long bytes) {
+      this.bytes = bytes;
+      this.peakBytes = Math.max(peakBytes, bytes);
+    }
+
+    /**
+     * Sets the parts of a step or source from the values of its sockets, followed by the memory
+     * it holds outside of them. Values that have already been counted for another socket are
+     * not counted again.
+     *
+     * @return the number of bytes held by all of the parts
+     */
+    long update(List<OutputSocket> sockets, long otherBytes, Set<Object> counted) {
+      long sum = 0;
+      for (int i = 0; i < sockets.size(); i++) {
+        final Object value = sockets.get(i).getValue().orElse(null);
+        final long socketBytes = counted.add(value) ? sizeOf(value) : 0;
+        parts.get(i).set(socketBytes);
+        sum += socketBytes;
+      }
+      parts.get(sockets.size()).set(otherBytes);
+      sum += otherBytes;
+      set(sum);
+      return sum;
+    }
+
+    Usage copy() {
+      return new Usage(this);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the number of bytes held as of the last sample.
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+    /**
+     * @return the most bytes that any sample has found held.
+     */
+    public long getPeakBytes() {
+      return peakBytes;
+    }
+
+    /**
+     * @return what the memory is held by, or an empty list if it isn't broken down any further.
+     */
+    public List<Usage> getParts() {
+      return parts == null ? Collections.emptyList() : Collections.unmodifiableList(parts);
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("name", name)
+          .add("bytes", bytes)
+          .add("peakBytes", peakBytes)
+          .toString();
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package edu.wpi.grip.core;
+
+import java.util.Set;
+
+/**
+ * Something that holds native memory that can't be seen by looking at the images in sockets, such
+ * as the scratch images of an operation, the buffers of a source, or the contours in a report. The
+ * {@link NativeMemoryAccountant} asks operations, sources and socket values that implement this how
+ * much memory they hold.
+ */
+public interface NativeMemoryHolder {
+
+  /**
+   * @return the number of bytes of native memory currently held.
+   */
+  long getNativeBytes();
+
+  /**
+   * Adds the images counted by {@link #getNativeBytes()} that were taken out of the
+   * {@link MatPool} to a set of images that have already been counted, so they aren't counted
+   * again as part of the pool. Nothing is added by default.
+   */
+  default void addPooledImages(Set<Object> counted) {
+    // Nothing held comes from the pool
+  }
+
+}
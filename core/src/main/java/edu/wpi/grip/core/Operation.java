@@ -29,6 +29,65 @@ public interface Operation {
    */
   void perform();
 
+  /**
+   * Sinks are operations that have an effect outside of the pipeline, such as publishing or saving
+   * data. When the pipeline only runs steps that are used, a step is only run if it is a sink,
+   * one of its outputs is being previewed, or it feeds another step that is run.
+   *
+   * @return true if this operation is a sink.
+   */
+  default boolean isSink() {
+    return false;
+  }
+
+  /**
+   * Whether the outputs of this operation can be restored from a {@link StepResultCache} instead
+   * of performing it again when its inputs have the same values. This is only true if the outputs
+   * depend on nothing but the current inputs, and the operation writes its images to its own
+   * outputs rather than passing its inputs through. Sinks are never cached because their effect
+   * outside of the pipeline is the point of running them.
+   *
+   * @return true if the results of this operation may be cached.
+   */
+  default boolean isCacheable() {
+    return !isSink();
+  }
+
+  /**
+   * Operations that can run in place write their first output into the image held by their first
+   * input instead of an image of their own. This is only true if the first input and the first
+   * output are both images and the operation gives the right result when they are the same image,
+   * which is the case for operations that work on each pixel on its own. Whether a step actually
+   * runs in place is decided by the {@link BufferPlanner}, which only allows it when nothing else
+   * uses the image that would be written over.
+   *
+   * @return true if this operation can write its result over its first input.
+   */
+  default boolean canPerformInPlace() {
+    return false;
+  }
+
+  /**
+   * Risky operations spend most of their time in a single native call that can take arbitrarily
+   * long on some inputs and can't be interrupted. If the project allows it, they are run on a
+   * thread of their own so that the pipeline can give up on them.
+   *
+   * @return true if this operation might hang in native code.
+   * @see StepWatchdog
+   */
+  default boolean isRisky() {
+    return false;
+  }
+
+  /**
+   * Called instead of {@link #perform()} when a run of the pipeline is abandoned before reaching
+   * this operation, so whatever it produced for an earlier frame is now out of date. Sinks that
+   * publish data should withdraw it so that nothing acts on stale results.
+   */
+  default void invalidate() {
+        /* no-op */
+  }
+
   /**
    * Allows the step to clean itself up when removed from the pipeline. This should only be called
    * by {@link Step#setRemoved()} to ensure correct synchronization.
@@ -0,0 +1,93 @@
+package edu.wpi.grip.core;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs the steps in a {@link StepGraph} on a bounded thread pool. Each step is submitted as soon
+ * as all of its predecessors have finished, so independent branches of the pipeline run
+ * concurrently while every step still sees the outputs of the steps that feed it.
+ */
+final class ParallelStepScheduler {
+
+  private final int parallelism;
+  private final ExecutorService executor;
+
+  /**
+   * @param parallelism the maximum number of steps that can run at the same time
+   */
+  ParallelStepScheduler(int parallelism) {
+    checkArgument(parallelism > 0, "Parallelism must be positive");
+    this.parallelism = parallelism;
+    this.executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+        .setNameFormat("Pipeline Step Worker %d")
+        .setDaemon(true)
+        .build());
+  }
+
+  /**
+   * @return the maximum number of steps that can run at the same time.
+   */
+  int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Runs every step in the graph and blocks until they have all finished.
+   *
+   * @param graph     the steps to run
+   * @param force     passed to {@link Step#runPerform(boolean)}
+   * @param isRunning polled before each step is started. Once this returns false no further steps
+   *                  are started.
+   * @param onSkipped called on a worker thread for each step that was not started because
+   *                  {@code isRunning} returned false
+   */
+  void run(StepGraph graph, boolean force, Supplier<Boolean> isRunning,
+           Consumer<Step> onSkipped) {
+    checkNotNull(graph, "graph");
+    checkNotNull(isRunning, "isRunning");
+    checkNotNull(onSkipped, "onSkipped");
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[graph.size()];
+    for (int i = 0; i < graph.size(); i++) {
+      final Step step = graph.getSteps().get(i);
+      final int[] predecessors = graph.getPredecessors(i);
+      final CompletableFuture<?>[] dependencies = new CompletableFuture<?>[predecessors.length];
+      for (int j = 0; j < predecessors.length; j++) {
+        dependencies[j] = futures[predecessors[j]];
+      }
+      futures[i] = CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+        // if we have been stopped then we need to exit as soon as possible.
+        if (isRunning.get()) {
+          step.runPerform(force);
+        } else {
+          onSkipped.accept(step);
+        }
+      }, executor);
+    }
+
+    try {
+      CompletableFuture.allOf(futures).join();
+    } catch (CompletionException e) {
+      // Step#runPerform already handles runtime exceptions thrown by operations, so anything that
+      // gets here is a real problem that the pipeline thread should know about.
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Stops the worker threads. Steps that are currently running are allowed to finish.
+   */
+  void shutdown() {
+    executor.shutdown();
+  }
+}
@@ -70,6 +70,14 @@ public class Pipeline implements ConnectionValidator, SettingsProvider, StepInde
   @XStreamOmitField
   private transient AppSettings appSettings = new AppSettings(); // Do not serialize this field
   private CodeGenerationSettings codeGenerationSettings = CodeGenerationSettings.DEFAULT_SETTINGS;
+  /**
+   * Recompiled every time the pipeline is edited so that the pipeline runner never has to lock or
+   * copy anything to get a consistent view of the pipeline.
+   */
+  @XStreamOmitField
+  private transient volatile ExecutionPlan executionPlan = ExecutionPlan.EMPTY;
+  @XStreamOmitField
+  private transient long executionPlanVersion = 0;
 
   /**
    * Locks the resource with the specified lock and performs the function. When the function is
@@ -181,6 +189,27 @@ public class Pipeline implements ConnectionValidator, SettingsProvider, StepInde
     });
   }
 
+  /**
+   * @return the plan for running the pipeline as it was after the last edit. This never locks or
+   *     allocates, so it is safe to call for every frame.
+   */
+  ExecutionPlan getExecutionPlan() {
+    return executionPlan;
+  }
+
+  /**
+   * Compiles a new execution plan from the current state of the pipeline and publishes it, and
+   * plans which steps can write their results in place. This must be called after every edit to
+   * the sources, steps, or connections.
+   */
+  private synchronized void publishExecutionPlan() {
+    final List<Step> steps = getSteps();
+    final List<Connection> connectionSnapshot = ImmutableList.copyOf(connections);
+    BufferPlanner.assign(steps, connectionSnapshot);
+    executionPlan = ExecutionPlan.of(++executionPlanVersion, getSources(), steps,
+        connectionSnapshot);
+  }
+
   /**
    * @return The unmodifiable set of connections between inputs and outputs of steps.
    */
@@ -245,6 +274,7 @@ public class Pipeline implements ConnectionValidator, SettingsProvider, StepInde
     writeSourcesSafelyConsume(sources -> {
       sources.add(event.getSource());
     });
+    publishExecutionPlan();
   }
 
   @Subscribe
@@ -252,6 +282,7 @@ public class Pipeline implements ConnectionValidator, SettingsProvider, StepInde
     writeSourcesSafelyConsume(sources -> {
       sources.remove(event.getSource());
     });
+    publishExecutionPlan();
 
     // Sockets of deleted sources should not be previewed
     for (OutputSocket<?> socket : event.getSource().getOutputSockets()) {
@@ -325,6 +356,7 @@ public class Pipeline implements ConnectionValidator, SettingsProvider, StepInde
     checkArgument(!step.removed(), "The step must not have been disabled already");
 
     writeStepsSafelyConsume(steps -> steps.add(index, step));
+    publishExecutionPlan();
 
     this.eventBus.register(step);
     this.eventBus.post(new StepAddedEvent(step, index));
@@ -343,6 +375,7 @@ public class Pipeline implements ConnectionValidator, SettingsProvider, StepInde
     checkNotNull(step, "The step can not be null");
 
     writeStepsSafelyConsume(steps -> steps.remove(step));
+    publishExecutionPlan();
 
     // Sockets of deleted steps should not be previewed
     for (OutputSocket<?> socket : step.getOutputSockets()) {
@@ -373,6 +406,7 @@ public class Pipeline implements ConnectionValidator, SettingsProvider, StepInde
       final int newIndex = Math.min(Math.max(oldIndex + delta, 0), this.steps.size());
       this.steps.add(newIndex, step);
     });
+    publishExecutionPlan();
 
     // Do not lock while posting the event
     eventBus.post(new StepMovedEvent(step, delta));
@@ -389,12 +423,14 @@ public class Pipeline implements ConnectionValidator, SettingsProvider, StepInde
     final Connection connection = event.getConnection();
     this.connections.add(connection);
     this.eventBus.register(connection);
+    publishExecutionPlan();
   }
 
   @Subscribe
   public void onConnectionRemoved(ConnectionRemovedEvent event) {
     this.connections.remove(event.getConnection());
     this.eventBus.unregister(event.getConnection());
+    publishExecutionPlan();
   }
 
   @Subscribe
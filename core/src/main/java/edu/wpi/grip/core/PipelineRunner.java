@@ -2,13 +2,19 @@ package edu.wpi.grip.core;
 
 
 import edu.wpi.grip.core.events.BenchmarkEvent;
+import edu.wpi.grip.core.events.ConnectionAddedEvent;
+import edu.wpi.grip.core.events.ConnectionRemovedEvent;
+import edu.wpi.grip.core.events.ProjectSettingsChangedEvent;
 import edu.wpi.grip.core.events.RenderEvent;
 import edu.wpi.grip.core.events.RunPipelineEvent;
 import edu.wpi.grip.core.events.RunStartedEvent;
 import edu.wpi.grip.core.events.RunStoppedEvent;
+import edu.wpi.grip.core.events.SocketPreviewChangedEvent;
+import edu.wpi.grip.core.events.StepAddedEvent;
+import edu.wpi.grip.core.events.StepRemovedEvent;
 import edu.wpi.grip.core.events.StopPipelineEvent;
 import edu.wpi.grip.core.metrics.Timer;
-import edu.wpi.grip.core.util.SinglePermitSemaphore;
+import edu.wpi.grip.core.settings.ProjectSettings;
 import edu.wpi.grip.core.util.service.AutoRestartingService;
 import edu.wpi.grip.core.util.service.LoggingListener;
 import edu.wpi.grip.core.util.service.RestartableService;
@@ -18,7 +24,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
-import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
@@ -27,6 +33,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.logging.Logger;
 
@@ -42,63 +49,113 @@ import static com.google.common.base.Preconditions.checkNotNull;
 @Singleton
 public class PipelineRunner implements RestartableService {
   private static final Logger logger = Logger.getLogger(PipelineRunner.class.getName());
+  // These events don't carry any state, so the same ones are posted for every run
+  private static final RunStartedEvent RUN_STARTED = new RunStartedEvent();
+  private static final RunStoppedEvent RUN_STOPPED = new RunStoppedEvent();
+  private static final RenderEvent RENDER = new RenderEvent();
+  private static final Supplier<Boolean> ALWAYS_RUNNING = () -> true;
   /**
    * This is used to flag that the pipeline needs to run because of an update.
    */
-  private final SinglePermitSemaphore pipelineFlag = new SinglePermitSemaphore();
-  private final Supplier<ImmutableList<Source>> sourceSupplier;
-  private final Supplier<ImmutableList<Step>> stepSupplier;
+  private final RunScheduler scheduler = new RunScheduler();
+  private final Supplier<ExecutionPlan> planSupplier;
   private final AutoRestartingService pipelineService;
+  private final EventBus eventBus;
+  private final MatPool matPool;
+  private final Timer timer;
+  // Created once so that runs in the current thread don't allocate
+  private final Runnable foregroundRun = this::runPipeline;
 
   private final AtomicBoolean benchmarking = new AtomicBoolean(false);
 
+  private volatile ExecutionMode executionMode = ExecutionMode.SEQUENTIAL;
+  private volatile int executionThreads = 0;
+  private volatile int framesInFlight = 1;
+  private volatile boolean onlyRunUsedSteps = false;
+  /**
+   * How long a single run may take in nanoseconds, or zero for no limit.
+   */
+  private volatile long latencyBudget = 0;
+  private final AtomicLong deadlineMisses = new AtomicLong();
+  private final LiveStepFilter liveStepFilter = new LiveStepFilter();
+  /**
+   * Reused for every run that isn't frame pipelined, since those only ever happen one at a time.
+   */
+  @Nullable
+  private RunDeadline runDeadline;
+  /**
+   * Lazily created the first time the pipeline is run in {@link ExecutionMode#PARALLEL} mode.
+   */
+  @Nullable
+  private ParallelStepScheduler parallelScheduler;
+  /**
+   * Lazily created the first time the pipeline is run in {@link ExecutionMode#FRAME_PIPELINED}
+   * mode.
+   */
+  @Nullable
+  private FramePipeliner framePipeliner;
+
   @Inject
   PipelineRunner(EventBus eventBus,
                  Provider<Pipeline> pipelineProvider,
-                 Timer.Factory timerFactory) {
-    this(eventBus,
-        () -> pipelineProvider.get().getSources(),
-        () -> pipelineProvider.get().getSteps(),
-        timerFactory);
+                 Timer.Factory timerFactory,
+                 MatPool matPool) {
+    this(eventBus, () -> pipelineProvider.get().getExecutionPlan(), timerFactory, matPool);
   }
 
   PipelineRunner(EventBus eventBus,
                  Supplier<ImmutableList<Source>> sourceSupplier,
                  Supplier<ImmutableList<Step>> stepSupplier,
                  Timer.Factory timerFactory) {
-    this.sourceSupplier = sourceSupplier;
-    this.stepSupplier = stepSupplier;
-    Timer timer = timerFactory.create(this);
+    this(eventBus, () -> ExecutionPlan.of(sourceSupplier.get(), stepSupplier.get()), timerFactory,
+        new MatPool());
+  }
+
+  private PipelineRunner(EventBus eventBus,
+                         Supplier<ExecutionPlan> planSupplier,
+                         Timer.Factory timerFactory,
+                         MatPool matPool) {
+    this.eventBus = eventBus;
+    this.matPool = matPool;
+    this.planSupplier = planSupplier;
+    this.timer = timerFactory.create(this);
     this.pipelineService = new AutoRestartingService<>(
-        () -> new AbstractScheduledService() {
+        () -> new AbstractExecutionThreadService() {
+          private final Supplier<Boolean> isRunning = super::isRunning;
+          // Created once so that running the pipeline doesn't allocate
+          private final Runnable timedRun = () -> runPipeline(isRunning);
 
           /**
+           * Runs the pipeline every time the scheduler allows it until the service is stopped. The
+           * thread sleeps while there is nothing new to run.
            *
            * @throws InterruptedException This should never happen.
            */
           @Override
-          protected void runOneIteration() throws InterruptedException {
-            if (!super.isRunning()) {
-              return;
+          protected void run() throws InterruptedException {
+            while (super.isRunning()) {
+              runOneIteration();
             }
+          }
 
-            pipelineFlag.acquire();
-            eventBus.post(new RunStartedEvent());
-
+          private void runOneIteration() throws InterruptedException {
+            scheduler.awaitNextRun();
             if (!super.isRunning()) {
               return;
             }
-            timer.time(() -> runPipeline(super::isRunning));
-            // This should not block access to the steps array
-            eventBus.post(new RunStoppedEvent());
-            if (super.isRunning()) {
-              eventBus.post(new RenderEvent());
-            }
+            runOnce(isRunning, timedRun);
+          }
+
+          @Override
+          protected void shutDown() {
+            shutDownParallelScheduler();
+            shutDownFramePipeliner();
           }
 
           @Override
-          protected Scheduler scheduler() {
-            return Scheduler.newFixedRateSchedule(0, 1, TimeUnit.MILLISECONDS);
+          protected void triggerShutdown() {
+            // Wake the pipeline thread up so that it notices it has been stopped
+            scheduler.requestRun();
           }
 
           @Override
@@ -134,7 +191,7 @@ public class PipelineRunner implements RestartableService {
   public PipelineRunner stopAsync() {
     pipelineService.stopAsync();
     // Ensure that we unblock the pipeline so it can actually stop
-    pipelineFlag.release();
+    scheduler.requestRun();
     return this;
   }
 
@@ -184,33 +241,246 @@ public class PipelineRunner implements RestartableService {
    */
   @VisibleForTesting
   void runPipeline() {
-    runPipeline(() -> true);
+    runPipeline(ALWAYS_RUNNING);
+  }
+
+  /**
+   * Runs the pipeline once in the current thread, timing it and posting the same events as the
+   * pipeline thread does.
+   */
+  @VisibleForTesting
+  void runOnce() {
+    runOnce(ALWAYS_RUNNING, foregroundRun);
+  }
+
+  private void runOnce(Supplier<Boolean> isRunning, Runnable timedRun) {
+    eventBus.post(RUN_STARTED);
+
+    if (!isRunning.get()) {
+      return;
+    }
+    if (executionMode == ExecutionMode.FRAME_PIPELINED && !benchmarking.get()) {
+      // The run stopped and render events are posted when the frame leaves the pipeline
+      submitFrame(isRunning);
+      return;
+    }
+    timer.time(timedRun);
+    // This should not block access to the steps array
+    eventBus.post(RUN_STOPPED);
+    if (isRunning.get()) {
+      eventBus.post(RENDER);
+    }
   }
 
   private void runPipeline(Supplier<Boolean> isRunning) {
-    // Take a snapshot of both of the pipeline at the present time before running it.
-    final ImmutableList<Source> sources = sourceSupplier.get();
-    final ImmutableList<Step> steps = stepSupplier.get();
-    // Now that we have a snapshot we can run the pipeline with our copy.
+    final long startTime = System.nanoTime();
+    // The plan is an immutable snapshot of the pipeline, so the pipeline can be edited while it is
+    // being run.
+    final ExecutionPlan plan = getPlanToRun();
 
     if (!benchmarking.get()) {
       // Don't update sources if this run is being benchmarked
-      for (Source source : sources) {
-        // if we have been stopped then we need to exit as soon as possible.
-        // then don't continue to run the pipeline.
-        if (!isRunning.get()) {
-          break;
+      if (!updateSources(plan, isRunning)) {
+        return;
+      }
+    }
+
+    final boolean force = benchmarking.get();
+    // Benchmarks measure complete runs, so they are never cut short
+    if (runDeadline == null || !runDeadline.isFor(isRunning)) {
+      runDeadline = new RunDeadline(isRunning);
+    }
+    final RunDeadline deadline = runDeadline;
+    deadline.restart(startTime, force ? 0 : latencyBudget);
+    // Benchmarks need every run to finish before the next one starts, so frame pipelined mode
+    // falls back to running the steps one at a time here.
+    if (executionMode == ExecutionMode.PARALLEL && plan.getStepCount() > 1) {
+      getParallelScheduler().run(plan.getGraph(), force, deadline,
+          step -> invalidateIfMissed(deadline, step));
+    } else {
+      for (int i = 0; i < plan.getStepCount(); i++) {
+        final Step step = plan.getStep(i);
+        if (deadline.get()) {
+          step.runPerform(force);
+        } else {
+          invalidateIfMissed(deadline, step);
         }
-        source.updateOutputSockets();
       }
     }
+    countIfMissed(deadline);
+  }
+
+  /**
+   * Withdraws what a sink published for an earlier frame if the run skipped it because it went
+   * over the latency budget. Steps skipped because the pipeline was stopped are left alone.
+   */
+  private static void invalidateIfMissed(RunDeadline deadline, Step step) {
+    if (deadline.isMissed() && step.isSink()) {
+      step.invalidate();
+    }
+  }
+
+  private void countIfMissed(RunDeadline deadline) {
+    if (deadline.isMissed()) {
+      deadlineMisses.incrementAndGet();
+    }
+  }
 
-    for (Step step : steps) {
+  /**
+   * Updates the outputs of every source in the plan.
+   *
+   * @return false if the pipeline was stopped before every source could be updated.
+   */
+  private static boolean updateSources(ExecutionPlan plan, Supplier<Boolean> isRunning) {
+    for (int i = 0; i < plan.getSourceCount(); i++) {
+      // if we have been stopped then we need to exit as soon as possible.
+      // then don't continue to run the pipeline.
       if (!isRunning.get()) {
-        break;
+        return false;
       }
-      step.runPerform(benchmarking.get());
+      plan.getSource(i).updateOutputSockets();
+    }
+    return true;
+  }
+
+  /**
+   * Gets the latest plan for the pipeline, leaving out steps whose results are not used if the
+   * project is set to only run used steps.
+   */
+  private ExecutionPlan getPlanToRun() {
+    final ExecutionPlan plan = planSupplier.get();
+    return onlyRunUsedSteps ? liveStepFilter.filter(plan) : plan;
+  }
+
+  /**
+   * Updates the sources and submits their outputs to the pipeline as a new frame. This returns as
+   * soon as the frame has been admitted to the pipeline, which may mean waiting for an earlier
+   * frame to finish if too many frames are already in flight.
+   */
+  private void submitFrame(Supplier<Boolean> isRunning) {
+    final long startTime = System.nanoTime();
+    final ExecutionPlan plan = getPlanToRun();
+    if (!updateSources(plan, isRunning)) {
+      return;
+    }
+    final RunDeadline deadline = new RunDeadline(isRunning, startTime, latencyBudget);
+    getFramePipeliner().submit(plan, deadline, step -> invalidateIfMissed(deadline, step), () -> {
+      countIfMissed(deadline);
+      final long elapsed = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime);
+      timer.record(elapsed);
+      eventBus.post(RUN_STOPPED);
+      if (isRunning.get()) {
+        eventBus.post(RENDER);
+      }
+    });
+  }
+
+  /**
+   * Gets the pipeliner used to keep several frames in flight, recreating it if its settings have
+   * changed since it was created.
+   */
+  private synchronized FramePipeliner getFramePipeliner() {
+    final int parallelism = getParallelism();
+    if (framePipeliner == null
+        || framePipeliner.getParallelism() != parallelism
+        || framePipeliner.getFramesInFlight() != framesInFlight) {
+      shutDownFramePipeliner();
+      framePipeliner = new FramePipeliner(framesInFlight, parallelism, matPool);
+    }
+    return framePipeliner;
+  }
+
+  private synchronized void shutDownFramePipeliner() {
+    if (framePipeliner != null) {
+      framePipeliner.shutdown();
+      framePipeliner = null;
+    }
+  }
+
+  private int getParallelism() {
+    return executionThreads > 0 ? executionThreads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Gets the scheduler used to run steps in parallel, recreating it if the number of threads it
+   * should use has changed since it was created.
+   */
+  private synchronized ParallelStepScheduler getParallelScheduler() {
+    final int parallelism = getParallelism();
+    if (parallelScheduler == null || parallelScheduler.getParallelism() != parallelism) {
+      shutDownParallelScheduler();
+      parallelScheduler = new ParallelStepScheduler(parallelism);
+    }
+    return parallelScheduler;
+  }
+
+  private synchronized void shutDownParallelScheduler() {
+    if (parallelScheduler != null) {
+      parallelScheduler.shutdown();
+      parallelScheduler = null;
+    }
+  }
+
+  /**
+   * @return the number of requests to run the pipeline that were merged into a run that was
+   *     already pending, either because they arrived while the pipeline was busy or because the
+   *     target frame rate did not allow another run yet.
+   */
+  public long getCoalescedRunCount() {
+    return scheduler.getCoalescedRequestCount();
+  }
+
+  /**
+   * @return the total number of frames that the sources currently in the pipeline have dropped
+   *     because the pipeline could not keep up with them.
+   */
+  public long getDroppedFrameCount() {
+    final ExecutionPlan plan = planSupplier.get();
+    long dropped = 0;
+    for (int i = 0; i < plan.getSourceCount(); i++) {
+      dropped += plan.getSource(i).getDroppedFrameCount();
+    }
+    return dropped;
+  }
+
+  /**
+   * @return the total number of times that the sources currently in the pipeline had no new frame
+   *     when the pipeline ran.
+   */
+  public long getStaleFrameCount() {
+    final ExecutionPlan plan = planSupplier.get();
+    long stale = 0;
+    for (int i = 0; i < plan.getSourceCount(); i++) {
+      stale += plan.getSource(i).getStaleFrameCount();
+    }
+    return stale;
+  }
+
+  /**
+   * @return the total number of frames that the sources currently in the pipeline never decoded
+   *     because a newer frame replaced them before the pipeline took them.
+   */
+  public long getSkippedDecodeCount() {
+    final ExecutionPlan plan = planSupplier.get();
+    long skipped = 0;
+    for (int i = 0; i < plan.getSourceCount(); i++) {
+      skipped += plan.getSource(i).getSkippedDecodeCount();
     }
+    return skipped;
+  }
+
+  /**
+   * @return the number of runs that were abandoned because they went over the latency budget.
+   */
+  public long getDeadlineMissCount() {
+    return deadlineMisses.get();
+  }
+
+  /**
+   * @return the strategy currently used to run the steps in the pipeline.
+   */
+  public ExecutionMode getExecutionMode() {
+    return executionMode;
   }
 
   @Subscribe
@@ -218,7 +488,7 @@ public class PipelineRunner implements RestartableService {
   public void onRunPipeline(RunPipelineEvent event) {
     checkNotNull(event);
     if (event.pipelineShouldRun()) {
-      pipelineFlag.release();
+      scheduler.requestRun();
     }
   }
 
@@ -227,6 +497,47 @@ public class PipelineRunner implements RestartableService {
     stopAsync();
   }
 
+  @Subscribe
+  public void onProjectSettingsChanged(ProjectSettingsChangedEvent event) {
+    final ProjectSettings settings = event.getProjectSettings();
+    executionMode = settings.getExecutionMode();
+    executionThreads = settings.getExecutionThreads();
+    framesInFlight = settings.getFramesInFlight();
+    onlyRunUsedSteps = settings.getOnlyRunUsedSteps();
+    scheduler.setTargetFrameRate(settings.getTargetFrameRate());
+    latencyBudget = TimeUnit.MILLISECONDS.toNanos(settings.getLatencyBudget());
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onStepAdded(@Nullable StepAddedEvent event) {
+    liveStepFilter.invalidate();
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onStepRemoved(@Nullable StepRemovedEvent event) {
+    liveStepFilter.invalidate();
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onConnectionAdded(@Nullable ConnectionAddedEvent event) {
+    liveStepFilter.invalidate();
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onConnectionRemoved(@Nullable ConnectionRemovedEvent event) {
+    liveStepFilter.invalidate();
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onSocketPreviewChanged(@Nullable SocketPreviewChangedEvent event) {
+    liveStepFilter.invalidate();
+  }
+
   @Subscribe
   public void onBenchmarkEvent(BenchmarkEvent event) {
     benchmarking.set(event.isStart());
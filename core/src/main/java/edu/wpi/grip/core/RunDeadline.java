@@ -0,0 +1,86 @@
+package edu.wpi.grip.core;
+
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Decides whether a run of the pipeline may start another step. This is polled between steps in
+ * place of the plain "is the runner still running" check, and also says no once the run has used
+ * up its latency budget.
+ *
+ * <p>A run that goes over its budget is abandoned at the next step boundary rather than being
+ * interrupted, since steps can't be stopped halfway through.</p>
+ */
+final class RunDeadline implements Supplier<Boolean> {
+
+  private final Supplier<Boolean> isRunning;
+  private long deadline;
+  private boolean enforced;
+  private volatile boolean missed = false;
+
+  /**
+   * Creates a deadline for a run that hasn't started yet. {@link #restart} must be called before
+   * each run. One instance can be reused for every run on the same thread, so that runs don't
+   * allocate.
+   *
+   * @param isRunning polled first, the run is stopped as soon as this returns false
+   */
+  RunDeadline(Supplier<Boolean> isRunning) {
+    this.isRunning = checkNotNull(isRunning, "isRunning");
+  }
+
+  /**
+   * @param isRunning   polled first, the run is stopped as soon as this returns false
+   * @param startTime   the {@link System#nanoTime()} the run started at
+   * @param budgetNanos how long the run may take, or zero for no limit
+   */
+  RunDeadline(Supplier<Boolean> isRunning, long startTime, long budgetNanos) {
+    this(isRunning);
+    restart(startTime, budgetNanos);
+  }
+
+  /**
+   * Starts the deadline over for a new run.
+   *
+   * @param startTime   the {@link System#nanoTime()} the run started at
+   * @param budgetNanos how long the run may take, or zero for no limit
+   */
+  void restart(long startTime, long budgetNanos) {
+    checkArgument(budgetNanos >= 0, "The budget cannot be negative");
+    this.deadline = startTime + budgetNanos;
+    this.enforced = budgetNanos > 0;
+    // Written last so the other fields are visible to any thread that reads this
+    this.missed = false;
+  }
+
+  /**
+   * @return true if this deadline polls the given supplier to check if the pipeline is running.
+   */
+  boolean isFor(Supplier<Boolean> isRunning) {
+    return this.isRunning == isRunning;
+  }
+
+  /**
+   * @return true if another step may be started.
+   */
+  @Override
+  public Boolean get() {
+    if (!isRunning.get()) {
+      return false;
+    }
+    if (enforced && System.nanoTime() - deadline >= 0) {
+      missed = true;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return true if a step was held back because the run had used up its budget.
+   */
+  boolean isMissed() {
+    return missed;
+  }
+}
@@ -0,0 +1,72 @@
+package edu.wpi.grip.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Decides when the {@link PipelineRunner} runs the pipeline. The pipeline thread sleeps in
+ * {@link #awaitNextRun()} until something asks for the pipeline to be run, so no time is spent
+ * polling while nothing is changing.
+ *
+ * <p>Requests that arrive while a run is already pending are coalesced into that run. If a
+ * target frame rate is set, runs are spaced out so that the pipeline never runs more often than
+ * that, and any requests made in between are coalesced into the next run.</p>
+ */
+final class RunScheduler {
+
+  private final AtomicLong coalescedRequests = new AtomicLong();
+  private volatile long minimumPeriod = 0;
+
+  // Guarded by this
+  private boolean runPending = false;
+  private long nextRunTime = System.nanoTime();
+
+  /**
+   * @param targetFrameRate the maximum number of runs per second, or zero for no limit
+   */
+  void setTargetFrameRate(int targetFrameRate) {
+    checkArgument(targetFrameRate >= 0, "Target frame rate cannot be negative");
+    minimumPeriod = targetFrameRate == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / targetFrameRate;
+  }
+
+  /**
+   * Asks for the pipeline to be run. This never blocks.
+   */
+  synchronized void requestRun() {
+    if (runPending) {
+      coalescedRequests.incrementAndGet();
+    } else {
+      runPending = true;
+    }
+    notifyAll();
+  }
+
+  /**
+   * Blocks until a run has been requested and the pipeline is allowed to run again under the
+   * target frame rate.
+   *
+   * @throws InterruptedException if the thread was interrupted while waiting
+   */
+  synchronized void awaitNextRun() throws InterruptedException {
+    while (!runPending) {
+      wait();
+    }
+    long now = System.nanoTime();
+    while (now - nextRunTime < 0) {
+      TimeUnit.NANOSECONDS.timedWait(this, nextRunTime - now);
+      now = System.nanoTime();
+    }
+    runPending = false;
+    nextRunTime = now + minimumPeriod;
+  }
+
+  /**
+   * @return the number of requests to run the pipeline that were merged into a run that was
+   *     already pending.
+   */
+  long getCoalescedRequestCount() {
+    return coalescedRequests.get();
+  }
+}
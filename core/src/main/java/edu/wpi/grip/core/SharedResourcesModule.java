@@ -0,0 +1,78 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.events.SourceRemovedEvent;
+import edu.wpi.grip.core.events.StepRemovedEvent;
+import edu.wpi.grip.core.sources.ImageCache;
+
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Memory and watchdog bindings for an additional pipeline that runs in the same process as the
+ * first one. The image pool, the caches, the step watchdog and the native memory accountant are
+ * shared with the first pipeline, so that every pipeline stays within the limits of the first
+ * project instead of each one using up that much memory and those threads again.
+ *
+ * <p>The shared instances are bound through providers so that they are not injected again or
+ * registered on the event bus of the additional pipeline. Instead, the additional pipeline is
+ * added to the accountant, and the steps and sources removed from it are passed on to the shared
+ * instances that keep track of them.</p>
+ */
+public final class SharedResourcesModule extends AbstractModule {
+
+  private final Injector primaryInjector;
+
+  /**
+   * @param primaryInjector the injector of the first pipeline
+   */
+  public SharedResourcesModule(Injector primaryInjector) {
+    this.primaryInjector = checkNotNull(primaryInjector, "primaryInjector");
+  }
+
+  @Override
+  protected void configure() {
+    bind(MatPool.class).toProvider(primaryInjector.getProvider(MatPool.class));
+    bind(ImageCache.class).toProvider(primaryInjector.getProvider(ImageCache.class));
+    bind(StepResultCache.class).toProvider(primaryInjector.getProvider(StepResultCache.class));
+    bind(StepWatchdog.class).toProvider(primaryInjector.getProvider(StepWatchdog.class));
+    bind(NativeMemoryAccountant.class)
+        .toProvider(primaryInjector.getProvider(NativeMemoryAccountant.class));
+
+    bind(RemovalForwarder.class).asEagerSingleton();
+  }
+
+  /**
+   * Registered on the event bus of the additional pipeline, since the shared instances only
+   * subscribe to the event bus of the first one.
+   */
+  static final class RemovalForwarder {
+    private final NativeMemoryAccountant accountant;
+    private final StepResultCache stepResultCache;
+    private final StepWatchdog watchdog;
+
+    @Inject
+    RemovalForwarder(Pipeline pipeline, NativeMemoryAccountant accountant,
+                     StepResultCache stepResultCache, StepWatchdog watchdog) {
+      this.accountant = checkNotNull(accountant, "accountant");
+      this.stepResultCache = checkNotNull(stepResultCache, "stepResultCache");
+      this.watchdog = checkNotNull(watchdog, "watchdog");
+      accountant.addPipeline(pipeline);
+    }
+
+    @Subscribe
+    public void onStepRemoved(StepRemovedEvent event) {
+      accountant.onStepRemoved(event);
+      stepResultCache.onStepRemoved(event);
+      watchdog.onStepRemoved(event);
+    }
+
+    @Subscribe
+    public void onSourceRemoved(SourceRemovedEvent event) {
+      accountant.onSourceRemoved(event);
+    }
+  }
+}
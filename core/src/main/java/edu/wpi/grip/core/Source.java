@@ -3,6 +3,7 @@ package edu.wpi.grip.core;
 import edu.wpi.grip.core.sockets.OutputSocket;
 import edu.wpi.grip.core.sources.CameraSource;
 import edu.wpi.grip.core.sources.ClassifierSource;
+import edu.wpi.grip.core.sources.DirectorySource;
 import edu.wpi.grip.core.sources.HttpSource;
 import edu.wpi.grip.core.sources.ImageFileSource;
 import edu.wpi.grip.core.sources.MultiImageFileSource;
@@ -75,6 +76,40 @@ public abstract class Source {
    */
   public abstract Properties getProperties();
 
+  /**
+   * Sources that produce frames faster than the pipeline can take them may have to drop some.
+   * Frames that are replaced before they are ever decoded are counted by
+   * {@link #getSkippedDecodeCount()} instead.
+   *
+   * @return the number of frames this source has dropped so far. Sources that never drop frames
+   *     always return zero.
+   */
+  public long getDroppedFrameCount() {
+    return 0;
+  }
+
+  /**
+   * Sources that produce frames may be asked for a new one before they have grabbed it, in which
+   * case the pipeline runs again with the frame it already had.
+   *
+   * @return the number of times this source had no new frame when the pipeline asked for one.
+   *     Sources that don't produce frames always return zero.
+   */
+  public long getStaleFrameCount() {
+    return 0;
+  }
+
+  /**
+   * Sources that receive compressed frames may only decode the ones the pipeline takes, so frames
+   * that are dropped never cost a decode.
+   *
+   * @return the number of frames this source skipped decoding because a newer frame replaced them
+   *     first. Sources that don't decode frames always return zero.
+   */
+  public long getSkippedDecodeCount() {
+    return 0;
+  }
+
   protected ExceptionWitness getExceptionWitness() {
     return this.exceptionWitness;
   }
@@ -102,6 +137,17 @@ public abstract class Source {
     }
   }
 
+  /**
+   * Stops any work this source does in the background, such as grabbing frames or listening for
+   * new ones, without removing it from the pipeline. Sources are shut down when they are removed,
+   * and pipelines that feed their sources some other way shut them down after loading. Problems
+   * stopping are reported to the exception witness. Sources with nothing running in the
+   * background do nothing.
+   */
+  public void shutdown() {
+    // Nothing to stop
+  }
+
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this)
@@ -128,6 +174,8 @@ public abstract class Source {
     ClassifierSource.Factory fileSourceFactory;
     @Inject
     VideoFileSource.Factory videoFileSourceFactory;
+    @Inject
+    DirectorySource.Factory directorySourceFactory;
 
     @Override
     public Source create(Class<?> type, Properties properties) throws IOException {
@@ -145,6 +193,8 @@ public abstract class Source {
         return fileSourceFactory.create(properties);
       } else if (type.isAssignableFrom(VideoFileSource.class)) {
         return videoFileSourceFactory.create(properties);
+      } else if (type.isAssignableFrom(DirectorySource.class)) {
+        return directorySourceFactory.create(properties);
       } else {
         throw new IllegalArgumentException(type + " was not a valid type");
       }
@@ -8,15 +8,20 @@ import edu.wpi.grip.core.util.ExceptionWitness;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -30,13 +35,42 @@ public class Step {
 
   private final ExceptionWitness witness;
   private final Timer timer;
+  private final StepResultCache resultCache;
+  private final StepWatchdog watchdog;
 
   private final Operation operation;
   private final OperationDescription description;
-  private final List<InputSocket> inputSockets;
-  private final List<OutputSocket> outputSockets;
+  private final ImmutableList<InputSocket> inputSockets;
+  private final ImmutableList<OutputSocket> outputSockets;
+  /**
+   * Performs the operation while timing it. This is created once so that running the step doesn't
+   * allocate.
+   */
+  private final Runnable timedPerform;
   private final Object removedLock = new Object();
   private boolean removed = false;
+  /**
+   * The output of another step that this step writes its first output over, as planned by the
+   * {@link BufferPlanner}, or null if it writes into an image of its own.
+   */
+  @Nullable
+  private volatile OutputSocket<?> inPlaceSource;
+  /**
+   * The images of other steps that the first output has been pointed at. Weak, so that images
+   * that the other steps have let go of aren't kept alive.
+   */
+  private final Set<Object> borrowedOutputs =
+      Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
+  /**
+   * Set when a step downstream has written its result over one of this step's outputs, so this
+   * step has to perform again before anything reads that output.
+   */
+  private volatile boolean outputOverwritten = false;
+  /**
+   * Set when this step last ran because its inputs changed or it was forced to, rather than only
+   * to restore an output that was written over. Steps downstream only write over its output then.
+   */
+  private volatile boolean performingForNewInputs = false;
 
   /**
    * @param operation               The operation that is performed at this step.
@@ -45,19 +79,28 @@ public class Step {
    * @param outputSockets           The output sockets provided by the operation.
    * @param exceptionWitnessFactory A factory used to create an {@link ExceptionWitness}.
    * @param timerFactory            A factory used to create a {@link Timer}.
+   * @param resultCache             The cache used to skip performing the operation on inputs it
+   *                                has already seen.
+   * @param watchdog                Watches how long the operation takes to perform.
    */
   Step(Operation operation,
        OperationDescription description,
        List<InputSocket> inputSockets,
        List<OutputSocket> outputSockets,
        ExceptionWitness.Factory exceptionWitnessFactory,
-       Timer.Factory timerFactory) {
+       Timer.Factory timerFactory,
+       StepResultCache resultCache,
+       StepWatchdog watchdog) {
     this.operation = operation;
     this.description = description;
-    this.inputSockets = inputSockets;
-    this.outputSockets = outputSockets;
+    this.inputSockets = ImmutableList.copyOf(inputSockets);
+    this.outputSockets = ImmutableList.copyOf(outputSockets);
+    final Runnable perform = () -> this.operation.perform();
+    this.timedPerform = () -> this.timer.time(perform);
     this.witness = exceptionWitnessFactory.create(this);
     this.timer = timerFactory.create(this);
+    this.resultCache = resultCache;
+    this.watchdog = watchdog;
   }
 
   /**
@@ -71,14 +114,14 @@ public class Step {
    * @return An array of {@link InputSocket InputSockets} that hold the inputs to this step.
    */
   public ImmutableList<InputSocket> getInputSockets() {
-    return ImmutableList.copyOf(inputSockets);
+    return inputSockets;
   }
 
   /**
    * @return A list of {@link OutputSocket OutputSockets} that hold the outputs of this step.
    */
   public ImmutableList<OutputSocket> getOutputSockets() {
-    return ImmutableList.copyOf(outputSockets);
+    return outputSockets;
   }
 
   /**
@@ -86,8 +129,8 @@ public class Step {
    * {@link Step#runPerformIfPossible()}.
    */
   private void resetOutputSockets() {
-    for (OutputSocket<?> outputSocket : outputSockets) {
-      outputSocket.resetValueToInitial();
+    for (int i = 0; i < outputSockets.size(); i++) {
+      outputSockets.get(i).resetValueToInitial();
     }
   }
 
@@ -113,7 +156,9 @@ public class Step {
   protected final void runPerform(boolean force) {
     boolean anyDirty = false; // Keeps track of if there are sockets that are dirty
 
-    for (InputSocket<?> inputSocket : inputSockets) {
+    // Indexed to avoid allocating an iterator every time the step runs
+    for (int i = 0; i < inputSockets.size(); i++) {
+      final InputSocket<?> inputSocket = inputSockets.get(i);
       // If there is a socket that isn't present then we have a problem.
       if (!inputSocket.getValue().isPresent()) {
         witness.flagWarning(inputSocket.getSocketHint().getIdentifier()
@@ -125,18 +170,35 @@ public class Step {
       // If one value is true then this will stay true
       anyDirty |= inputSocket.dirtied();
     }
-    if (!force && !anyDirty) {
+    performingForNewInputs = force || anyDirty;
+    if (!force && !anyDirty && !outputOverwritten) {
       // If there aren't any dirty inputs don't clear the exceptions, just return
       return;
     }
+    // The outputs are about to be written again, whether by performing or from the cache
+    outputOverwritten = false;
+    final Step overwritten = prepareInPlace();
+    if (overwritten != null) {
+      overwritten.outputOverwritten = true;
+    }
+
+    final StepResultCache.Key cacheKey = resultCache.isEnabled() && operation.isCacheable()
+        ? resultCache.keyFor(this, inputSockets)
+        : null;
+    if (cacheKey != null && resultCache.restore(cacheKey, outputSockets)) {
+      witness.clearException();
+      return;
+    }
 
+    final StepWatchdog.Outcome outcome;
     try {
       // We need to ensure that if perform disabled is switching states that we don't run the
       // perform method while that is happening.
       synchronized (removedLock) {
-        if (!removed) {
-          timer.time(this.operation::perform);
+        if (removed) {
+          return;
         }
+        outcome = watchdog.perform(this, timedPerform);
       }
     } catch (RuntimeException e) {
       // We do not want to catch all exceptions, only runtime exceptions.
@@ -149,7 +211,139 @@ public class Step {
       resetOutputSockets();
       return;
     }
-    witness.clearException();
+    if (outcome == StepWatchdog.Outcome.ABANDONED) {
+      // The operation is still running somewhere else, so its outputs can't be trusted yet
+      return;
+    }
+    if (cacheKey != null && !removed) {
+      resultCache.store(cacheKey, outputSockets);
+    }
+    if (outcome == StepWatchdog.Outcome.FINISHED) {
+      // Keep the watchdog's warning around if the operation took too long
+      witness.clearException();
+    }
+  }
+
+  /**
+   * @return true if the exception witness of this step is flagged, because its operation failed,
+   *     an input was missing or it took too long the last time it ran.
+   */
+  boolean isFailing() {
+    return witness.isException();
+  }
+
+  /**
+   * Points the first output at the image it is planned to write over, or back at an image of its
+   * own if it can't run in place this time. A step doesn't run in place while the output it would
+   * write over is being previewed, since the preview would show the wrong result. It also only
+   * runs in place when the step that feeds it has just performed because its inputs changed.
+   * Writing over the output of a step that has nothing new to do would make it perform again on
+   * the next run just to restore its output, and then again after every run that writes over it.
+   *
+   * @return the step whose output is about to be written over, or null if this step doesn't run
+   *     in place
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  private Step prepareInPlace() {
+    final OutputSocket<?> source = inPlaceSource;
+    if (source == null && borrowedOutputs.isEmpty()) {
+      return null;
+    }
+    final OutputSocket output = outputSockets.get(0);
+    final Object current = output.getValue().orElse(null);
+    final Step producer = source == null ? null : source.getStep().orElse(null);
+    if (producer != null && producer.performingForNewInputs && !source.isPreviewed()) {
+      final Object shared = source.getValue().orElse(null);
+      // The input only holds the same image once the connection has pushed it
+      if (shared != null && shared == inputSockets.get(0).getValue().orElse(null)) {
+        if (current != shared) {
+          borrowedOutputs.add(shared);
+          output.setValue(shared);
+        }
+        return producer;
+      }
+    }
+    if (current != null && borrowedOutputs.remove(current)) {
+      output.resetValueToInitial();
+    }
+    return null;
+  }
+
+  /**
+   * Plans whether this step writes its first output over the output of another step.
+   *
+   * @param source the output to write over, or null to write into an image of its own
+   * @see BufferPlanner
+   */
+  void setInPlaceSource(@Nullable OutputSocket<?> source) {
+    this.inPlaceSource = source;
+  }
+
+  /**
+   * @return true if this step can write its first output over its first input.
+   * @see Operation#canPerformInPlace()
+   */
+  boolean canPerformInPlace() {
+    return operation.canPerformInPlace();
+  }
+
+  /**
+   * @return true if this step's outputs only depend on its inputs and are images of its own.
+   * @see Operation#isCacheable()
+   */
+  boolean isCacheable() {
+    return operation.isCacheable();
+  }
+
+  /**
+   * Tells the operation that this step was skipped by a run that went over its latency budget.
+   *
+   * @see Operation#invalidate()
+   */
+  void invalidate() {
+    try {
+      synchronized (removedLock) {
+        if (!removed) {
+          operation.invalidate();
+        }
+      }
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Could not invalidate the results of "
+          + getOperationDescription().name(), e);
+    }
+  }
+
+  /**
+   * @return true if this step has an effect outside of the pipeline.
+   * @see Operation#isSink()
+   */
+  boolean isSink() {
+    return operation.isSink();
+  }
+
+  /**
+   * @return true if this step might hang in native code.
+   * @see Operation#isRisky()
+   */
+  boolean isRisky() {
+    return operation.isRisky();
+  }
+
+  /**
+   * @return the number of bytes of native memory held by the operation outside of its sockets.
+   * @see NativeMemoryHolder
+   */
+  long getScratchBytes() {
+    return operation instanceof NativeMemoryHolder
+        ? ((NativeMemoryHolder) operation).getNativeBytes() : 0;
+  }
+
+  /**
+   * Flags a warning for this step that didn't come from its operation.
+   */
+  void flagWarning(String warningMessage) {
+    witness.flagWarning(warningMessage);
   }
 
   /**
@@ -161,7 +355,9 @@ public class Step {
     // perform methods execution
     synchronized (removedLock) {
       removed = true;
-      operation.cleanUp();
+      // An operation that the watchdog stopped waiting for may still be running, and must not be
+      // cleaned up from under it
+      watchdog.cleanUpWhenFinished(this, operation::cleanUp);
     }
   }
 
@@ -186,12 +382,35 @@ public class Step {
   public static class Factory {
     private final ExceptionWitness.Factory exceptionWitnessFactory;
     private final Timer.Factory timerFactory;
+    private final StepResultCache resultCache;
+    private final StepWatchdog watchdog;
 
-    @Inject
+    /**
+     * Creates a factory for steps that never use a result cache and are never timed out.
+     */
     public Factory(ExceptionWitness.Factory exceptionWitnessFactory,
                    Timer.Factory timerFactory) {
+      this(exceptionWitnessFactory, timerFactory, new StepResultCache());
+    }
+
+    /**
+     * Creates a factory for steps that are never timed out.
+     */
+    public Factory(ExceptionWitness.Factory exceptionWitnessFactory,
+                   Timer.Factory timerFactory,
+                   StepResultCache resultCache) {
+      this(exceptionWitnessFactory, timerFactory, resultCache, new StepWatchdog());
+    }
+
+    @Inject
+    public Factory(ExceptionWitness.Factory exceptionWitnessFactory,
+                   Timer.Factory timerFactory,
+                   StepResultCache resultCache,
+                   StepWatchdog watchdog) {
       this.exceptionWitnessFactory = exceptionWitnessFactory;
       this.timerFactory = timerFactory;
+      this.resultCache = resultCache;
+      this.watchdog = watchdog;
     }
 
     /**
@@ -211,7 +430,9 @@ public class Step {
           inputSockets,
           outputSockets,
           exceptionWitnessFactory,
-          timerFactory
+          timerFactory,
+          resultCache,
+          watchdog
       );
 
       for (Socket<?> socket : inputSockets) {
@@ -0,0 +1,111 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.sockets.InputSocket;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A directed acyclic graph of the steps in a pipeline, built from the connections between them.
+ * Step {@code A} is a predecessor of step {@code B} if one of {@code A}'s outputs is connected to
+ * one of {@code B}'s inputs. Because the pipeline never allows "backwards" connections, the order
+ * of the steps in the pipeline is always a valid topological ordering of the graph.
+ */
+final class StepGraph {
+
+  private final ImmutableList<Step> steps;
+  private final int[][] predecessors;
+
+  private StepGraph(ImmutableList<Step> steps, int[][] predecessors) {
+    this.steps = steps;
+    this.predecessors = predecessors;
+  }
+
+  /**
+   * Builds the dependency graph for a snapshot of the steps in a pipeline, using the connections
+   * that the input sockets of the steps currently have.
+   *
+   * @param steps the steps in the pipeline, in the order they appear in the pipeline
+   * @return the dependency graph for the steps
+   */
+  static StepGraph of(List<Step> steps) {
+    checkNotNull(steps, "steps");
+    final List<Connection> connections = new ArrayList<>();
+    for (Step step : steps) {
+      for (InputSocket<?> input : step.getInputSockets()) {
+        connections.addAll(input.getConnections());
+      }
+    }
+    return of(steps, connections);
+  }
+
+  /**
+   * Builds the dependency graph for a snapshot of the steps in a pipeline.
+   *
+   * @param steps       the steps in the pipeline, in the order they appear in the pipeline
+   * @param connections the connections in the pipeline. Connections to or from anything that is
+   *                    not one of the given steps are ignored.
+   * @return the dependency graph for the steps
+   */
+  static StepGraph of(List<Step> steps, Iterable<? extends Connection> connections) {
+    checkNotNull(steps, "steps");
+    checkNotNull(connections, "connections");
+    final ImmutableList<Step> snapshot = ImmutableList.copyOf(steps);
+    final Map<Step, Integer> indices = new HashMap<>();
+    for (int i = 0; i < snapshot.size(); i++) {
+      indices.put(snapshot.get(i), i);
+    }
+
+    // Sorted so that predecessors are always visited in pipeline order
+    final List<Set<Integer>> stepPredecessors = new ArrayList<>(snapshot.size());
+    for (int i = 0; i < snapshot.size(); i++) {
+      stepPredecessors.add(new TreeSet<>());
+    }
+    for (Connection<?> connection : connections) {
+      final Optional<Step> upstream = connection.getOutputSocket().getStep();
+      final Optional<Step> downstream = connection.getInputSocket().getStep();
+      if (upstream.isPresent() && downstream.isPresent()
+          && indices.containsKey(upstream.get()) && indices.containsKey(downstream.get())) {
+        stepPredecessors.get(indices.get(downstream.get())).add(indices.get(upstream.get()));
+      }
+    }
+
+    final int[][] predecessors = new int[snapshot.size()][];
+    for (int i = 0; i < snapshot.size(); i++) {
+      predecessors[i] = stepPredecessors.get(i).stream().mapToInt(Integer::intValue).toArray();
+    }
+    return new StepGraph(snapshot, predecessors);
+  }
+
+  /**
+   * @return the steps in this graph, in pipeline order.
+   */
+  ImmutableList<Step> getSteps() {
+    return steps;
+  }
+
+  /**
+   * @param index the index of a step in {@link #getSteps()}
+   * @return the indices of every step that feeds an input of the step at the given index. These
+   *     are always lower than {@code index}. The array is shared, so it must not be modified.
+   */
+  int[] getPredecessors(int index) {
+    return predecessors[index];
+  }
+
+  /**
+   * @return the number of steps in this graph.
+   */
+  int size() {
+    return steps.size();
+  }
+}
@@ -0,0 +1,430 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.events.BenchmarkEvent;
+import edu.wpi.grip.core.events.ProjectSettingsChangedEvent;
+import edu.wpi.grip.core.events.StepRemovedEvent;
+import edu.wpi.grip.core.sockets.InputSocket;
+import edu.wpi.grip.core.sockets.OutputSocket;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.bytedeco.javacpp.BytePointer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * Remembers the outputs a step produced for a set of input values, so that the step doesn't have
+ * to perform its operation again when it sees the same inputs. This helps when a source cycles
+ * through a fixed set of images, or a parameter is moved back to a value it had before.
+ *
+ * <p>Inputs are identified by their content. Images are hashed byte for byte, which is much
+ * cheaper than almost any operation that could be skipped. Numbers, strings, and other immutable
+ * values are compared with {@code equals}, and anything else is compared by identity, so a report
+ * produced by a step that didn't run again still counts as the same input. Comparing by identity
+ * means the cache keeps those inputs alive, so the native memory they hold, like the contours of a
+ * report, counts toward the size of the entry.</p>
+ *
+ * <p>The cache is shared by every step in the pipeline. The least recently used results are
+ * evicted once the images held by the cache would take up more memory than the project allows.
+ * It is disabled when the size is zero. Cached images come from the {@link MatPool}, so evicted
+ * images are reused instead of waiting for the garbage collector.</p>
+ */
+@Singleton
+public class StepResultCache {
+
+  /**
+   * A rough guess at the size of a value that isn't an image, not counting any native memory it
+   * holds.
+   */
+  private static final long OBJECT_SIZE = 64;
+  private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+  // Guarded by this
+  private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long size = 0;
+
+  private volatile long capacity = 0;
+  private volatile boolean benchmarking = false;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final MatPool matPool;
+
+  /**
+   * Creates a cache that keeps its images in a pool of its own.
+   */
+  public StepResultCache() {
+    this(new MatPool());
+  }
+
+  @Inject
+  public StepResultCache(MatPool matPool) {
+    this.matPool = checkNotNull(matPool, "matPool");
+  }
+
+  /**
+   * @return true if results should be looked up in and stored to the cache.
+   */
+  boolean isEnabled() {
+    // Benchmarks have to actually run the steps to measure them
+    return capacity > 0 && !benchmarking;
+  }
+
+  /**
+   * @param capacity the number of bytes the cached results may take up, or zero to disable the
+   *                 cache
+   */
+  @VisibleForTesting
+  synchronized void setCapacity(long capacity) {
+    checkArgument(capacity >= 0, "Capacity cannot be negative");
+    this.capacity = capacity;
+    evictToCapacity();
+  }
+
+  /**
+   * Identifies the current values of a step's inputs.
+   *
+   * @return the key to look up the step's results with
+   */
+  Key keyFor(Step step, List<InputSocket> inputs) {
+    final Object[] fingerprints = new Object[inputs.size()];
+    for (int i = 0; i < fingerprints.length; i++) {
+      fingerprints[i] = fingerprint(inputs.get(i).getValue().orElse(null));
+    }
+    return new Key(step, fingerprints);
+  }
+
+  /**
+   * Sets the outputs to the values that were stored for the key, if there are any.
+   *
+   * @return true if the outputs were restored, false if the operation has to be performed
+   */
+  @SuppressWarnings("unchecked")
+  synchronized boolean restore(Key key, List<OutputSocket> outputs) {
+    final Entry entry = entries.get(key);
+    if (entry == null) {
+      misses.incrementAndGet();
+      return false;
+    }
+    hits.incrementAndGet();
+    for (int i = 0; i < outputs.size(); i++) {
+      final OutputSocket output = outputs.get(i);
+      final Object value = entry.values[i];
+      if (value instanceof Mat) {
+        // Copy into the image the operation owns, since it writes to that image the next time it
+        // performs
+        final Object current = output.getValue().orElse(null);
+        final Mat destination = current instanceof Mat ? (Mat) current : new Mat();
+        ((Mat) value).copyTo(destination);
+        output.setValue(destination);
+      } else {
+        output.setValueOptional(Optional.ofNullable(value));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stores the current values of the outputs for the key.
+   */
+  synchronized void store(Key key, List<OutputSocket> outputs) {
+    final Object[] values = new Object[outputs.size()];
+    long entrySize = 0;
+    for (int i = 0; i < values.length; i++) {
+      final Object value = outputs.get(i).getValue().orElse(null);
+      if (value instanceof Mat) {
+        final Mat mat = (Mat) value;
+        final Mat copy = matPool.acquireLike(mat);
+        mat.copyTo(copy);
+        values[i] = copy;
+        entrySize += mat.total() * mat.elemSize();
+      } else {
+        values[i] = value;
+        entrySize += OBJECT_SIZE + NativeMemoryAccountant.sizeOf(value);
+      }
+    }
+    for (Object fingerprint : key.fingerprints) {
+      entrySize += sizeOfFingerprint(fingerprint);
+    }
+    final Entry previous = entries.put(key, new Entry(values, entrySize));
+    if (previous != null) {
+      size -= previous.size;
+      previous.release(matPool);
+    }
+    size += entrySize;
+    evictToCapacity();
+  }
+
+  private void evictToCapacity() {
+    final Iterator<Entry> iterator = entries.values().iterator();
+    while (size > capacity && iterator.hasNext()) {
+      final Entry eldest = iterator.next();
+      iterator.remove();
+      size -= eldest.size;
+      eldest.release(matPool);
+      evictions.incrementAndGet();
+    }
+  }
+
+  /**
+   * @return the number of times a step's outputs were restored instead of performing it.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of times a step had to be performed because its inputs weren't cached.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of results that were dropped to stay within the memory limit.
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * @return the approximate number of bytes taken up by cached results and the inputs they were
+   *     cached for.
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  @Subscribe
+  public void onProjectSettingsChanged(ProjectSettingsChangedEvent event) {
+    setCapacity(event.getProjectSettings().getStepCacheSize() * BYTES_PER_MEGABYTE);
+  }
+
+  @Subscribe
+  public void onBenchmark(BenchmarkEvent event) {
+    benchmarking = event.isStart();
+  }
+
+  /**
+   * Drops the results of a step that was removed, since they can never be used again.
+   */
+  @Subscribe
+  public synchronized void onStepRemoved(StepRemovedEvent event) {
+    final Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      final Map.Entry<Key, Entry> entry = iterator.next();
+      if (entry.getKey().step == event.getStep()) {
+        iterator.remove();
+        size -= entry.getValue().size;
+        entry.getValue().release(matPool);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hits", hits.get())
+        .add("misses", misses.get())
+        .add("evictions", evictions.get())
+        .add("size", getSize())
+        .toString();
+  }
+
+  /**
+   * Reduces a value to something that can be compared with {@code equals} and used as a map key.
+   */
+  @VisibleForTesting
+  static Object fingerprint(@Nullable Object value) {
+    if (value instanceof Mat) {
+      return new MatDigest((Mat) value);
+    } else if (value == null || value instanceof Number || value instanceof Boolean
+        || value instanceof String || value instanceof Enum || value instanceof Character) {
+      return value;
+    } else if (value instanceof List) {
+      // Ranges are lists of numbers
+      final ImmutableList.Builder<Object> fingerprints = ImmutableList.builder();
+      for (Object element : (List<?>) value) {
+        fingerprints.add(Optional.ofNullable(fingerprint(element)));
+      }
+      return fingerprints.build();
+    } else {
+      return new Identity(value);
+    }
+  }
+
+  /**
+   * @return roughly how many bytes the cache keeps alive by holding on to a fingerprint. Only
+   *     values that are compared by identity are held on to, since every other fingerprint is
+   *     small or a copy.
+   */
+  @VisibleForTesting
+  static long sizeOfFingerprint(@Nullable Object fingerprint) {
+    if (fingerprint instanceof Identity) {
+      final Object object = ((Identity) fingerprint).object;
+      return OBJECT_SIZE + NativeMemoryAccountant.sizeOf(object);
+    } else if (fingerprint instanceof List) {
+      long size = 0;
+      for (Object element : (List<?>) fingerprint) {
+        size += sizeOfFingerprint(((Optional<?>) element).orElse(null));
+      }
+      return size;
+    }
+    return 0;
+  }
+
+  /**
+   * The inputs of a step.
+   */
+  static final class Key {
+    private final Step step;
+    private final Object[] fingerprints;
+    private final int hashCode;
+
+    private Key(Step step, Object[] fingerprints) {
+      this.step = step;
+      this.fingerprints = fingerprints;
+      this.hashCode = 31 * System.identityHashCode(step) + Arrays.hashCode(fingerprints);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return step == other.step && Arrays.equals(fingerprints, other.fingerprints);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static final class Entry {
+    private final Object[] values;
+    private final long size;
+
+    Entry(Object[] values, long size) {
+      this.values = values;
+      this.size = size;
+    }
+
+    void release(MatPool matPool) {
+      for (Object value : values) {
+        if (value instanceof Mat) {
+          matPool.release((Mat) value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Compares objects by identity.
+   */
+  private static final class Identity {
+    private final Object object;
+
+    Identity(Object object) {
+      this.object = object;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Identity && ((Identity) o).object == object;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(object);
+    }
+  }
+
+  /**
+   * The shape, type, and a hash of the content of an image.
+   */
+  @VisibleForTesting
+  static final class MatDigest {
+    private final int rows;
+    private final int cols;
+    private final int type;
+    private final long hash;
+
+    MatDigest(Mat mat) {
+      this.rows = mat.rows();
+      this.cols = mat.cols();
+      this.type = mat.type();
+      this.hash = mat.empty() ? 0 : hash(mat);
+    }
+
+    private static long hash(Mat mat) {
+      final long rowBytes = mat.cols() * mat.elemSize();
+      if (mat.isContinuous()) {
+        return hash(mat.data(), rowBytes * mat.rows(), 0);
+      }
+      long hash = 0;
+      for (int row = 0; row < mat.rows(); row++) {
+        hash = hash(mat.ptr(row), rowBytes, hash);
+      }
+      return hash;
+    }
+
+    private static long hash(BytePointer pointer, long length, long seed) {
+      final ByteBuffer buffer = pointer.capacity(length).asByteBuffer()
+          .order(ByteOrder.nativeOrder());
+      long hash = seed;
+      while (buffer.remaining() >= Long.BYTES) {
+        hash = mix(hash, buffer.getLong());
+      }
+      while (buffer.hasRemaining()) {
+        hash = mix(hash, buffer.get());
+      }
+      return hash;
+    }
+
+    private static long mix(long hash, long value) {
+      return Long.rotateLeft(hash ^ (value * 0x9E3779B97F4A7C15L), 31) * 0xBF58476D1CE4E5B9L;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof MatDigest)) {
+        return false;
+      }
+      final MatDigest other = (MatDigest) o;
+      return rows == other.rows && cols == other.cols && type == other.type && hash == other.hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(rows, cols, type, hash);
+    }
+  }
+}
@@ -0,0 +1,392 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.events.ProjectSettingsChangedEvent;
+import edu.wpi.grip.core.events.StepRemovedEvent;
+import edu.wpi.grip.core.settings.ProjectSettings;
+import edu.wpi.grip.core.sockets.FrameContext;
+import edu.wpi.grip.core.sockets.InputSocket;
+import edu.wpi.grip.core.sockets.OutputSocket;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.Singleton;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Keeps track of how long each step has been performing its operation, and flags a step through
+ * its {@link edu.wpi.grip.core.util.ExceptionWitness} once it has been running for longer than
+ * the time limit of the project.
+ *
+ * <p>A native call can't be interrupted, so a step that never returns would hold up the pipeline
+ * forever. If the project allows it, steps whose operations are {@link Operation#isRisky() risky}
+ * are performed on a separate thread instead. When one of them goes over the time limit, the
+ * pipeline stops waiting for it and carries on without its results. The thread it is stuck on is
+ * given up, and the step is skipped until its operation returns. Isolated operations only ever
+ * see copies of their inputs and write into outputs of their own, and their results are only
+ * copied back if they finish, so an abandoned operation can't race with the rest of the
+ * pipeline.</p>
+ */
+@Singleton
+public class StepWatchdog {
+
+  private static final Logger logger = Logger.getLogger(StepWatchdog.class.getName());
+  private static final long MIN_CHECK_PERIOD = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long MAX_CHECK_PERIOD = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * The time each step that is currently running started at, or zero if it isn't running. Steps
+   * keep their entry between runs so that running a step doesn't allocate.
+   */
+  private final Map<Step, AtomicLong> startTimes = new ConcurrentHashMap<>();
+  /**
+   * Steps that have been flagged during their current run, so they are only flagged once.
+   */
+  private final Set<Step> tripped = ConcurrentHashMap.newKeySet();
+  /**
+   * Steps whose operation is still running on a thread that the pipeline stopped waiting for.
+   */
+  private final Set<Step> abandoned = ConcurrentHashMap.newKeySet();
+  /**
+   * The private buffers of each step that has been performed on a separate thread.
+   */
+  private final Map<Step, Isolation> isolations = new ConcurrentHashMap<>();
+  private final AtomicLong trips = new AtomicLong();
+  private final AtomicLong abandonments = new AtomicLong();
+
+  private volatile long timeLimit = 0;
+  private volatile boolean isolateRiskySteps = false;
+
+  // Guarded by this
+  @Nullable
+  private ScheduledExecutorService checker;
+  @Nullable
+  private ScheduledFuture<?> checkTask;
+  @Nullable
+  private ExecutorService isolationExecutor;
+
+  /**
+   * How a step's operation finished.
+   */
+  enum Outcome {
+    /**
+     * The operation finished within the time limit.
+     */
+    FINISHED,
+    /**
+     * The operation finished, but took longer than the time limit.
+     */
+    FINISHED_LATE,
+    /**
+     * The pipeline stopped waiting for the operation, or it is still running from an earlier run.
+     * Its outputs should not be used.
+     */
+    ABANDONED
+  }
+
+  /**
+   * Performs a step's operation while watching how long it takes.
+   *
+   * @param step    the step that is running
+   * @param perform performs the step's operation
+   * @return how the operation finished
+   */
+  Outcome perform(Step step, Runnable perform) {
+    if (abandoned.contains(step)) {
+      return Outcome.ABANDONED;
+    }
+    final long limit = timeLimit;
+    final long startTime = started(step);
+    if (limit > 0 && isolateRiskySteps && step.isRisky()) {
+      return performIsolated(step, perform, limit, startTime);
+    }
+    try {
+      perform.run();
+    } finally {
+      stopped(step);
+    }
+    return outcome(limit, startTime);
+  }
+
+  private Outcome performIsolated(Step step, Runnable perform, long limit, long startTime) {
+    final Isolation isolation = isolations.computeIfAbsent(step, s -> new Isolation());
+    // The operation works on copies of its inputs and on outputs of its own, so that if it is
+    // abandoned it can't read images that are being written over, or write over images that are
+    // being read
+    for (InputSocket<?> input : step.getInputSockets()) {
+      isolation.context.copyIn(input);
+    }
+    isolation.started();
+    final Future<?> future = getIsolationExecutor().submit(() -> {
+      isolation.context.enter();
+      try {
+        perform.run();
+      } catch (RuntimeException e) {
+        if (abandoned.contains(step)) {
+          // Nothing is waiting for this anymore
+          logger.log(Level.WARNING, "An abandoned step failed after finishing late", e);
+        }
+        throw e;
+      } finally {
+        FrameContext.exit();
+        stopped(step);
+        isolation.finished(step);
+      }
+    });
+    try {
+      future.get(limit, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      if (abandon(step, isolation)) {
+        return Outcome.ABANDONED;
+      }
+      awaitQuietly(future);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } catch (InterruptedException e) {
+      // The pipeline is being stopped, so don't wait for the step any longer
+      Thread.currentThread().interrupt();
+      if (abandon(step, isolation)) {
+        return Outcome.ABANDONED;
+      }
+      awaitQuietly(future);
+    }
+    for (OutputSocket<?> output : step.getOutputSockets()) {
+      isolation.context.copyOut(output);
+    }
+    return outcome(limit, startTime);
+  }
+
+  /**
+   * Waits for a task that is known to be finishing, and rethrows what it failed with.
+   */
+  private static void awaitQuietly(Future<?> future) {
+    try {
+      Uninterruptibles.getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Cleans up after a step that has been removed from the pipeline. If the step's operation was
+   * abandoned and is still running, the clean up is put off until it returns, so the operation
+   * is never cleaned up while it is in use.
+   *
+   * @param step    the step that was removed
+   * @param cleanUp cleans up the step's operation
+   */
+  void cleanUpWhenFinished(Step step, Runnable cleanUp) {
+    final Isolation isolation = isolations.remove(step);
+    if (isolation == null || !isolation.deferUntilFinished(cleanUp)) {
+      cleanUp.run();
+    }
+  }
+
+  private long started(Step step) {
+    final long startTime = System.nanoTime();
+    tripped.remove(step);
+    AtomicLong stepStartTime = startTimes.get(step);
+    if (stepStartTime == null) {
+      stepStartTime = startTimes.computeIfAbsent(step, s -> new AtomicLong());
+    }
+    stepStartTime.set(startTime);
+    return startTime;
+  }
+
+  private void stopped(Step step) {
+    final AtomicLong stepStartTime = startTimes.get(step);
+    if (stepStartTime != null) {
+      stepStartTime.set(0);
+    }
+  }
+
+  private static Outcome outcome(long limit, long startTime) {
+    return limit > 0 && System.nanoTime() - startTime > limit
+        ? Outcome.FINISHED_LATE
+        : Outcome.FINISHED;
+  }
+
+  /**
+   * @return true if the step was abandoned, false if it finished before it could be
+   */
+  private boolean abandon(Step step, Isolation isolation) {
+    if (!isolation.abandon(step)) {
+      // It finished just after the pipeline stopped waiting for it
+      return false;
+    }
+    abandonments.incrementAndGet();
+    trip(step);
+    // Leave the stuck thread behind and start a new one for the next risky step
+    synchronized (this) {
+      if (isolationExecutor != null) {
+        isolationExecutor.shutdown();
+        isolationExecutor = null;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Flags every step that has been running for longer than the time limit.
+   */
+  @VisibleForTesting
+  void check() {
+    final long limit = timeLimit;
+    if (limit == 0) {
+      return;
+    }
+    final long now = System.nanoTime();
+    for (Map.Entry<Step, AtomicLong> entry : startTimes.entrySet()) {
+      final long startTime = entry.getValue().get();
+      if (startTime != 0 && now - startTime > limit) {
+        trip(entry.getKey());
+      }
+    }
+  }
+
+  private void trip(Step step) {
+    if (tripped.add(step)) {
+      trips.incrementAndGet();
+      final String message = String.format("%s has been running for longer than %d ms",
+          step.getOperationDescription().name(), TimeUnit.NANOSECONDS.toMillis(timeLimit));
+      step.flagWarning(abandoned.contains(step)
+          ? message + ". The pipeline will skip it until it finishes."
+          : message + ".");
+    }
+  }
+
+  /**
+   * @return the number of times a step was flagged for going over the time limit.
+   */
+  public long getTripCount() {
+    return trips.get();
+  }
+
+  /**
+   * @return the number of times the pipeline stopped waiting for a risky step and carried on
+   *     without it.
+   */
+  public long getAbandonedCount() {
+    return abandonments.get();
+  }
+
+  @Subscribe
+  public void onStepRemoved(StepRemovedEvent event) {
+    startTimes.remove(event.getStep());
+    tripped.remove(event.getStep());
+  }
+
+  @Subscribe
+  public void onProjectSettingsChanged(ProjectSettingsChangedEvent event) {
+    final ProjectSettings settings = event.getProjectSettings();
+    isolateRiskySteps = settings.getIsolateRiskySteps();
+    setTimeLimit(TimeUnit.MILLISECONDS.toNanos(settings.getStepTimeLimit()));
+  }
+
+  /**
+   * @param timeLimit how long a step may run for in nanoseconds, or zero for no limit
+   */
+  @VisibleForTesting
+  synchronized void setTimeLimit(long timeLimit) {
+    checkArgument(timeLimit >= 0, "The time limit cannot be negative");
+    if (timeLimit == this.timeLimit) {
+      return;
+    }
+    this.timeLimit = timeLimit;
+    if (checkTask != null) {
+      checkTask.cancel(false);
+      checkTask = null;
+    }
+    if (timeLimit > 0) {
+      if (checker == null) {
+        checker = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("Step Watchdog")
+            .setDaemon(true)
+            .build());
+      }
+      final long period =
+          Math.max(MIN_CHECK_PERIOD, Math.min(MAX_CHECK_PERIOD, timeLimit / 4));
+      checkTask = checker.scheduleAtFixedRate(this::check, period, period, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private synchronized ExecutorService getIsolationExecutor() {
+    if (isolationExecutor == null) {
+      isolationExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("Isolated Step Worker %d")
+          .setDaemon(true)
+          .build());
+    }
+    return isolationExecutor;
+  }
+
+  /**
+   * A step that is performed on a separate thread. Its operation runs in a frame context of its
+   * own, so that the only images it ever touches are copies that nothing else refers to.
+   */
+  private final class Isolation {
+    private final FrameContext context = new FrameContext();
+    // Guarded by this
+    private boolean running;
+    @Nullable
+    private Runnable whenFinished;
+
+    synchronized void started() {
+      running = true;
+    }
+
+    /**
+     * @return true if the operation is still running, so the step was added to the abandoned
+     *     steps
+     */
+    synchronized boolean abandon(Step step) {
+      if (running) {
+        abandoned.add(step);
+      }
+      return running;
+    }
+
+    void finished(Step step) {
+      final Runnable task;
+      synchronized (this) {
+        running = false;
+        abandoned.remove(step);
+        task = whenFinished;
+        whenFinished = null;
+      }
+      if (task != null) {
+        task.run();
+      }
+    }
+
+    /**
+     * @return true if the operation is still running, so the task will be run once it returns
+     */
+    synchronized boolean deferUntilFinished(Runnable task) {
+      if (running) {
+        whenFinished = task;
+      }
+      return running;
+    }
+  }
+}
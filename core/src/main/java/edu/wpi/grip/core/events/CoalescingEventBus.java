@@ -0,0 +1,195 @@
+package edu.wpi.grip.core.events;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.SubscriberExceptionHandler;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An event bus that keeps slow subscribers from holding up the thread that posts an event.
+ *
+ * <p>Most events are delivered synchronously, exactly like a plain {@link EventBus}, because the
+ * pipeline depends on them having been handled by the time {@link #post} returns. {@link
+ * ObservationalEvent Observational events}, which the pipeline posts every run for the UI and
+ * analysis to look at, are instead queued and delivered in order on a single dispatch thread. An
+ * event that is still waiting is replaced when a newer one with the same key is posted, and new
+ * events are dropped once the queue is full, so a slow subscriber only ever sees fewer events and
+ * never slows down the pipeline.</p>
+ *
+ * <p>Queueing an event doesn't create any objects once its key has been seen before, and the
+ * dispatch thread waits a while for more events before it finishes, so the pipeline can post
+ * observational events every run without producing garbage.</p>
+ *
+ * <p>Benchmarks look at every run, so nothing is queued while one is running.</p>
+ */
+public class CoalescingEventBus extends EventBus {
+
+  private static final int DEFAULT_CAPACITY = 1024;
+  private static final long DEFAULT_IDLE_TIMEOUT_MS = 1000;
+
+  private final Executor executor;
+  private final int capacity;
+  private final long idleTimeoutMs;
+  // Created once so that starting to dispatch doesn't allocate
+  private final Runnable dispatchTask = this::dispatchPending;
+
+  // Guarded by pending
+  private final Queue<Slot> pending;
+  /**
+   * The slot for every key that has been posted, by event class and then by coalescing key. Keys
+   * are held weakly, so the slots of removed sockets and steps go away with them.
+   */
+  private final Map<Class<?>, Map<Object, Slot>> slots = new HashMap<>();
+  private boolean dispatching = false;
+
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private volatile boolean benchmarking = false;
+
+  /**
+   * Creates an event bus that delivers observational events on a daemon thread of its own.
+   */
+  public CoalescingEventBus(SubscriberExceptionHandler exceptionHandler) {
+    this(exceptionHandler, Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("Event Dispatcher")
+        .setDaemon(true)
+        .build()), DEFAULT_CAPACITY, DEFAULT_IDLE_TIMEOUT_MS);
+  }
+
+  /**
+   * @param executor      runs the tasks that deliver observational events. Only one task is ever
+   *                      submitted at a time.
+   * @param capacity      the most observational events that can wait to be delivered
+   * @param idleTimeoutMs how long a task waits for more events once it has delivered everything,
+   *                      or zero to finish right away
+   */
+  @VisibleForTesting
+  CoalescingEventBus(SubscriberExceptionHandler exceptionHandler, Executor executor,
+                     int capacity, long idleTimeoutMs) {
+    super(exceptionHandler);
+    checkArgument(capacity > 0, "Capacity must be positive");
+    checkArgument(idleTimeoutMs >= 0, "Idle timeout must not be negative");
+    this.executor = checkNotNull(executor, "executor");
+    this.capacity = capacity;
+    this.idleTimeoutMs = idleTimeoutMs;
+    this.pending = new ArrayDeque<>(capacity);
+  }
+
+  @Override
+  public void post(Object event) {
+    if (event instanceof BenchmarkEvent) {
+      benchmarking = ((BenchmarkEvent) event).isStart();
+    }
+    if (benchmarking || !(event instanceof ObservationalEvent)
+        || !((ObservationalEvent) event).isObservational()) {
+      super.post(event);
+      return;
+    }
+    synchronized (pending) {
+      final Slot slot = getSlot(event.getClass(), ((ObservationalEvent) event).coalescingKey());
+      if (slot.event != null) {
+        // Keeps its place in the queue
+        slot.event = event;
+        coalesced.incrementAndGet();
+      } else if (pending.size() >= capacity) {
+        dropped.incrementAndGet();
+        return;
+      } else {
+        slot.event = event;
+        pending.add(slot);
+      }
+      if (dispatching) {
+        // Wakes the task up if it is waiting for more events
+        pending.notify();
+        return;
+      }
+      dispatching = true;
+    }
+    executor.execute(dispatchTask);
+  }
+
+  // Must be called while holding the lock on pending
+  private Slot getSlot(Class<?> eventClass, Object key) {
+    Map<Object, Slot> slotsForClass = slots.get(eventClass);
+    if (slotsForClass == null) {
+      slotsForClass = new WeakHashMap<>();
+      slots.put(eventClass, slotsForClass);
+    }
+    Slot slot = slotsForClass.get(key);
+    if (slot == null) {
+      slot = new Slot();
+      slotsForClass.put(key, slot);
+    }
+    return slot;
+  }
+
+  private void dispatchPending() {
+    while (true) {
+      final Object event;
+      synchronized (pending) {
+        if (pending.isEmpty()) {
+          awaitEvents();
+        }
+        if (pending.isEmpty()) {
+          dispatching = false;
+          return;
+        }
+        final Slot slot = pending.remove();
+        event = slot.event;
+        // The slot must not keep the event, since that may keep its key from being collected
+        slot.event = null;
+      }
+      // Subscriber exceptions are handled by the exception handler, so this can't be interrupted
+      super.post(event);
+    }
+  }
+
+  // Must be called while holding the lock on pending
+  private void awaitEvents() {
+    if (idleTimeoutMs == 0) {
+      return;
+    }
+    try {
+      pending.wait(idleTimeoutMs);
+    } catch (InterruptedException e) {
+      // The executor is shutting down, so the task finishes with nothing left to deliver
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return the number of observational events that were replaced by a newer one before they
+   *     could be delivered.
+   */
+  public long getCoalescedCount() {
+    return coalesced.get();
+  }
+
+  /**
+   * @return the number of observational events that were dropped because too many were waiting to
+   *     be delivered.
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * Holds the event waiting to be delivered for one key, or null if none is waiting.
+   */
+  private static final class Slot {
+    private Object event;
+  }
+
+}
@@ -0,0 +1,26 @@
+package edu.wpi.grip.core.events;
+
+/**
+ * Interface for events that only tell subscribers about something that has already happened, such
+ * as a step finishing or the pipeline having new results to render. Nothing that the pipeline
+ * depends on may subscribe to these, since the {@link CoalescingEventBus} delivers them on its own
+ * thread, and may replace or drop them when subscribers fall behind.
+ */
+public interface ObservationalEvent {
+
+  /**
+   * Indicates if this particular event can be delivered asynchronously. Defaults to true.
+   */
+  default boolean isObservational() {
+    return true;
+  }
+
+  /**
+   * An event that is waiting to be delivered is replaced by a newer event of the same class with
+   * an equal key. Defaults to the class of the event, so only the latest one is ever delivered.
+   */
+  default Object coalescingKey() {
+    return getClass();
+  }
+
+}
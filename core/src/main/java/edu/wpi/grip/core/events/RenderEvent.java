@@ -3,6 +3,10 @@ package edu.wpi.grip.core.events;
 /**
  * An event that occurs when the pipeline has completed a run. Anything that needs to render an
  * image from the pipeline should do so by subscribing to this event.
+ *
+ * <p>This is delivered on the pipeline thread before the next run starts, since the images being
+ * rendered are written by that run. Subscribers that show an image later, such as on the UI
+ * thread, have to copy it first.</p>
  */
 public class RenderEvent {
 }
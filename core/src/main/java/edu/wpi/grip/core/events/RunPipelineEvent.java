@@ -10,7 +10,7 @@ public interface RunPipelineEvent {
    * Indicates to the {@link edu.wpi.grip.core.PipelineRunner} that there is an update to one of the
    * values and it should run again.
    *
-   * @return true if the {@link edu.wpi.grip.core.PipelineRunner#pipelineFlag} should be released.
+   * @return true if the {@link edu.wpi.grip.core.PipelineRunner} should be asked to run again.
    */
   default boolean pipelineShouldRun() {
     return true;
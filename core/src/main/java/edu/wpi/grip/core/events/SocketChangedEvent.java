@@ -10,7 +10,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * An event that occurs when the value stored in a socket changes.  This can happen, for example, as
  * the result of an operation completing, or as a response to user input.
  */
-public class SocketChangedEvent implements RunPipelineEvent, DirtiesSaveEvent {
+public class SocketChangedEvent implements RunPipelineEvent, DirtiesSaveEvent,
+    ObservationalEvent {
   private final Socket socket;
 
   /**
@@ -52,8 +53,21 @@ public class SocketChangedEvent implements RunPipelineEvent, DirtiesSaveEvent {
      * pipeline to be releasing itself. If the connections are empty then the change must have come
      * from the UI so we need to run the pipeline with the new values.
      */
-    return socket.getDirection().equals(Socket.Direction.INPUT) && socket.getConnections()
-        .isEmpty();
+    return socket.getDirection().equals(Socket.Direction.INPUT) && !socket.isConnected();
+  }
+
+  /**
+   * Changes made by the pipeline itself are only shown to the user. Changes from anywhere else
+   * have to be seen by the pipeline runner right away.
+   */
+  @Override
+  public boolean isObservational() {
+    return !pipelineShouldRun();
+  }
+
+  @Override
+  public Object coalescingKey() {
+    return socket;
   }
 
   @Override
@@ -16,11 +16,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * </ul>
  * </p>
  */
-public class TimerEvent {
+public class TimerEvent implements ObservationalEvent {
 
   private final Timer timer;
   private final Object target;
-  private final long elapsedTime;
+  private volatile long elapsedTime;
 
   /**
    * Creates a new timer event.
@@ -58,4 +58,22 @@ public class TimerEvent {
     return elapsedTime;
   }
 
+  /**
+   * Updates the elapsed time, so that a timer can post the same event every time it stops instead
+   * of creating a new one. Subscribers that use the time later have to copy it out first.
+   *
+   * @param elapsedTime the time elapsed in microseconds
+   */
+  public void setElapsedTime(long elapsedTime) {
+    this.elapsedTime = elapsedTime;
+  }
+
+  /**
+   * Only the latest time for each target is delivered if subscribers fall behind.
+   */
+  @Override
+  public Object coalescingKey() {
+    return target;
+  }
+
 }
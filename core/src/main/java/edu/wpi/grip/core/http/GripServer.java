@@ -106,6 +106,13 @@ public class GripServer {
    */
   public static final String DATA_PATH = ROOT_PATH + "/data";
 
+  /**
+   * The path for requesting how much native memory the pipeline holds. A {@code GET} request on
+   * this path returns a json-formatted breakdown by step, socket and source, along with the most
+   * each of them has held.
+   */
+  public static final String MEMORY_PATH = ROOT_PATH + "/memory";
+
   /**
    * The default port the server should run on.
    */
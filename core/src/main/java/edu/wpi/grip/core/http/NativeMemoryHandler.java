@@ -0,0 +1,56 @@
+package edu.wpi.grip.core.http;
+
+import edu.wpi.grip.core.NativeMemoryAccountant;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.eclipse.jetty.server.Request;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static javax.servlet.http.HttpServletResponse.SC_METHOD_NOT_ALLOWED;
+import static javax.servlet.http.HttpServletResponse.SC_OK;
+
+/**
+ * Jetty handler that sends how much native memory the pipeline holds, sampled when it is asked
+ * for.
+ *
+ * @see GripServer#MEMORY_PATH
+ */
+@Singleton
+public class NativeMemoryHandler extends PedanticHandler {
+
+  private final NativeMemoryAccountant accountant;
+  private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+  @Inject
+  NativeMemoryHandler(ContextStore store, GripServer server, NativeMemoryAccountant accountant) {
+    super(store, GripServer.MEMORY_PATH, true);
+    this.accountant = checkNotNull(accountant, "accountant");
+    server.addHandler(this);
+  }
+
+  @Override
+  protected void handleIfPassed(String target,
+                                Request baseRequest,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException, ServletException {
+    if (!isGet(request)) {
+      response.setStatus(SC_METHOD_NOT_ALLOWED);
+      baseRequest.setHandled(true);
+      return;
+    }
+    accountant.sampleIfStale();
+    sendTextContent(response, gson.toJson(accountant.getReport()), CONTENT_TYPE_JSON);
+    response.setStatus(SC_OK);
+    baseRequest.setHandled(true);
+  }
+}
@@ -28,6 +28,8 @@ public class Timer {
   private final Stopwatch stopwatch;
 
   private final Object target;
+  // Posted every time the timer stops, so that timing something doesn't allocate
+  private final TimerEvent event;
   private long elapsedTime = 0;
 
   @Inject
@@ -40,6 +42,7 @@ public class Timer {
     this.eventBus = eventBus;
     this.stopwatch = stopwatch;
     this.target = checkNotNull(target, "target");
+    this.event = new TimerEvent(this, target, 0);
   }
 
   /**
@@ -67,8 +70,19 @@ public class Timer {
       throw new IllegalStateException("Already stopped");
     }
     stopwatch.stop();
-    this.elapsedTime = stopwatch.elapsed(TimeUnit.MICROSECONDS);
-    eventBus.post(new TimerEvent(this, target, elapsedTime));
+    record(stopwatch.elapsed(TimeUnit.MICROSECONDS));
+  }
+
+  /**
+   * Records how long something took that was timed some other way, such as work that was spread
+   * over several threads, and posts a {@link TimerEvent} for it like {@link #stop()} does.
+   *
+   * @param elapsedTime the time elapsed in microseconds
+   */
+  public synchronized void record(long elapsedTime) {
+    this.elapsedTime = elapsedTime;
+    event.setElapsedTime(elapsedTime);
+    eventBus.post(event);
   }
 
   /**
@@ -47,15 +47,17 @@ public class CVOperations {
     this.coreOperations = ImmutableList.of(
         new OperationMetaData(CVOperation.defaults("CV absdiff",
             "Calculate the per-element absolute difference of two images."),
-            templateFactory.createAllMatTwoSource(opencv_core::absdiff)),
+            TemplateFactory.inPlace(
+                templateFactory.createAllMatTwoSource(opencv_core::absdiff))),
 
         new OperationMetaData(CVOperation.defaults("CV add",
             "Calculate the per-pixel sum of two images."),
-            templateFactory.createAllMatTwoSource(opencv_core::add)),
+            TemplateFactory.inPlace(
+                templateFactory.createAllMatTwoSource(opencv_core::add))),
 
         new OperationMetaData(CVOperation.defaults("CV addWeighted",
             "Calculate the weighted sum of two images."),
-            templateFactory.create(
+            TemplateFactory.inPlace(templateFactory.create(
                 SocketHints.Inputs.createMatSocketHint("src1", false),
                 SocketHints.Inputs.createNumberSpinnerSocketHint("alpha", 0),
                 SocketHints.Inputs.createMatSocketHint("src2", false),
@@ -66,27 +68,31 @@ public class CVOperations {
                   opencv_core.addWeighted(src1, alpha.doubleValue(), src2, beta.doubleValue(),
                       gamma.doubleValue(), dst);
                 }
-            )),
+            ))),
 
         new OperationMetaData(CVOperation.defaults("CV bitwise_and",
             "Calculate the per-element bitwise conjunction of two images."),
-            templateFactory.createAllMatTwoSource(opencv_core::bitwise_and)),
+            TemplateFactory.inPlace(
+                templateFactory.createAllMatTwoSource(opencv_core::bitwise_and))),
 
         new OperationMetaData(CVOperation.defaults("CV bitwise_not",
             "Calculate per-element bit-wise inversion of an image."),
-            templateFactory.createAllMatOneSource(opencv_core::bitwise_not)),
+            TemplateFactory.inPlace(
+                templateFactory.createAllMatOneSource(opencv_core::bitwise_not))),
 
         new OperationMetaData(CVOperation.defaults("CV bitwise_or",
             "Calculate the per-element bit-wise disjunction of two images."),
-            templateFactory.createAllMatTwoSource(opencv_core::bitwise_or)),
+            TemplateFactory.inPlace(
+                templateFactory.createAllMatTwoSource(opencv_core::bitwise_or))),
 
         new OperationMetaData(CVOperation.defaults("CV bitwise_xor",
             "Calculate the per-element bit-wise \"exclusive or\" on two images."),
-            templateFactory.createAllMatTwoSource(opencv_core::bitwise_xor)),
+            TemplateFactory.inPlace(
+                templateFactory.createAllMatTwoSource(opencv_core::bitwise_xor))),
 
         new OperationMetaData(CVOperation.defaults("CV compare",
             "Compare each pixel in two images using a given rule."),
-            templateFactory.create(
+            TemplateFactory.inPlace(templateFactory.create(
                 SocketHints.Inputs.createMatSocketHint("src1", false),
                 SocketHints.Inputs.createMatSocketHint("src2", false),
                 SocketHints.createEnumSocketHint("cmpop", CmpTypesEnum.CMP_EQ),
@@ -94,11 +100,11 @@ public class CVOperations {
                 (src1, src2, cmp, dst) -> {
                   opencv_core.compare(src1, src2, dst, cmp.value);
                 }
-            )),
+            ))),
 
         new OperationMetaData(CVOperation.defaults("CV divide",
             "Perform per-pixel division of two images."),
-            templateFactory.create(
+            TemplateFactory.inPlace(templateFactory.create(
                 SocketHints.Inputs.createMatSocketHint("src1", false),
                 SocketHints.Inputs.createMatSocketHint("src2", false),
                 SocketHints.Inputs.createNumberSpinnerSocketHint("scale", 1.0, -Double.MAX_VALUE,
@@ -107,7 +113,7 @@ public class CVOperations {
                 (src1, src2, scale, dst) -> {
                   opencv_core.divide(src1, src2, dst, scale.doubleValue(), -1);
                 }
-            )),
+            ))),
 
         new OperationMetaData(CVOperation.defaults("CV extractChannel",
             "Extract a single channel from a image."),
@@ -134,15 +140,17 @@ public class CVOperations {
 
         new OperationMetaData(CVOperation.defaults("CV max",
             "Calculate per-element maximum of two images."),
-            templateFactory.createAllMatTwoSource(opencv_core::max)),
+            TemplateFactory.inPlace(
+                templateFactory.createAllMatTwoSource(opencv_core::max))),
 
         new OperationMetaData(CVOperation.defaults("CV min",
             "Calculate the per-element minimum of two images."),
-            templateFactory.createAllMatTwoSource(opencv_core::min)),
+            TemplateFactory.inPlace(
+                templateFactory.createAllMatTwoSource(opencv_core::min))),
 
         new OperationMetaData(CVOperation.defaults("CV multiply",
             "Calculate the per-pixel scaled product of two images."),
-            templateFactory.create(
+            TemplateFactory.inPlace(templateFactory.create(
                 SocketHints.Inputs.createMatSocketHint("src1", false),
                 SocketHints.Inputs.createMatSocketHint("src2", false),
                 SocketHints.Inputs.createNumberSpinnerSocketHint("scale", 1.0, Integer.MIN_VALUE,
@@ -151,11 +159,11 @@ public class CVOperations {
                 (src1, src2, scale, dst) -> {
                   opencv_core.multiply(src1, src2, dst, scale.doubleValue(), -1);
                 }
-            )),
+            ))),
 
         new OperationMetaData(CVOperation.defaults("CV scaleAdd",
             "Calculate the sum of two images where one image is multiplied by a scalar."),
-            templateFactory.create(
+            TemplateFactory.inPlace(templateFactory.create(
                 SocketHints.Inputs.createMatSocketHint("src1", false),
                 SocketHints.Inputs.createNumberSpinnerSocketHint("scale", 1.0),
                 SocketHints.Inputs.createMatSocketHint("src2", false),
@@ -163,11 +171,12 @@ public class CVOperations {
                 (src1, alpha, src2, dst) -> {
                   opencv_core.scaleAdd(src1, alpha.doubleValue(), src2, dst);
                 }
-            )),
+            ))),
 
         new OperationMetaData(CVOperation.defaults("CV subtract",
             "Calculate the per-pixel difference between two images."),
-            templateFactory.createAllMatTwoSource(opencv_core::subtract)),
+            TemplateFactory.inPlace(
+                templateFactory.createAllMatTwoSource(opencv_core::subtract))),
 
         new OperationMetaData(CVOperation.defaults("CV transpose",
             "Calculate the transpose of an image."),
@@ -311,7 +320,7 @@ public class CVOperations {
 
         new OperationMetaData(CVOperation.defaults("CV rectangle",
             "Draw a rectangle (outline or filled) on an image."),
-            templateFactory.create(
+            TemplateFactory.inPlace(templateFactory.create(
                 SocketHints.Inputs.createMatSocketHint("src", false),
                 SocketHints.Inputs.createPointSocketHint("pt1", 0, 0),
                 SocketHints.Inputs.createPointSocketHint("pt2", 0, 0),
@@ -324,12 +333,12 @@ public class CVOperations {
                 SocketHints.Outputs.createMatSocketHint("dst"),
                 (src, pt1, pt2, color, thickness, lineType, shift, dst) -> {
                   // Rectangle only has one input and it modifies it so we have to copy the input
-                  // image to the dst
+                  // image to the dst. The copy is skipped when running in place.
                   src.copyTo(dst);
                   opencv_imgproc.rectangle(dst, pt1, pt2, color, thickness.intValue(), lineType
                       .value, shift.intValue());
                 }
-            )),
+            ))),
 
         new OperationMetaData(CVOperation.defaults("CV resize",
             "Resizes the image to the specified size."),
@@ -368,7 +377,7 @@ public class CVOperations {
         new OperationMetaData(CVOperation.defaults("CV Threshold",
             "Apply a fixed-level threshold to each array element in an image.",
             "CV threshold"),
-            templateFactory.create(
+            TemplateFactory.inPlace(templateFactory.create(
                 SocketHints.Inputs.createMatSocketHint("src", false),
                 SocketHints.Inputs.createNumberSpinnerSocketHint("thresh", 0),
                 SocketHints.Inputs.createNumberSpinnerSocketHint("maxval", 0),
@@ -378,7 +387,7 @@ public class CVOperations {
                   opencv_imgproc.threshold(src, dst, thresh.doubleValue(), maxval.doubleValue(),
                       type.value);
                 }
-            ))
+            )))
     );
   }
 
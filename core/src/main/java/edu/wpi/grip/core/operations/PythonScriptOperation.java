@@ -161,4 +161,10 @@ public class PythonScriptOperation implements Operation {
       logger.log(Level.WARNING, e.getMessage(), e);
     }
   }
+
+  @Override
+  public boolean isCacheable() {
+    // Scripts can keep state between runs
+    return false;
+  }
 }
@@ -7,6 +7,7 @@ import edu.wpi.grip.core.sockets.InputSocket;
 import edu.wpi.grip.core.sockets.OutputSocket;
 import edu.wpi.grip.core.sockets.SocketHint;
 import edu.wpi.grip.core.sockets.SocketHints;
+import edu.wpi.grip.core.util.RegionOfInterest;
 
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
@@ -73,6 +74,7 @@ public class BlurOperation implements Operation {
     final Number radius = radiusSocket.getValue().get();
 
     final Mat output = outputSocket.getValue().get();
+    RegionOfInterest.matchRegion(input, output, input.type());
 
     int kernelSize;
 
@@ -111,4 +111,11 @@ public class CascadeClassifierOperation implements Operation {
     output.setValue(new RectsReport(image, rects));
   }
 
+  @Override
+  public boolean isRisky() {
+    // Detection time grows with the number of candidate windows, and a bad classifier file can
+    // make it run for a very long time
+    return true;
+  }
+
 }
@@ -1,5 +1,6 @@
 package edu.wpi.grip.core.operations.composite;
 
+import edu.wpi.grip.core.NativeMemoryHolder;
 import edu.wpi.grip.core.operations.network.PublishValue;
 import edu.wpi.grip.core.operations.network.Publishable;
 import edu.wpi.grip.core.sockets.NoSocketTypeLabel;
@@ -9,11 +10,13 @@ import com.google.auto.value.AutoValue;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+
+import javax.annotation.Nullable;
 
 import static org.bytedeco.javacpp.opencv_core.Mat;
 import static org.bytedeco.javacpp.opencv_core.MatVector;
 import static org.bytedeco.javacpp.opencv_core.Rect;
+import static org.bytedeco.javacpp.opencv_imgproc.arcLength;
 import static org.bytedeco.javacpp.opencv_imgproc.boundingRect;
 import static org.bytedeco.javacpp.opencv_imgproc.contourArea;
 import static org.bytedeco.javacpp.opencv_imgproc.convexHull;
@@ -24,12 +27,13 @@ import static org.bytedeco.javacpp.opencv_imgproc.convexHull;
  * contours are from, to give context to the points.
  */
 @NoSocketTypeLabel
-public final class ContoursReport implements Publishable {
+public final class ContoursReport implements Publishable, NativeMemoryHolder {
 
   private final int rows;
   private final int cols;
   private final MatVector contours;
-  private Optional<Rect[]> boundingBoxes = Optional.empty();
+  @Nullable
+  private volatile Features features;
 
   /**
    * Construct an empty report.  This is used as a default value for {@link Socket}s containing
@@ -40,9 +44,17 @@ public final class ContoursReport implements Publishable {
   }
 
   ContoursReport(MatVector contours, int rows, int cols) {
+    this(contours, rows, cols, null);
+  }
+
+  /**
+   * @param features the features of the contours, if they are already known
+   */
+  ContoursReport(MatVector contours, int rows, int cols, @Nullable Features features) {
     this.contours = contours;
     this.rows = rows;
     this.cols = cols;
+    this.features = features;
   }
 
   public int getRows() {
@@ -57,101 +69,150 @@ public final class ContoursReport implements Publishable {
     return this.contours;
   }
 
+  @Override
+  public long getNativeBytes() {
+    long bytes = 0;
+    for (int i = 0; i < contours.size(); i++) {
+      final Mat contour = contours.get(i);
+      bytes += contour.total() * contour.elemSize();
+    }
+    return bytes;
+  }
+
   /**
    * @return All of the contours held within this report.
    */
   public List<Contour> getProcessedContours() {
-    final List<Contour> processedContours = new ArrayList<>((int) contours.size());
-    double[] area = getArea();
-    double[] centerX = getCenterX();
-    double[] centerY = getCenterY();
-    double[] width = getWidth();
-    double[] height = getHeights();
-    double[] solidity = getSolidity();
-    for (int i = 0; i < contours.size(); i++) {
-      processedContours.add(Contour.create(area[i], centerX[i], centerY[i], width[i], height[i],
-          solidity[i]));
+    final Features features = getFeatures();
+    final List<Contour> processedContours = new ArrayList<>(features.count);
+    for (int i = 0; i < features.count; i++) {
+      processedContours.add(Contour.create(features.area[i], features.centerX[i],
+          features.centerY[i], features.width[i], features.height[i], features.solidity[i]));
     }
     return processedContours;
   }
 
   /**
-   * Compute the bounding boxes of all contours (if they haven't already been computed).  Bounding
-   * boxes are used to compute several different properties, so it's probably not a good idea to
-   * compute them over and over again.
+   * Gets the features of every contour, computing all of them in one pass over the contours the
+   * first time they are asked for. Reports are never changed once they are made, so the features
+   * are kept for as long as the report is.
    */
-  private synchronized Rect[] computeBoundingBoxes() {
-    if (!boundingBoxes.isPresent()) {
-      Rect[] bb = new Rect[(int) contours.size()];
-      for (int i = 0; i < contours.size(); i++) {
-        bb[i] = boundingRect(contours.get(i));
+  Features getFeatures() {
+    Features result = features;
+    if (result == null) {
+      synchronized (this) {
+        result = features;
+        if (result == null) {
+          result = new Features(contours);
+          features = result;
+        }
       }
-
-      boundingBoxes = Optional.of(bb);
     }
-
-    return boundingBoxes.get();
+    return result;
   }
 
+  // The arrays returned below are shared by everything that reads this report, so they must not
+  // be modified.
+
   @PublishValue(key = "area", weight = 0)
   public double[] getArea() {
-    final double[] areas = new double[(int) contours.size()];
-    for (int i = 0; i < contours.size(); i++) {
-      areas[i] = contourArea(contours.get(i));
-    }
-    return areas;
+    return getFeatures().area;
   }
 
   @PublishValue(key = "centerX", weight = 1)
   public double[] getCenterX() {
-    final double[] centers = new double[(int) contours.size()];
-    final Rect[] boundingBoxes = computeBoundingBoxes();
-    for (int i = 0; i < contours.size(); i++) {
-      centers[i] = boundingBoxes[i].x() + boundingBoxes[i].width() / 2;
-    }
-    return centers;
+    return getFeatures().centerX;
   }
 
   @PublishValue(key = "centerY", weight = 2)
   public double[] getCenterY() {
-    final double[] centers = new double[(int) contours.size()];
-    final Rect[] boundingBoxes = computeBoundingBoxes();
-    for (int i = 0; i < contours.size(); i++) {
-      centers[i] = boundingBoxes[i].y() + boundingBoxes[i].height() / 2;
-    }
-    return centers;
+    return getFeatures().centerY;
   }
 
   @PublishValue(key = "width", weight = 3)
-  public synchronized double[] getWidth() {
-    final double[] widths = new double[(int) contours.size()];
-    final Rect[] boundingBoxes = computeBoundingBoxes();
-    for (int i = 0; i < contours.size(); i++) {
-      widths[i] = boundingBoxes[i].width();
-    }
-    return widths;
+  public double[] getWidth() {
+    return getFeatures().width;
   }
 
   @PublishValue(key = "height", weight = 4)
-  public synchronized double[] getHeights() {
-    final double[] heights = new double[(int) contours.size()];
-    final Rect[] boundingBoxes = computeBoundingBoxes();
-    for (int i = 0; i < contours.size(); i++) {
-      heights[i] = boundingBoxes[i].height();
-    }
-    return heights;
+  public double[] getHeights() {
+    return getFeatures().height;
   }
 
   @PublishValue(key = "solidity", weight = 5)
-  public synchronized double[] getSolidity() {
-    final double[] solidities = new double[(int) contours.size()];
-    Mat hull = new Mat();
-    for (int i = 0; i < contours.size(); i++) {
-      convexHull(contours.get(i), hull);
-      solidities[i] = contourArea(contours.get(i)) / contourArea(hull);
+  public double[] getSolidity() {
+    return getFeatures().solidity;
+  }
+
+  /**
+   * The features of the contours in a report, with one array for each feature that is indexed the
+   * same way as the contours.
+   */
+  static final class Features {
+    final int count;
+    final double[] area;
+    final double[] centerX;
+    final double[] centerY;
+    final double[] width;
+    final double[] height;
+    final double[] solidity;
+    final double[] perimeter;
+    final int[] vertices;
+
+    private Features(int count) {
+      this.count = count;
+      this.area = new double[count];
+      this.centerX = new double[count];
+      this.centerY = new double[count];
+      this.width = new double[count];
+      this.height = new double[count];
+      this.solidity = new double[count];
+      this.perimeter = new double[count];
+      this.vertices = new int[count];
+    }
+
+    private Features(MatVector contours) {
+      this((int) contours.size());
+      final Mat hull = new Mat();
+      try {
+        for (int i = 0; i < count; i++) {
+          final Mat contour = contours.get(i);
+          final Rect boundingBox = boundingRect(contour);
+          area[i] = contourArea(contour);
+          centerX[i] = boundingBox.x() + boundingBox.width() / 2;
+          centerY[i] = boundingBox.y() + boundingBox.height() / 2;
+          width[i] = boundingBox.width();
+          height[i] = boundingBox.height();
+          convexHull(contour, hull);
+          solidity[i] = area[i] / contourArea(hull);
+          perimeter[i] = arcLength(contour, true);
+          vertices[i] = contour.rows();
+        }
+      } finally {
+        hull.release();
+      }
+    }
+
+    /**
+     * @param indices the indices of the contours to keep, in order
+     * @param count   the number of indices to use
+     * @return the features of only some of the contours
+     */
+    Features select(int[] indices, int count) {
+      final Features selected = new Features(count);
+      for (int i = 0; i < count; i++) {
+        final int index = indices[i];
+        selected.area[i] = area[index];
+        selected.centerX[i] = centerX[index];
+        selected.centerY[i] = centerY[index];
+        selected.width[i] = width[index];
+        selected.height[i] = height[index];
+        selected.solidity[i] = solidity[index];
+        selected.perimeter[i] = perimeter[index];
+        selected.vertices[i] = vertices[index];
+      }
+      return selected;
     }
-    hull.release();
-    return solidities;
   }
 
   @AutoValue
@@ -13,13 +13,7 @@ import com.google.inject.Inject;
 
 import java.util.List;
 
-import static org.bytedeco.javacpp.opencv_core.Mat;
 import static org.bytedeco.javacpp.opencv_core.MatVector;
-import static org.bytedeco.javacpp.opencv_core.Rect;
-import static org.bytedeco.javacpp.opencv_imgproc.arcLength;
-import static org.bytedeco.javacpp.opencv_imgproc.boundingRect;
-import static org.bytedeco.javacpp.opencv_imgproc.contourArea;
-import static org.bytedeco.javacpp.opencv_imgproc.convexHull;
 
 /**
  * An {@link Operation} that takes in a list of contours and outputs a list of any contours in the
@@ -152,55 +146,55 @@ public class FilterContoursOperation implements Operation {
     final double maxRatio = maxRatioSocket.getValue().get().doubleValue();
 
 
-    final MatVector inputContours = inputSocket.getValue().get().getContours();
+    final ContoursReport input = inputSocket.getValue().get();
+    final MatVector inputContours = input.getContours();
+    // The features are computed once per report, and the ones for the contours that pass are
+    // handed on to the output report so they don't have to be computed again
+    final ContoursReport.Features features = input.getFeatures();
     final MatVector outputContours = new MatVector(inputContours.size());
-    final Mat hull = new Mat();
+    final int[] kept = new int[features.count];
 
     // Add contours from the input vector to the output vector only if they pass all of the
-    // criteria (minimum
-    // area, minimum perimeter, width, and height, etc...)
+    // criteria (minimum area, minimum perimeter, width, and height, etc...)
     int filteredContourCount = 0;
-    for (int i = 0; i < inputContours.size(); i++) {
-      final Mat contour = inputContours.get(i);
-
-      final Rect bb = boundingRect(contour);
-      if (bb.width() < minWidth || bb.width() > maxWidth) {
+    for (int i = 0; i < features.count; i++) {
+      final double width = features.width[i];
+      if (width < minWidth || width > maxWidth) {
         continue;
       }
-      if (bb.height() < minHeight || bb.height() > maxHeight) {
+      final double height = features.height[i];
+      if (height < minHeight || height > maxHeight) {
         continue;
       }
 
-      final double area = contourArea(contour);
-      if (area < minArea) {
+      if (features.area[i] < minArea) {
         continue;
       }
-      if (arcLength(contour, true) < minPerimeter) {
+      if (features.perimeter[i] < minPerimeter) {
         continue;
       }
 
-      convexHull(contour, hull);
-      final double solidity = 100 * area / contourArea(hull);
-      hull.release();
+      final double solidity = 100 * features.solidity[i];
       if (solidity < minSolidity || solidity > maxSolidity) {
         continue;
       }
 
-      if (contour.rows() < minVertexCount || contour.rows() > maxVertexCount) {
+      if (features.vertices[i] < minVertexCount || features.vertices[i] > maxVertexCount) {
         continue;
       }
 
-      final double ratio = (double) bb.width() / (double) bb.height();
+      final double ratio = width / height;
       if (ratio < minRatio || ratio > maxRatio) {
         continue;
       }
 
-      outputContours.put(filteredContourCount++, contour);
+      kept[filteredContourCount] = i;
+      outputContours.put(filteredContourCount++, inputContours.get(i));
     }
 
     outputContours.resize(filteredContourCount);
 
-    outputSocket.setValue(new ContoursReport(outputContours,
-        inputSocket.getValue().get().getRows(), inputSocket.getValue().get().getCols()));
+    outputSocket.setValue(new ContoursReport(outputContours, input.getRows(), input.getCols(),
+        features.select(kept, filteredContourCount)));
   }
 }
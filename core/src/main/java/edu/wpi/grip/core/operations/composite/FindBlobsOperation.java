@@ -7,6 +7,7 @@ import edu.wpi.grip.core.sockets.InputSocket;
 import edu.wpi.grip.core.sockets.OutputSocket;
 import edu.wpi.grip.core.sockets.SocketHint;
 import edu.wpi.grip.core.sockets.SocketHints;
+import edu.wpi.grip.core.util.RegionOfInterest;
 
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
@@ -17,6 +18,7 @@ import java.util.List;
 import static org.bytedeco.javacpp.opencv_core.KeyPoint;
 import static org.bytedeco.javacpp.opencv_core.KeyPointVector;
 import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.bytedeco.javacpp.opencv_core.Point;
 import static org.bytedeco.javacpp.opencv_features2d.SimpleBlobDetector;
 
 /**
@@ -103,10 +105,13 @@ public class FindBlobsOperation implements Operation {
     final KeyPointVector keyPointVector = new KeyPointVector();
     blobDetector.detect(input, keyPointVector);
 
+    // Blobs found in a region of a larger frame are reported where they are in the frame
+    final Point offset = RegionOfInterest.offsetOf(input);
     final List<BlobsReport.Blob> blobs = new ArrayList<>();
     for (int i = 0; i < keyPointVector.size(); i++) {
       final KeyPoint keyPoint = keyPointVector.get(i);
-      blobs.add(new BlobsReport.Blob(keyPoint.pt().x(), keyPoint.pt().y(), keyPoint.size()));
+      blobs.add(new BlobsReport.Blob(keyPoint.pt().x() + offset.x(),
+          keyPoint.pt().y() + offset.y(), keyPoint.size()));
     }
 
     outputSocket.setValue(new BlobsReport(input, blobs));
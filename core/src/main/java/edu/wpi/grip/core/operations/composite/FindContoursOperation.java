@@ -1,12 +1,14 @@
 package edu.wpi.grip.core.operations.composite;
 
 import edu.wpi.grip.core.Description;
+import edu.wpi.grip.core.MatPool;
 import edu.wpi.grip.core.Operation;
 import edu.wpi.grip.core.OperationDescription;
 import edu.wpi.grip.core.sockets.InputSocket;
 import edu.wpi.grip.core.sockets.OutputSocket;
 import edu.wpi.grip.core.sockets.SocketHint;
 import edu.wpi.grip.core.sockets.SocketHints;
+import edu.wpi.grip.core.util.RegionOfInterest;
 
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
@@ -15,6 +17,8 @@ import java.util.List;
 
 import static org.bytedeco.javacpp.opencv_core.Mat;
 import static org.bytedeco.javacpp.opencv_core.MatVector;
+import static org.bytedeco.javacpp.opencv_core.Point;
+import static org.bytedeco.javacpp.opencv_core.Size;
 import static org.bytedeco.javacpp.opencv_imgproc.CV_CHAIN_APPROX_TC89_KCOS;
 import static org.bytedeco.javacpp.opencv_imgproc.CV_RETR_EXTERNAL;
 import static org.bytedeco.javacpp.opencv_imgproc.CV_RETR_LIST;
@@ -46,10 +50,13 @@ public class FindContoursOperation implements Operation {
 
   private final OutputSocket<ContoursReport> contoursSocket;
 
+  private final MatPool matPool;
+
   @Inject
   @SuppressWarnings("JavadocMethod")
   public FindContoursOperation(InputSocket.Factory inputSocketFactory, OutputSocket.Factory
-      outputSocketFactory) {
+      outputSocketFactory, MatPool matPool) {
+    this.matPool = matPool;
     this.inputSocket = inputSocketFactory.create(inputHint);
     this.externalSocket = inputSocketFactory.create(externalHint);
 
@@ -78,7 +85,7 @@ public class FindContoursOperation implements Operation {
       return;
     }
 
-    final Mat tmp = new Mat();
+    final Mat tmp = matPool.acquireLike(input);
     final boolean externalOnly = externalSocket.getValue().get();
 
     // findContours modifies its input, so we pass it a temporary copy of the input image
@@ -89,11 +96,19 @@ public class FindContoursOperation implements Operation {
     // The other ones involve hierarchies of contours, which might be useful in some situations,
     // but probably only
     // when processing the contours manually in code (so, not in a graphical pipeline).
+    // If the input is a region of a larger frame, the contours are moved to where they are in the
+    // frame, and the report covers the whole frame.
+    final Point offset = RegionOfInterest.offsetOf(input);
+    final Size frameSize = RegionOfInterest.frameSizeOf(input);
     MatVector contours = new MatVector();
-    findContours(tmp, contours, externalOnly ? CV_RETR_EXTERNAL : CV_RETR_LIST,
-        CV_CHAIN_APPROX_TC89_KCOS);
-    tmp.release();
+    try {
+      findContours(tmp, contours, externalOnly ? CV_RETR_EXTERNAL : CV_RETR_LIST,
+          CV_CHAIN_APPROX_TC89_KCOS, offset);
+    } finally {
+      matPool.release(tmp);
+    }
 
-    contoursSocket.setValue(new ContoursReport(contours, input.rows(), input.cols()));
+    contoursSocket.setValue(
+        new ContoursReport(contours, frameSize.height(), frameSize.width()));
   }
 }
@@ -1,12 +1,14 @@
 package edu.wpi.grip.core.operations.composite;
 
 import edu.wpi.grip.core.Description;
+import edu.wpi.grip.core.MatPool;
 import edu.wpi.grip.core.Operation;
 import edu.wpi.grip.core.OperationDescription;
 import edu.wpi.grip.core.sockets.InputSocket;
 import edu.wpi.grip.core.sockets.OutputSocket;
 import edu.wpi.grip.core.sockets.SocketHint;
 import edu.wpi.grip.core.sockets.SocketHints;
+import edu.wpi.grip.core.util.RegionOfInterest;
 
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
@@ -16,7 +18,9 @@ import org.bytedeco.javacpp.indexer.FloatIndexer;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.bytedeco.javacpp.opencv_core.CV_8UC1;
 import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.bytedeco.javacpp.opencv_core.Point;
 import static org.bytedeco.javacpp.opencv_imgproc.COLOR_BGR2GRAY;
 import static org.bytedeco.javacpp.opencv_imgproc.LineSegmentDetector;
 import static org.bytedeco.javacpp.opencv_imgproc.cvtColor;
@@ -39,9 +43,12 @@ public class FindLinesOperation implements Operation {
 
   private final OutputSocket<LinesReport> linesReportSocket;
 
+  private final MatPool matPool;
+
   @Inject
   public FindLinesOperation(InputSocket.Factory inputSocketFactory, OutputSocket.Factory
-      outputSocketFactory) {
+      outputSocketFactory, MatPool matPool) {
+    this.matPool = matPool;
     this.inputSocket = inputSocketFactory.create(inputHint);
     this.linesReportSocket = outputSocketFactory.create(linesHint);
   }
@@ -72,20 +79,26 @@ public class FindLinesOperation implements Operation {
     } else {
       // The line detector works on a single channel.  If the input is a color image, we can just
       // give the line  detector a grayscale version of it
-      final Mat tmp = new Mat();
-      cvtColor(input, tmp, COLOR_BGR2GRAY);
-      lsd.detect(tmp, lines);
-      tmp.release();
+      final Mat tmp = matPool.acquire(input.rows(), input.cols(), CV_8UC1);
+      try {
+        cvtColor(input, tmp, COLOR_BGR2GRAY);
+        lsd.detect(tmp, lines);
+      } finally {
+        matPool.release(tmp);
+      }
     }
 
-    // Store the lines in the LinesReport object
+    // Store the lines in the LinesReport object, moved to where they are in the frame if the input
+    // is a region of a larger one
+    final Point offset = RegionOfInterest.offsetOf(input);
     List<LinesReport.Line> lineList = new ArrayList<>();
     if (!lines.empty()) {
       final FloatIndexer indexer = lines.createIndexer();
       final float[] tmp = new float[4];
       for (int i = 0; i < lines.rows(); i++) {
         indexer.get(i, tmp);
-        lineList.add(new LinesReport.Line(tmp[0], tmp[1], tmp[2], tmp[3]));
+        lineList.add(new LinesReport.Line(tmp[0] + offset.x(), tmp[1] + offset.y(),
+            tmp[2] + offset.x(), tmp[3] + offset.y()));
       }
     }
     lines.release();
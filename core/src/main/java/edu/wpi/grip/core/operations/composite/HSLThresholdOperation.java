@@ -8,6 +8,7 @@ import edu.wpi.grip.core.sockets.InputSocket;
 import edu.wpi.grip.core.sockets.OutputSocket;
 import edu.wpi.grip.core.sockets.SocketHint;
 import edu.wpi.grip.core.sockets.SocketHints;
+import edu.wpi.grip.core.util.RegionOfInterest;
 
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
@@ -16,6 +17,7 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static org.bytedeco.javacpp.opencv_core.CV_8UC1;
 import static org.bytedeco.javacpp.opencv_core.Mat;
 import static org.bytedeco.javacpp.opencv_core.Scalar;
 import static org.bytedeco.javacpp.opencv_core.inRange;
@@ -89,6 +91,7 @@ public class HSLThresholdOperation extends ThresholdOperation {
     }
 
     final Mat output = outputSocket.getValue().get();
+    RegionOfInterest.matchRegion(input, output, CV_8UC1);
     final List<Number> channel1 = hueSocket.getValue().get();
     final List<Number> channel2 = saturationSocket.getValue().get();
     final List<Number> channel3 = luminanceSocket.getValue().get();
@@ -7,6 +7,7 @@ import edu.wpi.grip.core.sockets.InputSocket;
 import edu.wpi.grip.core.sockets.OutputSocket;
 import edu.wpi.grip.core.sockets.SocketHint;
 import edu.wpi.grip.core.sockets.SocketHints;
+import edu.wpi.grip.core.util.RegionOfInterest;
 
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
@@ -18,6 +19,7 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static org.bytedeco.javacpp.opencv_core.CV_8UC1;
 import static org.bytedeco.javacpp.opencv_core.inRange;
 import static org.bytedeco.javacpp.opencv_imgproc.COLOR_BGR2HSV;
 import static org.bytedeco.javacpp.opencv_imgproc.cvtColor;
@@ -89,6 +91,7 @@ public class HSVThresholdOperation extends ThresholdOperation {
     }
 
     final Mat output = outputSocket.getValue().get();
+    RegionOfInterest.matchRegion(input, output, CV_8UC1);
     final List<Number> channel1 = hueSocket.getValue().get();
     final List<Number> channel2 = saturationSocket.getValue().get();
     final List<Number> channel3 = valueSocket.getValue().get();
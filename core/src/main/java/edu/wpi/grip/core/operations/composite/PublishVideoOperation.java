@@ -164,6 +164,11 @@ public class PublishVideoOperation implements Operation {
     return ImmutableList.of();
   }
 
+  @Override
+  public boolean isSink() {
+    return true;
+  }
+
   @Override
   public void perform() {
     if (!connected) {
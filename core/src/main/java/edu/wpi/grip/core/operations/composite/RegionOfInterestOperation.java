@@ -0,0 +1,108 @@
+package edu.wpi.grip.core.operations.composite;
+
+import edu.wpi.grip.core.Description;
+import edu.wpi.grip.core.Operation;
+import edu.wpi.grip.core.OperationDescription;
+import edu.wpi.grip.core.sockets.InputSocket;
+import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.core.sockets.SocketHint;
+import edu.wpi.grip.core.sockets.SocketHints;
+import edu.wpi.grip.core.util.RegionOfInterest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Inject;
+
+import java.util.List;
+
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.bytedeco.javacpp.opencv_core.Rect;
+
+/**
+ * Limits the rest of the pipeline to a rectangular part of an image. The output shares its pixels
+ * with the input, so nothing is copied, and operations that support regions of interest only
+ * process the part that was kept while still reporting coordinates in the whole image.
+ *
+ * @see RegionOfInterest
+ */
+@Description(name = "Region of Interest",
+             summary = "Only process a rectangular part of an image",
+             category = OperationDescription.Category.IMAGE_PROCESSING,
+             iconName = "resize")
+public class RegionOfInterestOperation implements Operation {
+
+  private final SocketHint<Mat> inputHint = SocketHints.Inputs.createMatSocketHint("Input", false);
+  private final SocketHint<List<Number>> horizontalHint = SocketHints.Inputs
+      .createNumberListRangeSocketHint("Horizontal %", 0.0, 100.0);
+  private final SocketHint<List<Number>> verticalHint = SocketHints.Inputs
+      .createNumberListRangeSocketHint("Vertical %", 0.0, 100.0);
+
+  private final SocketHint<Mat> outputHint = SocketHints.Outputs.createMatSocketHint("Output");
+
+  private final InputSocket<Mat> inputSocket;
+  private final InputSocket<List<Number>> horizontalSocket;
+  private final InputSocket<List<Number>> verticalSocket;
+
+  private final OutputSocket<Mat> outputSocket;
+
+  @Inject
+  @SuppressWarnings("JavadocMethod")
+  public RegionOfInterestOperation(InputSocket.Factory inputSocketFactory, OutputSocket.Factory
+      outputSocketFactory) {
+    this.inputSocket = inputSocketFactory.create(inputHint);
+    this.horizontalSocket = inputSocketFactory.create(horizontalHint);
+    this.verticalSocket = inputSocketFactory.create(verticalHint);
+
+    this.outputSocket = outputSocketFactory.create(outputHint);
+  }
+
+  @Override
+  public List<InputSocket> getInputSockets() {
+    return ImmutableList.of(
+        inputSocket,
+        horizontalSocket,
+        verticalSocket
+    );
+  }
+
+  @Override
+  public List<OutputSocket> getOutputSockets() {
+    return ImmutableList.of(
+        outputSocket
+    );
+  }
+
+  @Override
+  public void perform() {
+    final Mat input = inputSocket.getValue().get();
+    if (input.empty()) {
+      throw new IllegalArgumentException("Region of Interest needs a non-empty input");
+    }
+    final List<Number> horizontal = horizontalSocket.getValue().get();
+    final List<Number> vertical = verticalSocket.getValue().get();
+
+    final int left = toPixels(horizontal.get(0), input.cols());
+    final int right = Math.max(toPixels(horizontal.get(1), input.cols()), left + 1);
+    final int top = toPixels(vertical.get(0), input.rows());
+    final int bottom = Math.max(toPixels(vertical.get(1), input.rows()), top + 1);
+
+    final Mat output = outputSocket.getValue().get();
+    // The output becomes a view of the input instead of a copy of it
+    output.put(new Mat(input, new Rect(left, top, right - left, bottom - top)));
+    outputSocket.setValue(output);
+  }
+
+  @Override
+  public boolean isCacheable() {
+    // The output shares its pixels with the input instead of being an image of its own
+    return false;
+  }
+
+  /**
+   * @return the pixel that is the given percentage of the way across, always leaving at least one
+   *     pixel after it.
+   */
+  private static int toPixels(Number percent, int size) {
+    final int pixel = (int) Math.round(percent.doubleValue() * size / 100.0);
+    return Math.max(0, Math.min(pixel, size - 1));
+  }
+}
@@ -103,6 +103,11 @@ public class SaveImageOperation implements Operation {
     );
   }
 
+  @Override
+  public boolean isSink() {
+    return true;
+  }
+
   @Override
   public void perform() {
     if (!activeSocket.getValue().orElse(false)) {
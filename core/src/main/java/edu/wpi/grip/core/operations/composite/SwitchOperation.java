@@ -72,4 +72,10 @@ public class SwitchOperation implements Operation {
       outputSocket.setValueOptional(inputSocket2.getValue());
     }
   }
+
+  @Override
+  public boolean isCacheable() {
+    // The inputs are passed through, so there is no output image of our own to restore into
+    return false;
+  }
 }
@@ -62,4 +62,10 @@ public class ThresholdMoving implements Operation {
     input.copyTo(lastImage);
     outputSocket.setValue(outputSocket.getValue().get());
   }
+
+  @Override
+  public boolean isCacheable() {
+    // The output depends on the image from the previous run as well
+    return false;
+  }
 }
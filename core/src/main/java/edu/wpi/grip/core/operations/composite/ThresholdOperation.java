@@ -1,14 +1,25 @@
 package edu.wpi.grip.core.operations.composite;
 
+import edu.wpi.grip.core.NativeMemoryHolder;
 import edu.wpi.grip.core.Operation;
 
 import org.bytedeco.javacpp.opencv_core.Mat;
 import org.bytedeco.javacpp.opencv_core.Scalar;
 
-public abstract class ThresholdOperation<O extends ThresholdOperation<O>> implements Operation {
+public abstract class ThresholdOperation<O extends ThresholdOperation<O>> implements Operation,
+    NativeMemoryHolder {
 
   protected Mat[] dataArray = {new Mat(), new Mat(), new Mat()};
 
+  @Override
+  public long getNativeBytes() {
+    long bytes = 0;
+    for (Mat mat : dataArray) {
+      bytes += mat.total() * mat.elemSize();
+    }
+    return bytes;
+  }
+
   /**
    * @param dataArray The array with the element that should be re-allocated
    * @param index     The index of the data array that should be inspected
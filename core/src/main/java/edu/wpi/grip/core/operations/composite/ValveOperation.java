@@ -64,4 +64,10 @@ public class ValveOperation implements Operation {
       outputSocket.setValueOptional(Optional.empty());
     }
   }
+
+  @Override
+  public boolean isCacheable() {
+    // The input is passed through, so there is no output image of our own to restore into
+    return false;
+  }
 }
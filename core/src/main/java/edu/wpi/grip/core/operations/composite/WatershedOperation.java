@@ -148,6 +148,12 @@ public class WatershedOperation implements Operation {
     outputSocket.setValue(new ContoursReport(foundContours, output.rows(), output.cols()));
   }
 
+  @Override
+  public boolean isRisky() {
+    // Watershed can take a very long time on large images with many markers
+    return true;
+  }
+
   /**
    * Finds the first available point to place a background marker for the watershed operation.
    */
@@ -0,0 +1,85 @@
+package edu.wpi.grip.core.operations.network;
+
+import edu.wpi.grip.core.http.ContextStore;
+import edu.wpi.grip.core.http.GripServer;
+import edu.wpi.grip.core.operations.network.http.DataHandler;
+import edu.wpi.grip.core.operations.network.ros.JavaToMessageConverter;
+import edu.wpi.grip.core.operations.network.ros.ROSMessagePublisher;
+import edu.wpi.grip.core.operations.network.ros.ROSNetworkPublisherFactory;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Network bindings for a pipeline that processes recorded frames in batch mode. Nothing is
+ * published over the network. The values published to NetworkTables and HTTP are recorded by a
+ * {@link RecordingPublisherFactory} instead, and ROS messages are dropped.
+ *
+ * <p>The HTTP server and the NetworkTables receiver are shared with the injector that was created
+ * with the {@link GripNetworkModule}, the same way as in the {@link SharedNetworkModule}.</p>
+ */
+public final class BatchNetworkModule extends AbstractModule {
+
+  private final Injector primaryInjector;
+  private final RecordingPublisherFactory recorder;
+
+  /**
+   * @param primaryInjector the injector that was created with the {@link GripNetworkModule}
+   * @param recorder        records the values that the pipeline publishes
+   */
+  public BatchNetworkModule(Injector primaryInjector, RecordingPublisherFactory recorder) {
+    this.primaryInjector = checkNotNull(primaryInjector, "primaryInjector");
+    this.recorder = checkNotNull(recorder, "recorder");
+  }
+
+  @Override
+  protected void configure() {
+    // HTTP server injection bindings
+    bind(GripServer.class).toProvider(primaryInjector.getProvider(GripServer.class));
+    bind(ContextStore.class).toProvider(primaryInjector.getProvider(ContextStore.class));
+    bind(DataHandler.class).toProvider(primaryInjector.getProvider(DataHandler.class));
+    // Network publishing bindings
+    bind(MapNetworkPublisherFactory.class)
+        .annotatedWith(Names.named("ntManager"))
+        .toInstance(recorder);
+    bind(MapNetworkPublisherFactory.class)
+        .annotatedWith(Names.named("httpManager"))
+        .toInstance(recorder);
+    bind(ROSNetworkPublisherFactory.class)
+        .annotatedWith(Names.named("rosManager"))
+        .toInstance(new DroppingROSPublisherFactory());
+
+    // Network receiver bindings
+    final Key<MapNetworkReceiverFactory> ntReceiverKey =
+        Key.get(MapNetworkReceiverFactory.class, Names.named("ntManager"));
+    bind(ntReceiverKey).toProvider(primaryInjector.getProvider(ntReceiverKey));
+  }
+
+  private static final class DroppingROSPublisherFactory implements ROSNetworkPublisherFactory {
+    @Override
+    public <C extends JavaToMessageConverter> ROSMessagePublisher create(C converter) {
+      return new ROSMessagePublisher() {
+        @Override
+        public void publish(Converter publish) {
+          /* no-op */
+        }
+
+        @Override
+        protected void publishNameChanged(Optional<String> oldName, String newName) {
+          /* no-op */
+        }
+
+        @Override
+        public void close() {
+          /* no-op */
+        }
+      };
+    }
+  }
+}
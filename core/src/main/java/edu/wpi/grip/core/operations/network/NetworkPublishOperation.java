@@ -62,4 +62,9 @@ public abstract class NetworkPublishOperation<D> implements Operation {
   public void perform() {
     doPublish();
   }
+
+  @Override
+  public boolean isSink() {
+    return true;
+  }
 }
@@ -8,6 +8,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -143,6 +144,18 @@ public abstract class PublishAnnotatedOperation<D, P extends Publishable> extend
     publisher.publish(dataMap);
   }
 
+  /**
+   * Withdraws the published values by publishing no values under the same name.
+   */
+  @Override
+  public void invalidate() {
+    final String name = nameSocket.getValue().orElse("");
+    if (!name.isEmpty()) {
+      publisher.setName(name);
+      publisher.publish(Collections.emptyMap());
+    }
+  }
+
   public Class<D> getSocketType() {
     return dataType;
   }
@@ -0,0 +1,79 @@
+package edu.wpi.grip.core.operations.network;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A publisher factory that doesn't send anything over the network. It remembers the last value
+ * published under each key instead, so the values can be collected after the pipeline has run.
+ *
+ * <p>Values published with a set of keys are recorded as {@code name/key}, single values are
+ * recorded under the publisher's name.</p>
+ */
+public final class RecordingPublisherFactory implements MapNetworkPublisherFactory {
+
+  private final Map<String, Object> values = new TreeMap<>();
+
+  @Override
+  public <T> MapNetworkPublisher<T> create(Set<String> keys) {
+    return new RecordingPublisher<>(keys);
+  }
+
+  /**
+   * @return the last value published under each key, sorted by key.
+   */
+  public synchronized ImmutableMap<String, Object> getValues() {
+    return ImmutableMap.copyOf(values);
+  }
+
+  private synchronized void record(String key, Object value) {
+    values.put(key, value);
+  }
+
+  private synchronized void remove(String name) {
+    values.remove(name);
+    values.keySet().removeIf(key -> key.startsWith(name + "/"));
+  }
+
+  private final class RecordingPublisher<T> extends MapNetworkPublisher<T> {
+
+    private String name;
+
+    RecordingPublisher(Set<String> keys) {
+      super(keys);
+    }
+
+    @Override
+    protected void doPublish() {
+      remove(name);
+    }
+
+    @Override
+    protected void doPublish(Map<String, T> publishMap) {
+      remove(name);
+      publishMap.forEach((key, value) -> record(name + "/" + key, value));
+    }
+
+    @Override
+    protected void doPublishSingle(T value) {
+      record(name, value);
+    }
+
+    @Override
+    protected void publishNameChanged(Optional<String> oldName, String newName) {
+      oldName.ifPresent(RecordingPublisherFactory.this::remove);
+      this.name = newName;
+    }
+
+    @Override
+    public void close() {
+      if (name != null) {
+        remove(name);
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package edu.wpi.grip.core.operations.network;
+
+import edu.wpi.grip.core.http.ContextStore;
+import edu.wpi.grip.core.http.GripServer;
+import edu.wpi.grip.core.operations.network.http.DataHandler;
+import edu.wpi.grip.core.operations.network.http.HttpPublishManager;
+import edu.wpi.grip.core.operations.network.ros.ROSNetworkPublisherFactory;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Network bindings for an additional pipeline that runs in the same process as the one created
+ * with the {@link GripNetworkModule}. The HTTP server, the NetworkTables connection, and the ROS
+ * node are process wide, so every pipeline uses the instances that belong to the first one
+ * instead of creating its own.
+ *
+ * <p>The shared instances are bound through providers so that they are not injected again or
+ * registered on the event bus of the additional pipeline.</p>
+ */
+public final class SharedNetworkModule extends AbstractModule {
+
+  private final Injector primaryInjector;
+
+  /**
+   * @param primaryInjector the injector that was created with the {@link GripNetworkModule}
+   */
+  public SharedNetworkModule(Injector primaryInjector) {
+    this.primaryInjector = checkNotNull(primaryInjector, "primaryInjector");
+  }
+
+  @Override
+  protected void configure() {
+    // HTTP server injection bindings
+    bind(GripServer.class).toProvider(primaryInjector.getProvider(GripServer.class));
+    bind(ContextStore.class).toProvider(primaryInjector.getProvider(ContextStore.class));
+    bind(DataHandler.class).toProvider(primaryInjector.getProvider(DataHandler.class));
+    // Network publishing bindings
+    final Key<MapNetworkPublisherFactory> ntPublisherKey =
+        Key.get(MapNetworkPublisherFactory.class, Names.named("ntManager"));
+    bind(ntPublisherKey).toProvider(primaryInjector.getProvider(ntPublisherKey));
+    bind(MapNetworkPublisherFactory.class)
+        .annotatedWith(Names.named("httpManager"))
+        .to(HttpPublishManager.class);
+    final Key<ROSNetworkPublisherFactory> rosPublisherKey =
+        Key.get(ROSNetworkPublisherFactory.class, Names.named("rosManager"));
+    bind(rosPublisherKey).toProvider(primaryInjector.getProvider(rosPublisherKey));
+
+    // Network receiver bindings
+    final Key<MapNetworkReceiverFactory> ntReceiverKey =
+        Key.get(MapNetworkReceiverFactory.class, Names.named("ntManager"));
+    bind(ntReceiverKey).toProvider(primaryInjector.getProvider(ntReceiverKey));
+  }
+}
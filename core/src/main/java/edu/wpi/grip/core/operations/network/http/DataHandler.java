@@ -17,8 +17,8 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.eclipse.jetty.server.Request;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -62,7 +62,8 @@ public final class DataHandler extends PedanticHandler {
   @Inject
   DataHandler(ContextStore store) {
     super(store, GripServer.DATA_PATH, true);
-    this.dataSuppliers = new HashMap<>();
+    // Every pipeline in the process publishes through the same handler
+    this.dataSuppliers = new ConcurrentHashMap<>();
     this.gson = new GsonBuilder()
         .setPrettyPrinting()
         .serializeSpecialFloatingPointValues()
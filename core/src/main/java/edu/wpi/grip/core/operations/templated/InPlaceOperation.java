@@ -0,0 +1,68 @@
+package edu.wpi.grip.core.operations.templated;
+
+import edu.wpi.grip.core.Operation;
+import edu.wpi.grip.core.sockets.InputSocket;
+import edu.wpi.grip.core.sockets.OutputSocket;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An operation that is declared to be able to write its result over its first input. Everything
+ * else is done by the operation it wraps.
+ *
+ * @see TemplateFactory#inPlace(java.util.function.Supplier)
+ */
+final class InPlaceOperation implements Operation {
+  private final Operation operation;
+
+  InPlaceOperation(Operation operation) {
+    this.operation = checkNotNull(operation, "operation");
+  }
+
+  @Override
+  public List<InputSocket> getInputSockets() {
+    return operation.getInputSockets();
+  }
+
+  @Override
+  public List<OutputSocket> getOutputSockets() {
+    return operation.getOutputSockets();
+  }
+
+  @Override
+  public void perform() {
+    operation.perform();
+  }
+
+  @Override
+  public boolean canPerformInPlace() {
+    return true;
+  }
+
+  @Override
+  public boolean isSink() {
+    return operation.isSink();
+  }
+
+  @Override
+  public boolean isCacheable() {
+    return operation.isCacheable();
+  }
+
+  @Override
+  public boolean isRisky() {
+    return operation.isRisky();
+  }
+
+  @Override
+  public void invalidate() {
+    operation.invalidate();
+  }
+
+  @Override
+  public void cleanUp() {
+    operation.cleanUp();
+  }
+}
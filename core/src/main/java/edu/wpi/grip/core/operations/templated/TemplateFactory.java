@@ -140,6 +140,18 @@ public final class TemplateFactory {
   }
 
 
+  /**
+   * Declares that the operations created by a supplier can write their output over their first
+   * input. Only use this for operations whose first input and output are images, and that give the
+   * right result when both are the same image, such as operations that work on each pixel on its
+   * own.
+   *
+   * @see Operation#canPerformInPlace()
+   */
+  public static Supplier<Operation> inPlace(Supplier<Operation> supplier) {
+    return () -> new InPlaceOperation(supplier.get());
+  }
+
   private <R> SocketHint<R> srcSocketHint(Class<R> srcType, int index) {
     return new SocketHint.Builder<>(srcType).identifier("src" + index).build();
   }
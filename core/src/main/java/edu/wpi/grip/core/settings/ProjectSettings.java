@@ -1,5 +1,7 @@
 package edu.wpi.grip.core.settings;
 
+import edu.wpi.grip.core.ExecutionMode;
+
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Throwables;
 
@@ -15,6 +17,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 @SuppressWarnings("JavadocMethod")
 public class ProjectSettings implements Settings, Cloneable {
 
+  private static final int DEFAULT_FRAMES_IN_FLIGHT = 3;
+
   @Setting(label = "FRC team number", description = "The team number, if used for FRC")
   private int teamNumber = 0;
 
@@ -43,6 +47,68 @@ public class ProjectSettings implements Settings, Cloneable {
   private String deployJvmOptions = "-Xmx50m -XX:-OmitStackTraceInFastThrow "
       + "-XX:+HeapDumpOnOutOfMemoryError -XX:MaxNewSize=16m";
 
+  @Setting(label = "Execution mode", description = "How the steps in the pipeline are run. "
+      + "Parallel mode runs steps that do not depend on each other at the same time.")
+  private ExecutionMode executionMode = ExecutionMode.SEQUENTIAL;
+
+  @Setting(label = "Execution threads", description = "The maximum number of threads used to run "
+      + "steps in parallel or frame pipelined mode. If zero, the number of processors on the "
+      + "system is used.")
+  private int executionThreads = 0;
+
+  @Setting(label = "Frames in flight", description = "The maximum number of frames that can be "
+      + "processed at the same time in frame pipelined mode.")
+  private int framesInFlight = DEFAULT_FRAMES_IN_FLIGHT;
+
+  @Setting(label = "Only run used steps", description = "If enabled, a step is only run if its "
+      + "results are published, saved, or previewed, or if it feeds a step that is.")
+  private boolean onlyRunUsedSteps = false;
+
+  @Setting(label = "Target frame rate", description = "The maximum number of times per second "
+      + "that the pipeline is run. Lowering this leaves processor time for other programs. If "
+      + "zero, the pipeline runs as often as new frames arrive.")
+  private int targetFrameRate = 0;
+
+  @Setting(label = "Latency budget (ms)", description = "The longest a single run of the pipeline "
+      + "may take. A run that goes over this is abandoned before its next step, and the values "
+      + "published by the steps it skipped are withdrawn. If zero, runs are never abandoned.")
+  private int latencyBudget = 0;
+
+  @Setting(label = "Step result cache (MB)", description = "How much memory may be used to "
+      + "remember the results of steps, so that a step doesn't run again when its inputs are the "
+      + "same as in an earlier run. If zero, results are not cached.")
+  private int stepCacheSize = 0;
+
+  @Setting(label = "Image file cache (MB)", description = "How much memory may be used to keep "
+      + "images loaded from files decoded, so that going back to one doesn't decode it again. If "
+      + "zero, images are not cached.")
+  private int imageCacheSize = 256;
+
+  @Setting(label = "Step time limit (ms)", description = "How long a single step may run before "
+      + "it is flagged with a warning. If zero, steps are never flagged.")
+  private int stepTimeLimit = 0;
+
+  @Setting(label = "Isolate risky steps", description = "If enabled, steps that can hang in "
+      + "native code, such as cascade classifiers, run on a thread of their own. When one goes "
+      + "over the step time limit, the pipeline carries on without it and skips it until it "
+      + "finishes.")
+  private boolean isolateRiskySteps = false;
+
+  @Setting(label = "Native memory limit (MB)", description = "How much memory may be held by "
+      + "images that are reused between runs instead of being freed. Images past this limit are "
+      + "freed as soon as they are no longer used. If zero, there is no limit.")
+  private int nativeMemoryLimit = 0;
+
+  @Setting(label = "Native memory warning (MB)", description = "A warning is shown when the images "
+      + "held by the pipeline, its sources and the image pool take up more memory than this. If "
+      + "zero, no warning is shown.")
+  private int nativeMemoryBudget = 0;
+
+  @Setting(label = "Skip periodic garbage collection", description = "If enabled, garbage "
+      + "collection is no longer forced every few runs to free the memory of dead images. This "
+      + "avoids pauses, but images that are not reused are only freed when the heap fills up.")
+  private boolean skipPeriodicGc = false;
+
 
   // Getters and setters
 
@@ -134,6 +200,123 @@ public class ProjectSettings implements Settings, Cloneable {
     }
   }
 
+  public ExecutionMode getExecutionMode() {
+    // Projects saved before this setting existed will deserialize it as null
+    return executionMode == null ? ExecutionMode.SEQUENTIAL : executionMode;
+  }
+
+  public void setExecutionMode(@Nullable ExecutionMode executionMode) {
+    if (executionMode != null) {
+      this.executionMode = executionMode;
+    }
+  }
+
+  public int getExecutionThreads() {
+    return executionThreads;
+  }
+
+  public void setExecutionThreads(@Nonnegative int executionThreads) {
+    checkArgument(executionThreads >= 0, "Execution threads cannot be negative");
+    this.executionThreads = executionThreads;
+  }
+
+  public int getFramesInFlight() {
+    // Projects saved before this setting existed will deserialize it as zero
+    return framesInFlight > 0 ? framesInFlight : DEFAULT_FRAMES_IN_FLIGHT;
+  }
+
+  public void setFramesInFlight(int framesInFlight) {
+    checkArgument(framesInFlight > 0, "Frames in flight must be positive");
+    this.framesInFlight = framesInFlight;
+  }
+
+  public boolean getOnlyRunUsedSteps() {
+    return onlyRunUsedSteps;
+  }
+
+  public void setOnlyRunUsedSteps(boolean onlyRunUsedSteps) {
+    this.onlyRunUsedSteps = onlyRunUsedSteps;
+  }
+
+  public int getTargetFrameRate() {
+    return targetFrameRate;
+  }
+
+  public void setTargetFrameRate(@Nonnegative int targetFrameRate) {
+    checkArgument(targetFrameRate >= 0, "Target frame rate cannot be negative");
+    this.targetFrameRate = targetFrameRate;
+  }
+
+  public int getLatencyBudget() {
+    return latencyBudget;
+  }
+
+  public void setLatencyBudget(@Nonnegative int latencyBudget) {
+    checkArgument(latencyBudget >= 0, "Latency budget cannot be negative");
+    this.latencyBudget = latencyBudget;
+  }
+
+  public int getStepCacheSize() {
+    return stepCacheSize;
+  }
+
+  public void setStepCacheSize(@Nonnegative int stepCacheSize) {
+    checkArgument(stepCacheSize >= 0, "Step cache size cannot be negative");
+    this.stepCacheSize = stepCacheSize;
+  }
+
+  public int getImageCacheSize() {
+    return imageCacheSize;
+  }
+
+  public void setImageCacheSize(@Nonnegative int imageCacheSize) {
+    checkArgument(imageCacheSize >= 0, "Image cache size cannot be negative");
+    this.imageCacheSize = imageCacheSize;
+  }
+
+  public int getStepTimeLimit() {
+    return stepTimeLimit;
+  }
+
+  public void setStepTimeLimit(@Nonnegative int stepTimeLimit) {
+    checkArgument(stepTimeLimit >= 0, "Step time limit cannot be negative");
+    this.stepTimeLimit = stepTimeLimit;
+  }
+
+  public boolean getIsolateRiskySteps() {
+    return isolateRiskySteps;
+  }
+
+  public void setIsolateRiskySteps(boolean isolateRiskySteps) {
+    this.isolateRiskySteps = isolateRiskySteps;
+  }
+
+  public int getNativeMemoryLimit() {
+    return nativeMemoryLimit;
+  }
+
+  public void setNativeMemoryLimit(@Nonnegative int nativeMemoryLimit) {
+    checkArgument(nativeMemoryLimit >= 0, "Native memory limit cannot be negative");
+    this.nativeMemoryLimit = nativeMemoryLimit;
+  }
+
+  public int getNativeMemoryBudget() {
+    return nativeMemoryBudget;
+  }
+
+  public void setNativeMemoryBudget(@Nonnegative int nativeMemoryBudget) {
+    checkArgument(nativeMemoryBudget >= 0, "Native memory warning cannot be negative");
+    this.nativeMemoryBudget = nativeMemoryBudget;
+  }
+
+  public boolean getSkipPeriodicGc() {
+    return skipPeriodicGc;
+  }
+
+  public void setSkipPeriodicGc(boolean skipPeriodicGc) {
+    this.skipPeriodicGc = skipPeriodicGc;
+  }
+
   private String computeFRCAddress(int teamNumber) {
     return "roboRIO-" + teamNumber + "-FRC.local";
   }
@@ -146,7 +329,20 @@ public class ProjectSettings implements Settings, Cloneable {
         .add("deployUser", deployUser)
         .add("deployJavaHome", deployJavaHome)
         .add("deployJvmOptions", deployJvmOptions)
+        .add("executionMode", executionMode)
+        .add("executionThreads", executionThreads)
+        .add("framesInFlight", framesInFlight)
+        .add("imageCacheSize", imageCacheSize)
+        .add("isolateRiskySteps", isolateRiskySteps)
+        .add("latencyBudget", latencyBudget)
+        .add("nativeMemoryBudget", nativeMemoryBudget)
+        .add("nativeMemoryLimit", nativeMemoryLimit)
+        .add("onlyRunUsedSteps", onlyRunUsedSteps)
         .add("publishAddress", publishAddress)
+        .add("skipPeriodicGc", skipPeriodicGc)
+        .add("stepCacheSize", stepCacheSize)
+        .add("stepTimeLimit", stepTimeLimit)
+        .add("targetFrameRate", targetFrameRate)
         .add("teamNumber", teamNumber)
         .toString();
   }
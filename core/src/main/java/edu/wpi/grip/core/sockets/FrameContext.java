@@ -0,0 +1,268 @@
+package edu.wpi.grip.core.sockets;
+
+import edu.wpi.grip.core.MatPool;
+import edu.wpi.grip.core.util.RegionOfInterest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * A set of socket values that belong to a single frame in flight through the pipeline. While a
+ * thread has entered a frame context, reads and writes of values produced by the pipeline go to
+ * the context instead of the value shared by every thread. This lets several frames be processed
+ * at the same time without the operations knowing about it.
+ *
+ * <p>Values that are produced by the pipeline are scoped to the frame: the outputs of sources and
+ * steps, and the inputs of steps that are connected to an output. Inputs that are not connected
+ * can only be changed by the user, so they are always read from the shared value.</p>
+ *
+ * <p>A context is reused for every frame that occupies the same slot in the pipeline, so the
+ * buffers that operations write into are only allocated once per slot. Images that sources took
+ * out of the {@link MatPool} are retained by the frame instead of being copied, and released once
+ * the frame is done with them. When the results of a frame are committed, the slot takes over the
+ * images that were committed before it, so the next frame in the slot never writes into an image
+ * that is still visible outside of the pipeline.</p>
+ */
+public final class FrameContext {
+
+  private static final ThreadLocal<FrameContext> current = new ThreadLocal<>();
+
+  private final Map<SocketImpl<?>, Optional<?>> values = new ConcurrentHashMap<>();
+  /**
+   * Images from the pool that this context holds a reference to.
+   */
+  private final List<Mat> retained = new ArrayList<>();
+
+  /**
+   * Makes this the frame context for the current thread. Every call to this method must be followed
+   * by a call to {@link #exit()} on the same thread.
+   */
+  public void enter() {
+    checkState(current.get() == null, "The current thread is already in a frame context");
+    current.set(this);
+  }
+
+  /**
+   * Leaves the frame context that the current thread is in, if any.
+   */
+  public static void exit() {
+    current.remove();
+  }
+
+  /**
+   * Wraps a task so that it runs in the frame context of the calling thread, if there is one, no
+   * matter which thread it ends up running on.
+   *
+   * @param task the task to run in the current frame context
+   * @return a task that enters the context, runs the given task, and leaves the context again
+   */
+  public static Runnable inCurrentContext(Runnable task) {
+    checkNotNull(task, "task");
+    final FrameContext context = current.get();
+    if (context == null) {
+      return task;
+    }
+    return () -> {
+      context.enter();
+      try {
+        task.run();
+      } finally {
+        exit();
+      }
+    };
+  }
+
+  /**
+   * @return the frame context that the current thread is in, or null if it is not in one.
+   */
+  @Nullable
+  static FrameContext current() {
+    return current.get();
+  }
+
+  /**
+   * Stores the shared value of a source's output in this context so that the frame sees a stable
+   * value even if the source is updated while the frame is still being processed. Images from the
+   * pool are retained until {@link #release} is called, so the source can't write over them while
+   * the frame uses them. Other images are copied into a buffer owned by this context, and anything
+   * else is stored by reference.
+   *
+   * @param socket  the output socket of a source
+   * @param matPool the pool the images of sources come from
+   */
+  public void snapshot(OutputSocket<?> socket, MatPool matPool) {
+    checkNotNull(socket, "socket");
+    checkNotNull(matPool, "matPool");
+    checkState(current() == null, "Cannot snapshot from inside a frame context");
+    if (!(socket instanceof SocketImpl)) {
+      return;
+    }
+    final SocketImpl<?> impl = (SocketImpl<?>) socket;
+    final Optional<?> shared = impl.getSharedValue();
+    if (shared.isPresent() && shared.get() instanceof Mat
+        && matPool.tryRetain((Mat) shared.get())) {
+      retained.add((Mat) shared.get());
+      values.put(impl, shared);
+    } else {
+      store(impl, shared);
+    }
+  }
+
+  /**
+   * Releases the images that were retained by {@link #snapshot}. This is done once the frame has
+   * finished and its results have been shown.
+   *
+   * @param matPool the pool the images were retained from
+   */
+  public void release(MatPool matPool) {
+    checkNotNull(matPool, "matPool");
+    if (retained.isEmpty()) {
+      return;
+    }
+    // Forget every value that refers to the images, so no buffer of this context is one of them
+    final Set<Object> released = Collections.newSetFromMap(new IdentityHashMap<>());
+    released.addAll(retained);
+    values.values().removeIf(value -> value.isPresent() && released.contains(value.get()));
+    for (Mat image : retained) {
+      matPool.release(image);
+    }
+    retained.clear();
+  }
+
+  /**
+   * Copies the value a socket has for the calling thread into this context, so that a task running
+   * in this context reads a value that nothing else writes to. Images are copied into a buffer
+   * owned by this context, anything else is stored by reference.
+   *
+   * @param socket the socket to copy the value of
+   */
+  public void copyIn(Socket<?> socket) {
+    checkNotNull(socket, "socket");
+    checkState(current() != this, "Cannot copy into the context the current thread is in");
+    if (socket instanceof SocketImpl) {
+      store((SocketImpl<?>) socket, socket.getValue());
+    }
+  }
+
+  /**
+   * Sets the value a socket has in this context as its value for the calling thread. Images are
+   * copied into the buffer the socket already has for the calling thread, so that nothing outside
+   * of this context ever refers to a buffer that a task running in this context writes to.
+   *
+   * @param socket the socket to copy the value of
+   */
+  @SuppressWarnings("unchecked")
+  public void copyOut(Socket<?> socket) {
+    checkNotNull(socket, "socket");
+    checkState(current() != this, "Cannot copy out of the context the current thread is in");
+    if (!(socket instanceof SocketImpl)) {
+      return;
+    }
+    final SocketImpl<Object> impl = (SocketImpl<Object>) socket;
+    final Optional<Object> value = getValue(impl);
+    if (value.isPresent() && value.get() instanceof Mat) {
+      final Mat image = (Mat) value.get();
+      final Optional<Object> target = impl.getValue();
+      final Mat buffer = target.isPresent() && target.get() instanceof Mat && target.get() != image
+          ? (Mat) target.get()
+          : new Mat();
+      impl.setValueOptional(Optional.of(copyImage(image, buffer)));
+    } else {
+      impl.setValueOptional(value);
+    }
+  }
+
+  private void store(SocketImpl<?> socket, Optional<?> value) {
+    if (value.isPresent() && value.get() instanceof Mat) {
+      final Optional<?> existing = values.get(socket);
+      final Mat buffer = existing != null && existing.isPresent() && existing.get() instanceof Mat
+          && existing.get() != value.get()
+          ? (Mat) existing.get()
+          : new Mat();
+      values.put(socket, Optional.of(copyImage((Mat) value.get(), buffer)));
+    } else {
+      values.put(socket, value);
+    }
+  }
+
+  /**
+   * Copies an image into a buffer. An image that is a region of interest is copied into the same
+   * region of a frame of the buffer's own, so that it still knows where it is in the frame.
+   */
+  private static Mat copyImage(Mat image, Mat buffer) {
+    RegionOfInterest.matchRegion(image, buffer, image.type());
+    image.copyTo(buffer);
+    return buffer;
+  }
+
+  /**
+   * Publishes the values of every step output in this frame as the shared values, so the results of
+   * the frame can be seen from outside of the pipeline (eg. by previews). No events are posted.
+   *
+   * <p>The published images are now seen outside of the pipeline, so this context takes over the
+   * images that were published before them for the next frame to write into. An image is only
+   * taken over if nothing else can refer to it: it must not be in this context already, and it
+   * must not be an image from the pool that is borrowed from a source. A new buffer is used
+   * otherwise.</p>
+   *
+   * @param matPool the pool the images of sources come from
+   */
+  public void commit(MatPool matPool) {
+    checkNotNull(matPool, "matPool");
+    checkState(current() == null, "Cannot commit from inside a frame context");
+    final Set<Object> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Optional<?> value : values.values()) {
+      value.ifPresent(inUse::add);
+    }
+    for (Map.Entry<SocketImpl<?>, Optional<?>> entry : values.entrySet()) {
+      final SocketImpl<?> socket = entry.getKey();
+      if (socket.getDirection() != Socket.Direction.OUTPUT || !socket.getStep().isPresent()) {
+        continue;
+      }
+      final Optional<?> previous = socket.getSharedValue();
+      socket.setSharedValue(entry.getValue());
+      if (!entry.getValue().isPresent() || !(entry.getValue().get() instanceof Mat)) {
+        continue;
+      }
+      if (previous.isPresent() && previous.get() instanceof Mat && inUse.add(previous.get())
+          && !matPool.isLeased((Mat) previous.get())) {
+        entry.setValue(previous);
+      } else {
+        entry.setValue(socket.getSocketHint().createInitialValue());
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  <T> Optional<T> getValue(SocketImpl<T> socket) {
+    final Optional<?> value = values.get(socket);
+    if (value != null && value.isPresent()) {
+      return (Optional<T>) value;
+    }
+    final Optional<T> initial;
+    if (socket.getDirection() == Socket.Direction.OUTPUT && socket.getStep().isPresent()) {
+      // Steps need their own buffers to write their results into
+      initial = socket.getSocketHint().createInitialValue();
+    } else {
+      initial = socket.getSharedValue();
+    }
+    values.put(socket, initial);
+    return initial;
+  }
+
+  void setValue(SocketImpl<?> socket, Optional<?> value) {
+    values.put(socket, value);
+  }
+}
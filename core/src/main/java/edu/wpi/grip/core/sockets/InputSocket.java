@@ -93,6 +93,11 @@ public interface InputSocket<T> extends Socket<T> {
       return decorated.getConnections();
     }
 
+    @Override
+    public boolean isConnected() {
+      return decorated.isConnected();
+    }
+
     @Override
     public SocketHint<T> getSocketHint() {
       return decorated.getSocketHint();
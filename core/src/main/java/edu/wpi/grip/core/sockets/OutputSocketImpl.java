@@ -1,6 +1,7 @@
 package edu.wpi.grip.core.sockets;
 
 
+import edu.wpi.grip.core.Connection;
 import edu.wpi.grip.core.events.SocketPreviewChangedEvent;
 
 import com.google.common.base.MoreObjects;
@@ -8,6 +9,11 @@ import com.google.common.eventbus.EventBus;
 import com.google.inject.Inject;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
 /**
  * A concrete implementation of the {@link OutputSocket}.
  *
@@ -15,11 +21,18 @@ import com.thoughtworks.xstream.annotations.XStreamAlias;
  */
 @XStreamAlias("grip:Output")
 public class OutputSocketImpl<T> extends SocketImpl<T> implements OutputSocket<T> {
+  private static final InputSocket[] NO_INPUTS = new InputSocket[0];
   private final EventBus eventBus;
   /**
    * Indicates if the socket is being previewed.
    */
   private boolean previewed = false;
+  /**
+   * The input sockets that this socket is connected to. Values are pushed to these directly when
+   * this socket changes instead of going through the event bus. The array is replaced instead of
+   * modified, so it can be looped over without a lock or an iterator.
+   */
+  private volatile InputSocket[] downstream = NO_INPUTS;
 
   /**
    * @param eventBus   The Guava {@link EventBus} used by the application.
@@ -46,6 +59,39 @@ public class OutputSocketImpl<T> extends SocketImpl<T> implements OutputSocket<T
     }
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public void setValueOptional(Optional<? extends T> optionalValue) {
+    super.setValueOptional(optionalValue);
+    final InputSocket[] inputs = downstream;
+    if (inputs.length > 0) {
+      final Optional<T> value = getValue();
+      for (InputSocket inputSocket : inputs) {
+        inputSocket.setValueOptional(value);
+      }
+    }
+  }
+
+  @Override
+  public void addConnection(Connection connection) {
+    super.addConnection(connection);
+    synchronized (this) {
+      final InputSocket[] inputs = Arrays.copyOf(downstream, downstream.length + 1);
+      inputs[inputs.length - 1] = connection.getInputSocket();
+      downstream = inputs;
+    }
+  }
+
+  @Override
+  public void removeConnection(Connection connection) {
+    super.removeConnection(connection);
+    synchronized (this) {
+      final List<InputSocket> inputs = new ArrayList<>(Arrays.asList(downstream));
+      inputs.remove(connection.getInputSocket());
+      downstream = inputs.toArray(NO_INPUTS);
+    }
+  }
+
   @Override
   public void resetValueToInitial() {
     this.setValue(this.getSocketHint()
@@ -95,6 +95,14 @@ public interface Socket<T> {
    */
   Set<Connection> getConnections();
 
+  /**
+   * @return true if this socket has at least one connection. This is cheaper than checking
+   *     {@link #getConnections()}, which may copy the set of connections.
+   */
+  default boolean isConnected() {
+    return !getConnections().isEmpty();
+  }
+
   /**
    * Adds a connection to the socket.
    *
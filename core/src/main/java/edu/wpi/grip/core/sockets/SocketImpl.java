@@ -15,6 +15,8 @@ import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -31,6 +33,11 @@ public class SocketImpl<T> implements Socket<T> {
   private Optional<Step> step = Optional.empty();
   private Optional<Source> source = Optional.empty();
   private Optional<? extends T> value = Optional.empty();
+  /**
+   * The event posted every time the value changes. It only refers to this socket, so one instance
+   * can be posted over and over.
+   */
+  private final SocketChangedEvent changedEvent = new SocketChangedEvent(this);
 
 
   /**
@@ -55,21 +62,65 @@ public class SocketImpl<T> implements Socket<T> {
     if (optionalValue.isPresent()) {
       getSocketHint().getType().cast(optionalValue.get());
     }
-    synchronized (this) {
-      this.value = optionalValue;
+    final FrameContext context = FrameContext.current();
+    if (context != null && isFrameScoped()) {
+      context.setValue(this, optionalValue);
       onValueChanged();
+    } else {
+      synchronized (this) {
+        this.value = optionalValue;
+        onValueChanged();
+      }
+    }
+    eventBus.post(changedEvent);
+  }
+
+  @Override
+  public void setValue(@Nullable T value) {
+    // Operations usually write the same object into their outputs every time they run, so the
+    // optional that already holds it can be reused
+    final Optional<T> current = getValue();
+    if (value != null && current.isPresent() && current.get() == value) {
+      setValueOptional(current);
+    } else {
+      setValueOptional(Optional.ofNullable(getSocketHint().getType().cast(value)));
     }
-    eventBus.post(new SocketChangedEvent(this));
   }
 
   @Override
   public Optional<T> getValue() {
+    final FrameContext context = FrameContext.current();
+    if (context != null && isFrameScoped()) {
+      return context.getValue(this);
+    }
+    return getSharedValue();
+  }
+
+  /**
+   * @return true if the value of this socket is produced by the pipeline, and should therefore be
+   *     read from and written to the current {@link FrameContext}.
+   */
+  private boolean isFrameScoped() {
+    return direction == Direction.OUTPUT || isConnected();
+  }
+
+  /**
+   * @return the value of this socket outside of any {@link FrameContext}.
+   */
+  Optional<T> getSharedValue() {
     if (!this.value.isPresent()) {
       this.value = socketHint.createInitialValue();
     }
     return (Optional<T>) this.value;
   }
 
+  /**
+   * Replaces the value of this socket outside of any {@link FrameContext} without posting an event.
+   */
+  synchronized void setSharedValue(Optional<?> value) {
+    this.value = (Optional<? extends T>) value;
+  }
+
   @Override
   public Optional<Step> getStep() {
     return step;
@@ -104,6 +155,11 @@ public class SocketImpl<T> implements Socket<T> {
     return ImmutableSet.copyOf(this.connections);
   }
 
+  @Override
+  public boolean isConnected() {
+    return !this.connections.isEmpty();
+  }
+
   @Override
   public void addConnection(Connection connection) {
     checkNotNull(connection, "Can not remove null connection");
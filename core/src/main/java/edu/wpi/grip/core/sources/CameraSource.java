@@ -1,6 +1,8 @@
 package edu.wpi.grip.core.sources;
 
 
+import edu.wpi.grip.core.MatPool;
+import edu.wpi.grip.core.NativeMemoryHolder;
 import edu.wpi.grip.core.Source;
 import edu.wpi.grip.core.events.SourceHasPendingUpdateEvent;
 import edu.wpi.grip.core.events.SourceRemovedEvent;
@@ -34,18 +36,22 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.logging.Logger;
 
+import javax.annotation.Nullable;
+
 /**
  * Provides a way to generate a constantly updated {@link Mat} from a camera.
  */
 @XStreamAlias(value = "grip:Camera")
-public class CameraSource extends Source implements RestartableService {
+public class CameraSource extends Source implements RestartableService, NativeMemoryHolder {
 
   /**
    * The path that Axis cameras stream MJPEG videos from.  Although any URL can be supplied {@link
@@ -86,11 +92,25 @@ public class CameraSource extends Source implements RestartableService {
   private final OutputSocket<Mat> frameOutputSocket;
   private final OutputSocket<Number> frameRateOutputSocket;
   private final Supplier<FrameGrabber> grabberSupplier;
-  private final AtomicBoolean isNewFrame = new AtomicBoolean(false);
-  private final Mat currentFrameTransferMat = new Mat();
+  private final AtomicBoolean isNewFrameRate = new AtomicBoolean(false);
+  private final FrameQueue frameQueue;
   private final AutoRestartingService cameraService;
   private volatile double frameRate = 0.0;
 
+  /*
+   * Frames from a grabber that receives them compressed are decoded into this image when the
+   * pipeline takes them, instead of going through the frame queue.
+   */
+  private final Mat decodedFrame = new Mat();
+  @Nullable
+  private volatile CompressedFrameGrabber compressedGrabber;
+  // Only used by the thread that updates the outputs
+  @Nullable
+  private CompressedFrameGrabber lastDecodedGrabber;
+  private long lastDecodedNumber = 0;
+  private final AtomicLong skippedDecodes = new AtomicLong();
+  private final AtomicLong staleDecodes = new AtomicLong();
+
   /**
    * Creates a camera source that can be used as an input to a pipeline.
    *
@@ -103,8 +123,9 @@ public class CameraSource extends Source implements RestartableService {
       final OutputSocket.Factory outputSocketFactory,
       final FrameGrabberFactory grabberFactory,
       final ExceptionWitness.Factory exceptionWitnessFactory,
+      final MatPool matPool,
       @Assisted final int deviceNumber) throws IOException {
-    this(eventBus, outputSocketFactory, grabberFactory, exceptionWitnessFactory,
+    this(eventBus, outputSocketFactory, grabberFactory, exceptionWitnessFactory, matPool,
         createProperties(deviceNumber));
   }
 
@@ -120,8 +141,9 @@ public class CameraSource extends Source implements RestartableService {
       final OutputSocket.Factory outputSocketFactory,
       final FrameGrabberFactory grabberFactory,
       final ExceptionWitness.Factory exceptionWitnessFactory,
+      final MatPool matPool,
       @Assisted final String address) throws IOException {
-    this(eventBus, outputSocketFactory, grabberFactory, exceptionWitnessFactory,
+    this(eventBus, outputSocketFactory, grabberFactory, exceptionWitnessFactory, matPool,
         createProperties(address));
   }
 
@@ -134,12 +156,14 @@ public class CameraSource extends Source implements RestartableService {
       final OutputSocket.Factory outputSocketFactory,
       final FrameGrabberFactory grabberFactory,
       final ExceptionWitness.Factory exceptionWitnessFactory,
+      final MatPool matPool,
       @Assisted final Properties properties) throws MalformedURLException {
     super(exceptionWitnessFactory);
     this.eventBus = eventBus;
     this.frameOutputSocket = outputSocketFactory.create(imageOutputHint);
     this.frameRateOutputSocket = outputSocketFactory.create(frameRateOutputHint);
     this.properties = properties;
+    this.frameQueue = FrameQueue.create(FrameDropPolicy.fromProperties(properties), matPool);
 
     final String deviceNumberProperty = properties.getProperty(DEVICE_NUMBER_PROPERTY);
     final String addressProperty = properties.getProperty(ADDRESS_PROPERTY);
@@ -150,9 +174,15 @@ public class CameraSource extends Source implements RestartableService {
       this.grabberSupplier = () -> grabberFactory.create(deviceNumber);
     } else if (addressProperty != null) {
       this.name = "IP Camera " + new URL(addressProperty).getHost();
+      final DecodeMode decodeMode = DecodeMode.fromProperties(properties);
       this.grabberSupplier = () -> {
         try {
-          return grabberFactory.create(addressProperty);
+          final FrameGrabber grabber = grabberFactory.create(addressProperty);
+          if (grabber instanceof CompressedFrameGrabber) {
+            // Webcams hand over frames that are already decoded, so only IP cameras have a mode
+            ((CompressedFrameGrabber) grabber).setDecodeMode(decodeMode);
+          }
+          return grabber;
         } catch (MalformedURLException ex) {
           throw new IllegalArgumentException(ex.getMessage(), ex);
         }
@@ -168,26 +198,10 @@ public class CameraSource extends Source implements RestartableService {
             () -> new GrabberService(
                 name,
                 grabberSupplier,
-                new CameraSourceUpdater() {
-                  @Override
-                  public void setFrameRate(double value) {
-                    CameraSource.this.frameRate = value;
-                    isNewFrame.set(true);
-                  }
-
-                  @Override
-                  public void copyNewMat(Mat matToCopy) {
-                    synchronized (CameraSource.this.currentFrameTransferMat) {
-                      matToCopy.copyTo(CameraSource.this.currentFrameTransferMat);
-                    }
-                    isNewFrame.set(true);
-                  }
-
-                  @Override
-                  public void updatesComplete() {
-                    eventBus.post(new SourceHasPendingUpdateEvent(CameraSource.this));
-                  }
-                }, getExceptionWitness()::clearException),
+                // Only the latest frame is ever used, so the others don't need decoding
+                frameQueue.getPolicy() == FrameDropPolicy.LATEST_ONLY
+                    ? new OnDemandUpdater() : new Updater(),
+                getExceptionWitness()::clearException),
             new CooldownRestartPolicy(20, TimeUnit.MILLISECONDS)); // 50Hz retry rate
 
     this.cameraService.addListener(new Listener() {
@@ -235,22 +249,96 @@ public class CameraSource extends Source implements RestartableService {
 
   @Override
   protected boolean updateOutputSockets() {
-    // We have a new frame then we need to update the socket value
-    if (isNewFrame.compareAndSet(true, false)) {
-      // The camera frame thread should not try to modify the transfer mat while it is being
-      // written to the pipeline
-      synchronized (currentFrameTransferMat) {
-        currentFrameTransferMat.copyTo(frameOutputSocket.getValue().get());
-      }
-      frameOutputSocket.setValueOptional(frameOutputSocket.getValue());
-
+    boolean updated = false;
+    final CompressedFrameGrabber grabber = compressedGrabber;
+    if (grabber != null) {
+      updated = decodeLatest(grabber);
+    } else {
+      updated = takeFrame();
+    }
+    if (isNewFrameRate.compareAndSet(true, false)) {
       // Update the frame rate value
       frameRateOutputSocket.setValue(frameRate);
-      // We have updated output sockets
+      updated = true;
+    }
+    return updated;
+  }
+
+  /**
+   * Moves the next frame in the queue into the image socket.
+   *
+   * @return true if there was a frame
+   */
+  private boolean takeFrame() {
+    // We have a new frame then we need to update the socket value
+    final Mat frame = frameQueue.take();
+    if (frame != null) {
+      // The socket holds the queue's buffer as it is. The queue won't write over it until the
+      // next frame is taken.
+      frameOutputSocket.setValue(frame);
+      if (frameQueue.hasPending()) {
+        // Make sure the pipeline runs again for the frames that are still queued
+        eventBus.post(new SourceHasPendingUpdateEvent(this));
+      }
       return true;
-    } else {
-      return false; // No output sockets were updated
     }
+    return false;
+  }
+
+  /**
+   * Decodes the latest compressed frame into the image socket. Frames that arrived since the last
+   * one that was decoded are skipped without being decoded.
+   *
+   * @return true if there was a frame that had not been decoded yet
+   */
+  private boolean decodeLatest(CompressedFrameGrabber grabber) {
+    if (grabber != lastDecodedGrabber) {
+      // The camera was restarted, so the frames are numbered from the start again
+      lastDecodedGrabber = grabber;
+      lastDecodedNumber = 0;
+    }
+    final long number;
+    try {
+      number = grabber.decodeLatest(decodedFrame);
+    } catch (FrameGrabber.Exception e) {
+      getExceptionWitness().flagException(e, "Failed to decode a frame");
+      return false;
+    }
+    if (number == 0) {
+      staleDecodes.incrementAndGet();
+      return false;
+    }
+    if (number > lastDecodedNumber + 1) {
+      skippedDecodes.addAndGet(number - lastDecodedNumber - 1);
+    }
+    lastDecodedNumber = number;
+    frameOutputSocket.setValue(decodedFrame);
+    return true;
+  }
+
+  @Override
+  public long getDroppedFrameCount() {
+    return frameQueue.getDroppedFrameCount();
+  }
+
+  @Override
+  public long getStaleFrameCount() {
+    return frameQueue.getStaleFrameCount() + staleDecodes.get();
+  }
+
+  @Override
+  public long getSkippedDecodeCount() {
+    return skippedDecodes.get();
+  }
+
+  @Override
+  public long getNativeBytes() {
+    return frameQueue.getBufferedBytes();
+  }
+
+  @Override
+  public void addPooledImages(Set<Object> counted) {
+    frameQueue.addBuffersTo(counted);
   }
 
   @Override
@@ -343,39 +431,80 @@ public class CameraSource extends Source implements RestartableService {
     return cameraService.state();
   }
 
+  @Override
+  public void shutdown() {
+    // Stop the camera service and wait for it to terminate.
+    // If we just use stopAsync(), the camera service won't always have terminated by the time
+    // a new camera source is added. For webcam sources, this means that the video stream
+    // won't be freed and new sources won't be able to connect to the webcam until the
+    // application is closed.
+    if (StandardSystemProperty.OS_NAME.value().toLowerCase(Locale.ENGLISH).contains("mac")) {
+      // Workaround for #716. This affects webcams as well as IP camera sources.
+      // Use only stopAsync() to avoid blocking. Since we have no way of knowing when
+      // the capture has actually been freed, we use a dumb delay to try to make sure it's
+      // freed before returning. THIS IS NOT A GOOD SOLUTION. But it's the best one we have
+      // until the bug is fixed.
+      stopAsync();
+      try {
+        // Wait a bit to try to make sure the capture is actually freed before returning
+        Thread.sleep(100);
+      } catch (InterruptedException ignore) {
+        // We did our best. Hopefully, the webcam has been freed at this point.
+        Thread.currentThread().interrupt();
+      }
+    } else {
+      this.stopAndAwait();
+    }
+    frameQueue.dispose();
+  }
+
   @Subscribe
-  public void onSourceRemovedEvent(SourceRemovedEvent event) throws InterruptedException,
-      TimeoutException, IOException {
+  public void onSourceRemovedEvent(SourceRemovedEvent event) {
     if (event.getSource() == this) {
       try {
-        // Stop the camera service and wait for it to terminate.
-        // If we just use stopAsync(), the camera service won't always have terminated by the time
-        // a new camera source is added. For webcam sources, this means that the video stream
-        // won't be freed and new sources won't be able to connect to the webcam until the
-        // application is closed.
-        if (StandardSystemProperty.OS_NAME.value().toLowerCase(Locale.ENGLISH).contains("mac")) {
-          // Workaround for #716. This affects webcams as well as IP camera sources.
-          // Use only stopAsync() to avoid blocking. Since we have no way of knowing when
-          // the capture has actually been freed, we use a dumb delay to try to make sure it's
-          // freed before returning. THIS IS NOT A GOOD SOLUTION. But it's the best one we have
-          // until the bug is fixed.
-          stopAsync();
-          try {
-            // Wait a bit to try to make sure the capture is actually freed before returning
-            Thread.sleep(100);
-          } catch (InterruptedException ignore) {
-            // We did our best. Hopefully, the webcam has been freed at this point.
-            Thread.currentThread().interrupt();
-          }
-        } else {
-          this.stopAndAwait();
-        }
+        shutdown();
       } finally {
         this.eventBus.unregister(this);
       }
     }
   }
 
+  /**
+   * Hands the frames the grabber decodes to the frame queue.
+   */
+  private class Updater implements CameraSourceUpdater {
+    @Override
+    public void setFrameRate(double value) {
+      CameraSource.this.frameRate = value;
+      isNewFrameRate.set(true);
+    }
+
+    @Override
+    public void copyNewMat(Mat matToCopy) {
+      try {
+        frameQueue.offer(matToCopy);
+      } catch (InterruptedException e) {
+        // The grabber is being stopped, so this frame will never be used
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public void updatesComplete() {
+      eventBus.post(new SourceHasPendingUpdateEvent(CameraSource.this));
+    }
+  }
+
+  /**
+   * Leaves compressed frames for {@link #updateOutputSockets()} to decode.
+   */
+  private final class OnDemandUpdater extends Updater implements OnDemandDecoder {
+    @Override
+    public void compressedFrameArrived(CompressedFrameGrabber grabber) {
+      compressedGrabber = grabber;
+    }
+  }
+
   public interface Factory {
     CameraSource create(int deviceNumber) throws IOException;
 
@@ -0,0 +1,38 @@
+package edu.wpi.grip.core.sources;
+
+import org.bytedeco.javacv.FrameGrabber;
+
+import static org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * A frame grabber that receives its frames compressed and can put off decoding them until they are
+ * used. {@link GrabberService} only waits for frames to arrive, and the source decodes the latest
+ * one when the pipeline takes it, so frames that a newer frame replaces before the pipeline gets
+ * to them are never decoded at all.
+ */
+public interface CompressedFrameGrabber {
+
+  /**
+   * Waits for a frame that arrived after the last time this was called.
+   *
+   * @throws FrameGrabber.Exception if the stream failed or no frame arrived in time
+   */
+  void awaitFrame() throws FrameGrabber.Exception;
+
+  /**
+   * Decodes the latest frame, unless it has been decoded already. This may be called from a
+   * different thread than {@link #awaitFrame()}, but not from more than one thread at a time.
+   *
+   * @param image the image to decode the frame into
+   * @return the number of the frame that was decoded, counting from one for the first frame since
+   *     the grabber was started, or zero if no frame has arrived since the last one was decoded.
+   *     Frames with numbers that were skipped were never decoded.
+   * @throws FrameGrabber.Exception if the frame could not be decoded
+   */
+  long decodeLatest(Mat image) throws FrameGrabber.Exception;
+
+  /**
+   * Sets how frames are decoded from now on.
+   */
+  void setDecodeMode(DecodeMode decodeMode);
+}
@@ -0,0 +1,144 @@
+package edu.wpi.grip.core.sources;
+
+import edu.wpi.grip.core.util.ImageLoadingUtility;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.bytedeco.javacpp.opencv_core.CV_VERSION_MAJOR;
+import static org.bytedeco.javacpp.opencv_core.CV_VERSION_MINOR;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.bytedeco.javacpp.opencv_core.Size;
+import static org.bytedeco.javacpp.opencv_imgcodecs.IMREAD_COLOR;
+import static org.bytedeco.javacpp.opencv_imgcodecs.IMREAD_GRAYSCALE;
+import static org.bytedeco.javacpp.opencv_imgcodecs.imdecode;
+import static org.bytedeco.javacpp.opencv_imgproc.INTER_AREA;
+import static org.bytedeco.javacpp.opencv_imgproc.resize;
+
+/**
+ * How a source decodes the images it loads or receives. Pipelines that start by shrinking the
+ * image or throwing away its color can have the source do it while decoding instead, which saves
+ * decoding work and leaves a smaller image for every step after it.
+ */
+public enum DecodeMode {
+  /**
+   * The whole image, in color.
+   */
+  COLOR(IMREAD_COLOR, 1),
+
+  /**
+   * Half the width and height of the image, in color.
+   */
+  COLOR_HALF(Flags.REDUCED_COLOR_2, 2),
+
+  /**
+   * A quarter of the width and height of the image, in color.
+   */
+  COLOR_QUARTER(Flags.REDUCED_COLOR_4, 4),
+
+  /**
+   * An eighth of the width and height of the image, in color.
+   */
+  COLOR_EIGHTH(Flags.REDUCED_COLOR_8, 8),
+
+  /**
+   * The whole image, with a single gray channel.
+   */
+  GRAYSCALE(IMREAD_GRAYSCALE, 1);
+
+  /**
+   * The key used to store the mode in the properties of a source.
+   */
+  public static final String PROPERTY = "decodeMode";
+
+  /**
+   * OpenCV 3.1 added scaled decoding, which skips most of the work of decoding a JPEG. Older
+   * versions decode the whole image, so it is shrunk right after it is decoded instead.
+   */
+  private static final boolean SCALED_DECODING =
+      CV_VERSION_MAJOR > 3 || (CV_VERSION_MAJOR == 3 && CV_VERSION_MINOR >= 1);
+
+  private final int flags;
+  private final int scale;
+
+  DecodeMode(int flags, int scale) {
+    this.flags = flags;
+    this.scale = scale;
+  }
+
+  /**
+   * @return how many times smaller than the encoded image the width and height of a decoded image
+   *     are.
+   */
+  public int getScale() {
+    return scale;
+  }
+
+  /**
+   * @return the mode stored in the properties of a source, or {@link #COLOR} if there is none.
+   * @throws IllegalArgumentException if the property is not the name of a mode
+   */
+  public static DecodeMode fromProperties(Properties properties) {
+    final String mode = properties.getProperty(PROPERTY);
+    return mode == null ? COLOR : valueOf(mode);
+  }
+
+  /**
+   * Stores this mode in the properties of a source. Nothing is stored for the default mode so that
+   * the properties of sources that use it are unchanged.
+   */
+  public void store(Properties properties) {
+    checkNotNull(properties, "properties");
+    if (this != COLOR) {
+      properties.setProperty(PROPERTY, name());
+    }
+  }
+
+  /**
+   * Decodes an encoded image, such as a JPEG.
+   *
+   * @param encoded a single row holding the bytes of the encoded image
+   * @param dst     the image to decode into. It is left empty if the image couldn't be decoded.
+   */
+  public void decode(Mat encoded, Mat dst) {
+    checkNotNull(encoded, "encoded");
+    checkNotNull(dst, "dst");
+    imdecode(encoded, imreadFlags(), dst);
+    shrink(dst);
+  }
+
+  /**
+   * Loads and decodes an image from the file system.
+   *
+   * @param path the location on the file system where the image exists
+   * @param dst  the image to load the image into
+   * @throws IOException if the image couldn't be loaded
+   */
+  public void read(String path, Mat dst) throws IOException {
+    ImageLoadingUtility.loadImage(path, imreadFlags(), dst);
+    shrink(dst);
+  }
+
+  private int imreadFlags() {
+    return SCALED_DECODING || scale == 1 ? flags : IMREAD_COLOR;
+  }
+
+  private void shrink(Mat image) {
+    if (scale > 1 && !SCALED_DECODING && !image.empty()) {
+      // Round up like scaled decoding does
+      resize(image, image, new Size((image.cols() + scale - 1) / scale,
+          (image.rows() + scale - 1) / scale), 0, 0, INTER_AREA);
+    }
+  }
+
+  /**
+   * The values of the {@code IMREAD_REDUCED_COLOR_*} flags, which the OpenCV bindings GRIP is built
+   * with are too old to have.
+   */
+  private static final class Flags {
+    static final int REDUCED_COLOR_2 = 17;
+    static final int REDUCED_COLOR_4 = 33;
+    static final int REDUCED_COLOR_8 = 65;
+  }
+}
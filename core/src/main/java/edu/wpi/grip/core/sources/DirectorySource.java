@@ -0,0 +1,424 @@
+package edu.wpi.grip.core.sources;
+
+import edu.wpi.grip.core.MatPool;
+import edu.wpi.grip.core.NativeMemoryHolder;
+import edu.wpi.grip.core.Source;
+import edu.wpi.grip.core.events.SourceHasPendingUpdateEvent;
+import edu.wpi.grip.core.events.SourceRemovedEvent;
+import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.core.sockets.SocketHint;
+import edu.wpi.grip.core.sockets.SocketHints;
+import edu.wpi.grip.core.util.DaemonThread;
+import edu.wpi.grip.core.util.ExceptionWitness;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+import org.bytedeco.javacpp.opencv_core.Mat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * A source that watches a directory and feeds the images that are written into it to the pipeline
+ * in the order they arrive, so images from another program can be processed as they are captured.
+ * Files that were already in the directory when the source was created are ignored, and so are
+ * files that aren't images.
+ *
+ * <p>One thread waits for the file system to report new files and queues them, and another
+ * decodes them, so a slow decode never makes the source miss a file. When files arrive faster
+ * than the pipeline runs, the {@link FrameDropPolicy} decides what happens to them. With
+ * {@link FrameDropPolicy#LATEST_ONLY} only the newest waiting file is decoded and the others are
+ * skipped. With {@link FrameDropPolicy#PROCESS_ALL} every file is decoded and run through the
+ * pipeline, and the files that are waiting for their turn are counted by
+ * {@link #getQueueDepth()}.</p>
+ */
+@XStreamAlias("grip:Directory")
+public class DirectorySource extends Source implements NativeMemoryHolder {
+
+  private static final Logger logger = Logger.getLogger(DirectorySource.class.getName());
+  private static final String PATH_PROPERTY = "path";
+  /**
+   * The extensions of the image files that OpenCV can decode.
+   */
+  private static final ImmutableSet<String> IMAGE_EXTENSIONS = ImmutableSet.of(
+      "bmp", "dib", "jpeg", "jpg", "jpe", "jp2", "png", "webp", "pbm", "pgm", "ppm", "sr", "ras",
+      "tiff", "tif");
+  /**
+   * A file is usually reported as soon as it is created, so the program writing it may not have
+   * finished yet. It is only read once its size has stayed the same for this long.
+   */
+  private static final long SETTLE_TIME_MS = 50;
+  /**
+   * How long to wait for a file to be written before reading it anyway.
+   */
+  private static final long WRITE_TIMEOUT_MS = 10_000;
+  /**
+   * How long a file that can't be decoded is watched for more data before it is reported, in case
+   * the program writing it only paused.
+   */
+  private static final long INCOMPLETE_FILE_TIMEOUT_MS = 1000;
+  private static final long DECODER_STOP_TIMEOUT_MS = 1000;
+
+  private final SocketHint<Mat> imageHint = SocketHints.Outputs.createMatSocketHint("Image");
+  private final SocketHint<Number> queueDepthHint =
+      SocketHints.Outputs.createNumberSocketHint("Queued Files", 0);
+  private final OutputSocket<Mat> imageSocket;
+  private final OutputSocket<Number> queueDepthSocket;
+  private final EventBus eventBus;
+  private final Path directory;
+  private final DecodeMode decodeMode;
+  private final FrameQueue frameQueue;
+  /**
+   * Files that have been created in the directory but not decoded yet, oldest first.
+   */
+  private final BlockingDeque<Path> pendingFiles = new LinkedBlockingDeque<>();
+  private final AtomicLong skippedDecodes = new AtomicLong();
+  @Nullable
+  private WatchService watchService;
+  @Nullable
+  private Thread decoderThread;
+  // Only used by the decoder thread
+  private boolean failedToLoad = false;
+
+  @AssistedInject
+  DirectorySource(OutputSocket.Factory osf,
+                  ExceptionWitness.Factory exceptionWitnessFactory,
+                  EventBus eventBus,
+                  MatPool matPool,
+                  @Assisted Properties properties) {
+    this(osf, exceptionWitnessFactory, eventBus, matPool, properties.getProperty(PATH_PROPERTY),
+        FrameDropPolicy.fromProperties(properties), DecodeMode.fromProperties(properties));
+  }
+
+  @AssistedInject
+  DirectorySource(OutputSocket.Factory osf,
+                  ExceptionWitness.Factory exceptionWitnessFactory,
+                  EventBus eventBus,
+                  MatPool matPool,
+                  @Assisted File directory) {
+    this(osf, exceptionWitnessFactory, eventBus, matPool, directory.getAbsolutePath(),
+        FrameDropPolicy.LATEST_ONLY, DecodeMode.COLOR);
+  }
+
+  private DirectorySource(OutputSocket.Factory osf,
+                          ExceptionWitness.Factory exceptionWitnessFactory,
+                          EventBus eventBus,
+                          MatPool matPool,
+                          String path,
+                          FrameDropPolicy frameDropPolicy,
+                          DecodeMode decodeMode) {
+    super(exceptionWitnessFactory);
+    this.eventBus = eventBus;
+    this.directory = Paths.get(checkNotNull(path, "Path can not be null"));
+    this.decodeMode = checkNotNull(decodeMode, "Decode mode can not be null");
+    this.frameQueue = FrameQueue.create(frameDropPolicy, matPool);
+    this.imageSocket = osf.create(imageHint);
+    this.queueDepthSocket = osf.create(queueDepthHint);
+  }
+
+  @Override
+  public String getName() {
+    return directory.getFileName() == null ? directory.toString()
+        : directory.getFileName().toString();
+  }
+
+  @Override
+  protected List<OutputSocket> createOutputSockets() {
+    return ImmutableList.of(
+        imageSocket,
+        queueDepthSocket
+    );
+  }
+
+  @Override
+  protected boolean updateOutputSockets() {
+    final Mat frame = frameQueue.take();
+    if (frame == null) {
+      return false;
+    }
+    imageSocket.setValue(frame);
+    queueDepthSocket.setValue(getQueueDepth());
+    if (frameQueue.hasPending()) {
+      // Make sure the pipeline runs again for the images that are still queued
+      eventBus.post(new SourceHasPendingUpdateEvent(this));
+    }
+    return true;
+  }
+
+  @Override
+  public Properties getProperties() {
+    final Properties properties = new Properties();
+    properties.setProperty(PATH_PROPERTY, directory.toString());
+    frameQueue.getPolicy().store(properties);
+    decodeMode.store(properties);
+    return properties;
+  }
+
+  /**
+   * @return the number of files that have been created in the directory and are still waiting to
+   *     be decoded.
+   */
+  public int getQueueDepth() {
+    return pendingFiles.size();
+  }
+
+  @Override
+  public long getDroppedFrameCount() {
+    return frameQueue.getDroppedFrameCount();
+  }
+
+  @Override
+  public long getStaleFrameCount() {
+    return frameQueue.getStaleFrameCount();
+  }
+
+  @Override
+  public long getSkippedDecodeCount() {
+    return skippedDecodes.get();
+  }
+
+  @Override
+  public long getNativeBytes() {
+    return frameQueue.getBufferedBytes();
+  }
+
+  @Override
+  public void addPooledImages(Set<Object> counted) {
+    frameQueue.addBuffersTo(counted);
+  }
+
+  @Override
+  public synchronized void initialize() throws IOException {
+    if (watchService != null) {
+      return;
+    }
+    if (!Files.isDirectory(directory)) {
+      throw new IOException("Not a directory: " + directory);
+    }
+    final WatchService service = directory.getFileSystem().newWatchService();
+    try {
+      directory.register(service, ENTRY_CREATE);
+    } catch (IOException e) {
+      service.close();
+      throw e;
+    }
+    watchService = service;
+    new DaemonThread(() -> watchDirectory(service), "Directory Watcher " + getName())
+        .start();
+    decoderThread = new DaemonThread(this::decodeFiles, "Directory Decoder " + getName());
+    decoderThread.start();
+  }
+
+  /**
+   * Queues the files that are created in the directory until the watch service is closed.
+   */
+  private void watchDirectory(WatchService watchService) {
+    try {
+      while (true) {
+        final WatchKey key = watchService.take();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == OVERFLOW) {
+            logger.log(Level.WARNING, "Too many files were created in " + directory
+                + " at once, some of them were missed");
+            continue;
+          }
+          final Path file = directory.resolve((Path) event.context());
+          // Programs that write a file and then rename it into place often hide the partial file
+          if (!file.getFileName().toString().startsWith(".") && isImage(file)
+              && !Files.isDirectory(file)) {
+            pendingFiles.addLast(file);
+          }
+        }
+        if (!key.reset()) {
+          getExceptionWitness().flagException(
+              new IOException("The directory can no longer be watched: " + directory));
+          return;
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // The source is being removed
+    }
+  }
+
+  /**
+   * Decodes the queued files and hands them to the pipeline until the source is removed.
+   */
+  private void decodeFiles() {
+    final Mat image = new Mat();
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        Path file = pendingFiles.takeFirst();
+        if (frameQueue.getPolicy() == FrameDropPolicy.LATEST_ONLY) {
+          // Older files would only be written over by the newest one, so don't decode them
+          for (Path newer = pendingFiles.pollFirst(); newer != null;
+               newer = pendingFiles.pollFirst()) {
+            file = newer;
+            skippedDecodes.incrementAndGet();
+          }
+        }
+        if (read(file, image)) {
+          // With PROCESS_ALL this waits for the pipeline to make room
+          frameQueue.offer(image);
+          eventBus.post(new SourceHasPendingUpdateEvent(this));
+        }
+      }
+    } catch (InterruptedException e) {
+      // The source is being removed
+      Thread.currentThread().interrupt();
+    } finally {
+      image.release();
+    }
+  }
+
+  private static boolean isImage(Path file) {
+    final String name = file.getFileName().toString();
+    final int dot = name.lastIndexOf('.');
+    return dot >= 0
+        && IMAGE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+  }
+
+  /**
+   * Reads a file once it has been written. If it can't be decoded but grows soon after, it is read
+   * again once it stops.
+   *
+   * @return true if the file was read
+   */
+  private boolean read(Path file, Mat image) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WRITE_TIMEOUT_MS);
+    while (true) {
+      final long size;
+      try {
+        size = awaitWritten(file, deadline);
+      } catch (IOException e) {
+        // The file was deleted or renamed before it could be read
+        logger.log(Level.FINE, "Skipped " + file, e);
+        return false;
+      }
+      try {
+        decodeMode.read(file.toString(), image);
+        if (failedToLoad) {
+          failedToLoad = false;
+          getExceptionWitness().clearException();
+        }
+        return true;
+      } catch (IOException e) {
+        if (awaitGrowth(file, size, deadline)) {
+          // The program writing it paused for longer than the settle time
+          continue;
+        }
+        failedToLoad = true;
+        getExceptionWitness().flagException(e, "Failed to load " + file);
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Waits until the size of a file has stopped changing, or until the deadline has passed.
+   *
+   * @return the size of the file
+   * @throws IOException if the file no longer exists
+   */
+  private static long awaitWritten(Path file, long deadline)
+      throws IOException, InterruptedException {
+    long size = Files.size(file);
+    while (System.nanoTime() - deadline < 0) {
+      Thread.sleep(SETTLE_TIME_MS);
+      final long newSize = Files.size(file);
+      if (newSize == size && size > 0) {
+        break;
+      }
+      size = newSize;
+    }
+    return size;
+  }
+
+  /**
+   * Waits for a file to grow past the size it had when it was read.
+   *
+   * @return true if it grew before it was given up on
+   */
+  private static boolean awaitGrowth(Path file, long size, long deadline)
+      throws InterruptedException {
+    final long giveUp = Math.min(deadline,
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(INCOMPLETE_FILE_TIMEOUT_MS));
+    while (System.nanoTime() - giveUp < 0) {
+      Thread.sleep(SETTLE_TIME_MS);
+      try {
+        if (Files.size(file) != size) {
+          return true;
+        }
+      } catch (IOException e) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void shutdown() {
+    try {
+      synchronized (this) {
+        if (watchService != null) {
+          watchService.close();
+        }
+        if (decoderThread != null) {
+          decoderThread.interrupt();
+          // Don't give the buffers back while the decoder thread is still writing into them
+          decoderThread.join(DECODER_STOP_TIMEOUT_MS);
+        }
+      }
+      frameQueue.dispose();
+    } catch (IOException e) {
+      getExceptionWitness().flagException(e, "Exception when closing the directory watcher");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Subscribe
+  public void onSourceRemoved(SourceRemovedEvent event) {
+    if (event.getSource() == this) {
+      try {
+        shutdown();
+      } finally {
+        eventBus.unregister(this);
+      }
+    }
+  }
+
+  public interface Factory {
+    DirectorySource create(File directory);
+
+    DirectorySource create(Properties properties);
+  }
+}
@@ -0,0 +1,55 @@
+package edu.wpi.grip.core.sources;
+
+import java.util.Properties;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * What a source does with the frames it grabs while the pipeline is still busy with an earlier
+ * one.
+ */
+public enum FrameDropPolicy {
+  /**
+   * Only the newest frame is kept. A frame that has not been taken by the pipeline yet is
+   * replaced when a new one is grabbed. This keeps the latency as low as possible.
+   */
+  LATEST_ONLY,
+
+  /**
+   * A few frames are queued. If the queue is full when a new frame is grabbed, the oldest one is
+   * dropped to make room for it.
+   */
+  DROP_OLDEST,
+
+  /**
+   * A few frames are queued. If the queue is full, the source waits for the pipeline to take a
+   * frame before it grabs the next one, so no frame that has been grabbed is ever dropped.
+   */
+  PROCESS_ALL;
+
+  /**
+   * The key used to store the policy in the properties of a source.
+   */
+  public static final String PROPERTY = "frameDropPolicy";
+
+  /**
+   * @return the policy stored in the properties of a source, or {@link #LATEST_ONLY} if there
+   *     is none.
+   * @throws IllegalArgumentException if the property is not the name of a policy
+   */
+  public static FrameDropPolicy fromProperties(Properties properties) {
+    final String policy = properties.getProperty(PROPERTY);
+    return policy == null ? LATEST_ONLY : valueOf(policy);
+  }
+
+  /**
+   * Stores this policy in the properties of a source. Nothing is stored for the default policy so
+   * that the properties of sources that use it are unchanged.
+   */
+  public void store(Properties properties) {
+    checkNotNull(properties, "properties");
+    if (this != LATEST_ONLY) {
+      properties.setProperty(PROPERTY, name());
+    }
+  }
+}
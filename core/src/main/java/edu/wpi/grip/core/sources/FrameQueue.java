@@ -0,0 +1,370 @@
+package edu.wpi.grip.core.sources;
+
+import edu.wpi.grip.core.MatPool;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * Hands frames from the thread that grabs them to the pipeline thread. What happens when frames
+ * are grabbed faster than the pipeline takes them is decided by the {@link FrameDropPolicy}.
+ *
+ * <p>Frames are copied once, into buffers that the queue takes out of the {@link MatPool}. The
+ * pipeline then takes a buffer as it is instead of copying it again. The next time it takes a
+ * frame, the queue releases its reference to the buffer it handed out before. Anything that needs
+ * a frame for longer than that, such as a frame that is still in flight through the pipeline, has
+ * to {@link MatPool#retain retain} it and release it once it is done. The pool only hands a buffer
+ * out again once every reference to it has been released, so a frame that is still in use is never
+ * written over. When nothing keeps frames around, the same few buffers go back and forth between
+ * the queue and the pool, and no images are allocated after the queue has filled up once. Only
+ * keeping the latest frame is done without locking, so the grabber and the pipeline never wait for
+ * each other.</p>
+ */
+abstract class FrameQueue {
+
+  /**
+   * The number of frames that are kept by default for the policies that queue more than one.
+   */
+  static final int CAPACITY = 4;
+
+  private final FrameDropPolicy policy;
+  private final MatPool matPool;
+  protected final AtomicLong droppedFrames = new AtomicLong();
+  protected final AtomicLong staleFrames = new AtomicLong();
+
+  private FrameQueue(FrameDropPolicy policy, MatPool matPool) {
+    this.policy = checkNotNull(policy, "policy");
+    this.matPool = checkNotNull(matPool, "matPool");
+  }
+
+  /**
+   * Creates a queue that drops frames the way the policy says to.
+   *
+   * @param matPool the pool the buffers of the queue are taken out of
+   */
+  static FrameQueue create(FrameDropPolicy policy, MatPool matPool) {
+    return create(policy, CAPACITY, matPool);
+  }
+
+  /**
+   * Creates a queue that drops frames the way the policy says to.
+   *
+   * @param capacity the number of frames that are kept for the policies that queue more than one
+   * @param matPool  the pool the buffers of the queue are taken out of
+   */
+  static FrameQueue create(FrameDropPolicy policy, int capacity, MatPool matPool) {
+    checkArgument(capacity > 0, "Capacity must be positive");
+    return policy == FrameDropPolicy.LATEST_ONLY
+        ? new LatestOnly(matPool)
+        : new Queued(policy, capacity, matPool);
+  }
+
+  FrameDropPolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Copies a frame into the queue. With {@link FrameDropPolicy#PROCESS_ALL} this blocks while the
+   * queue is full, otherwise it replaces or drops the oldest frame to make room.
+   *
+   * @param frame the frame that was grabbed
+   * @throws InterruptedException if the thread was interrupted while waiting for room
+   */
+  abstract void offer(Mat frame) throws InterruptedException;
+
+  /**
+   * Takes the next frame out of the queue. The returned image belongs to the caller until the
+   * next call to this method, when the queue releases it to the pool. Whatever keeps the image for
+   * longer than that has to retain it with the pool first.
+   *
+   * @return the image holding the frame, or null if no frame has been grabbed since the last one
+   *     was taken
+   */
+  @Nullable
+  abstract Mat take();
+
+  /**
+   * @return true if there are frames that have not been taken by the pipeline yet.
+   */
+  abstract boolean hasPending();
+
+  /**
+   * Throws away the frames that have not been taken by the pipeline yet, eg. because the source
+   * skipped to another part of its input. A thread that is waiting for room in the queue is let
+   * in. Frames that are thrown away this way are not counted as dropped.
+   */
+  abstract void clear();
+
+  /**
+   * @return the number of bytes taken up by the buffers of the queue, whether or not they hold a
+   *     frame. The buffer that was last taken isn't counted, since it belongs to the pipeline
+   *     until the next frame is taken.
+   */
+  abstract long getBufferedBytes();
+
+  /**
+   * Adds the buffers that {@link #getBufferedBytes()} counts to a set of images that have already
+   * been counted, so they aren't counted again as part of the pool.
+   */
+  abstract void addBuffersTo(Set<Object> counted);
+
+  /**
+   * Releases every buffer of the queue to the pool, including the one that was last taken. This is
+   * done when the source is removed, once nothing offers frames to the queue anymore.
+   */
+  abstract void dispose();
+
+  /**
+   * Copies a frame into a buffer, or into one taken out of the pool if there is no buffer yet or
+   * it is the wrong size for the frame.
+   *
+   * @return the buffer holding the frame
+   */
+  protected Mat copyIntoBuffer(@Nullable Mat buffer, Mat frame) {
+    Mat target = buffer;
+    if (target != null && (target.rows() != frame.rows() || target.cols() != frame.cols()
+        || target.type() != frame.type())) {
+      matPool.release(target);
+      target = null;
+    }
+    if (target == null) {
+      target = matPool.acquireLike(frame);
+    }
+    frame.copyTo(target);
+    return target;
+  }
+
+  protected void release(@Nullable Mat buffer) {
+    if (buffer != null) {
+      matPool.release(buffer);
+    }
+  }
+
+  /**
+   * @return the number of frames that were dropped or written over before the pipeline could take
+   *     them.
+   */
+  long getDroppedFrameCount() {
+    return droppedFrames.get();
+  }
+
+  /**
+   * @return the number of times the pipeline asked for a frame when no new one had been grabbed,
+   *     so it ran with the same frame as before.
+   */
+  long getStaleFrameCount() {
+    return staleFrames.get();
+  }
+
+  private static long sizeOf(Mat buffer) {
+    return buffer.total() * buffer.elemSize();
+  }
+
+  /**
+   * A triple buffer. The grabber writes into the back buffer and the pipeline owns the front
+   * buffer, so neither of them has to wait for the other. They hand buffers over by swapping them
+   * with the middle one. The front buffer is released when the pipeline swaps it out, so the
+   * grabber takes a buffer out of the pool the next time that slot comes around to it.
+   */
+  private static final class LatestOnly extends FrameQueue {
+    /**
+     * Set in {@link #middle} while the middle buffer holds a frame that hasn't been taken yet.
+     */
+    private static final int FRESH = 4;
+
+    // A buffer is null while it is in the pool. Each one is only touched by the side that owns
+    // its slot, and slots are handed over through the atomic middle index.
+    private final Mat[] buffers = new Mat[3];
+    private final AtomicInteger middle = new AtomicInteger(2);
+    // The grabber and the pipeline each have a lock of their own, since some sources grab or
+    // update their outputs from more than one thread. Neither side ever takes the other's lock.
+    private final Object backLock = new Object();
+    private int back = 0;
+    private final Object frontLock = new Object();
+    private int front = 1;
+
+    LatestOnly(MatPool matPool) {
+      super(FrameDropPolicy.LATEST_ONLY, matPool);
+    }
+
+    @Override
+    void offer(Mat frame) {
+      synchronized (backLock) {
+        buffers[back] = copyIntoBuffer(buffers[back], frame);
+        final int previous = middle.getAndSet(back | FRESH);
+        if ((previous & FRESH) != 0) {
+          droppedFrames.incrementAndGet();
+        }
+        back = previous & ~FRESH;
+      }
+    }
+
+    @Override
+    @Nullable
+    Mat take() {
+      synchronized (frontLock) {
+        if ((middle.get() & FRESH) == 0) {
+          staleFrames.incrementAndGet();
+          return null;
+        }
+        // The frame that was taken before may still be referred to by whoever retained it
+        release(buffers[front]);
+        buffers[front] = null;
+        // Only the grabber can change the middle buffer in the meantime, and it leaves it fresh
+        front = middle.getAndSet(front) & ~FRESH;
+        return buffers[front];
+      }
+    }
+
+    @Override
+    boolean hasPending() {
+      return (middle.get() & FRESH) != 0;
+    }
+
+    @Override
+    void clear() {
+      middle.getAndUpdate(index -> index & ~FRESH);
+    }
+
+    @Override
+    long getBufferedBytes() {
+      final int taken;
+      synchronized (frontLock) {
+        taken = front;
+      }
+      long bytes = 0;
+      for (int i = 0; i < buffers.length; i++) {
+        final Mat buffer = buffers[i];
+        if (i != taken && buffer != null) {
+          bytes += sizeOf(buffer);
+        }
+      }
+      return bytes;
+    }
+
+    @Override
+    void addBuffersTo(Set<Object> counted) {
+      final int taken;
+      synchronized (frontLock) {
+        taken = front;
+      }
+      for (int i = 0; i < buffers.length; i++) {
+        final Mat buffer = buffers[i];
+        if (i != taken && buffer != null) {
+          counted.add(buffer);
+        }
+      }
+    }
+
+    @Override
+    void dispose() {
+      synchronized (backLock) {
+        synchronized (frontLock) {
+          for (int i = 0; i < buffers.length; i++) {
+            release(buffers[i]);
+            buffers[i] = null;
+          }
+          middle.set(middle.get() & ~FRESH);
+        }
+      }
+    }
+  }
+
+  /**
+   * A queue of a few frames, guarded by its own lock. Buffers of frames that were dropped are
+   * reused for the next frames, and buffers that were taken go back through the pool.
+   */
+  private static final class Queued extends FrameQueue {
+    private final Deque<Mat> pending = new ArrayDeque<>();
+    private final Deque<Mat> free = new ArrayDeque<>();
+    private final int capacity;
+    @Nullable
+    private Mat taken;
+
+    Queued(FrameDropPolicy policy, int capacity, MatPool matPool) {
+      super(policy, matPool);
+      this.capacity = capacity;
+    }
+
+    @Override
+    synchronized void offer(Mat frame) throws InterruptedException {
+      if (getPolicy() == FrameDropPolicy.PROCESS_ALL) {
+        while (pending.size() >= capacity) {
+          wait();
+        }
+      } else if (pending.size() >= capacity) {
+        free.addLast(pending.removeFirst());
+        droppedFrames.incrementAndGet();
+      }
+      pending.addLast(copyIntoBuffer(free.pollFirst(), frame));
+    }
+
+    @Override
+    @Nullable
+    synchronized Mat take() {
+      final Mat buffer = pending.pollFirst();
+      if (buffer == null) {
+        staleFrames.incrementAndGet();
+        return null;
+      }
+      // The frame that was taken before may still be referred to by whoever retained it
+      release(taken);
+      taken = buffer;
+      notifyAll();
+      return buffer;
+    }
+
+    @Override
+    synchronized boolean hasPending() {
+      return !pending.isEmpty();
+    }
+
+    @Override
+    synchronized void clear() {
+      while (!pending.isEmpty()) {
+        free.addLast(pending.removeFirst());
+      }
+      notifyAll();
+    }
+
+    @Override
+    synchronized long getBufferedBytes() {
+      long bytes = 0;
+      for (Mat buffer : pending) {
+        bytes += sizeOf(buffer);
+      }
+      for (Mat buffer : free) {
+        bytes += sizeOf(buffer);
+      }
+      return bytes;
+    }
+
+    @Override
+    synchronized void addBuffersTo(Set<Object> counted) {
+      counted.addAll(pending);
+      counted.addAll(free);
+    }
+
+    @Override
+    synchronized void dispose() {
+      while (!pending.isEmpty()) {
+        release(pending.removeFirst());
+      }
+      while (!free.isEmpty()) {
+        release(free.removeFirst());
+      }
+      release(taken);
+      taken = null;
+      notifyAll();
+    }
+  }
+}
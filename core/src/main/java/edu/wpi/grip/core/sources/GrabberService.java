@@ -68,6 +68,33 @@ public class GrabberService extends AbstractExecutionThreadService {
   @VisibleForTesting
   final void runOneGrab(final OpenCVFrameConverter.ToMat convertToMat, final Stopwatch stopwatch)
       throws GrabberServiceException {
+    if (frameGrabber instanceof CompressedFrameGrabber && updater instanceof OnDemandDecoder) {
+      // Leave the frame compressed until the pipeline takes it
+      final CompressedFrameGrabber compressedGrabber = (CompressedFrameGrabber) frameGrabber;
+      try {
+        compressedGrabber.awaitFrame();
+      } catch (FrameGrabber.Exception ex) {
+        throw new GrabberServiceException("Failed to grab image", ex);
+      }
+      ((OnDemandDecoder) updater).compressedFrameArrived(compressedGrabber);
+    } else {
+      grabAndDecode(convertToMat);
+    }
+
+    stopwatch.stop();
+    final long elapsedTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    stopwatch.reset();
+    stopwatch.start();
+    if (elapsedTime != 0) {
+      updater.setFrameRate(IntMath.divide(1000, Math.toIntExact(elapsedTime), RoundingMode.DOWN));
+    }
+
+    updater.updatesComplete();
+    exceptionClearedCallback.run();
+  }
+
+  private void grabAndDecode(final OpenCVFrameConverter.ToMat convertToMat)
+      throws GrabberServiceException {
     final Frame videoFrame;
     try {
       videoFrame = frameGrabber.grab();
@@ -86,17 +113,6 @@ public class GrabberService extends AbstractExecutionThreadService {
     }
 
     updater.copyNewMat(frameMat);
-
-    stopwatch.stop();
-    final long elapsedTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-    stopwatch.reset();
-    stopwatch.start();
-    if (elapsedTime != 0) {
-      updater.setFrameRate(IntMath.divide(1000, Math.toIntExact(elapsedTime), RoundingMode.DOWN));
-    }
-
-    updater.updatesComplete();
-    exceptionClearedCallback.run();
   }
 
   @Override
@@ -19,14 +19,18 @@ import com.google.inject.assistedinject.AssistedInject;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 import org.bytedeco.javacpp.opencv_core.Mat;
-import org.bytedeco.javacpp.opencv_imgcodecs;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Provides a way to generate a {@link Mat Mat} from an image that has been POSTed to the
  * internal HTTP server.
@@ -34,6 +38,10 @@ import java.util.function.Consumer;
  * Note that multiple {@link HttpSource HttpSources} will all supply the same image
  * (or, more precisely, the same <i>reference</i> to a single image).
  * </p>
+ * <p>
+ * Images are kept as they were POSTed and only decoded when the pipeline takes them, once for each
+ * image, so images that are replaced before the pipeline runs are never decoded.
+ * </p>
  */
 @XStreamAlias("grip:HttpImage")
 public class HttpSource extends Source {
@@ -53,8 +61,17 @@ public class HttpSource extends Source {
   private final OutputSocket<Mat> imageOutput;
   private final SocketHint<Mat> outputHint = SocketHints.Outputs.createMatSocketHint("Image");
   private final Mat image = new Mat();
+  /**
+   * The latest image that was POSTed, still encoded, or null if it has already been decoded. The
+   * handler makes a new image for every POST, so this is never written to.
+   */
+  @Nullable
+  private Mat pendingImage;
+  private final Object pendingLock = new Object();
+  private final AtomicLong skippedDecodes = new AtomicLong();
   private final Consumer<Mat> callback;
   private final EventBus eventBus;
+  private final DecodeMode decodeMode;
   private String path;
 
   public interface Factory {
@@ -76,7 +93,8 @@ public class HttpSource extends Source {
         osf,
         server,
         store,
-        properties.getProperty(PATH_PROPERTY));
+        properties.getProperty(PATH_PROPERTY),
+        DecodeMode.fromProperties(properties));
   }
 
   @AssistedInject
@@ -87,8 +105,20 @@ public class HttpSource extends Source {
       GripServer server,
       ContextStore store,
       @Assisted String path) {
+    this(exceptionWitnessFactory, eventBus, osf, server, store, path, DecodeMode.COLOR);
+  }
+
+  private HttpSource(
+      ExceptionWitness.Factory exceptionWitnessFactory,
+      EventBus eventBus,
+      OutputSocket.Factory osf,
+      GripServer server,
+      ContextStore store,
+      String path,
+      DecodeMode decodeMode) {
     super(exceptionWitnessFactory);
     this.path = path;
+    this.decodeMode = checkNotNull(decodeMode, "decodeMode");
     this.imageHandler = handlers.computeIfAbsent(path, p -> new HttpImageHandler(store, p));
     this.imageOutput = osf.create(outputHint);
     this.eventBus = eventBus;
@@ -99,7 +129,12 @@ public class HttpSource extends Source {
   }
 
   private void setImage(Mat image) {
-    image.copyTo(this.image);
+    synchronized (pendingLock) {
+      if (pendingImage != null) {
+        skippedDecodes.incrementAndGet();
+      }
+      pendingImage = image;
+    }
     eventBus.post(new SourceHasPendingUpdateEvent(this));
   }
 
@@ -117,18 +152,30 @@ public class HttpSource extends Source {
 
   @Override
   protected boolean updateOutputSockets() {
-    if (image.empty()) {
-      // No data, don't bother converting
+    final Mat encoded;
+    synchronized (pendingLock) {
+      encoded = pendingImage;
+      pendingImage = null;
+    }
+    if (encoded == null || encoded.empty()) {
+      // No new data, don't bother converting
       return false;
     }
-    imageOutput.setValue(opencv_imgcodecs.imdecode(image, opencv_imgcodecs.CV_LOAD_IMAGE_COLOR));
+    decodeMode.decode(encoded, image);
+    imageOutput.setValue(image);
     return true;
   }
 
+  @Override
+  public long getSkippedDecodeCount() {
+    return skippedDecodes.get();
+  }
+
   @Override
   public Properties getProperties() {
     Properties properties = new Properties();
     properties.setProperty(PATH_PROPERTY, path);
+    decodeMode.store(properties);
     return properties;
   }
 
@@ -141,8 +188,13 @@ public class HttpSource extends Source {
   @Subscribe
   public void onSourceRemovedEvent(SourceRemovedEvent event) {
     if (event.getSource() == this) {
-      imageHandler.removeCallback(callback);
+      shutdown();
     }
   }
 
+  @Override
+  public void shutdown() {
+    imageHandler.removeCallback(callback);
+  }
+
 }
@@ -1,6 +1,7 @@
 /*
  * Copyright (C) 2013 Greg Perry
- * Modified for use in GRIP to reduce heap allocations
+ * Modified for use in GRIP to reduce heap allocations and to read the stream with NIO on a
+ * thread of its own
  *
  * Licensed either under the Apache License, Version 2.0, or (at your option)
  * under the terms of the GNU General Public License as published by
@@ -26,32 +27,42 @@ package edu.wpi.grip.core.sources;
 import org.bytedeco.javacpp.BytePointer;
 import org.bytedeco.javacpp.Loader;
 import org.bytedeco.javacv.Frame;
-import org.bytedeco.javacv.FrameConverter;
 import org.bytedeco.javacv.FrameGrabber;
 import org.bytedeco.javacv.OpenCVFrameConverter;
 
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static org.bytedeco.javacpp.opencv_core.CV_8UC1;
-import static org.bytedeco.javacpp.opencv_core.CvMat;
-import static org.bytedeco.javacpp.opencv_core.IplImage;
-import static org.bytedeco.javacpp.opencv_core.cvMat;
-import static org.bytedeco.javacpp.opencv_core.cvReleaseImage;
-import static org.bytedeco.javacpp.opencv_imgcodecs.cvDecodeImage;
+import static org.bytedeco.javacpp.opencv_core.Mat;
 
+/**
+ * Grabs frames from an IP camera that sends an MJPEG stream over HTTP.
+ *
+ * <p>The stream is read and split into JPEG images by a thread of its own, using a
+ * {@link MjpegStreamParser}, while {@link #grab()} decodes them, so reading the next frame from the
+ * network overlaps with decoding the last one. The two threads hand images over through three
+ * buffers that are reused for the whole stream. When frames arrive faster than they are grabbed,
+ * only the latest one is decoded.</p>
+ *
+ * <p>As a {@link CompressedFrameGrabber}, the grabber can also leave decoding to the source, so a
+ * frame is only decoded once the pipeline takes it.</p>
+ */
 // This is here because FrameGrabber has an exception called Exception which triggers PMD
 @SuppressWarnings({"PMD.AvoidThrowingRawExceptionTypes", "all"})
-public class IPCameraFrameGrabber extends FrameGrabber {
+public class IPCameraFrameGrabber extends FrameGrabber implements CompressedFrameGrabber {
 
   /*
    * excellent reference - http://www.jpegcameras.com/ foscam url
@@ -63,11 +74,30 @@ public class IPCameraFrameGrabber extends FrameGrabber {
   private final URL url;
   private final int connectionTimeout;
   private final int readTimeout;
-  private URLConnection connection;
-  private DataInputStream input;
-  private byte[] pixelBuffer = new byte[1024];
-  private IplImage decoded = null;
-  private FrameConverter<IplImage> converter = new OpenCVFrameConverter.ToIplImage();
+  private final OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat();
+  private final Mat decoded = new Mat();
+  private volatile DecodeMode decodeMode = DecodeMode.COLOR;
+
+  /*
+   * The reader fills the back buffer and the decoder owns the front buffer. They swap them with the
+   * middle one, which is fresh while it holds an image that hasn't been grabbed yet. Images are
+   * numbered in the order they were read. All of this is guarded by the lock.
+   */
+  private final Object lock = new Object();
+  private final JpegBuffer[] buffers = {new JpegBuffer(), new JpegBuffer(), new JpegBuffer()};
+  private int back = 0;
+  private int middle = 1;
+  private int front = 2;
+  private boolean fresh = false;
+  private long lastRead = 0;
+  private long middleNumber = 0;
+  private long lastAwaited = 0;
+  private IOException readException = null;
+
+  private InputStream input;
+  private ReadableByteChannel channel;
+  private volatile Thread reader;
+
   public IPCameraFrameGrabber(String urlstr, int connectionTimeout, int readTimeout, TimeUnit
       unit) throws MalformedURLException {
     super();
@@ -91,16 +121,56 @@ public class IPCameraFrameGrabber extends FrameGrabber {
 
   @Override
   public void start() throws Exception {
-
+    final MjpegStreamParser parser;
     try {
-      connection = url.openConnection();
+      final URLConnection connection = url.openConnection();
       connection.setConnectTimeout(connectionTimeout);
       connection.setReadTimeout(readTimeout);
-      input = new DataInputStream(connection.getInputStream());
+      input = connection.getInputStream();
+      channel = Channels.newChannel(input);
+      parser = new MjpegStreamParser(channel, connection.getContentType());
     } catch (IOException e) {
       // Make sure we rethrow the IO exception https://github.com/bytedeco/javacv/pull/300
       throw new Exception(e.getMessage(), e);
     }
+    synchronized (lock) {
+      fresh = false;
+      lastRead = 0;
+      lastAwaited = 0;
+      readException = null;
+    }
+    reader = new Thread(() -> readFrames(parser), "IP Camera Reader " + url.getHost());
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  /**
+   * Reads images out of the stream until it is stopped or fails.
+   */
+  private void readFrames(MjpegStreamParser parser) {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        final JpegBuffer buffer;
+        synchronized (lock) {
+          buffer = buffers[back];
+        }
+        // Only this thread touches the back buffer, so the stream is read without the lock
+        buffer.setBytes(parser.readFrame(buffer.bytes));
+        synchronized (lock) {
+          final int filled = back;
+          back = middle;
+          middle = filled;
+          middleNumber = ++lastRead;
+          fresh = true;
+          lock.notifyAll();
+        }
+      }
+    } catch (IOException e) {
+      synchronized (lock) {
+        readException = e;
+        lock.notifyAll();
+      }
+    }
   }
 
   @Override
@@ -109,16 +179,22 @@ public class IPCameraFrameGrabber extends FrameGrabber {
     // https://github.com/bytedeco/javacv/issues/299
     if (input != null) {
       try {
+        reader.interrupt();
+        // Closing the stream unblocks the reader if it is waiting for the camera
+        channel.close();
         input.close();
+        reader.join(readTimeout);
         input = null;
-        connection = null;
+        channel = null;
+        reader = null;
         // Don't set url to null
         // https://github.com/bytedeco/javacv/pull/300
-        if (decoded != null) {
-          cvReleaseImage(decoded);
-        }
+        decoded.release();
       } catch (IOException e) {
         throw new Exception(e.getMessage(), e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new Exception("Interrupted while stopping", e);
       }
     }
   }
@@ -129,92 +205,113 @@ public class IPCameraFrameGrabber extends FrameGrabber {
 
   @Override
   public Frame grab() throws Exception {
+    final JpegBuffer jpeg;
     try {
-      byte[] b = readImage();
-      CvMat mat = cvMat(1, b.length, CV_8UC1, new BytePointer(b));
-      if (decoded != null) {
-        cvReleaseImage(decoded);
-      }
-      return converter.convert(decoded = cvDecodeImage(mat));
+      jpeg = takeFrame();
     } catch (IOException e) {
       throw new Exception(e.getMessage(), e);
     }
+    decode(jpeg, decoded);
+    return converter.convert(decoded);
   }
 
-  public BufferedImage grabBufferedImage() throws IOException {
-    BufferedImage bi = ImageIO.read(new ByteArrayInputStream(readImage()));
-    return bi;
-  }
-
-  byte[] readImage() throws IOException {
-    StringBuffer sb = new StringBuffer();
-    int c;
-    // read http subheader
-    while ((c = input.read()) != -1) {
-      if (c > 0) {
-        sb.append((char) c);
-        if (c == 13) {
-          sb.append((char) input.read()); // '10'+
-          c = input.read();
-          sb.append((char) c);
-          if (c == 13) {
-            sb.append((char) input.read()); // '10'
-            break; // done with subheader
-          }
-
+  @Override
+  public void awaitFrame() throws Exception {
+    synchronized (lock) {
+      final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(readTimeout);
+      try {
+        while (lastRead == lastAwaited) {
+          waitForReader(deadline);
         }
+      } catch (IOException e) {
+        throw new Exception(e.getMessage(), e);
       }
+      lastAwaited = lastRead;
     }
+  }
 
-    // find embedded jpeg in stream
-    final String subheader = sb.toString().toLowerCase();
-    //log.debug(subheader);
-
-    // if (boundryKey == null)
-    // {
-    // Yay! - server was nice and sent content length
-    int c0 = subheader.indexOf("content-length: ");
-    int c1 = subheader.indexOf('\r', c0);
-
-    if (c0 < 0) {
-      //log.info("no content length returning null");
-      throw new EOFException("The camera stream ended unexpectedly");
+  @Override
+  public long decodeLatest(Mat image) throws Exception {
+    final JpegBuffer jpeg;
+    final long number;
+    synchronized (lock) {
+      if (!fresh) {
+        return 0;
+      }
+      number = middleNumber;
+      jpeg = swapFront();
     }
+    decode(jpeg, image);
+    return number;
+  }
 
-    c0 += 16;
-    final int contentLength = Integer.parseInt(subheader.substring(c0, c1).trim());
-    //log.debug("Content-Length: " + contentLength);
+  @Override
+  public void setDecodeMode(DecodeMode decodeMode) {
+    this.decodeMode = checkNotNull(decodeMode, "decodeMode");
+  }
 
-    // adaptive size - careful - don't want a 2G jpeg
-    ensureBufferCapacity(contentLength);
+  private void decode(JpegBuffer jpeg, Mat image) throws Exception {
+    final Mat encoded = new Mat(1, jpeg.bytes.limit(), CV_8UC1, jpeg.pointer);
+    decodeMode.decode(encoded, image);
+    if (image.empty()) {
+      throw new Exception("Could not decode a frame from the camera");
+    }
+  }
 
-    input.readFully(pixelBuffer, 0, contentLength);
-    input.read(); // \r
-    input.read(); // \n
-    input.read(); // \r
-    input.read(); // \n
+  public BufferedImage grabBufferedImage() throws IOException {
+    final JpegBuffer jpeg = takeFrame();
+    final byte[] bytes = new byte[jpeg.bytes.limit()];
+    jpeg.bytes.duplicate().get(bytes);
+    BufferedImage bi = ImageIO.read(new ByteArrayInputStream(bytes));
+    return bi;
+  }
 
-    return pixelBuffer;
+  /**
+   * Waits for an image that hasn't been grabbed yet. The returned buffer belongs to the caller
+   * until the next time this is called.
+   */
+  private JpegBuffer takeFrame() throws IOException {
+    synchronized (lock) {
+      final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(readTimeout);
+      while (!fresh) {
+        waitForReader(deadline);
+      }
+      return swapFront();
+    }
   }
 
   /**
-   * Grow the pixel buffer if necessary.  Using this method instead of allocating a new buffer every
-   * time a frame is grabbed improves performance by reducing the frequency of garbage collections.
-   * In a simple test, the unmodified version of IPCameraFrameGrabber caused about 200MB of
-   * allocations within 13 seconds.  In this version, almost no additional heap space is typically
-   * allocated per frame. The downside to this is that the returned frames can't really be modified,
-   * so this probably won't go upstream, but it's useful for us because in GRIP we don't operate on
-   * images in-place.
+   * Takes the fresh image in the middle buffer. Must be called while holding the lock.
    */
-  private void ensureBufferCapacity(int desiredCapacity) {
-    int capacity = pixelBuffer.length;
+  private JpegBuffer swapFront() {
+    final int taken = middle;
+    middle = front;
+    front = taken;
+    fresh = false;
+    return buffers[front];
+  }
 
-    while (capacity < desiredCapacity) {
-      capacity *= 2;
+  /**
+   * Waits for the reader to read another image. Must be called while holding the lock.
+   *
+   * @param deadline the {@link System#nanoTime()} to give up waiting at
+   */
+  private void waitForReader(long deadline) throws IOException {
+    if (readException != null) {
+      throw readException;
     }
-
-    if (capacity > pixelBuffer.length) {
-      pixelBuffer = new byte[capacity];
+    if (reader == null) {
+      throw new IOException("The camera has not been started");
+    }
+    final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    if (remaining <= 0) {
+      throw new IOException("Timed out waiting for a frame from the camera");
+    }
+    try {
+      lock.wait(remaining);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for a frame", e);
     }
   }
 
@@ -222,4 +319,21 @@ public class IPCameraFrameGrabber extends FrameGrabber {
   public void release() throws Exception {
   }
 
+  /**
+   * A JPEG image read out of the stream, held in a direct buffer so that it can be decoded without
+   * copying it. The buffer is only replaced when an image doesn't fit in it.
+   */
+  private static final class JpegBuffer {
+    private ByteBuffer bytes = ByteBuffer.allocateDirect(0);
+    private BytePointer pointer = null;
+
+    void setBytes(ByteBuffer bytes) {
+      if (bytes != this.bytes || pointer == null) {
+        final ByteBuffer whole = bytes.duplicate();
+        whole.clear();
+        this.pointer = new BytePointer(whole);
+        this.bytes = bytes;
+      }
+    }
+  }
 }
@@ -0,0 +1,301 @@
+package edu.wpi.grip.core.sources;
+
+import edu.wpi.grip.core.MatPool;
+import edu.wpi.grip.core.events.ProjectSettingsChangedEvent;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * Keeps images that have been loaded from files decoded, so that sources that show them don't
+ * have to decode them again, and can decode the images they are likely to show next ahead of time.
+ *
+ * <p>The cache is shared by every image file source. The least recently used images are let go of
+ * once the cached images would take up more memory than the project allows. The images are kept
+ * in the {@link MatPool}, and everything that gets one from the cache holds a reference to it, so
+ * an image that is let go of while a source is still showing it is only freed or reused once that
+ * source releases it too. Images that are handed out must not be modified. If the project
+ * doesn't allow the cache any memory, every image is decoded when it is asked for and nothing is
+ * prefetched.</p>
+ */
+@Singleton
+public class ImageCache {
+
+  /**
+   * How much memory the cache may use until the project says otherwise.
+   */
+  static final long DEFAULT_CAPACITY = 256 * 1024 * 1024;
+  private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+  private static final int PREFETCH_THREADS = 2;
+  private static final Logger logger = Logger.getLogger(ImageCache.class.getName());
+
+  // Guarded by this
+  private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long size = 0;
+  private long capacity = DEFAULT_CAPACITY;
+
+  private final MatPool matPool;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final ExecutorService prefetcher = Executors.newFixedThreadPool(PREFETCH_THREADS,
+      new ThreadFactoryBuilder()
+          .setNameFormat("Image Prefetcher %d")
+          .setDaemon(true)
+          .build());
+
+  @Inject
+  public ImageCache(MatPool matPool) {
+    this.matPool = checkNotNull(matPool, "matPool");
+  }
+
+  /**
+   * Gets an image, decoding it if it isn't in the cache. If the image is already being decoded,
+   * for example because it was prefetched, this waits for that instead of decoding it again.
+   *
+   * @param path       the location on the file system where the image exists
+   * @param decodeMode how to decode the image
+   * @return the decoded image, with a reference for the caller that has to be {@link #release
+   *     released}. It is shared, so it must not be modified.
+   * @throws IOException if the image could not be loaded
+   */
+  public Mat get(String path, DecodeMode decodeMode) throws IOException {
+    final Key key = new Key(path, decodeMode);
+    while (true) {
+      final Entry entry;
+      final boolean load;
+      synchronized (this) {
+        if (capacity == 0) {
+          misses.incrementAndGet();
+          return decode(key);
+        }
+        final Entry cached = entries.get(key);
+        load = cached == null;
+        entry = load ? new Entry() : cached;
+        if (load) {
+          entries.put(key, entry);
+        }
+      }
+      if (load) {
+        misses.incrementAndGet();
+        load(key, entry);
+      } else {
+        hits.incrementAndGet();
+      }
+      final Mat image = Futures.getChecked(entry.image, IOException.class);
+      synchronized (this) {
+        // Once the cache has let go of the image it may already have been reused
+        if (!entry.released) {
+          matPool.retain(image);
+          return image;
+        }
+      }
+    }
+  }
+
+  /**
+   * Gives back a reference to an image that was returned by {@link #get}. The image must not be
+   * used by the caller again.
+   */
+  public void release(Mat image) {
+    matPool.release(image);
+  }
+
+  /**
+   * Starts decoding images in the background, in order, unless they are already in the cache.
+   *
+   * @param paths      the locations on the file system of the images
+   * @param decodeMode how to decode the images
+   */
+  public void prefetch(Iterable<String> paths, DecodeMode decodeMode) {
+    checkNotNull(decodeMode, "decodeMode");
+    for (String path : paths) {
+      final Key key = new Key(path, decodeMode);
+      final Entry entry;
+      synchronized (this) {
+        if (capacity == 0) {
+          return;
+        }
+        if (entries.containsKey(key)) {
+          continue;
+        }
+        entry = new Entry();
+        entries.put(key, entry);
+      }
+      prefetcher.execute(() -> load(key, entry));
+    }
+  }
+
+  /**
+   * Decodes an image without caching it.
+   *
+   * @return the image, with a reference for the caller
+   */
+  private Mat decode(Key key) throws IOException {
+    final Mat image = new Mat();
+    key.decodeMode.read(key.path, image);
+    return matPool.adopt(image);
+  }
+
+  private void load(Key key, Entry entry) {
+    final Mat image = new Mat();
+    try {
+      key.decodeMode.read(key.path, image);
+    } catch (IOException | RuntimeException e) {
+      synchronized (this) {
+        // Let a later request try again
+        entries.remove(key, entry);
+      }
+      entry.image.setException(e);
+      logger.log(Level.FINE, "Failed to load " + key.path, e);
+      return;
+    }
+    synchronized (this) {
+      entry.decoded = matPool.adopt(image);
+      entry.bytes = image.total() * image.elemSize();
+      // The entry may have been dropped, or the cache turned off, while the image was being decoded
+      if (entries.get(key) == entry && capacity > 0) {
+        size += entry.bytes;
+        evictToCapacity(entry);
+      } else {
+        entries.remove(key, entry);
+        release(entry);
+      }
+    }
+    entry.image.set(image);
+  }
+
+  /**
+   * Lets go of the least recently used images until the cache is within its capacity. Images that
+   * are still being decoded and the image that was just added are kept.
+   */
+  private synchronized void evictToCapacity(Entry keep) {
+    final Iterator<Entry> iterator = entries.values().iterator();
+    while (size > capacity && iterator.hasNext()) {
+      final Entry entry = iterator.next();
+      if (entry != keep && entry.decoded != null) {
+        size -= entry.bytes;
+        iterator.remove();
+        release(entry);
+      }
+    }
+  }
+
+  /**
+   * Gives the reference the cache holds on an image back to the pool.
+   */
+  private synchronized void release(Entry entry) {
+    entry.released = true;
+    matPool.release(entry.decoded);
+  }
+
+  /**
+   * @param capacity the number of bytes the cached images may take up
+   */
+  @VisibleForTesting
+  synchronized void setCapacity(long capacity) {
+    checkArgument(capacity >= 0, "Capacity cannot be negative");
+    this.capacity = capacity;
+    evictToCapacity(null);
+  }
+
+  @Subscribe
+  public void onProjectSettingsChanged(ProjectSettingsChangedEvent event) {
+    setCapacity(event.getProjectSettings().getImageCacheSize() * BYTES_PER_MEGABYTE);
+  }
+
+  /**
+   * @return the number of bytes taken up by the images in the cache.
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * @param counted images that have already been counted somewhere else. The images in the cache
+   *                are added to it.
+   * @return the number of bytes taken up by the images in the cache that weren't counted yet
+   */
+  public synchronized long getUncountedSize(Set<Object> counted) {
+    checkNotNull(counted, "counted");
+    long uncounted = 0;
+    for (Entry entry : entries.values()) {
+      if (entry.decoded != null && counted.add(entry.decoded)) {
+        uncounted += entry.bytes;
+      }
+    }
+    return uncounted;
+  }
+
+  /**
+   * @return the number of requests for an image that was already in the cache or being prefetched.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of requests for an image that had to be decoded first.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  private static final class Key {
+    private final String path;
+    private final DecodeMode decodeMode;
+
+    Key(String path, DecodeMode decodeMode) {
+      this.path = checkNotNull(path, "path");
+      this.decodeMode = checkNotNull(decodeMode, "decodeMode");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key) o;
+      return path.equals(key.path) && decodeMode == key.decodeMode;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, decodeMode);
+    }
+  }
+
+  private static final class Entry {
+    private final SettableFuture<Mat> image = SettableFuture.create();
+    // Guarded by the cache
+    @Nullable
+    private Mat decoded;
+    private long bytes = 0;
+    private boolean released = false;
+  }
+}
@@ -1,21 +1,20 @@
 package edu.wpi.grip.core.sources;
 
 import edu.wpi.grip.core.Source;
+import edu.wpi.grip.core.events.SourceRemovedEvent;
 import edu.wpi.grip.core.sockets.OutputSocket;
 import edu.wpi.grip.core.sockets.SocketHint;
 import edu.wpi.grip.core.sockets.SocketHints;
 import edu.wpi.grip.core.util.ExceptionWitness;
-import edu.wpi.grip.core.util.ImageLoadingUtility;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
 import com.google.common.io.Files;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 import org.bytedeco.javacpp.opencv_core.Mat;
-import org.bytedeco.javacpp.opencv_imgcodecs;
 
 import java.io.File;
 import java.io.IOException;
@@ -23,6 +22,8 @@ import java.io.UnsupportedEncodingException;
 import java.util.List;
 import java.util.Properties;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 
@@ -36,37 +37,50 @@ public final class ImageFileSource extends Source {
 
   private final String name;
   private final String path;
+  private final DecodeMode decodeMode;
+  private final ImageCache imageCache;
   private final SocketHint<Mat> imageOutputHint = SocketHints.Outputs.createMatSocketHint("Image");
   private final OutputSocket<Mat> outputSocket;
+  // The image being shown, which this source holds a reference to
+  @Nullable
+  private Mat image;
 
   /**
    * @param exceptionWitnessFactory Factory to create the exceptionWitness
+   * @param imageCache              The cache to load the image through.
    * @param file                    The location on the file system where the image exists.
    */
   @AssistedInject
   ImageFileSource(
       final OutputSocket.Factory outputSocketFactory,
       final ExceptionWitness.Factory exceptionWitnessFactory,
+      final ImageCache imageCache,
       @Assisted final File file) throws UnsupportedEncodingException {
-    this(outputSocketFactory, exceptionWitnessFactory, file.getAbsolutePath());
+    this(outputSocketFactory, exceptionWitnessFactory, imageCache, file.getAbsolutePath(),
+        DecodeMode.COLOR);
   }
 
   @AssistedInject
   ImageFileSource(
       final OutputSocket.Factory outputSocketFactory,
       final ExceptionWitness.Factory exceptionWitnessFactory,
+      final ImageCache imageCache,
       @Assisted final Properties properties) {
-    this(outputSocketFactory, exceptionWitnessFactory,
-        properties.getProperty(PATH_PROPERTY));
+    this(outputSocketFactory, exceptionWitnessFactory, imageCache,
+        properties.getProperty(PATH_PROPERTY), DecodeMode.fromProperties(properties));
   }
 
 
   private ImageFileSource(
       final OutputSocket.Factory outputSocketFactory,
       final ExceptionWitness.Factory exceptionWitnessFactory,
-      final String path) {
+      final ImageCache imageCache,
+      final String path,
+      final DecodeMode decodeMode) {
     super(exceptionWitnessFactory);
+    this.imageCache = checkNotNull(imageCache, "Image cache can not be null");
     this.path = checkNotNull(path, "Path can not be null");
+    this.decodeMode = checkNotNull(decodeMode, "Decode mode can not be null");
     this.name = Files.getNameWithoutExtension(this.path);
     this.outputSocket = outputSocketFactory.create(imageOutputHint);
   }
@@ -103,21 +117,30 @@ public final class ImageFileSource extends Source {
   public Properties getProperties() {
     final Properties properties = new Properties();
     properties.setProperty(PATH_PROPERTY, this.path);
+    decodeMode.store(properties);
     return properties;
   }
 
   /**
-   * Loads the image and posts an update to the {@link EventBus}
+   * Loads the image through the cache and puts it in the output socket.
    *
    * @param path The location on the file system where the image exists.
    */
-  private void loadImage(String path) throws IOException {
-    this.loadImage(path, opencv_imgcodecs.IMREAD_COLOR);
+  private synchronized void loadImage(String path) throws IOException {
+    final Mat loaded = imageCache.get(path, decodeMode);
+    this.outputSocket.setValue(loaded);
+    if (image != null) {
+      imageCache.release(image);
+    }
+    image = loaded;
   }
 
-  private void loadImage(String path, final int flags) throws IOException {
-    ImageLoadingUtility.loadImage(path, flags, this.outputSocket.getValue().get());
-    this.outputSocket.setValue(this.outputSocket.getValue().get());
+  @Subscribe
+  public synchronized void onSourceRemoved(SourceRemovedEvent event) {
+    if (event.getSource() == this && image != null) {
+      imageCache.release(image);
+      image = null;
+    }
   }
 
 
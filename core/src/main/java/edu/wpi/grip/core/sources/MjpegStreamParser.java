@@ -0,0 +1,380 @@
+package edu.wpi.grip.core.sources;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Splits a multipart MJPEG stream, as sent by most IP cameras, into JPEG images.
+ *
+ * <p>The stream is read in large blocks into a direct buffer that is reused for the whole stream,
+ * and the headers of each part are parsed straight out of that buffer, so nothing is allocated for
+ * a frame unless it is larger than any frame before it. Parts that have a {@code Content-Length}
+ * header are copied out in bulk. Parts that don't are read up to the boundary named in the
+ * {@code Content-Type} of the stream, or up to the end of the JPEG image if the stream doesn't name
+ * one. The end of the image is found by following its marker segments, since images often carry a
+ * thumbnail that has an end of image marker of its own.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+final class MjpegStreamParser {
+
+  /**
+   * The size of the buffer the stream is read into.
+   */
+  static final int READ_BUFFER_SIZE = 64 * 1024;
+  /**
+   * No camera sends frames this large. It keeps a broken stream from using up all the memory.
+   */
+  static final int MAX_FRAME_BYTES = 32 * 1024 * 1024;
+  /**
+   * The headers of a part are never this long, so a stream that has gone out of step fails instead
+   * of being searched forever.
+   */
+  private static final int MAX_HEADER_BYTES = 8 * 1024;
+
+  private static final byte[] CONTENT_LENGTH =
+      "content-length:".getBytes(StandardCharsets.US_ASCII);
+  private static final int MIN_FRAME_CAPACITY = 64 * 1024;
+
+  // JPEG marker codes, which follow a 0xFF byte
+  private static final int START_OF_IMAGE = 0xD8;
+  private static final int END_OF_IMAGE = 0xD9;
+  private static final int START_OF_SCAN = 0xDA;
+  private static final int FIRST_RESTART = 0xD0;
+  private static final int LAST_RESTART = 0xD7;
+  private static final int TEMPORARY = 0x01;
+
+  // What readJpeg expects next
+  private static final int BEFORE_IMAGE = 0;
+  private static final int MARKER = 1;
+  private static final int MARKER_CODE = 2;
+  private static final int LENGTH_HIGH = 3;
+  private static final int LENGTH_LOW = 4;
+  private static final int SEGMENT = 5;
+  private static final int SCAN = 6;
+  private static final int BROKEN = 7;
+
+  private final ReadableByteChannel channel;
+  private final ByteBuffer readBuffer;
+  /**
+   * What ends a part that has no content length, or null if the part ends with the image.
+   */
+  @Nullable
+  private final byte[] delimiter;
+
+  /**
+   * @param channel     the body of the HTTP response
+   * @param contentType the {@code Content-Type} of the HTTP response, which names the boundary
+   *                    between parts
+   */
+  MjpegStreamParser(ReadableByteChannel channel, @Nullable String contentType) {
+    this(channel, contentType, READ_BUFFER_SIZE);
+  }
+
+  MjpegStreamParser(ReadableByteChannel channel, @Nullable String contentType, int bufferSize) {
+    checkArgument(bufferSize > 0, "bufferSize must be positive");
+    this.channel = checkNotNull(channel, "channel");
+    this.readBuffer = ByteBuffer.allocateDirect(bufferSize);
+    this.readBuffer.flip();
+    this.delimiter = delimiterFor(contentType);
+  }
+
+  /**
+   * @return the bytes that come before the boundary between two parts, or null if the content type
+   *     doesn't name a boundary.
+   */
+  @Nullable
+  static byte[] delimiterFor(@Nullable String contentType) {
+    if (contentType == null) {
+      return null;
+    }
+    final int start = contentType.toLowerCase(Locale.ENGLISH).indexOf("boundary=");
+    if (start < 0) {
+      return null;
+    }
+    String boundary = contentType.substring(start + "boundary=".length());
+    final int end = boundary.indexOf(';');
+    if (end >= 0) {
+      boundary = boundary.substring(0, end);
+    }
+    boundary = boundary.trim();
+    if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+      boundary = boundary.substring(1, boundary.length() - 1);
+    }
+    if (boundary.isEmpty()) {
+      return null;
+    }
+    // Some cameras put the leading dashes in the header as well as in the stream
+    final String prefix = boundary.startsWith("--") ? "\r\n" : "\r\n--";
+    return (prefix + boundary).getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Reads the next image out of the stream.
+   *
+   * @param frame the buffer to write the image into. Whatever it holds is written over.
+   * @return the buffer holding the image, ready to be read from. This is the given buffer unless it
+   *     was too small for the image, in which case it is a larger one that should be passed in
+   *     next time.
+   * @throws EOFException if the stream ended
+   * @throws IOException  if the stream couldn't be read or isn't an MJPEG stream
+   */
+  ByteBuffer readFrame(ByteBuffer frame) throws IOException {
+    checkNotNull(frame, "frame");
+    frame.clear();
+    final int contentLength = readHeaders();
+    final ByteBuffer result;
+    if (contentLength >= 0) {
+      result = readContent(frame, contentLength);
+    } else if (delimiter != null) {
+      result = readDelimited(frame, delimiter);
+    } else {
+      result = readJpeg(frame);
+    }
+    result.flip();
+    return result;
+  }
+
+  /**
+   * Reads the headers of the next part, including the empty line after them.
+   *
+   * @return the content length of the part, or -1 if it doesn't have one.
+   */
+  private int readHeaders() throws IOException {
+    int contentLength = -1;
+    // How many characters of "content-length:" the current line starts with, or -1 if it doesn't
+    int matched = 0;
+    boolean inValue = false;
+    int lineLength = 0;
+    boolean sawHeader = false;
+    for (int count = 0; ; count++) {
+      if (count > MAX_HEADER_BYTES) {
+        throw new IOException("Could not find the end of the headers of an MJPEG part");
+      }
+      if (!readBuffer.hasRemaining()) {
+        fill();
+      }
+      final byte b = readBuffer.get();
+      if (b == '\n') {
+        // The empty line left over from the end of the last part doesn't end the headers
+        if (lineLength == 0 && sawHeader) {
+          return contentLength;
+        }
+        sawHeader |= lineLength > 0;
+        matched = 0;
+        inValue = false;
+        lineLength = 0;
+      } else if (b != '\r') {
+        lineLength++;
+        if (matched == CONTENT_LENGTH.length) {
+          if (b >= '0' && b <= '9') {
+            contentLength = (inValue ? contentLength * 10 : 0) + (b - '0');
+            inValue = true;
+            if (contentLength > MAX_FRAME_BYTES) {
+              throw new IOException("MJPEG part is too large: more than " + MAX_FRAME_BYTES
+                  + " bytes");
+            }
+          } else if (inValue || (b != ' ' && b != '\t')) {
+            matched = -1;
+          }
+        } else if (matched >= 0) {
+          final int lower = b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+          matched = lower == CONTENT_LENGTH[matched] ? matched + 1 : -1;
+        }
+      }
+    }
+  }
+
+  private ByteBuffer readContent(ByteBuffer frame, int contentLength) throws IOException {
+    final ByteBuffer result = ensureCapacity(frame, contentLength);
+    int remaining = contentLength;
+    while (remaining > 0) {
+      if (!readBuffer.hasRemaining()) {
+        fill();
+      }
+      final int count = Math.min(remaining, readBuffer.remaining());
+      copyFromReadBuffer(result, count);
+      remaining -= count;
+    }
+    return result;
+  }
+
+  private ByteBuffer readDelimited(ByteBuffer frame, byte[] delimiter) throws IOException {
+    ByteBuffer result = frame;
+    int matched = 0;
+    while (true) {
+      if (!readBuffer.hasRemaining()) {
+        fill();
+      }
+      final int start = readBuffer.position();
+      final int end = readBuffer.limit();
+      int index = start;
+      while (index < end && matched < delimiter.length) {
+        final byte b = readBuffer.get(index++);
+        // The delimiter only starts with its first byte once, so a mismatch never leaves a
+        // partial match other than that byte
+        matched = b == delimiter[matched] ? matched + 1 : (b == delimiter[0] ? 1 : 0);
+      }
+      final int count = index - start;
+      if (result.position() + count > MAX_FRAME_BYTES + delimiter.length) {
+        throw new IOException("MJPEG part is too large: more than " + MAX_FRAME_BYTES + " bytes");
+      }
+      result = ensureCapacity(result, result.position() + count);
+      copyFromReadBuffer(result, count);
+      if (matched == delimiter.length) {
+        result.position(result.position() - delimiter.length);
+        return result;
+      }
+    }
+  }
+
+  /**
+   * Reads up to and including the end of image marker of a JPEG image. The segments before the
+   * image data are skipped over by their length, so markers inside them, like those of an EXIF
+   * thumbnail, aren't mistaken for the end. If the image doesn't follow the JPEG structure, it is
+   * read up to the first end of image marker instead.
+   */
+  private ByteBuffer readJpeg(ByteBuffer frame) throws IOException {
+    ByteBuffer result = frame;
+    int state = BEFORE_IMAGE;
+    // Only used before the image and once it turns out to be broken
+    boolean afterFf = false;
+    boolean inScan = false;
+    boolean startOfScan = false;
+    int segmentRemaining = 0;
+    boolean ended = false;
+    while (!ended) {
+      if (!readBuffer.hasRemaining()) {
+        fill();
+      }
+      final int start = readBuffer.position();
+      final int end = readBuffer.limit();
+      int index = start;
+      while (index < end && !ended) {
+        if (state == SEGMENT) {
+          // Skip the body of the segment in one step
+          final int skipped = Math.min(segmentRemaining, end - index);
+          index += skipped;
+          segmentRemaining -= skipped;
+          if (segmentRemaining == 0) {
+            inScan = startOfScan;
+            state = inScan ? SCAN : MARKER;
+          }
+          continue;
+        }
+        final int b = readBuffer.get(index++) & 0xFF;
+        switch (state) {
+          case BEFORE_IMAGE:
+            if (afterFf && b == START_OF_IMAGE) {
+              state = MARKER;
+            }
+            afterFf = b == 0xFF;
+            break;
+          case MARKER:
+            state = b == 0xFF ? MARKER_CODE : BROKEN;
+            break;
+          case SCAN:
+            if (b == 0xFF) {
+              state = MARKER_CODE;
+            }
+            break;
+          case MARKER_CODE:
+            if (b == 0xFF) {
+              // Markers may be padded with any number of 0xFF bytes
+              break;
+            } else if (b == END_OF_IMAGE) {
+              ended = true;
+            } else if (inScan && (b == 0 || (b >= FIRST_RESTART && b <= LAST_RESTART))) {
+              // A 0xFF byte of the image data, or a restart marker, which are part of the scan
+              state = SCAN;
+            } else if (b == START_OF_IMAGE || b == TEMPORARY
+                || (b >= FIRST_RESTART && b <= LAST_RESTART)) {
+              inScan = false;
+              state = MARKER;
+            } else if (b == 0) {
+              state = BROKEN;
+            } else {
+              inScan = false;
+              startOfScan = b == START_OF_SCAN;
+              state = LENGTH_HIGH;
+            }
+            break;
+          case LENGTH_HIGH:
+            segmentRemaining = b << 8;
+            state = LENGTH_LOW;
+            break;
+          case LENGTH_LOW:
+            // The length counts its own two bytes
+            segmentRemaining = (segmentRemaining | b) - 2;
+            state = segmentRemaining < 0 ? BROKEN : SEGMENT;
+            break;
+          case BROKEN:
+            ended = afterFf && b == END_OF_IMAGE;
+            afterFf = b == 0xFF;
+            break;
+          default:
+            throw new AssertionError("Unknown state " + state);
+        }
+      }
+      final int count = index - start;
+      if (result.position() + count > MAX_FRAME_BYTES) {
+        throw new IOException("MJPEG part is too large: more than " + MAX_FRAME_BYTES + " bytes");
+      }
+      result = ensureCapacity(result, result.position() + count);
+      copyFromReadBuffer(result, count);
+    }
+    return result;
+  }
+
+  /**
+   * Copies bytes from the read buffer in bulk without making a view of it.
+   */
+  private void copyFromReadBuffer(ByteBuffer destination, int count) {
+    final int limit = readBuffer.limit();
+    readBuffer.limit(readBuffer.position() + count);
+    destination.put(readBuffer);
+    readBuffer.limit(limit);
+  }
+
+  /**
+   * Reads as much of the stream as there is room for. The read buffer must be empty.
+   */
+  private void fill() throws IOException {
+    readBuffer.clear();
+    int read;
+    do {
+      read = channel.read(readBuffer);
+    } while (read == 0);
+    readBuffer.flip();
+    if (read < 0) {
+      throw new EOFException("The camera stream ended unexpectedly");
+    }
+  }
+
+  /**
+   * @return the buffer if it has room for the given number of bytes, or a larger buffer holding
+   *     what it did.
+   */
+  private static ByteBuffer ensureCapacity(ByteBuffer buffer, int capacity) {
+    if (buffer.capacity() >= capacity) {
+      return buffer;
+    }
+    int newCapacity = Math.max(buffer.capacity(), MIN_FRAME_CAPACITY);
+    while (newCapacity < capacity) {
+      newCapacity *= 2;
+    }
+    final ByteBuffer larger = ByteBuffer.allocateDirect(newCapacity);
+    buffer.flip();
+    larger.put(buffer);
+    return larger;
+  }
+}
@@ -3,14 +3,15 @@ package edu.wpi.grip.core.sources;
 import edu.wpi.grip.core.PreviousNext;
 import edu.wpi.grip.core.Source;
 import edu.wpi.grip.core.events.SourceHasPendingUpdateEvent;
+import edu.wpi.grip.core.events.SourceRemovedEvent;
 import edu.wpi.grip.core.sockets.OutputSocket;
 import edu.wpi.grip.core.sockets.SocketHint;
 import edu.wpi.grip.core.sockets.SocketHints;
 import edu.wpi.grip.core.util.ExceptionWitness;
-import edu.wpi.grip.core.util.ImageLoadingUtility;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
 import com.google.common.math.IntMath;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
@@ -21,22 +22,39 @@ import org.bytedeco.javacpp.opencv_core.Mat;
 import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * A Source that supports multiple images. They can be toggled using {@link
  * MultiImageFileSource#next()} and {@link MultiImageFileSource#previous()}
+ *
+ * <p>Images are decoded through the {@link ImageCache} when they are shown, so a large set of
+ * images loads at once and only takes up as much memory as the cache allows. The next few images
+ * in the direction the user is moving are decoded in the background, so they are usually ready by
+ * the time they are shown.</p>
  */
 @XStreamAlias(value = "grip:MultiImageFile")
 public final class MultiImageFileSource extends Source implements PreviousNext {
   private static final String INDEX_PROPERTY = "index";
   private static final String SIZE_PROPERTY = "numImages";
+  /**
+   * How many images ahead of the one being shown are prefetched, in the direction the user last
+   * moved.
+   */
+  private static final int PREFETCH_AHEAD = 3;
+  /**
+   * How many images behind the one being shown are prefetched.
+   */
+  private static final int PREFETCH_BEHIND = 1;
 
   private final SocketHint<Mat> imageOutputHint = SocketHints.Inputs.createMatSocketHint("Image",
       true);
@@ -45,12 +63,19 @@ public final class MultiImageFileSource extends Source implements PreviousNext {
   private final EventBus eventBus;
   private final List<String> paths;
   private final AtomicInteger index;
-  private Mat[] images;
-  private Optional<Mat> currentImage = Optional.empty();
+  private final DecodeMode decodeMode;
+  private final ImageCache imageCache;
+  private volatile boolean initialized = false;
+  // Only used by the thread that updates the outputs
+  private boolean failedToLoad = false;
+  // The image being shown, which this source holds a reference to. Guarded by this.
+  @Nullable
+  private Mat shown;
 
   /**
    * @param eventBus                The event bus.
    * @param exceptionWitnessFactory Factory to create the exceptionWitness
+   * @param imageCache              The cache to load the images through.
    * @param files                   A list of files to be loaded.
    * @param index                   The index to use as the first file that is in the socket.
    */
@@ -59,16 +84,19 @@ public final class MultiImageFileSource extends Source implements PreviousNext {
       final EventBus eventBus,
       final OutputSocket.Factory outputSocketFactory,
       final ExceptionWitness.Factory exceptionWitnessFactory,
+      final ImageCache imageCache,
       @Assisted final List<File> files,
       @Assisted final int index) throws UnsupportedEncodingException {
     this(
         eventBus,
         outputSocketFactory,
         exceptionWitnessFactory,
+        imageCache,
         files.stream()
             .map(File::getAbsolutePath)
             .toArray(String[]::new),
-        index
+        index,
+        DecodeMode.COLOR
     );
   }
 
@@ -77,8 +105,9 @@ public final class MultiImageFileSource extends Source implements PreviousNext {
       final EventBus eventBus,
       final OutputSocket.Factory outputSocketFactory,
       final ExceptionWitness.Factory exceptionWitnessFactory,
+      final ImageCache imageCache,
       @Assisted final List<File> files) throws UnsupportedEncodingException {
-    this(eventBus, outputSocketFactory, exceptionWitnessFactory, files, 0);
+    this(eventBus, outputSocketFactory, exceptionWitnessFactory, imageCache, files, 0);
   }
 
   /**
@@ -88,47 +117,34 @@ public final class MultiImageFileSource extends Source implements PreviousNext {
   MultiImageFileSource(final EventBus eventBus,
                        final OutputSocket.Factory outputSocketFactory,
                        final ExceptionWitness.Factory exceptionWitnessFactory,
+                       final ImageCache imageCache,
                        @Assisted final Properties properties) {
-    this(eventBus, outputSocketFactory, exceptionWitnessFactory, pathsFromProperties(properties),
-        indexFromProperties(properties));
+    this(eventBus, outputSocketFactory, exceptionWitnessFactory, imageCache,
+        pathsFromProperties(properties), indexFromProperties(properties),
+        DecodeMode.fromProperties(properties));
   }
 
   private MultiImageFileSource(
       final EventBus eventBus,
       final OutputSocket.Factory outputSocketFactory,
       final ExceptionWitness.Factory exceptionWitnessFactory,
+      final ImageCache imageCache,
       final String[] paths,
-      final int index) {
+      final int index,
+      final DecodeMode decodeMode) {
     super(exceptionWitnessFactory);
     this.eventBus = eventBus;
+    this.imageCache = checkNotNull(imageCache, "Image cache can not be null");
     this.outputSocket = outputSocketFactory.create(imageOutputHint);
     this.index = new AtomicInteger(checkElementIndex(index, paths.length, "File List Index"));
     this.paths = Arrays.asList(paths);
+    this.decodeMode = checkNotNull(decodeMode, "Decode mode can not be null");
   }
 
   private static String getPathProperty(int index) {
     return "path[" + index + "]";
   }
 
-  /**
-   * Creates an array of mats from the paths on the filesystem. This pre-loads them into memory so
-   * that they can be accessed quickly. The returned array will have the same number of elements as
-   * paths.
-   *
-   * @param paths The paths of all of the images.
-   * @return The list of Mats loaded from the file system.
-   * @throws IOException if one of the images fails to load
-   */
-  private static Mat[] createImagesArray(List<String> paths) throws IOException {
-    final Mat[] images = new Mat[paths.size()];
-    for (int i = 0; i < paths.size(); i++) {
-      final Mat image = new Mat();
-      ImageLoadingUtility.loadImage(paths.get(i), image);
-      images[i] = image;
-    }
-    return images;
-  }
-
   private static int sizeFromProperties(Properties properties) {
     return Integer.parseInt(properties.getProperty(SIZE_PROPERTY));
   }
@@ -146,10 +162,18 @@ public final class MultiImageFileSource extends Source implements PreviousNext {
     return paths;
   }
 
+  /**
+   * Loads the image that is shown first, so that a file that can't be loaded is reported right
+   * away, and starts decoding the ones after it.
+   *
+   * @throws IOException if the first image fails to load
+   */
   @Override
   public void initialize() throws IOException {
-    this.images = createImagesArray(this.paths);
-    currentImage = Optional.of(addIndexAndGetImageByOffset(0));
+    final int current = index.get();
+    imageCache.release(imageCache.get(paths.get(current), decodeMode));
+    prefetchAround(current, +1);
+    initialized = true;
     eventBus.post(new SourceHasPendingUpdateEvent(this));
   }
 
@@ -167,12 +191,43 @@ public final class MultiImageFileSource extends Source implements PreviousNext {
 
   @Override
   protected boolean updateOutputSockets() {
-    if (!currentImage.equals(outputSocket.getValue())) {
-      outputSocket.setValueOptional(currentImage);
-      return true;
-    } else {
+    if (!initialized) {
       return false;
     }
+    final String path = paths.get(index.get());
+    final Mat image;
+    try {
+      // This is usually already decoded, or being decoded, by the prefetcher
+      image = imageCache.get(path, decodeMode);
+    } catch (IOException e) {
+      failedToLoad = true;
+      getExceptionWitness().flagException(e, "Failed to load " + path);
+      return false;
+    }
+    if (failedToLoad) {
+      failedToLoad = false;
+      getExceptionWitness().clearException();
+    }
+    synchronized (this) {
+      if (shown == image) {
+        imageCache.release(image);
+        return false;
+      }
+      outputSocket.setValue(image);
+      if (shown != null) {
+        imageCache.release(shown);
+      }
+      shown = image;
+      return true;
+    }
+  }
+
+  @Subscribe
+  public synchronized void onSourceRemoved(SourceRemovedEvent event) {
+    if (event.getSource() == this && shown != null) {
+      imageCache.release(shown);
+      shown = null;
+    }
   }
 
   @Override
@@ -183,20 +238,21 @@ public final class MultiImageFileSource extends Source implements PreviousNext {
     for (int i = 0; i < paths.size(); i++) {
       properties.setProperty(getPathProperty(i), paths.get(i));
     }
+    decodeMode.store(properties);
     return properties;
   }
 
   /**
-   * Adds the delta to the index value and returns the matrix at that index (Circular). If the delta
-   * moves the index pointer outside of the bounds of the image array the number will 'overflow' to
-   * remain within the bounds of the image array.
+   * Adds the delta to the index value and returns the new index (Circular). If the delta moves the
+   * index pointer outside of the bounds of the image list the number will 'overflow' to remain
+   * within the bounds of the image list.
    *
-   * @param delta the value to add to the index when getting the image
-   * @return The matrix at the given index in the array.
+   * @param delta the value to add to the index
+   * @return The new index.
    */
-  private Mat addIndexAndGetImageByOffset(final int delta) {
-    final int listSize = images.length;
-    final int newMatIndex = index.updateAndGet(currentIndex -> {
+  private int addIndex(final int delta) {
+    final int listSize = paths.size();
+    final int newIndex = index.updateAndGet(currentIndex -> {
       assert currentIndex >= 0 : "The current index should never be less than zero";
       assert currentIndex < listSize : "The current index should always be less than the size of "
           + "the list";
@@ -206,7 +262,25 @@ public final class MultiImageFileSource extends Source implements PreviousNext {
       }
       return IntMath.mod(currentIndex + delta, listSize);
     });
-    return images[newMatIndex];
+    return newIndex;
+  }
+
+  /**
+   * Starts decoding the images the user is likely to move to next.
+   *
+   * @param current   the index of the image being shown
+   * @param direction +1 if the user is moving forwards, -1 if backwards
+   */
+  private void prefetchAround(int current, int direction) {
+    final List<String> upcoming = new ArrayList<>(PREFETCH_AHEAD + PREFETCH_BEHIND);
+    final int count = Math.min(PREFETCH_AHEAD, paths.size() - 1);
+    for (int i = 1; i <= count; i++) {
+      upcoming.add(paths.get(IntMath.mod(current + direction * i, paths.size())));
+    }
+    for (int i = 1; i <= PREFETCH_BEHIND && count + i < paths.size(); i++) {
+      upcoming.add(paths.get(IntMath.mod(current - direction * i, paths.size())));
+    }
+    imageCache.prefetch(upcoming, decodeMode);
   }
 
   /**
@@ -214,7 +288,7 @@ public final class MultiImageFileSource extends Source implements PreviousNext {
    */
   @Override
   public void next() {
-    currentImage = Optional.of(addIndexAndGetImageByOffset(+1));
+    prefetchAround(addIndex(+1), +1);
     eventBus.post(new SourceHasPendingUpdateEvent(this));
   }
 
@@ -223,7 +297,7 @@ public final class MultiImageFileSource extends Source implements PreviousNext {
    */
   @Override
   public void previous() {
-    currentImage = Optional.of(addIndexAndGetImageByOffset(-1));
+    prefetchAround(addIndex(-1), -1);
     eventBus.post(new SourceHasPendingUpdateEvent(this));
   }
 
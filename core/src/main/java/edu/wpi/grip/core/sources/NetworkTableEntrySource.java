@@ -151,7 +151,12 @@ public class NetworkTableEntrySource extends Source {
   @Subscribe
   public void onSourceRemovedEvent(SourceRemovedEvent event) {
     if (event.getSource() == this) {
-      networkReceiver.close();
+      shutdown();
     }
   }
+
+  @Override
+  public void shutdown() {
+    networkReceiver.close();
+  }
 }
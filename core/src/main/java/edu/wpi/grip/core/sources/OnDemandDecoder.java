@@ -0,0 +1,17 @@
+package edu.wpi.grip.core.sources;
+
+/**
+ * A {@link CameraSourceUpdater} that decodes frames from a {@link CompressedFrameGrabber} when it
+ * uses them, instead of having each one decoded and passed to
+ * {@link CameraSourceUpdater#copyNewMat copyNewMat}.
+ */
+public interface OnDemandDecoder {
+
+  /**
+   * Called instead of {@link CameraSourceUpdater#copyNewMat copyNewMat} when a compressed frame
+   * has arrived.
+   *
+   * @param grabber the grabber that holds the frame
+   */
+  void compressedFrameArrived(CompressedFrameGrabber grabber);
+}
@@ -0,0 +1,49 @@
+package edu.wpi.grip.core.sources;
+
+import java.util.Properties;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * How fast a video file is played.
+ */
+public enum PlaybackMode {
+  /**
+   * Frames are grabbed at the frame rate of the video, so it plays back like it was recorded.
+   * Frames the pipeline can't keep up with are handled by the {@link FrameDropPolicy}.
+   */
+  REAL_TIME,
+
+  /**
+   * The frame rate of the video is ignored. Frames are decoded ahead of time on a thread of their
+   * own and handed to the pipeline as fast as it takes them, and no frame is ever dropped. This is
+   * meant for measuring how fast a pipeline runs and for processing recordings without waiting
+   * for them to play.
+   */
+  AS_FAST_AS_POSSIBLE;
+
+  /**
+   * The key used to store the mode in the properties of a source.
+   */
+  public static final String PROPERTY = "playbackMode";
+
+  /**
+   * @return the mode stored in the properties of a source, or {@link #REAL_TIME} if there is none.
+   * @throws IllegalArgumentException if the property is not the name of a mode
+   */
+  public static PlaybackMode fromProperties(Properties properties) {
+    final String mode = properties.getProperty(PROPERTY);
+    return mode == null ? REAL_TIME : valueOf(mode);
+  }
+
+  /**
+   * Stores this mode in the properties of a source. Nothing is stored for the default mode so that
+   * the properties of sources that use it are unchanged.
+   */
+  public void store(Properties properties) {
+    checkNotNull(properties, "properties");
+    if (this != REAL_TIME) {
+      properties.setProperty(PROPERTY, name());
+    }
+  }
+}
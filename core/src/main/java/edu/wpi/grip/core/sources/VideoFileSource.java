@@ -1,5 +1,7 @@
 package edu.wpi.grip.core.sources;
 
+import edu.wpi.grip.core.MatPool;
+import edu.wpi.grip.core.NativeMemoryHolder;
 import edu.wpi.grip.core.Source;
 import edu.wpi.grip.core.events.SourceHasPendingUpdateEvent;
 import edu.wpi.grip.core.events.SourceRemovedEvent;
@@ -28,30 +30,66 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
+import java.util.Set;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * A source for a video file input.
+ *
+ * <p>By default the video plays at its own frame rate and loops when it ends. With
+ * {@link PlaybackMode#AS_FAST_AS_POSSIBLE} a decoder thread keeps a few frames decoded ahead of the
+ * pipeline instead, and the pipeline gets every frame as soon as it is ready for one. The video
+ * can also be made to stop at its last frame, which is useful for processing a recording once.</p>
+ *
+ * <p>The frame grabber is only ever used by one thread: the decoder thread when playing as fast as
+ * possible, and the grabber thread otherwise. Seeking to another frame is handed to that thread
+ * instead of being done by the caller.</p>
  */
 @XStreamAlias("grip:VideoFile")
-public class VideoFileSource extends Source implements Pausable {
+public class VideoFileSource extends Source implements Pausable, NativeMemoryHolder {
+
+  private static final String PATH_PROPERTY = "path";
+  private static final String DECODE_AHEAD_PROPERTY = "decodeAhead";
+  private static final String LOOP_PROPERTY = "loop";
+  private static final long GRABBER_STOP_TIMEOUT_MS = 1000;
+  private static final int NO_SEEK = -1;
 
   private final String path;
   private final SocketHint<Mat> imageHint = SocketHints.Outputs.createMatSocketHint("Image");
   private final SocketHint<Number> fpsHint = SocketHints.Outputs.createNumberSocketHint("FPS", 0);
   private final OutputSocket<Mat> imageSocket;
   private final OutputSocket<Number> fpsSocket;
-  private final Mat workingMat = new Mat();
-  private final AtomicBoolean isNewFrame = new AtomicBoolean(false);
+  private final FrameQueue frameQueue;
+  private final FrameDropPolicy frameDropPolicy;
+  private final PlaybackMode playbackMode;
+  private final int decodeAhead;
+  private final boolean loop;
   private FFmpegFrameGrabber frameGrabber;
   private final OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat();
   private final EventBus eventBus;
-  private final ExecutorService manualGrabberService; // only for manual frame control
+  private final ScheduledExecutorService grabberService;
   private ScheduledFuture<?> grabberFuture = null;
+  private Thread decoderThread = null;
+  /**
+   * Notified when the video is paused or resumed, so the decoder thread can wait while it's paused.
+   */
+  private final Object playbackLock = new Object();
+  /**
+   * Set when a video that doesn't loop reaches its end, so that resuming it starts it over.
+   */
+  private volatile boolean atEnd = false;
+  /**
+   * The frame that the grabbing thread should skip to before it grabs the next frame, or
+   * {@link #NO_SEEK}.
+   */
+  private final AtomicInteger pendingSeek = new AtomicInteger(NO_SEEK);
   private final Observable<Integer> currentFrame = Observable.synchronizedOf(0);
   private final Observable<Boolean> paused = Observable.synchronizedOf(false);
   private volatile int frameCount = -1;
@@ -60,28 +98,59 @@ public class VideoFileSource extends Source implements Pausable {
   VideoFileSource(OutputSocket.Factory osf,
                   ExceptionWitness.Factory exceptionWitnessFactory,
                   EventBus eventBus,
+                  MatPool matPool,
                   @Assisted Properties properties) {
-    this(osf, exceptionWitnessFactory, eventBus, properties.getProperty("path"));
+    this(osf, exceptionWitnessFactory, eventBus, matPool, properties.getProperty(PATH_PROPERTY),
+        FrameDropPolicy.fromProperties(properties), PlaybackMode.fromProperties(properties),
+        Integer.parseInt(properties.getProperty(DECODE_AHEAD_PROPERTY,
+            Integer.toString(FrameQueue.CAPACITY))),
+        Boolean.parseBoolean(properties.getProperty(LOOP_PROPERTY, "true")));
   }
 
   @AssistedInject
   VideoFileSource(OutputSocket.Factory osf,
                   ExceptionWitness.Factory exceptionWitnessFactory,
                   EventBus eventBus,
+                  MatPool matPool,
                   @Assisted File file) {
-    this(osf, exceptionWitnessFactory, eventBus, file.getAbsolutePath());
+    this(osf, exceptionWitnessFactory, eventBus, matPool, file.getAbsolutePath(),
+        FrameDropPolicy.LATEST_ONLY, PlaybackMode.REAL_TIME, FrameQueue.CAPACITY, true);
   }
 
+  /**
+   * @param decodeAhead how many decoded frames are kept ready for the pipeline when playing as
+   *                    fast as possible
+   * @param loop        true if the video starts over when it ends, false if it stops
+   */
   private VideoFileSource(OutputSocket.Factory osf,
                           ExceptionWitness.Factory exceptionWitnessFactory,
                           EventBus eventBus,
-                          String path) {
+                          MatPool matPool,
+                          String path,
+                          FrameDropPolicy frameDropPolicy,
+                          PlaybackMode playbackMode,
+                          int decodeAhead,
+                          boolean loop) {
     super(exceptionWitnessFactory);
     this.eventBus = eventBus;
     this.path = path;
+    this.frameDropPolicy = checkNotNull(frameDropPolicy, "frameDropPolicy");
+    this.playbackMode = checkNotNull(playbackMode, "playbackMode");
+    checkArgument(decodeAhead > 0, "decodeAhead must be positive");
+    this.decodeAhead = decodeAhead;
+    this.loop = loop;
+    // Playing as fast as possible never drops a frame, it waits for the pipeline instead
+    this.frameQueue = playbackMode == PlaybackMode.AS_FAST_AS_POSSIBLE
+        ? FrameQueue.create(FrameDropPolicy.PROCESS_ALL, decodeAhead, matPool)
+        : FrameQueue.create(frameDropPolicy, matPool);
     this.imageSocket = osf.create(imageHint);
     this.fpsSocket = osf.create(fpsHint);
-    this.manualGrabberService = Executors.newSingleThreadExecutor(DaemonThread::new);
+    this.grabberService = Executors.newSingleThreadScheduledExecutor(DaemonThread::new);
+    this.paused.addObserver((previous, current) -> {
+      synchronized (playbackLock) {
+        playbackLock.notifyAll();
+      }
+    });
   }
 
   @Override
@@ -99,12 +168,14 @@ public class VideoFileSource extends Source implements Pausable {
 
   @Override
   protected boolean updateOutputSockets() {
-    if (isNewFrame.compareAndSet(true, false)) {
-      // New frame, update outputs
-      synchronized (workingMat) {
-        workingMat.copyTo(imageSocket.getValue().get());
+    final Mat frame = frameQueue.take();
+    if (frame != null) {
+      // New frame, hand the queue's buffer to the socket without copying it
+      imageSocket.setValue(frame);
+      if (frameQueue.hasPending()) {
+        // Make sure the pipeline runs again for the frames that are still queued
+        eventBus.post(new SourceHasPendingUpdateEvent(this));
       }
-      imageSocket.setValue(imageSocket.getValue().get()); // force the socket to update
       return true;
     } else {
       // No new frame, no update
@@ -115,10 +186,38 @@ public class VideoFileSource extends Source implements Pausable {
   @Override
   public Properties getProperties() {
     Properties p = new Properties();
-    p.put("path", path);
+    p.put(PATH_PROPERTY, path);
+    frameDropPolicy.store(p);
+    playbackMode.store(p);
+    if (decodeAhead != FrameQueue.CAPACITY) {
+      p.setProperty(DECODE_AHEAD_PROPERTY, Integer.toString(decodeAhead));
+    }
+    if (!loop) {
+      p.setProperty(LOOP_PROPERTY, Boolean.toString(false));
+    }
     return p;
   }
 
+  @Override
+  public long getDroppedFrameCount() {
+    return frameQueue.getDroppedFrameCount();
+  }
+
+  @Override
+  public long getStaleFrameCount() {
+    return frameQueue.getStaleFrameCount();
+  }
+
+  @Override
+  public long getNativeBytes() {
+    return frameQueue.getBufferedBytes();
+  }
+
+  @Override
+  public void addPooledImages(Set<Object> counted) {
+    frameQueue.addBuffersTo(counted);
+  }
+
   @Override
   public void initialize() throws IOException {
     try {
@@ -130,19 +229,21 @@ public class VideoFileSource extends Source implements Pausable {
       if (frameCount <= 1) {
         // Only one frame, no point in scheduling automatic updates to grab the same
         // image over and over
-        manualGrabberService.submit(this::grabNextFrame);
+        grabberService.submit(this::grabNextFrame);
+      } else if (playbackMode == PlaybackMode.AS_FAST_AS_POSSIBLE) {
+        decoderThread = new DaemonThread(this::decodeAhead, "Video Decoder " + getName());
+        decoderThread.start();
       } else {
-        grabberFuture = Executors.newSingleThreadScheduledExecutor(DaemonThread::new)
-            .scheduleAtFixedRate(
-                () -> {
-                  if (!isPaused()) {
-                    grabNextFrame();
-                  }
-                },
-                0L,
-                (long) (1e3 / fps),
-                TimeUnit.MILLISECONDS
-            );
+        grabberFuture = grabberService.scheduleAtFixedRate(
+            () -> {
+              if (!isPaused()) {
+                grabNextFrame();
+              }
+            },
+            0L,
+            (long) (1e3 / fps),
+            TimeUnit.MILLISECONDS
+        );
       }
     } catch (FrameGrabber.Exception e) {
       throw new IOException("Could not open video file " + path, e);
@@ -150,33 +251,78 @@ public class VideoFileSource extends Source implements Pausable {
   }
 
   /**
-   * Grabs the next frame from the video, or the first frame
-   * if the end of the file has been reached.
+   * Keeps decoding frames into the queue until the source is removed. The queue only has room
+   * for a few frames, so this runs ahead of the pipeline by that many frames and then waits for
+   * it to take one.
    */
-  private void grabNextFrame() {
+  private void decodeAhead() {
     try {
-      Frame frame = frameGrabber.grabFrame();
-      if (frame == null) {
-        // End of the video file, loop back to the first frame
-        frameGrabber.setFrameNumber(0);
-        grabNextFrame();
-        return;
+      while (!Thread.currentThread().isInterrupted()) {
+        synchronized (playbackLock) {
+          // A frame that was asked for is grabbed even while the video is paused
+          while (isPaused() && pendingSeek.get() == NO_SEEK) {
+            playbackLock.wait();
+          }
+        }
+        if (!grabNextFrame()) {
+          // Don't keep trying to read a video that failed
+          pause();
+        }
       }
-      Mat m = converter.convert(frame);
-      if (m == null) {
-        // Try again (I have no idea why this happens)
-        grabNextFrame();
-        return;
+    } catch (InterruptedException e) {
+      // The source is being removed
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Grabs the next frame from the video, after skipping to the frame that was asked for if there
+   * is one. When the end of the file has been reached, this loops back to the first frame, or
+   * pauses the video if it doesn't loop.
+   *
+   * @return true if a frame was grabbed
+   */
+  private boolean grabNextFrame() {
+    try {
+      final int seekTo = pendingSeek.getAndSet(NO_SEEK);
+      if (seekTo != NO_SEEK) {
+        atEnd = false;
+        frameGrabber.setFrameNumber(seekTo);
+        // Frames that were grabbed before the seek shouldn't be shown after it
+        frameQueue.clear();
+      } else if (atEnd) {
+        // The video was resumed after it stopped at its end, so play it again
+        atEnd = false;
+        frameGrabber.setFrameNumber(0);
       }
-      synchronized (workingMat) {
-        m.copyTo(workingMat);
+      Mat m = null;
+      while (m == null) {
+        final Frame frame = frameGrabber.grabFrame();
+        if (frame == null) {
+          if (!loop) {
+            atEnd = true;
+            pause();
+            return false;
+          }
+          // End of the video file, loop back to the first frame
+          frameGrabber.setFrameNumber(0);
+        } else {
+          // Try again if this is null (I have no idea why this happens)
+          m = converter.convert(frame);
+        }
       }
+      frameQueue.offer(m);
       m.release();
       currentFrame.set(frameGrabber.getFrameNumber()); // best guess
-      isNewFrame.set(true);
       eventBus.post(new SourceHasPendingUpdateEvent(this));
+      return true;
     } catch (FrameGrabber.Exception e) {
       getExceptionWitness().flagException(e);
+      return false;
+    } catch (InterruptedException e) {
+      // The source is being removed, so this frame will never be used
+      Thread.currentThread().interrupt();
+      return false;
     }
   }
 
@@ -198,8 +344,9 @@ public class VideoFileSource extends Source implements Pausable {
 
   /**
    * Sets the frame grabber to the given frame number. This will pause frame grabber from reading
-   * successive frames; it can be resumed with {@link #resume()}. This runs asynchronously and
-   * will complete at some point in the future after this method is called.
+   * successive frames; it can be resumed with {@link #resume()}. The seek is handed to the thread
+   * that grabs frames, so it will complete at some point in the future after this method is
+   * called.
    *
    * @param frameNumber the number of the frame to grab
    *
@@ -210,17 +357,21 @@ public class VideoFileSource extends Source implements Pausable {
     if (frameNumber < 0) {
       throw new IllegalArgumentException("Negative frame number " + frameNumber);
     }
-    if (frameNumber > frameGrabber.getLengthInFrames()) {
+    if (frameNumber > frameCount) {
       throw new IllegalArgumentException(
-          "Frame number too high: " + frameNumber + " > " + frameGrabber.getLengthInFrames());
+          "Frame number too high: " + frameNumber + " > " + frameCount);
     }
     pause();
-    try {
-      frameGrabber.setFrameNumber(frameNumber);
-    } catch (FrameGrabber.Exception e) {
-      getExceptionWitness().flagException(e, "Could not set frame number");
+    pendingSeek.set(frameNumber);
+    // Make room in case the grabbing thread is waiting for the pipeline to take a frame
+    frameQueue.clear();
+    if (decoderThread != null) {
+      synchronized (playbackLock) {
+        playbackLock.notifyAll();
+      }
+    } else {
+      grabberService.submit(this::grabNextFrame);
     }
-    manualGrabberService.submit(this::grabNextFrame);
   }
 
   /**
@@ -237,16 +388,33 @@ public class VideoFileSource extends Source implements Pausable {
     return paused;
   }
 
+  @Override
+  public void shutdown() {
+    try {
+      if (grabberFuture != null && !grabberFuture.isCancelled()) {
+        grabberFuture.cancel(true);
+      }
+      // Don't stop the grabber while another thread is still using it
+      grabberService.shutdownNow();
+      if (decoderThread != null) {
+        decoderThread.interrupt();
+        decoderThread.join(GRABBER_STOP_TIMEOUT_MS);
+      }
+      grabberService.awaitTermination(GRABBER_STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      frameQueue.dispose();
+      frameGrabber.stop();
+    } catch (FrameGrabber.Exception e) {
+      getExceptionWitness().flagException(e, "Exception when stopping frame grabber");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   @Subscribe
   public void onSourceRemoved(SourceRemovedEvent sourceRemovedEvent) {
     if (sourceRemovedEvent.getSource() == this) {
       try {
-        if (grabberFuture != null && !grabberFuture.isCancelled()) {
-          grabberFuture.cancel(true);
-        }
-        frameGrabber.stop();
-      } catch (FrameGrabber.Exception e) {
-        getExceptionWitness().flagException(e, "Exception when stopping frame grabber");
+        shutdown();
       } finally {
         eventBus.unregister(this);
       }
@@ -0,0 +1,85 @@
+package edu.wpi.grip.core.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.bytedeco.javacpp.opencv_core.Point;
+import static org.bytedeco.javacpp.opencv_core.Rect;
+import static org.bytedeco.javacpp.opencv_core.Size;
+
+/**
+ * Utilities for images that are a region of interest in a larger frame.
+ *
+ * <p>A region of interest is an OpenCV submatrix: an image that shares the pixels of the frame it
+ * was taken from and knows where in that frame it is, so taking one doesn't copy anything.
+ * Operations that are given a region only process the pixels in it. Operations that keep the
+ * region for their output write into a region at the same place in a frame of their own, and
+ * operations that report coordinates add the offset of the region, so that everything downstream
+ * is still in the coordinates of the whole frame.</p>
+ */
+public final class RegionOfInterest {
+  private RegionOfInterest() { /* no op */ }
+
+  /**
+   * @return where the top left corner of the image is in the frame it was taken from. This is
+   *     (0, 0) for an image that isn't a region of a larger frame.
+   */
+  public static Point offsetOf(Mat image) {
+    checkNotNull(image, "image");
+    final Point offset = new Point();
+    image.locateROI(new Size(), offset);
+    return offset;
+  }
+
+  /**
+   * @return the size of the frame the image was taken from. This is the size of the image itself
+   *     if it isn't a region of a larger frame.
+   */
+  public static Size frameSizeOf(Mat image) {
+    checkNotNull(image, "image");
+    final Size frameSize = new Size();
+    image.locateROI(frameSize, new Point());
+    return frameSize;
+  }
+
+  /**
+   * Makes an output image cover the same region as the input image, in a frame of its own. After
+   * this, an operation that writes an image of the given type and the same size as the input into
+   * the output only writes to the region. The frame is only allocated again when the region or the
+   * type changes.
+   *
+   * <p>Nothing is done when the input isn't a region of a larger frame, except that an output that
+   * was a region for an earlier input is let go of so that the operation writes a whole
+   * image.</p>
+   *
+   * @param input  the image the operation processes
+   * @param output the image the operation writes its result into
+   * @param type   the type of the output image
+   */
+  public static void matchRegion(Mat input, Mat output, int type) {
+    checkNotNull(input, "input");
+    checkNotNull(output, "output");
+    if (!input.isSubmatrix()) {
+      if (output.isSubmatrix()) {
+        output.release();
+      }
+      return;
+    }
+    final Size frameSize = new Size();
+    final Point offset = new Point();
+    input.locateROI(frameSize, offset);
+    if (output.isSubmatrix() && output.type() == type
+        && output.rows() == input.rows() && output.cols() == input.cols()) {
+      final Size outputFrameSize = new Size();
+      final Point outputOffset = new Point();
+      output.locateROI(outputFrameSize, outputOffset);
+      if (outputFrameSize.width() == frameSize.width()
+          && outputFrameSize.height() == frameSize.height()
+          && outputOffset.x() == offset.x() && outputOffset.y() == offset.y()) {
+        return;
+      }
+    }
+    final Mat frame = new Mat(frameSize, type);
+    // The output keeps the pixels of the frame alive for as long as it refers to them
+    output.put(new Mat(frame, new Rect(offset.x(), offset.y(), input.cols(), input.rows())));
+  }
+}
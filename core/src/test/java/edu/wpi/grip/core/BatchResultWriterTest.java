@@ -0,0 +1,71 @@
+package edu.wpi.grip.core;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchResultWriterTest {
+
+  @Test
+  public void testCsvHasRowForEachElement() throws IOException {
+    final StringWriter stringWriter = new StringWriter();
+    try (BatchResultWriter writer = new BatchResultWriter.Csv(stringWriter)) {
+      writer.write(0, "a,b.png", ImmutableMap.of(
+          "contours/area", new double[]{1.5, 2},
+          "count", 7));
+      writer.write(1, "c.png", ImmutableMap.of("contours/area", new double[0]));
+    }
+    assertEquals("frame,input,key,index,value,error\n"
+        + "0,\"a,b.png\",contours/area,0,1.5,\n"
+        + "0,\"a,b.png\",contours/area,1,2.0,\n"
+        + "0,\"a,b.png\",count,0,7,\n", stringWriter.toString());
+  }
+
+  @Test
+  public void testCsvHasRowForEachFailedStep() throws IOException {
+    final StringWriter stringWriter = new StringWriter();
+    try (BatchResultWriter writer = new BatchResultWriter.Csv(stringWriter)) {
+      writer.writeFailure(3, "d.png", ImmutableList.of("Blur failed", "Threshold failed, badly"));
+    }
+    assertEquals("frame,input,key,index,value,error\n"
+        + "3,d.png,,,,Blur failed\n"
+        + "3,d.png,,,,\"Threshold failed, badly\"\n", stringWriter.toString());
+  }
+
+  @Test
+  public void testJsonHasObjectForEachFrame() throws IOException {
+    final StringWriter stringWriter = new StringWriter();
+    try (BatchResultWriter writer = new BatchResultWriter.Json(stringWriter)) {
+      writer.write(0, "a.png", ImmutableMap.of("contours/area", new double[]{1.5}));
+      writer.write(1, "b.png", ImmutableMap.of());
+    }
+    assertEquals("[\n"
+        + "{\"frame\":0,\"input\":\"a.png\",\"values\":{\"contours/area\":[1.5]}},\n"
+        + "{\"frame\":1,\"input\":\"b.png\",\"values\":{}}\n"
+        + "]\n", stringWriter.toString());
+  }
+
+  @Test
+  public void testJsonHasErrorsForFailedFrame() throws IOException {
+    final StringWriter stringWriter = new StringWriter();
+    try (BatchResultWriter writer = new BatchResultWriter.Json(stringWriter)) {
+      writer.writeFailure(0, "a.png", ImmutableList.of("Blur failed"));
+    }
+    assertEquals("[\n"
+        + "{\"frame\":0,\"input\":\"a.png\",\"errors\":[\"Blur failed\"]}\n"
+        + "]\n", stringWriter.toString());
+  }
+
+  @Test
+  public void testEmptyJson() throws IOException {
+    final StringWriter stringWriter = new StringWriter();
+    new BatchResultWriter.Json(stringWriter).close();
+    assertEquals("[]\n", stringWriter.toString());
+  }
+}
@@ -0,0 +1,155 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.operations.network.MockGripNetworkModule;
+import edu.wpi.grip.core.operations.templated.TemplateFactory;
+import edu.wpi.grip.core.sockets.InputSocket;
+import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.util.GripCoreTestModule;
+import edu.wpi.grip.util.PipelineTestHelper;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+
+import org.bytedeco.javacpp.indexer.UByteIndexer;
+import org.bytedeco.javacpp.opencv_core;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.bytedeco.javacpp.opencv_core.CV_8UC1;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.bytedeco.javacpp.opencv_core.Scalar;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BufferPlannerTest {
+
+  private GripCoreTestModule testModule;
+  private PipelineTestHelper helper;
+  private Pipeline pipeline;
+  private OperationMetaData invertMeta;
+  private OperationMetaData addMeta;
+
+  @Before
+  public void setUp() {
+    testModule = new GripCoreTestModule();
+    testModule.setUp();
+    final Injector injector = Guice.createInjector(Modules.override(testModule)
+        .with(new MockGripNetworkModule()));
+    final InputSocket.Factory isf = injector.getInstance(InputSocket.Factory.class);
+    final OutputSocket.Factory osf = injector.getInstance(OutputSocket.Factory.class);
+    final TemplateFactory templateFactory = new TemplateFactory(isf, osf);
+    invertMeta = new OperationMetaData(OperationDescription.builder().name("Invert")
+        .summary("Inverts an image").build(),
+        TemplateFactory.inPlace(templateFactory.createAllMatOneSource(opencv_core::bitwise_not)));
+    addMeta = new OperationMetaData(AddOperation.DESCRIPTION, () -> new AddOperation(isf, osf));
+    helper = injector.getInstance(PipelineTestHelper.class);
+    pipeline = injector.getInstance(Pipeline.class);
+  }
+
+  @After
+  public void tearDown() {
+    testModule.tearDown();
+  }
+
+  private static int pixel(OutputSocket<?> socket) {
+    final Mat mat = (Mat) socket.getValue().get();
+    final UByteIndexer indexer = mat.createIndexer();
+    return indexer.get(0, 0);
+  }
+
+  @Test
+  public void testSingleConsumerRunsInPlace() {
+    final Step first = helper.addStep(invertMeta);
+    final Step second = helper.addStep(invertMeta);
+    helper.connect(first, second);
+    assertSame(first.getOutputSockets().get(0),
+        BufferPlanner.plan(pipeline.getSteps(), pipeline.getConnections()).get(second));
+  }
+
+  @Test
+  public void testSharedOutputIsNotWrittenOver() {
+    final Step first = helper.addStep(invertMeta);
+    final Step second = helper.addStep(invertMeta);
+    final Step third = helper.addStep(invertMeta);
+    helper.connect(first, second);
+    helper.connect(first, third);
+    assertTrue("An output with two consumers should not be written over",
+        BufferPlanner.plan(pipeline.getSteps(), pipeline.getConnections()).isEmpty());
+  }
+
+  @Test
+  public void testOperationThatCannotRunInPlaceIsNotPlanned() {
+    final Step first = helper.addStep(invertMeta);
+    final Step second = helper.addStep(addMeta);
+    helper.connect(first, second);
+    assertTrue(BufferPlanner.plan(pipeline.getSteps(), pipeline.getConnections()).isEmpty());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testOverwrittenStepPerformsAgain() {
+    final Step first = helper.addStep(invertMeta);
+    final Step second = helper.addStep(invertMeta);
+    helper.connect(first, second);
+    ((InputSocket<Mat>) first.getInputSockets().get(0))
+        .setValue(new Mat(1, 1, CV_8UC1, new Scalar(10)));
+
+    first.runPerform(false);
+    second.runPerform(false);
+    assertSame("The second step should write into the first step's image",
+        first.getOutputSockets().get(0).getValue().get(),
+        second.getOutputSockets().get(0).getValue().get());
+    assertEquals(10, pixel(second.getOutputSockets().get(0)));
+
+    first.runPerform(false);
+    assertEquals("The first step should perform again after being written over",
+        245, pixel(first.getOutputSockets().get(0)));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testOutputOfCleanStepIsNotWrittenOver() {
+    final Step first = helper.addStep(invertMeta);
+    final Step second = helper.addStep(invertMeta);
+    helper.connect(first, second);
+    ((InputSocket<Mat>) first.getInputSockets().get(0))
+        .setValue(new Mat(1, 1, CV_8UC1, new Scalar(10)));
+    first.runPerform(false);
+    second.runPerform(false);
+
+    // The first step only performs to restore its output, and then the second step's other
+    // inputs change
+    first.runPerform(false);
+    second.runPerform(true);
+    assertNotSame("The second step should not write over an output that has nothing new",
+        first.getOutputSockets().get(0).getValue().get(),
+        second.getOutputSockets().get(0).getValue().get());
+    assertEquals(245, pixel(first.getOutputSockets().get(0)));
+    assertEquals(10, pixel(second.getOutputSockets().get(0)));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testPreviewedOutputIsNotWrittenOver() {
+    final Step first = helper.addStep(invertMeta);
+    final Step second = helper.addStep(invertMeta);
+    helper.connect(first, second);
+    ((InputSocket<Mat>) first.getInputSockets().get(0))
+        .setValue(new Mat(1, 1, CV_8UC1, new Scalar(10)));
+    first.runPerform(false);
+    second.runPerform(false);
+
+    first.getOutputSockets().get(0).setPreviewed(true);
+    first.runPerform(false);
+    second.runPerform(true);
+    assertNotSame("The second step should go back to an image of its own",
+        first.getOutputSockets().get(0).getValue().get(),
+        second.getOutputSockets().get(0).getValue().get());
+    assertEquals(245, pixel(first.getOutputSockets().get(0)));
+    assertEquals(10, pixel(second.getOutputSockets().get(0)));
+  }
+}
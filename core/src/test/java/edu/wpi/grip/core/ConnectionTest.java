@@ -1,5 +1,6 @@
 package edu.wpi.grip.core;
 
+import edu.wpi.grip.core.events.ConnectionAddedEvent;
 import edu.wpi.grip.core.events.ConnectionRemovedEvent;
 import edu.wpi.grip.core.sockets.InputSocket;
 import edu.wpi.grip.core.sockets.MockInputSocketFactory;
@@ -43,6 +44,7 @@ public class ConnectionTest {
   public void testInputSocketChanges() {
     final Connection<Number> connection = new Connection(eventBus, new MockPipeline(), foo, bar);
     eventBus.register(connection);
+    eventBus.post(new ConnectionAddedEvent(connection));
 
     foo.setValue(testValue);
     assertEquals(testValue, bar.getValue().get());
@@ -50,6 +52,19 @@ public class ConnectionTest {
     eventBus.unregister(connection);
   }
 
+  @Test
+  public void testInputSocketStopsChangingAfterRemoval() {
+    final Connection<Number> connection = new Connection(eventBus, new MockPipeline(), foo, bar);
+    eventBus.register(connection);
+    eventBus.post(new ConnectionAddedEvent(connection));
+    eventBus.post(new ConnectionRemovedEvent(connection));
+
+    foo.setValue(testValue);
+    assertEquals(0.0, bar.getValue().get().doubleValue(), 0.01);
+
+    eventBus.unregister(connection);
+  }
+
   @Test
   public void testInputSocketResets() {
     final Connection<Number> connection = new Connection<>(eventBus, new MockPipeline(), foo, bar);
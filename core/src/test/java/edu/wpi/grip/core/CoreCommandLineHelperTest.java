@@ -1,7 +1,14 @@
 package edu.wpi.grip.core;
 
+import org.apache.commons.cli.CommandLine;
 import org.junit.Test;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class CoreCommandLineHelperTest {
@@ -70,4 +77,41 @@ public class CoreCommandLineHelperTest {
     assertTrue("The application didn't exit", exited[0]);
   }
 
+  @Test
+  public void testAdditionalFiles() {
+    final MockHelper m = new MockHelper();
+    final CommandLine args = m.parse("-f", "first.grip", "-f", "second.grip", "--file",
+        "third.grip");
+    assertEquals("Every file after the first should be an additional file",
+        Arrays.asList(new File("second.grip"), new File("third.grip")),
+        m.getAdditionalFiles(args));
+  }
+
+  @Test
+  public void testNoAdditionalFiles() {
+    final MockHelper m = new MockHelper();
+    assertEquals(Collections.emptyList(), m.getAdditionalFiles(m.parse("-f", "first.grip")));
+    assertEquals(Collections.emptyList(), m.getAdditionalFiles(m.parse()));
+  }
+
+  @Test
+  public void testBatchOptions() {
+    final MockHelper m = new MockHelper();
+    final CommandLine args = m.parse("-f", "project.grip", "--batch", "frames", "-o",
+        "results.json", "--batch-replicas", "3");
+    assertTrue(m.isBatchMode(args));
+    assertEquals(new File("frames"), m.getBatchInput(args));
+    assertEquals(new File("results.json"), m.getBatchOutput(args));
+    assertEquals(3, m.getBatchReplicas(args));
+  }
+
+  @Test
+  public void testBatchOptionDefaults() {
+    final MockHelper m = new MockHelper();
+    final CommandLine args = m.parse("-f", "project.grip", "-b", "match.avi", "--batch-replicas",
+        "zero");
+    assertEquals(new File("match.avi.csv"), m.getBatchOutput(args));
+    assertEquals(Runtime.getRuntime().availableProcessors(), m.getBatchReplicas(args));
+    assertFalse(m.isBatchMode(m.parse("-f", "project.grip")));
+  }
 }
@@ -0,0 +1,108 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.operations.network.MockGripNetworkModule;
+import edu.wpi.grip.core.sockets.InputSocket;
+import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.util.GripCoreTestModule;
+import edu.wpi.grip.util.PipelineTestHelper;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+
+import net.jodah.concurrentunit.Waiter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FramePipelinerTest {
+
+  private static final Consumer<Step> IGNORE_SKIPPED = step -> {
+    // The pipeliner is always running in these tests, so no step is skipped
+  };
+
+  private GripCoreTestModule testModule;
+  private Pipeline pipeline;
+  private InputSocket<Double> a1;
+  private InputSocket<Double> b1;
+  private InputSocket<Double> b2;
+  private OutputSocket<Double> sum2;
+  private FramePipeliner pipeliner;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    testModule = new GripCoreTestModule();
+    testModule.setUp();
+    final Injector injector = Guice.createInjector(Modules.override(testModule)
+        .with(new MockGripNetworkModule()));
+    final PipelineTestHelper helper = injector.getInstance(PipelineTestHelper.class);
+    pipeline = injector.getInstance(Pipeline.class);
+
+    final Step step1 = helper.addAdditionStep();
+    final Step step2 = helper.addAdditionStep();
+    a1 = step1.getInputSockets().get(0);
+    b1 = step1.getInputSockets().get(1);
+    b2 = step2.getInputSockets().get(1);
+    sum2 = step2.getOutputSockets().get(0);
+
+    // sum2 = a1 + b1 + b2
+    helper.connect(step1, step2);
+
+    pipeliner = new FramePipeliner(2, 2, new MatPool());
+  }
+
+  @After
+  public void tearDown() {
+    pipeliner.shutdown();
+    testModule.tearDown();
+  }
+
+  @Test
+  public void testResultsAreCommittedWhenFrameFinishes() throws TimeoutException {
+    final Waiter waiter = new Waiter();
+    a1.setValue(1.0);
+    b1.setValue(2.0);
+    b2.setValue(3.0);
+
+    pipeliner.submit(pipeline.getExecutionPlan(), () -> true, IGNORE_SKIPPED, waiter::resume);
+    waiter.await(5, TimeUnit.SECONDS);
+
+    assertEquals((Double) 6.0, sum2.getValue().get());
+  }
+
+  @Test
+  public void testFramesFinishInOrder() throws TimeoutException {
+    final Waiter waiter = new Waiter();
+    final int frames = 10;
+    final List<Double> results = Collections.synchronizedList(new ArrayList<>());
+    a1.setValue(0.0);
+    b2.setValue(0.0);
+
+    for (int i = 0; i < frames; i++) {
+      b1.setValue((double) i);
+      pipeliner.submit(pipeline.getExecutionPlan(), () -> true, IGNORE_SKIPPED, () -> {
+        results.add(sum2.getValue().get());
+        waiter.resume();
+      });
+    }
+    waiter.await(5, TimeUnit.SECONDS, frames);
+
+    assertEquals("Every frame should have finished", frames, results.size());
+    for (int i = 1; i < results.size(); i++) {
+      // Inputs only ever increase, so a result that goes backwards was published out of order
+      assertTrue("Frames should finish in the order they were submitted",
+          results.get(i) >= results.get(i - 1));
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.events.ConnectionAddedEvent;
+import edu.wpi.grip.core.events.RenderEvent;
+import edu.wpi.grip.core.events.RunStartedEvent;
+import edu.wpi.grip.core.events.RunStoppedEvent;
+import edu.wpi.grip.core.events.SourceAddedEvent;
+import edu.wpi.grip.core.metrics.Timer;
+import edu.wpi.grip.core.operations.network.MockGripNetworkModule;
+import edu.wpi.grip.core.sockets.InputSocket;
+import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.core.sockets.SocketHint;
+import edu.wpi.grip.core.sockets.SocketHints;
+import edu.wpi.grip.core.util.ExceptionWitness;
+import edu.wpi.grip.util.GripCoreTestModule;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.eventbus.EventBus;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that running a pipeline whose steps have already run once doesn't allocate anything on
+ * the heap, since garbage collection pauses show up as jitter on the small heaps of coprocessors.
+ * The pipeline is run by a real {@link PipelineRunner}, so timing the steps and posting their
+ * observational events is part of what is checked.
+ *
+ * <p>The run started, run stopped and render events are delivered synchronously by Guava, which
+ * allocates on every post. What they cost is measured by posting them directly and left out.</p>
+ */
+public class HotPathAllocationTest {
+  private static final int WARM_UP_RUNS = 20_000;
+  private static final int MEASURED_RUNS = 10_000;
+  private static final Double VALUE = 42.0;
+
+  private final GripCoreTestModule testModule = new GripCoreTestModule();
+  private final RunStartedEvent runStarted = new RunStartedEvent();
+  private final RunStoppedEvent runStopped = new RunStoppedEvent();
+  private final RenderEvent render = new RenderEvent();
+  private com.sun.management.ThreadMXBean threads;
+  private EventBus eventBus;
+  private Pipeline pipeline;
+  private PipelineRunner runner;
+
+  @Before
+  public void setUp() {
+    assumeTrue("Allocations can only be counted on HotSpot",
+        ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+    threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+
+    testModule.setUp();
+    final Injector injector = Guice.createInjector(Modules.override(testModule)
+        .with(new MockGripNetworkModule()));
+    final InputSocket.Factory isf = injector.getInstance(InputSocket.Factory.class);
+    final OutputSocket.Factory osf = injector.getInstance(OutputSocket.Factory.class);
+    eventBus = injector.getInstance(EventBus.class);
+    pipeline = injector.getInstance(Pipeline.class);
+    runner = new PipelineRunner(eventBus, () -> pipeline,
+        injector.getInstance(Timer.Factory.class), injector.getInstance(MatPool.class));
+
+    final Source source =
+        new FrameSource(injector.getInstance(ExceptionWitness.Factory.class), osf);
+    eventBus.post(new SourceAddedEvent(source));
+    final Step.Factory stepFactory = injector.getInstance(Step.Factory.class);
+    final OperationMetaData passThrough = new OperationMetaData(PassThroughOperation.DESCRIPTION,
+        () -> new PassThroughOperation(isf, osf));
+    final Step first = stepFactory.create(passThrough);
+    final Step second = stepFactory.create(passThrough);
+    pipeline.addStep(first);
+    pipeline.addStep(second);
+    connect(source.getOutputSockets().get(0), first.getInputSockets().get(0));
+    connect(first.getOutputSockets().get(0), second.getInputSockets().get(0));
+  }
+
+  @After
+  public void tearDown() {
+    testModule.tearDown();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void connect(OutputSocket output, InputSocket input) {
+    final Connection connection = new Connection(eventBus, pipeline, output, input);
+    eventBus.register(connection);
+    eventBus.post(new ConnectionAddedEvent(connection));
+  }
+
+  private void postRunEvents() {
+    eventBus.post(runStarted);
+    eventBus.post(runStopped);
+    eventBus.post(render);
+  }
+
+  @Test
+  public void testSteadyStateRunsDoNotAllocate() {
+    for (int i = 0; i < WARM_UP_RUNS; i++) {
+      runner.runOnce();
+      postRunEvents();
+    }
+    // Reading the counter can allocate by itself
+    final long overheadStart = allocatedBytes();
+    final long overhead = allocatedBytes() - overheadStart;
+
+    final long eventsStart = allocatedBytes();
+    for (int i = 0; i < MEASURED_RUNS; i++) {
+      postRunEvents();
+    }
+    final long runEvents = allocatedBytes() - eventsStart - overhead;
+
+    final long start = allocatedBytes();
+    for (int i = 0; i < MEASURED_RUNS; i++) {
+      runner.runOnce();
+    }
+    final long allocated = allocatedBytes() - start - overhead - runEvents;
+    // Anything that allocates on every run would allocate at least this much
+    assertTrue("Running the pipeline allocated " + allocated + " bytes over " + MEASURED_RUNS
+        + " runs", allocated < MEASURED_RUNS);
+  }
+
+  private long allocatedBytes() {
+    return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Copies its input to its output without creating any objects.
+   */
+  private static final class PassThroughOperation implements Operation {
+    private static final OperationDescription DESCRIPTION =
+        OperationDescription.builder()
+            .name("Pass Through")
+            .summary("Copies its input to its output")
+            .build();
+    private final SocketHint<Number> inputHint = SocketHints.createNumberSocketHint("in", 0.0);
+    private final SocketHint<Number> outputHint =
+        SocketHints.Outputs.createNumberSocketHint("out", 0.0);
+
+    private final InputSocket<Number> input;
+    private final OutputSocket<Number> output;
+
+    PassThroughOperation(InputSocket.Factory isf, OutputSocket.Factory osf) {
+      input = isf.create(inputHint);
+      output = osf.create(outputHint);
+    }
+
+    @Override
+    public List<InputSocket> getInputSockets() {
+      return ImmutableList.of(input);
+    }
+
+    @Override
+    public List<OutputSocket> getOutputSockets() {
+      return ImmutableList.of(output);
+    }
+
+    @Override
+    public void perform() {
+      output.setValue(input.getValue().get());
+    }
+  }
+
+  /**
+   * Writes the same frame into its output every run, like a camera that reuses its image.
+   */
+  private static final class FrameSource extends Source {
+    private final OutputSocket<Number> output;
+
+    FrameSource(ExceptionWitness.Factory exceptionWitnessFactory, OutputSocket.Factory osf) {
+      super(exceptionWitnessFactory);
+      output = osf.create(SocketHints.Outputs.createNumberSocketHint("Frame", 0.0));
+    }
+
+    @Override
+    public String getName() {
+      return "Frame";
+    }
+
+    @Override
+    protected List<OutputSocket> createOutputSockets() {
+      return ImmutableList.of(output);
+    }
+
+    @Override
+    protected boolean updateOutputSockets() {
+      output.setValue(VALUE);
+      return true;
+    }
+
+    @Override
+    public Properties getProperties() {
+      return new Properties();
+    }
+
+    @Override
+    public void initialize() {
+      // Nothing to start
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.operations.network.MockGripNetworkModule;
+import edu.wpi.grip.util.GripCoreTestModule;
+import edu.wpi.grip.util.PipelineTestHelper;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LiveStepFilterTest {
+
+  private GripCoreTestModule testModule;
+  private PipelineTestHelper helper;
+  private Pipeline pipeline;
+  private Step step1;
+  private Step step2;
+  private Step step3;
+
+  @Before
+  public void setUp() {
+    testModule = new GripCoreTestModule();
+    testModule.setUp();
+    final Injector injector = Guice.createInjector(Modules.override(testModule)
+        .with(new MockGripNetworkModule()));
+    helper = injector.getInstance(PipelineTestHelper.class);
+    pipeline = injector.getInstance(Pipeline.class);
+    step1 = helper.addAdditionStep();
+    step2 = helper.addAdditionStep();
+    step3 = helper.addAdditionStep();
+  }
+
+  @After
+  public void tearDown() {
+    testModule.tearDown();
+  }
+
+  @Test
+  public void testNothingIsLiveWithoutSinksOrPreviews() {
+    helper.connect(step1, step2);
+    assertEquals(ImmutableList.of(), LiveStepFilter.computeLiveSteps(pipeline.getSteps()));
+  }
+
+  @Test
+  public void testPreviewedStepAndItsInputsAreLive() {
+    helper.connect(step1, step2);
+    step2.getOutputSockets().get(0).setPreviewed(true);
+    assertEquals("Only the previewed step and the step feeding it should be live",
+        ImmutableList.of(step1, step2), LiveStepFilter.computeLiveSteps(pipeline.getSteps()));
+  }
+
+  @Test
+  public void testSinkAndItsInputsAreLive() {
+    final Step sink = helper.addStep(new OperationMetaData(MockOperation.DESCRIPTION,
+        () -> new MockOperation() {
+          @Override
+          public boolean isSink() {
+            return true;
+          }
+        }));
+    helper.connect(step2, step3);
+    assertEquals(ImmutableList.of(sink), LiveStepFilter.computeLiveSteps(pipeline.getSteps()));
+  }
+
+  @Test
+  public void testFilterIsRecomputedAfterInvalidation() {
+    final LiveStepFilter filter = new LiveStepFilter();
+    assertEquals(0, filter.filter(pipeline.getExecutionPlan()).getStepCount());
+
+    step3.getOutputSockets().get(0).setPreviewed(true);
+    assertEquals("Filter should be cached until invalidated",
+        0, filter.filter(pipeline.getExecutionPlan()).getStepCount());
+
+    filter.invalidate();
+    final ExecutionPlan plan = filter.filter(pipeline.getExecutionPlan());
+    assertEquals(1, plan.getStepCount());
+    assertEquals(step3, plan.getStep(0));
+  }
+
+  @Test
+  public void testFilterIsRecomputedWhenPipelineChanges() {
+    final LiveStepFilter filter = new LiveStepFilter();
+    step3.getOutputSockets().get(0).setPreviewed(true);
+    filter.filter(pipeline.getExecutionPlan());
+
+    helper.connect(step2, step3);
+    assertEquals("Connecting a step to a live step should make it live",
+        2, filter.filter(pipeline.getExecutionPlan()).getStepCount());
+  }
+}
@@ -0,0 +1,103 @@
+package edu.wpi.grip.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.bytedeco.javacpp.opencv_core.CV_8UC1;
+import static org.bytedeco.javacpp.opencv_core.CV_8UC3;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class MatPoolTest {
+  private static final long IMAGE_BYTES = 10 * 10;
+
+  private MatPool pool;
+
+  @Before
+  public void setUp() {
+    pool = new MatPool();
+  }
+
+  @After
+  public void tearDown() {
+    pool.clear();
+  }
+
+  @Test
+  public void testReleasedImageIsReused() {
+    final Mat first = pool.acquire(10, 10, CV_8UC1);
+    pool.release(first);
+    final Mat second = pool.acquire(10, 10, CV_8UC1);
+    assertSame(first, second);
+    assertEquals(1, pool.getHitCount());
+    assertEquals(1, pool.getMissCount());
+    pool.release(second);
+  }
+
+  @Test
+  public void testImageIsOnlyReusedForTheSameSizeAndType() {
+    final Mat first = pool.acquire(10, 10, CV_8UC1);
+    pool.release(first);
+    final Mat other = pool.acquire(10, 10, CV_8UC3);
+    assertNotSame(first, other);
+    assertEquals(0, pool.getHitCount());
+    pool.release(other);
+  }
+
+  @Test
+  public void testRetainedImageNeedsEveryReferenceReleased() {
+    final Mat mat = pool.acquire(10, 10, CV_8UC1);
+    pool.retain(mat);
+    pool.release(mat);
+    assertEquals("The image is still in use", IMAGE_BYTES, pool.getLeasedBytes());
+    assertEquals(0, pool.getIdleBytes());
+    pool.release(mat);
+    assertEquals(0, pool.getLeasedBytes());
+    assertEquals(IMAGE_BYTES, pool.getIdleBytes());
+  }
+
+  @Test
+  public void testImageIsFreedWhenOverLimit() {
+    pool.setLimit(IMAGE_BYTES);
+    final Mat first = pool.acquire(10, 10, CV_8UC1);
+    final Mat second = pool.acquire(10, 10, CV_8UC1);
+    pool.release(first);
+    assertEquals(1, pool.getEvictionCount());
+    assertEquals(0, pool.getIdleBytes());
+    pool.release(second);
+    assertEquals("Only one image fits under the limit", IMAGE_BYTES, pool.getIdleBytes());
+  }
+
+  @Test
+  public void testLoweringLimitFreesIdleImages() {
+    pool.release(pool.acquire(10, 10, CV_8UC1));
+    assertEquals(IMAGE_BYTES, pool.getIdleBytes());
+    pool.setLimit(1);
+    assertEquals(0, pool.getIdleBytes());
+    assertEquals(1, pool.getEvictionCount());
+  }
+
+  @Test
+  public void testReshapedImageIsNotPooled() {
+    final Mat mat = pool.acquire(10, 10, CV_8UC1);
+    mat.create(20, 20, CV_8UC1);
+    pool.release(mat);
+    assertEquals(0, pool.getIdleBytes());
+    assertEquals(0, pool.getLeasedBytes());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReleasingUnknownImageThrows() {
+    pool.release(new Mat(10, 10, CV_8UC1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReleasingTwiceThrows() {
+    final Mat mat = pool.acquire(10, 10, CV_8UC1);
+    pool.release(mat);
+    pool.release(mat);
+  }
+}
@@ -15,7 +15,9 @@ public class MockStep extends Step {
         Collections.emptyList(),
         Collections.emptyList(),
         origin -> null,
-        source -> null);
+        source -> null,
+        new StepResultCache(),
+        new StepWatchdog());
   }
 
   public static Step createMockStepWithOperation() {
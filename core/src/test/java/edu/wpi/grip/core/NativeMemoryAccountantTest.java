@@ -0,0 +1,125 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.events.StepRemovedEvent;
+import edu.wpi.grip.core.events.WarningEvent;
+import edu.wpi.grip.core.metrics.MockTimer;
+import edu.wpi.grip.core.operations.network.MockGripNetworkModule;
+import edu.wpi.grip.core.sockets.InputSocket;
+import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.core.util.MockExceptionWitness;
+import edu.wpi.grip.util.GripCoreTestModule;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.bytedeco.javacpp.opencv_core.CV_8UC1;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.bytedeco.javacpp.opencv_core.MatVector;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class NativeMemoryAccountantTest {
+  private final GripCoreTestModule testModule = new GripCoreTestModule();
+  private final List<WarningEvent> warnings = new ArrayList<>();
+  private NativeMemoryAccountant accountant;
+  private Step step;
+  private OutputSocket<Mat> sum;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    testModule.setUp();
+    final Injector injector = Guice.createInjector(Modules.override(testModule)
+        .with(new MockGripNetworkModule()));
+    final InputSocket.Factory isf = injector.getInstance(InputSocket.Factory.class);
+    final OutputSocket.Factory osf = injector.getInstance(OutputSocket.Factory.class);
+    final EventBus eventBus = injector.getInstance(EventBus.class);
+    eventBus.register(new Object() {
+      @Subscribe
+      public void onWarning(WarningEvent event) {
+        warnings.add(event);
+      }
+    });
+    accountant = injector.getInstance(NativeMemoryAccountant.class);
+    step = new Step.Factory((origin) -> new MockExceptionWitness(eventBus, origin),
+        MockTimer.MOCK_FACTORY)
+        .create(new OperationMetaData(AddOperation.DESCRIPTION,
+            () -> new AddOperation(isf, osf)));
+    sum = (OutputSocket<Mat>) step.getOutputSockets().get(0);
+  }
+
+  @After
+  public void tearDown() {
+    testModule.tearDown();
+  }
+
+  private void sample(int rows, int cols) {
+    sum.setValue(new Mat(rows, cols, CV_8UC1));
+    accountant.sample(ImmutableList.of(step), ImmutableList.of());
+  }
+
+  @Test
+  public void testSocketImagesAreCounted() {
+    sample(10, 10);
+    final NativeMemoryAccountant.Usage usage = accountant.getUsage(step).get();
+    assertEquals(100, usage.getBytes());
+    assertEquals("sum", usage.getParts().get(0).getName());
+    assertEquals(100, usage.getParts().get(0).getBytes());
+    assertEquals(100, accountant.getTotal().getBytes());
+  }
+
+  @Test
+  public void testPeakIsKept() {
+    sample(20, 20);
+    sample(10, 10);
+    final NativeMemoryAccountant.Usage usage = accountant.getUsage(step).get();
+    assertEquals(100, usage.getBytes());
+    assertEquals(400, usage.getPeakBytes());
+    assertEquals(400, accountant.getTotal().getPeakBytes());
+  }
+
+  @Test
+  public void testWarningIsPostedOnceWhenOverBudget() {
+    accountant.setBudget(200);
+    sample(10, 10);
+    assertEquals(0, warnings.size());
+    sample(20, 20);
+    sample(20, 20);
+    assertEquals("Staying over the budget should only warn once", 1, warnings.size());
+    sample(10, 10);
+    sample(20, 20);
+    assertEquals("Going over the budget again should warn again", 2, warnings.size());
+  }
+
+  @Test
+  public void testRemovedStepIsForgotten() {
+    sample(10, 10);
+    accountant.onStepRemoved(new StepRemovedEvent(step));
+    assertFalse(accountant.getUsage(step).isPresent());
+  }
+
+  @Test
+  public void testRecentSampleIsNotTakenAgain() {
+    sample(10, 10);
+    // The pipeline itself is empty, so sampling it again would find nothing
+    accountant.sampleIfStale();
+    assertEquals(100, accountant.getTotal().getBytes());
+  }
+
+  @Test
+  public void testImagesInVectorsAreCounted() {
+    final MatVector vector = new MatVector(new Mat(2, 3, CV_8UC1), new Mat(4, 5, CV_8UC1));
+    assertEquals(26, NativeMemoryAccountant.sizeOf(vector));
+  }
+}
@@ -1,10 +1,12 @@
 package edu.wpi.grip.core;
 
 import edu.wpi.grip.core.events.ExceptionEvent;
+import edu.wpi.grip.core.events.ProjectSettingsChangedEvent;
 import edu.wpi.grip.core.events.RenderEvent;
 import edu.wpi.grip.core.events.RunPipelineEvent;
 import edu.wpi.grip.core.events.StopPipelineEvent;
 import edu.wpi.grip.core.metrics.MockTimer;
+import edu.wpi.grip.core.settings.ProjectSettings;
 import edu.wpi.grip.core.sockets.InputSocket;
 import edu.wpi.grip.core.sockets.MockInputSocket;
 import edu.wpi.grip.core.sockets.OutputSocket;
@@ -15,6 +17,7 @@ import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -353,6 +356,33 @@ public class PipelineRunnerTest {
       assertEquals("Source Update should not have run", 0, sourceCounter.updateCount);
     }
 
+    @Test
+    public void testRunOverLatencyBudgetInvalidatesSkippedSinks() {
+      final SimpleOperation slowOperation =
+          () -> Uninterruptibles.sleepUninterruptibly(20, TimeUnit.MILLISECONDS);
+      final SinkCounterOperation sinkCounter = new SinkCounterOperation();
+      final Step.Factory stepFactory =
+          new Step.Factory(MockExceptionWitness.MOCK_FACTORY, MockTimer.MOCK_FACTORY);
+      final Step slowStep = stepFactory.create(
+          new OperationMetaData(SimpleOperation.DESCRIPTION, () -> slowOperation));
+      final Step sinkStep = stepFactory.create(
+          new OperationMetaData(RunCounterOperation.DESCRIPTION, () -> sinkCounter));
+      final PipelineRunner runner = new PipelineRunner(eventBus,
+          () -> ImmutableList.of(),
+          () -> ImmutableList.of(slowStep, sinkStep),
+          MockTimer.MOCK_FACTORY);
+      final ProjectSettings settings = new ProjectSettings();
+      settings.setLatencyBudget(1);
+      runner.onProjectSettingsChanged(new ProjectSettingsChangedEvent(settings));
+
+      runner.runPipeline();
+
+      assertEquals("The sink should have been skipped", 0, sinkCounter.performCount);
+      assertEquals("The sink's results should have been invalidated",
+          1, sinkCounter.invalidateCount);
+      assertEquals(1, runner.getDeadlineMissCount());
+    }
+
   }
 
   static class RenderWaiterResumer {
@@ -395,6 +425,20 @@ public class PipelineRunnerTest {
     }
   }
 
+  static class SinkCounterOperation extends RunCounterOperation {
+    private int invalidateCount = 0;
+
+    @Override
+    public boolean isSink() {
+      return true;
+    }
+
+    @Override
+    public void invalidate() {
+      invalidateCount++;
+    }
+  }
+
   static class FailureListener extends Service.Listener {
     private Service.State failedFrom = null;
     private Throwable failure = null;
@@ -2,9 +2,11 @@ package edu.wpi.grip.core;
 
 import edu.wpi.grip.core.events.ConnectionAddedEvent;
 import edu.wpi.grip.core.events.ConnectionRemovedEvent;
+import edu.wpi.grip.core.events.ProjectSettingsChangedEvent;
 import edu.wpi.grip.core.events.SourceAddedEvent;
 import edu.wpi.grip.core.events.SourceRemovedEvent;
 import edu.wpi.grip.core.operations.network.MockGripNetworkModule;
+import edu.wpi.grip.core.settings.ProjectSettings;
 import edu.wpi.grip.core.sockets.InputSocket;
 import edu.wpi.grip.core.sockets.MockInputSocket;
 import edu.wpi.grip.core.sockets.MockOutputSocket;
@@ -27,6 +29,7 @@ import java.net.URISyntaxException;
 import java.util.Arrays;
 import java.util.Collections;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -182,6 +185,46 @@ public class PipelineTest {
         step2), pipeline.getSteps());
   }
 
+  @Test
+  public void testExecutionPlanIsPublishedOnEdit() {
+    Source source = new MockSource();
+    Step step1 = new MockStep();
+    Step step2 = new MockStep();
+
+    final ExecutionPlan emptyPlan = pipeline.getExecutionPlan();
+    eventBus.post(new SourceAddedEvent(source));
+    pipeline.addStep(step1);
+    pipeline.addStep(step2);
+    pipeline.moveStep(step1, +1);
+
+    final ExecutionPlan plan = pipeline.getExecutionPlan();
+    assertTrue("The plan version should increase when the pipeline is edited",
+        plan.getVersion() > emptyPlan.getVersion());
+    assertEquals(1, plan.getSourceCount());
+    assertEquals(source, plan.getSource(0));
+    assertEquals(2, plan.getStepCount());
+    assertEquals("The plan should have the steps in pipeline order", step2, plan.getStep(0));
+    assertEquals("The plan should have the steps in pipeline order", step1, plan.getStep(1));
+    assertTrue("The plan should not change until the pipeline is edited",
+        plan == pipeline.getExecutionPlan());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testExecutionPlanHasConnections() {
+    Step step1 = stepFactory.create(additionMeta);
+    Step step2 = stepFactory.create(additionMeta);
+    pipeline.addStep(step1);
+    pipeline.addStep(step2);
+
+    Connection connection = new Connection(eventBus, pipeline, step1.getOutputSockets().get(0),
+        step2.getInputSockets().get(0));
+    eventBus.post(new ConnectionAddedEvent(connection));
+
+    assertArrayEquals("The second step should depend on the first", new int[]{0},
+        pipeline.getExecutionPlan().getGraph().getPredecessors(1));
+  }
+
   @Test
   @SuppressWarnings("unchecked")
   public void testAddConnection() {
@@ -240,6 +283,52 @@ public class PipelineTest {
     assertEquals((Double) 1368.0, sum2.getValue().get());
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testPipelineInParallelMode() {
+    Step step1 = stepFactory.create(additionMeta);
+    Step step2 = stepFactory.create(additionMeta);
+    Step step3 = stepFactory.create(additionMeta);
+
+    final InputSocket<Double> a1 = step1.getInputSockets().get(0);
+    final InputSocket<Double> b1 = step1.getInputSockets().get(1);
+    final OutputSocket<Double> sum1 = step1.getOutputSockets().get(0);
+    final InputSocket<Double> a2 = step2.getInputSockets().get(0);
+    final InputSocket<Double> b2 = step2.getInputSockets().get(1);
+    final OutputSocket<Double> sum2 = step2.getOutputSockets().get(0);
+    final InputSocket<Double> a3 = step3.getInputSockets().get(0);
+    final InputSocket<Double> b3 = step3.getInputSockets().get(1);
+    final OutputSocket<Double> sum3 = step3.getOutputSockets().get(0);
+
+    // step1 and step2 are independent, step3 = step1 + step2
+    pipeline.addStep(step1);
+    pipeline.addStep(step2);
+    pipeline.addStep(step3);
+
+    Connection connection1 = new Connection(eventBus, pipeline, sum1, a3);
+    Connection connection2 = new Connection(eventBus, pipeline, sum2, b3);
+    eventBus.register(connection1);
+    eventBus.register(connection2);
+    eventBus.post(new ConnectionAddedEvent(connection1));
+    eventBus.post(new ConnectionAddedEvent(connection2));
+
+    ManualPipelineRunner runner = new ManualPipelineRunner(eventBus, pipeline);
+    final ProjectSettings settings = new ProjectSettings();
+    settings.setExecutionMode(ExecutionMode.PARALLEL);
+    settings.setExecutionThreads(2);
+    eventBus.post(new ProjectSettingsChangedEvent(settings));
+    assertEquals(ExecutionMode.PARALLEL, runner.getExecutionMode());
+
+    a1.setValue(1.0);
+    b1.setValue(2.0);
+    a2.setValue(3.0);
+    b2.setValue(4.0);
+
+    runner.runPipeline();
+
+    assertEquals((Double) 10.0, sum3.getValue().get());
+  }
+
   @Test
   @SuppressWarnings("unchecked")
   public void testPipelineRemoved() {
@@ -0,0 +1,42 @@
+package edu.wpi.grip.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RunDeadlineTest {
+
+  @Test
+  public void testNoBudgetNeverMisses() {
+    final RunDeadline deadline = new RunDeadline(() -> true, System.nanoTime() - 1_000_000_000L, 0);
+    assertTrue("A run without a budget should never be cut short", deadline.get());
+    assertFalse(deadline.isMissed());
+  }
+
+  @Test
+  public void testWithinBudget() {
+    final RunDeadline deadline =
+        new RunDeadline(() -> true, System.nanoTime(), TimeUnit.MINUTES.toNanos(1));
+    assertTrue(deadline.get());
+    assertFalse(deadline.isMissed());
+  }
+
+  @Test
+  public void testOverBudgetIsMissed() {
+    final RunDeadline deadline = new RunDeadline(() -> true,
+        System.nanoTime() - TimeUnit.SECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(10));
+    assertFalse("No more steps should start once the budget is used up", deadline.get());
+    assertTrue(deadline.isMissed());
+  }
+
+  @Test
+  public void testStoppingIsNotAMiss() {
+    final RunDeadline deadline = new RunDeadline(() -> false,
+        System.nanoTime() - TimeUnit.SECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(10));
+    assertFalse(deadline.get());
+    assertFalse("A stopped pipeline should not count as a missed deadline", deadline.isMissed());
+  }
+}
@@ -0,0 +1,61 @@
+package edu.wpi.grip.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RunSchedulerTest {
+
+  @Test(timeout = 5000)
+  public void testRequestsWhileRunPendingAreCoalesced() throws InterruptedException {
+    final RunScheduler scheduler = new RunScheduler();
+    scheduler.requestRun();
+    scheduler.requestRun();
+    scheduler.requestRun();
+
+    scheduler.awaitNextRun();
+    assertEquals("Two of the requests should have been merged into the first",
+        2, scheduler.getCoalescedRequestCount());
+  }
+
+  @Test(timeout = 5000)
+  public void testWaitsForRequest() throws InterruptedException {
+    final RunScheduler scheduler = new RunScheduler();
+    final Thread requester = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      scheduler.requestRun();
+    });
+    final long start = System.nanoTime();
+    requester.start();
+    scheduler.awaitNextRun();
+    assertTrue("Should not run before a run is requested",
+        System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+    requester.join();
+  }
+
+  @Test(timeout = 5000)
+  public void testTargetFrameRateSpacesOutRuns() throws InterruptedException {
+    final RunScheduler scheduler = new RunScheduler();
+    scheduler.setTargetFrameRate(10);
+
+    scheduler.requestRun();
+    scheduler.awaitNextRun();
+    final long start = System.nanoTime();
+    scheduler.requestRun();
+    scheduler.awaitNextRun();
+    assertTrue("Runs should be at least a tenth of a second apart",
+        System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeFrameRateIsRejected() {
+    new RunScheduler().setTargetFrameRate(-1);
+  }
+}
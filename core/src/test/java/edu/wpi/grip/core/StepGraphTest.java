@@ -0,0 +1,74 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.operations.network.MockGripNetworkModule;
+import edu.wpi.grip.util.GripCoreTestModule;
+import edu.wpi.grip.util.PipelineTestHelper;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class StepGraphTest {
+
+  private GripCoreTestModule testModule;
+  private PipelineTestHelper helper;
+  private Pipeline pipeline;
+  private Step step1;
+  private Step step2;
+  private Step step3;
+
+  @Before
+  public void setUp() {
+    testModule = new GripCoreTestModule();
+    testModule.setUp();
+    final Injector injector = Guice.createInjector(Modules.override(testModule)
+        .with(new MockGripNetworkModule()));
+    helper = injector.getInstance(PipelineTestHelper.class);
+    pipeline = injector.getInstance(Pipeline.class);
+    step1 = helper.addAdditionStep();
+    step2 = helper.addAdditionStep();
+    step3 = helper.addAdditionStep();
+  }
+
+  @After
+  public void tearDown() {
+    testModule.tearDown();
+  }
+
+  @Test
+  public void testUnconnectedStepsHaveNoPredecessors() {
+    final StepGraph graph = StepGraph.of(pipeline.getSteps());
+    assertEquals("Graph should contain every step", 3, graph.size());
+    for (int i = 0; i < graph.size(); i++) {
+      assertArrayEquals("Step should not have predecessors", new int[0],
+          graph.getPredecessors(i));
+    }
+  }
+
+  @Test
+  public void testConnectedStepsArePredecessors() {
+    helper.connect(step1, step3, 0);
+    helper.connect(step2, step3, 1);
+    final StepGraph graph = StepGraph.of(pipeline.getSteps());
+    assertArrayEquals(new int[0], graph.getPredecessors(0));
+    assertArrayEquals(new int[0], graph.getPredecessors(1));
+    assertArrayEquals("Step 3 should depend on steps 1 and 2", new int[]{0, 1},
+        graph.getPredecessors(2));
+  }
+
+  @Test
+  public void testStepsOutsideOfSnapshotAreIgnored() {
+    helper.connect(step1, step2);
+    final StepGraph graph = StepGraph.of(ImmutableList.of(step2));
+    assertArrayEquals("Predecessors that are not in the graph should be ignored", new int[0],
+        graph.getPredecessors(0));
+  }
+}
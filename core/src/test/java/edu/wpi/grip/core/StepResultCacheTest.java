@@ -0,0 +1,134 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.events.StepRemovedEvent;
+import edu.wpi.grip.core.metrics.MockTimer;
+import edu.wpi.grip.core.operations.network.MockGripNetworkModule;
+import edu.wpi.grip.core.sockets.InputSocket;
+import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.core.sockets.Socket;
+import edu.wpi.grip.core.util.MockExceptionWitness;
+import edu.wpi.grip.util.GripCoreTestModule;
+
+import com.google.common.eventbus.EventBus;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.bytedeco.javacpp.opencv_core.CV_8UC1;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.bytedeco.javacpp.opencv_core.MatVector;
+import static org.bytedeco.javacpp.opencv_core.Scalar;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class StepResultCacheTest {
+  private final GripCoreTestModule testModule = new GripCoreTestModule();
+  private StepResultCache cache;
+  private Socket<Double> a;
+  private Socket<Double> b;
+  private Socket<Double> sum;
+  private Step step;
+
+  @Before
+  public void setUp() {
+    testModule.setUp();
+    final Injector injector = Guice.createInjector(Modules.override(testModule)
+        .with(new MockGripNetworkModule()));
+    final InputSocket.Factory isf = injector.getInstance(InputSocket.Factory.class);
+    final OutputSocket.Factory osf = injector.getInstance(OutputSocket.Factory.class);
+    final EventBus eventBus = injector.getInstance(EventBus.class);
+    cache = new StepResultCache();
+    step = new Step.Factory((origin) -> new MockExceptionWitness(eventBus, origin),
+        MockTimer.MOCK_FACTORY, cache)
+        .create(new OperationMetaData(AdditionOperation.DESCRIPTION,
+            () -> new AdditionOperation(isf, osf)));
+    a = (Socket<Double>) step.getInputSockets().get(0);
+    b = (Socket<Double>) step.getInputSockets().get(1);
+    sum = (Socket<Double>) step.getOutputSockets().get(0);
+  }
+
+  @After
+  public void tearDown() {
+    testModule.tearDown();
+  }
+
+  private void run(double first, double second) {
+    a.setValue(first);
+    b.setValue(second);
+    step.runPerformIfPossible();
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    run(1, 2);
+    run(1, 2);
+    assertEquals(0, cache.getHitCount());
+    assertEquals(0, cache.getMissCount());
+  }
+
+  @Test
+  public void testRepeatedInputsAreRestored() {
+    cache.setCapacity(1024);
+    run(1, 2);
+    run(3, 4);
+    run(1, 2);
+    assertEquals("The result for the first inputs should have been restored",
+        (Double) 3.0, sum.getValue().get());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() {
+    // Only enough room for one result that isn't an image
+    cache.setCapacity(100);
+    run(1, 2);
+    run(3, 4);
+    run(1, 2);
+    assertEquals(0, cache.getHitCount());
+    assertEquals(3, cache.getMissCount());
+    assertEquals(2, cache.getEvictionCount());
+    assertEquals((Double) 3.0, sum.getValue().get());
+  }
+
+  @Test
+  public void testRemovedStepIsDropped() {
+    cache.setCapacity(1024);
+    run(1, 2);
+    cache.onStepRemoved(new StepRemovedEvent(step));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void testImagesAreComparedByContent() {
+    final Mat image = new Mat(4, 4, CV_8UC1, new Scalar(7.0));
+    final Mat sameContent = new Mat(4, 4, CV_8UC1, new Scalar(7.0));
+    final Mat otherContent = new Mat(4, 4, CV_8UC1, new Scalar(8.0));
+    assertEquals(StepResultCache.fingerprint(image), StepResultCache.fingerprint(sameContent));
+    assertNotEquals(StepResultCache.fingerprint(image),
+        StepResultCache.fingerprint(otherContent));
+  }
+
+  @Test
+  public void testOtherObjectsAreComparedByIdentity() {
+    final Object object = new Object();
+    assertEquals(StepResultCache.fingerprint(object), StepResultCache.fingerprint(object));
+    assertNotEquals(StepResultCache.fingerprint(object),
+        StepResultCache.fingerprint(new Object()));
+  }
+
+  @Test
+  public void testNativeMemoryOfObjectsComparedByIdentityIsCounted() {
+    final MatVector contours = new MatVector(new Mat(2, 3, CV_8UC1), new Mat(4, 5, CV_8UC1));
+    final long objectSize = StepResultCache.sizeOfFingerprint(
+        StepResultCache.fingerprint(new Object()));
+    assertEquals("The cache keeps the contours alive, so they should be counted",
+        objectSize + 26, StepResultCache.sizeOfFingerprint(StepResultCache.fingerprint(contours)));
+    assertEquals("Numbers are copied into the key, so they don't keep anything alive",
+        0, StepResultCache.sizeOfFingerprint(StepResultCache.fingerprint(3.0)));
+  }
+}
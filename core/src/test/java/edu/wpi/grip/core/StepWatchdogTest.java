@@ -0,0 +1,194 @@
+package edu.wpi.grip.core;
+
+import edu.wpi.grip.core.events.ExceptionEvent;
+import edu.wpi.grip.core.events.ProjectSettingsChangedEvent;
+import edu.wpi.grip.core.metrics.MockTimer;
+import edu.wpi.grip.core.settings.ProjectSettings;
+import edu.wpi.grip.core.util.MockExceptionWitness;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StepWatchdogTest {
+  private EventBus eventBus;
+  private StepWatchdog watchdog;
+  private List<ExceptionEvent> warnings;
+  private Step.Factory stepFactory;
+
+  @Before
+  public void setUp() {
+    eventBus = new EventBus();
+    watchdog = new StepWatchdog();
+    warnings = new ArrayList<>();
+    eventBus.register(new Object() {
+      @Subscribe
+      public void onException(ExceptionEvent event) {
+        warnings.add(event);
+      }
+    });
+    stepFactory = new Step.Factory(MockExceptionWitness.simpleFactory(eventBus),
+        MockTimer.MOCK_FACTORY, new StepResultCache(), watchdog);
+  }
+
+  @After
+  public void tearDown() {
+    watchdog.setTimeLimit(0);
+  }
+
+  private Step createStep(PipelineRunnerTest.SimpleOperation operation) {
+    return stepFactory.create(
+        new OperationMetaData(PipelineRunnerTest.SimpleOperation.DESCRIPTION, () -> operation));
+  }
+
+  private void setLimit(int milliseconds, boolean isolateRiskySteps) {
+    final ProjectSettings settings = new ProjectSettings();
+    settings.setStepTimeLimit(milliseconds);
+    settings.setIsolateRiskySteps(isolateRiskySteps);
+    watchdog.onProjectSettingsChanged(new ProjectSettingsChangedEvent(settings));
+  }
+
+  @Test
+  public void testNoLimitNeverTrips() {
+    final Step step = createStep(() -> sleep(20));
+    step.runPerform(true);
+    watchdog.check();
+    assertEquals(0, watchdog.getTripCount());
+    assertTrue(warnings.isEmpty());
+  }
+
+  @Test
+  public void testSlowStepIsFlagged() {
+    setLimit(1, false);
+    final Step step = createStep(() -> {
+      sleep(20);
+      // Check while the step is still running rather than waiting for the checker thread
+      watchdog.check();
+    });
+    step.runPerform(true);
+    assertEquals(1, watchdog.getTripCount());
+    assertEquals(0, watchdog.getAbandonedCount());
+    assertEquals("The step should have been flagged once", 1, warnings.size());
+    assertEquals(step, warnings.get(0).getOrigin());
+  }
+
+  @Test
+  public void testFastStepIsNotFlagged() {
+    setLimit(10_000, false);
+    final Step step = createStep(() -> {
+    });
+    step.runPerform(true);
+    watchdog.check();
+    assertEquals(0, watchdog.getTripCount());
+  }
+
+  @Test
+  public void testRiskyStepIsAbandoned() throws InterruptedException {
+    setLimit(50, true);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger performCount = new AtomicInteger();
+    final Step step = createStep(new RiskyOperation(() -> {
+      performCount.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }));
+
+    final long start = System.nanoTime();
+    step.runPerform(true);
+    assertTrue("The pipeline should have stopped waiting for the step",
+        System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    assertEquals(1, watchdog.getTripCount());
+    assertEquals(1, watchdog.getAbandonedCount());
+
+    step.runPerform(true);
+    assertEquals("The step should be skipped while it is still running", 1, performCount.get());
+
+    release.countDown();
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (performCount.get() < 2 && System.nanoTime() < deadline) {
+      step.runPerform(true);
+      Thread.sleep(10);
+    }
+    assertEquals("The step should run again once it has finished", 2, performCount.get());
+  }
+
+  @Test
+  public void testAbandonedStepIsCleanedUpOnceItFinishes() throws InterruptedException {
+    setLimit(50, true);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch cleanedUp = new CountDownLatch(1);
+    final Step step = createStep(new RiskyOperation(() -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }) {
+      @Override
+      public void cleanUp() {
+        assertEquals("The operation should have returned before it is cleaned up",
+            0, release.getCount());
+        cleanedUp.countDown();
+      }
+    });
+
+    step.runPerform(true);
+    assertEquals(1, watchdog.getAbandonedCount());
+    step.setRemoved();
+    assertEquals("The step shouldn't be cleaned up while it is running", 1, cleanedUp.getCount());
+
+    release.countDown();
+    assertTrue(cleanedUp.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testRiskyStepIsNotIsolatedByDefault() {
+    setLimit(10_000, false);
+    final Thread[] performedOn = new Thread[1];
+    final Step step = createStep(
+        new RiskyOperation(() -> performedOn[0] = Thread.currentThread()));
+    step.runPerform(true);
+    assertEquals(Thread.currentThread(), performedOn[0]);
+  }
+
+  private static void sleep(long milliseconds) {
+    try {
+      Thread.sleep(milliseconds);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class RiskyOperation implements PipelineRunnerTest.SimpleOperation {
+    private final Runnable perform;
+
+    RiskyOperation(Runnable perform) {
+      this.perform = perform;
+    }
+
+    @Override
+    public void perform() {
+      perform.run();
+    }
+
+    @Override
+    public boolean isRisky() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package edu.wpi.grip.core.events;
+
+import com.google.common.eventbus.Subscribe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CoalescingEventBusTest {
+  private Queue<Runnable> tasks;
+  private CoalescingEventBus eventBus;
+  private List<Object> received;
+
+  @Before
+  public void setUp() {
+    tasks = new ArrayDeque<>();
+    eventBus = new CoalescingEventBus((exception, context) -> {
+      throw new AssertionError(exception);
+    }, tasks::add, 2, 0);
+    received = new ArrayList<>();
+    eventBus.register(new Object() {
+      @Subscribe
+      public void onEvent(Object event) {
+        received.add(event);
+      }
+    });
+  }
+
+  private void runTasks() {
+    while (!tasks.isEmpty()) {
+      tasks.remove().run();
+    }
+  }
+
+  @Test
+  public void testOtherEventsAreDeliveredImmediately() {
+    final Object event = new Object();
+    eventBus.post(event);
+    assertEquals(1, received.size());
+    assertTrue(tasks.isEmpty());
+  }
+
+  @Test
+  public void testObservationalEventsAreQueued() {
+    final KeyedEvent event = new KeyedEvent("a");
+    eventBus.post(event);
+    assertTrue("The event should not have been delivered on the posting thread",
+        received.isEmpty());
+    assertEquals("Only one task should be submitted", 1, tasks.size());
+    runTasks();
+    assertEquals(1, received.size());
+    assertEquals(event, received.get(0));
+  }
+
+  @Test
+  public void testWaitingEventIsReplaced() {
+    final KeyedEvent first = new KeyedEvent("a");
+    final KeyedEvent other = new KeyedEvent("b");
+    final KeyedEvent second = new KeyedEvent("a");
+    eventBus.post(first);
+    eventBus.post(other);
+    eventBus.post(second);
+    runTasks();
+    assertEquals("The replacement should keep the place of the event it replaced",
+        2, received.size());
+    assertEquals(second, received.get(0));
+    assertEquals(other, received.get(1));
+    assertEquals(1, eventBus.getCoalescedCount());
+    assertEquals(0, eventBus.getDroppedCount());
+  }
+
+  @Test
+  public void testEventsAreDroppedWhenFull() {
+    eventBus.post(new KeyedEvent("a"));
+    eventBus.post(new KeyedEvent("b"));
+    eventBus.post(new KeyedEvent("c"));
+    runTasks();
+    assertEquals(2, received.size());
+    assertEquals(1, eventBus.getDroppedCount());
+  }
+
+  @Test
+  public void testNothingIsQueuedDuringBenchmarks() {
+    eventBus.post(BenchmarkEvent.started());
+    eventBus.post(new KeyedEvent("a"));
+    assertEquals(2, received.size());
+    eventBus.post(BenchmarkEvent.finished());
+    eventBus.post(new KeyedEvent("a"));
+    assertEquals(3, received.size());
+  }
+
+  @Test
+  public void testRenderEventsAreDeliveredSynchronously() {
+    // Previews read the pipeline's images, so they have to render them between runs
+    eventBus.post(new RenderEvent());
+    assertEquals(1, received.size());
+  }
+
+  private static final class KeyedEvent implements ObservationalEvent {
+    private final String key;
+
+    KeyedEvent(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public Object coalescingKey() {
+      return key;
+    }
+  }
+}
@@ -1,13 +1,19 @@
 package edu.wpi.grip.core.metrics;
 
+import edu.wpi.grip.core.events.TimerEvent;
+
 import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -87,4 +93,28 @@ public class TimerTest {
     fail("An exception should have been thrown");
   }
 
+  @Test
+  public void testSameEventIsPostedEveryTime() {
+    final List<TimerEvent> events = new ArrayList<>();
+    eventBus.register(new Object() {
+      @Subscribe
+      public void onTimerEvent(TimerEvent event) {
+        assertEquals(WRONG_TIME_MSG, 1_000_000, event.getElapsedTime());
+        events.add(event);
+      }
+    });
+    Timer timer = new MockTimer(eventBus, this);
+    timer.time(() -> { });
+    timer.time(() -> { });
+    assertEquals(2, events.size());
+    assertSame("The timer should reuse its event", events.get(0), events.get(1));
+  }
+
+  @Test
+  public void testRecord() {
+    Timer timer = new Timer(eventBus, this);
+    timer.record(1234);
+    assertEquals(WRONG_TIME_MSG, 1234, timer.getElapsedTime());
+  }
+
 }
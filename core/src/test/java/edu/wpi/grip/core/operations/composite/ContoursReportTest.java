@@ -0,0 +1,69 @@
+package edu.wpi.grip.core.operations.composite;
+
+import org.bytedeco.javacpp.indexer.IntIndexer;
+import org.junit.Test;
+
+import static org.bytedeco.javacpp.opencv_core.CV_32SC2;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.bytedeco.javacpp.opencv_core.MatVector;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ContoursReportTest {
+  private static final double DELTA = 1e-9;
+
+  /**
+   * @return the contour of a square with its top left corner at the given point.
+   */
+  private static Mat square(int x, int y, int size) {
+    final int[][] corners = {{x, y}, {x, y + size}, {x + size, y + size}, {x + size, y}};
+    final Mat contour = new Mat(corners.length, 1, CV_32SC2);
+    final IntIndexer indexer = contour.createIndexer();
+    for (int i = 0; i < corners.length; i++) {
+      indexer.put(i, 0, 0, corners[i][0]);
+      indexer.put(i, 0, 1, corners[i][1]);
+    }
+    indexer.release();
+    return contour;
+  }
+
+  @Test
+  public void testFeaturesOfSquare() {
+    final ContoursReport report = new ContoursReport(new MatVector(square(0, 0, 9)), 20, 20);
+    assertArrayEquals(new double[]{81}, report.getArea(), DELTA);
+    assertArrayEquals(new double[]{5}, report.getCenterX(), DELTA);
+    assertArrayEquals(new double[]{5}, report.getCenterY(), DELTA);
+    assertArrayEquals(new double[]{10}, report.getWidth(), DELTA);
+    assertArrayEquals(new double[]{10}, report.getHeights(), DELTA);
+    assertArrayEquals(new double[]{1}, report.getSolidity(), DELTA);
+    assertEquals(36, report.getFeatures().perimeter[0], DELTA);
+    assertEquals(4, report.getFeatures().vertices[0]);
+  }
+
+  @Test
+  public void testFeaturesAreOnlyComputedOnce() {
+    final ContoursReport report = new ContoursReport(new MatVector(square(0, 0, 9)), 20, 20);
+    assertSame(report.getArea(), report.getArea());
+    assertSame(report.getFeatures(), report.getFeatures());
+  }
+
+  @Test
+  public void testSelectKeepsFeaturesOfChosenContours() {
+    final ContoursReport report = new ContoursReport(
+        new MatVector(square(0, 0, 9), square(10, 0, 4), square(0, 10, 2)), 20, 20);
+    final ContoursReport.Features selected = report.getFeatures().select(new int[]{2, 0, 1}, 2);
+    assertEquals(2, selected.count);
+    assertArrayEquals(new double[]{4, 81}, selected.area, DELTA);
+    assertArrayEquals(new double[]{1, 5}, selected.centerX, DELTA);
+  }
+
+  @Test
+  public void testProcessedContoursMatchFeatures() {
+    final ContoursReport report = new ContoursReport(new MatVector(square(2, 4, 9)), 20, 20);
+    final ContoursReport.Contour contour = report.getProcessedContours().get(0);
+    assertEquals(81, contour.area(), DELTA);
+    assertEquals(7, contour.centerX(), DELTA);
+    assertEquals(9, contour.centerY(), DELTA);
+  }
+}
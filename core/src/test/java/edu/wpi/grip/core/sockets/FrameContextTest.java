@@ -0,0 +1,68 @@
+package edu.wpi.grip.core.sockets;
+
+import edu.wpi.grip.core.MatPool;
+
+import com.google.common.eventbus.EventBus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.bytedeco.javacpp.opencv_core.CV_8UC1;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class FrameContextTest {
+  private MatPool matPool;
+  private OutputSocketImpl<Mat> sourceOutput;
+  private FrameContext context;
+
+  @Before
+  public void setUp() {
+    matPool = new MatPool();
+    sourceOutput = new OutputSocketImpl<>(new EventBus(),
+        SocketHints.Outputs.createMatSocketHint("Image"));
+    context = new FrameContext();
+  }
+
+  @After
+  public void tearDown() {
+    FrameContext.exit();
+    matPool.clear();
+  }
+
+  private Mat valueInContext() {
+    context.enter();
+    try {
+      return sourceOutput.getValue().get();
+    } finally {
+      FrameContext.exit();
+    }
+  }
+
+  @Test
+  public void testPooledImageIsRetainedInsteadOfCopied() {
+    final Mat frame = matPool.acquire(4, 4, CV_8UC1);
+    sourceOutput.setValue(frame);
+    context.snapshot(sourceOutput, matPool);
+    assertSame(frame, valueInContext());
+
+    // The source takes its next frame
+    matPool.release(frame);
+    assertEquals("The frame should still be in use", 16, matPool.getLeasedBytes());
+    context.release(matPool);
+    assertEquals(0, matPool.getLeasedBytes());
+  }
+
+  @Test
+  public void testOtherImagesAreCopied() {
+    final Mat frame = new Mat(4, 4, CV_8UC1);
+    sourceOutput.setValue(frame);
+    context.snapshot(sourceOutput, matPool);
+    final Mat copy = valueInContext();
+    assertNotSame(frame, copy);
+    assertEquals(frame.rows(), copy.rows());
+  }
+}
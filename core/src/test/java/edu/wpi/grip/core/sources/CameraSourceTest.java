@@ -1,6 +1,7 @@
 package edu.wpi.grip.core.sources;
 
 
+import edu.wpi.grip.core.MatPool;
 import edu.wpi.grip.core.events.UnexpectedThrowableEvent;
 import edu.wpi.grip.core.operations.network.MockGripNetworkModule;
 import edu.wpi.grip.core.sockets.OutputSocket;
@@ -87,6 +88,7 @@ public class CameraSourceTest {
         osf,
         mockFrameGrabberFactory,
         origin -> new MockExceptionWitness(eventBus, origin),
+        new MatPool(),
         0);
   }
 
@@ -195,7 +197,7 @@ public class CameraSourceTest {
       public FrameGrabber create(String addressProperty) throws MalformedURLException {
         throw new AssertionError("This should not be called");
       }
-    }, MockExceptionWitness.MOCK_FACTORY, 0);
+    }, MockExceptionWitness.MOCK_FACTORY, new MatPool(), 0);
 
     Waiter failedWaiter = new Waiter();
     source.addListener(new Service.Listener() {
@@ -251,7 +253,7 @@ public class CameraSourceTest {
       public FrameGrabber create(String addressProperty) throws MalformedURLException {
         throw new AssertionError("This should not be called");
       }
-    }, MockExceptionWitness.MOCK_FACTORY, 0);
+    }, MockExceptionWitness.MOCK_FACTORY, new MatPool(), 0);
 
     source.startAsync().awaitRunning();
 
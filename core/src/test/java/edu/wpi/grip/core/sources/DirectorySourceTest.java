@@ -0,0 +1,173 @@
+package edu.wpi.grip.core.sources;
+
+import edu.wpi.grip.core.MatPool;
+import edu.wpi.grip.core.events.SourceHasPendingUpdateEvent;
+import edu.wpi.grip.core.events.SourceRemovedEvent;
+import edu.wpi.grip.core.sockets.MockOutputSocketFactory;
+import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.util.Files;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DirectorySourceTest {
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private EventBus eventBus;
+  private OutputSocket.Factory osf;
+  private final MatPool matPool = new MatPool();
+  private File directory;
+  private DirectorySource source;
+  private final Semaphore updates = new Semaphore(0);
+
+  @Before
+  public void setUp() throws IOException {
+    eventBus = new EventBus();
+    osf = new MockOutputSocketFactory(eventBus);
+    directory = temporaryFolder.newFolder("watched");
+    eventBus.register(new Object() {
+      @Subscribe
+      public void onSourceHasPendingUpdate(SourceHasPendingUpdateEvent event) {
+        updates.release();
+      }
+    });
+  }
+
+  @After
+  public void tearDown() {
+    if (source != null) {
+      eventBus.register(source);
+      eventBus.post(new SourceRemovedEvent(source));
+    }
+  }
+
+  /**
+   * Moves a file into the watched directory in one step, the way capture programs usually do.
+   */
+  private void drop(File file, String name) throws IOException {
+    final File staged = temporaryFolder.newFile(name);
+    java.nio.file.Files.copy(file.toPath(), staged.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    java.nio.file.Files.move(staged.toPath(), new File(directory, name).toPath(),
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void awaitUpdate() throws InterruptedException {
+    // Some platforms poll the directory instead of being told about new files
+    assertTrue("The new file was never picked up", updates.tryAcquire(15, TimeUnit.SECONDS));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Mat image() {
+    return ((OutputSocket<Mat>) source.getOutputSockets().get(0)).getValue().get();
+  }
+
+  @Test
+  public void testNewFilesAreProcessedInOrder() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty("path", directory.getAbsolutePath());
+    FrameDropPolicy.PROCESS_ALL.store(properties);
+    source = new DirectorySource(osf, origin -> null, eventBus, matPool, properties);
+    source.initialize();
+
+    drop(Files.imageFile.file, "first.png");
+    awaitUpdate();
+    drop(Files.gompeiJpegFile.file, "second.jpeg");
+    awaitUpdate();
+
+    assertTrue(source.updateOutputSockets());
+    Files.imageFile.assertSameImage(image());
+    assertTrue(source.updateOutputSockets());
+    Files.gompeiJpegFile.assertSameImage(image());
+    assertEquals(0, source.getSkippedDecodeCount());
+    assertEquals(0, source.getQueueDepth());
+  }
+
+  @Test
+  public void testExistingFilesAreIgnored() throws Exception {
+    java.nio.file.Files.copy(Files.imageFile.file.toPath(),
+        new File(directory, "old.png").toPath());
+    source = new DirectorySource(osf, origin -> null, eventBus, matPool, directory);
+    source.initialize();
+
+    drop(Files.gompeiJpegFile.file, "new.jpeg");
+    awaitUpdate();
+
+    assertTrue(source.updateOutputSockets());
+    Files.gompeiJpegFile.assertSameImage(image());
+  }
+
+  @Test
+  public void testSlowlyWrittenFileIsReadOnceItIsComplete() throws Exception {
+    source = new DirectorySource(osf, origin -> null, eventBus, matPool, directory);
+    source.initialize();
+
+    final byte[] bytes = java.nio.file.Files.readAllBytes(Files.imageFile.file.toPath());
+    try (OutputStream out = new FileOutputStream(new File(directory, "slow.png"))) {
+      out.write(bytes, 0, bytes.length / 2);
+      out.flush();
+      // Longer than the file has to stay the same size for before it is read
+      Thread.sleep(300);
+      out.write(bytes, bytes.length / 2, bytes.length - bytes.length / 2);
+    }
+    awaitUpdate();
+
+    assertTrue(source.updateOutputSockets());
+    Files.imageFile.assertSameImage(image());
+  }
+
+  @Test
+  public void testFilesThatAreNotImagesAreIgnored() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty("path", directory.getAbsolutePath());
+    FrameDropPolicy.PROCESS_ALL.store(properties);
+    source = new DirectorySource(osf, origin -> null, eventBus, matPool, properties);
+    source.initialize();
+
+    drop(Files.textFile, "notes.txt");
+    drop(Files.imageFile.file, "image.png");
+    awaitUpdate();
+
+    assertTrue(source.updateOutputSockets());
+    Files.imageFile.assertSameImage(image());
+    assertEquals("The text file should never have been queued", 0, source.getQueueDepth());
+    assertFalse(updates.tryAcquire(500, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testProperties() {
+    final Properties properties = new Properties();
+    properties.setProperty("path", directory.getAbsolutePath());
+    FrameDropPolicy.PROCESS_ALL.store(properties);
+    DecodeMode.GRAYSCALE.store(properties);
+    final DirectorySource fromProperties =
+        new DirectorySource(osf, origin -> null, eventBus, matPool, properties);
+    assertEquals(properties, fromProperties.getProperties());
+    assertEquals(directory.getName(), fromProperties.getName());
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotADirectory() throws IOException {
+    new DirectorySource(osf, origin -> null, eventBus, matPool, Files.textFile).initialize();
+  }
+}
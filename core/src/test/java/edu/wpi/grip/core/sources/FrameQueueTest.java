@@ -0,0 +1,199 @@
+package edu.wpi.grip.core.sources;
+
+import edu.wpi.grip.core.MatPool;
+
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.bytedeco.javacpp.opencv_core.CV_8UC1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FrameQueueTest {
+  private final MatPool matPool = new MatPool();
+
+  /**
+   * Frames are told apart by their number of rows.
+   */
+  private static Mat frame(int id) {
+    return new Mat(id, 1, CV_8UC1);
+  }
+
+  @Test
+  public void testLatestOnlyKeepsNewestFrame() throws InterruptedException {
+    final FrameQueue queue = FrameQueue.create(FrameDropPolicy.LATEST_ONLY, matPool);
+    queue.offer(frame(1));
+    queue.offer(frame(2));
+    queue.offer(frame(3));
+
+    final Mat taken = queue.take();
+    assertNotNull(taken);
+    assertEquals("Only the newest frame should be kept", 3, taken.rows());
+    assertNull("There should be nothing left", queue.take());
+    assertEquals(2, queue.getDroppedFrameCount());
+    assertEquals(1, queue.getStaleFrameCount());
+  }
+
+  @Test
+  public void testLatestOnlyDoesNotWriteOverTakenFrame() throws InterruptedException {
+    final FrameQueue queue = FrameQueue.create(FrameDropPolicy.LATEST_ONLY, matPool);
+    queue.offer(frame(1));
+    final Mat taken = queue.take();
+    queue.offer(frame(2));
+    queue.offer(frame(3));
+    queue.offer(frame(4));
+    assertEquals("The frame belongs to the pipeline until it takes the next one",
+        1, taken.rows());
+    final Mat next = queue.take();
+    assertNotSame("Frames should be handed over without copying them into the same image",
+        taken, next);
+    assertEquals(4, next.rows());
+  }
+
+  @Test
+  public void testBuffersAreReused() throws InterruptedException {
+    final FrameQueue queue = FrameQueue.create(FrameDropPolicy.LATEST_ONLY, matPool);
+    final Set<Mat> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int i = 1; i <= 10; i++) {
+      queue.offer(frame(i));
+      buffers.add(queue.take());
+    }
+    assertTrue("No more than the three buffers should ever be handed out", buffers.size() <= 3);
+  }
+
+  @Test
+  public void testRetainedFrameIsNotWrittenOver() throws InterruptedException {
+    final FrameQueue queue = FrameQueue.create(FrameDropPolicy.LATEST_ONLY, matPool);
+    queue.offer(frame(1));
+    final Mat kept = queue.take();
+    matPool.retain(kept);
+    for (int i = 2; i <= 10; i++) {
+      queue.offer(frame(i));
+      assertNotSame(kept, queue.take());
+    }
+    assertEquals("A retained frame should never be written over", 1, kept.rows());
+    matPool.release(kept);
+  }
+
+  @Test
+  public void testDisposeReleasesEveryBuffer() throws InterruptedException {
+    final FrameQueue queue = FrameQueue.create(FrameDropPolicy.DROP_OLDEST, matPool);
+    queue.offer(frame(1));
+    queue.offer(frame(2));
+    queue.take();
+    queue.dispose();
+    assertEquals(0, matPool.getLeasedBytes());
+  }
+
+  @Test
+  public void testDropOldestDropsOldestWhenFull() throws InterruptedException {
+    final FrameQueue queue = FrameQueue.create(FrameDropPolicy.DROP_OLDEST, matPool);
+    for (int i = 1; i <= FrameQueue.CAPACITY + 1; i++) {
+      queue.offer(frame(i));
+    }
+
+    final Mat taken = queue.take();
+    assertNotNull(taken);
+    assertEquals("The first frame should have been dropped", 2, taken.rows());
+    assertEquals(1, queue.getDroppedFrameCount());
+  }
+
+  @Test(timeout = 5000)
+  public void testProcessAllWaitsForRoom() throws InterruptedException {
+    final FrameQueue queue = FrameQueue.create(FrameDropPolicy.PROCESS_ALL, matPool);
+    for (int i = 1; i <= FrameQueue.CAPACITY; i++) {
+      queue.offer(frame(i));
+    }
+    final CountDownLatch offered = new CountDownLatch(1);
+    final Thread grabber = new Thread(() -> {
+      try {
+        queue.offer(frame(FrameQueue.CAPACITY + 1));
+        offered.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    grabber.start();
+    assertFalse("The grabber should wait while the queue is full",
+        offered.await(100, TimeUnit.MILLISECONDS));
+
+    for (int i = 1; i <= FrameQueue.CAPACITY + 1; i++) {
+      final Mat taken = queue.take();
+      assertNotNull(taken);
+      assertEquals("Every frame should be processed in order", i, taken.rows());
+    }
+    grabber.join();
+    assertEquals(0, queue.getDroppedFrameCount());
+  }
+
+  @Test(timeout = 5000)
+  public void testQueueHoldsGivenNumberOfFrames() throws InterruptedException {
+    final FrameQueue queue = FrameQueue.create(FrameDropPolicy.PROCESS_ALL, 2, matPool);
+    queue.offer(frame(1));
+    queue.offer(frame(2));
+    final Thread grabber = new Thread(() -> {
+      try {
+        queue.offer(frame(3));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    grabber.start();
+    grabber.join(100);
+    assertTrue("The grabber should wait while the queue is full", grabber.isAlive());
+
+    assertEquals(1, queue.take().rows());
+    grabber.join();
+    assertEquals(2, queue.take().rows());
+    assertEquals(3, queue.take().rows());
+  }
+
+  @Test(timeout = 5000)
+  public void testClearLetsWaitingGrabberIn() throws InterruptedException {
+    final FrameQueue queue = FrameQueue.create(FrameDropPolicy.PROCESS_ALL, 1, matPool);
+    queue.offer(frame(1));
+    final Thread grabber = new Thread(() -> {
+      try {
+        queue.offer(frame(2));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    grabber.start();
+    queue.clear();
+    grabber.join();
+
+    assertEquals("Only the frame offered after clearing should be left", 2, queue.take().rows());
+    assertNull(queue.take());
+    assertEquals(0, queue.getDroppedFrameCount());
+  }
+
+  @Test
+  public void testLatestOnlyClear() throws InterruptedException {
+    final FrameQueue queue = FrameQueue.create(FrameDropPolicy.LATEST_ONLY, matPool);
+    queue.offer(frame(1));
+    queue.clear();
+    assertFalse(queue.hasPending());
+    assertNull(queue.take());
+  }
+
+  @Test
+  public void testPolicyIsStoredInProperties() {
+    final Properties properties = new Properties();
+    FrameDropPolicy.DROP_OLDEST.store(properties);
+    assertEquals(FrameDropPolicy.DROP_OLDEST, FrameDropPolicy.fromProperties(properties));
+    assertEquals("Sources without a policy should keep the latest frame",
+        FrameDropPolicy.LATEST_ONLY, FrameDropPolicy.fromProperties(new Properties()));
+  }
+}
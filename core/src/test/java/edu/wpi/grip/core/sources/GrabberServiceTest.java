@@ -1,5 +1,7 @@
 package edu.wpi.grip.core.sources;
 
+import com.google.common.base.Stopwatch;
+
 import org.bytedeco.javacpp.opencv_core.Mat;
 import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.FrameGrabber;
@@ -9,6 +11,7 @@ import org.junit.Test;
 import java.util.function.Supplier;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.python.icu.impl.Assert.fail;
 
@@ -198,6 +201,23 @@ public class GrabberServiceTest {
     }
   }
 
+  @Test
+  public void testCompressedFramesAreLeftForTheSourceToDecode() throws GrabberService
+      .GrabberServiceException {
+    final CompressedMockFrameGrabber frameGrabber = new CompressedMockFrameGrabber();
+    final CompressedFrameGrabber[] arrived = {null};
+    final GrabberService grabberService = createSimpleGrabberService(() -> frameGrabber,
+        new OnDemandUpdater() {
+          @Override
+          public void compressedFrameArrived(CompressedFrameGrabber grabber) {
+            arrived[0] = grabber;
+          }
+        });
+    grabberService.startUp();
+    grabberService.runOneGrab(new OpenCVFrameConverter.ToMat(), Stopwatch.createStarted());
+    assertSame("The source should have been told about the frame", frameGrabber, arrived[0]);
+  }
+
   private static class SimpleUpdater implements CameraSourceUpdater {
     @Override
     public void setFrameRate(double value) {
@@ -215,6 +235,32 @@ public class GrabberServiceTest {
     }
   }
 
+  private abstract static class OnDemandUpdater extends SimpleUpdater implements OnDemandDecoder {
+  }
+
+  static class CompressedMockFrameGrabber extends SimpleMockFrameGrabber implements
+      CompressedFrameGrabber {
+    @Override
+    public Frame grab() {
+      throw new AssertionError("The frame should not have been decoded");
+    }
+
+    @Override
+    public void awaitFrame() {
+      /* no-op */
+    }
+
+    @Override
+    public long decodeLatest(Mat image) {
+      return 0;
+    }
+
+    @Override
+    public void setDecodeMode(DecodeMode decodeMode) {
+      /* no-op */
+    }
+  }
+
   static class ConstructorThrowingFrameGrabber extends SimpleMockFrameGrabber {
     private static final String CONSTRUCTOR_EXCEPTION_MESSAGE = "This should be thrown when the "
         + "constructor is called.";
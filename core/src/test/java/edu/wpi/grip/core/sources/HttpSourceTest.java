@@ -27,6 +27,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -84,6 +85,21 @@ public class HttpSourceTest {
         imageSource.getValue().get().empty());
   }
 
+  @Test
+  public void testImageIsOnlyDecodedOnce() throws IOException {
+    source.initialize();
+    doPost(GripServer.IMAGE_UPLOAD_PATH, logoFile);
+    assertTrue("The POSTed image should be decoded", source.updateOutputSockets());
+    assertFalse("The same image should not be decoded again", source.updateOutputSockets());
+
+    final long skipped = source.getSkippedDecodeCount();
+    doPost(GripServer.IMAGE_UPLOAD_PATH, logoFile);
+    doPost(GripServer.IMAGE_UPLOAD_PATH, logoFile);
+    assertTrue(source.updateOutputSockets());
+    assertEquals("The replaced image should not have been decoded", skipped + 1,
+        source.getSkippedDecodeCount());
+  }
+
   // POSTs the given image file to the given path on the server
   private void doPost(String path, File imageFile) throws IOException {
     final String uri = "http://localhost:" + server.getPort() + path;
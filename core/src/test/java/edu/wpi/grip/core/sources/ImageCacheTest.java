@@ -0,0 +1,108 @@
+package edu.wpi.grip.core.sources;
+
+import edu.wpi.grip.core.MatPool;
+import edu.wpi.grip.util.Files;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ImageCacheTest {
+  private final String imagePath = Files.imageFile.file.getPath();
+  private final String gompeiPath = Files.gompeiJpegFile.file.getPath();
+  private MatPool matPool;
+  private ImageCache imageCache;
+
+  @Before
+  public void setUp() {
+    matPool = new MatPool();
+    imageCache = new ImageCache(matPool);
+  }
+
+  @Test
+  public void testImageIsOnlyDecodedOnce() throws IOException {
+    final Mat first = imageCache.get(imagePath, DecodeMode.COLOR);
+    final Mat second = imageCache.get(imagePath, DecodeMode.COLOR);
+    assertSame("The cached image should have been returned", first, second);
+    assertEquals(1, imageCache.getMissCount());
+    assertEquals(1, imageCache.getHitCount());
+  }
+
+  @Test
+  public void testDecodeModesAreCachedSeparately() throws IOException {
+    final Mat color = imageCache.get(imagePath, DecodeMode.COLOR);
+    final Mat gray = imageCache.get(imagePath, DecodeMode.GRAYSCALE);
+    assertNotSame(color, gray);
+    assertEquals(2, imageCache.getMissCount());
+  }
+
+  @Test
+  public void testPrefetchedImageIsAHit() throws IOException {
+    imageCache.prefetch(Collections.singletonList(gompeiPath), DecodeMode.COLOR);
+    Files.gompeiJpegFile.assertSameImage(imageCache.get(gompeiPath, DecodeMode.COLOR));
+    assertEquals(0, imageCache.getMissCount());
+    assertEquals(1, imageCache.getHitCount());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedImageIsEvicted() throws IOException {
+    final Mat image = imageCache.get(imagePath, DecodeMode.COLOR);
+    final long imageBytes = image.total() * image.elemSize();
+    imageCache.setCapacity(imageBytes);
+    final Mat gompei = imageCache.get(gompeiPath, DecodeMode.COLOR);
+    assertEquals("Only the newest image should be left",
+        gompei.total() * gompei.elemSize(), imageCache.getSize());
+    assertNotSame(image, imageCache.get(imagePath, DecodeMode.COLOR));
+    assertEquals(3, imageCache.getMissCount());
+  }
+
+  @Test
+  public void testEvictedImageIsReleasedOnceNothingHoldsIt() throws IOException {
+    final Mat image = imageCache.get(imagePath, DecodeMode.COLOR);
+    imageCache.setCapacity(0);
+    assertEquals(0, imageCache.getSize());
+    assertTrue("The image is still being shown", matPool.isLeased(image));
+    imageCache.release(image);
+    assertFalse("The image should have gone back to the pool", matPool.isLeased(image));
+  }
+
+  @Test
+  public void testNothingIsCachedWithoutCapacity() throws IOException {
+    imageCache.setCapacity(0);
+    imageCache.prefetch(Collections.singletonList(gompeiPath), DecodeMode.COLOR);
+    final Mat first = imageCache.get(imagePath, DecodeMode.COLOR);
+    final Mat second = imageCache.get(imagePath, DecodeMode.COLOR);
+    assertNotSame("The image should have been decoded again", first, second);
+    assertEquals(2, imageCache.getMissCount());
+    assertEquals(0, imageCache.getSize());
+    imageCache.release(first);
+    assertFalse("The image should have gone back to the pool", matPool.isLeased(first));
+  }
+
+  @Test(expected = IOException.class)
+  public void testFailedLoadThrows() throws IOException {
+    imageCache.get(Files.textFile.getPath(), DecodeMode.COLOR);
+  }
+
+  @Test
+  public void testFailedLoadIsRetried() {
+    for (int i = 0; i < 2; i++) {
+      try {
+        imageCache.get(Files.textFile.getPath(), DecodeMode.COLOR);
+      } catch (IOException expected) {
+        // The failure shouldn't be cached
+      }
+    }
+    assertEquals(2, imageCache.getMissCount());
+    assertEquals(0, imageCache.getSize());
+  }
+}
@@ -1,5 +1,6 @@
 package edu.wpi.grip.core.sources;
 
+import edu.wpi.grip.core.MatPool;
 import edu.wpi.grip.core.sockets.MockOutputSocketFactory;
 import edu.wpi.grip.core.sockets.OutputSocket;
 import edu.wpi.grip.util.Files;
@@ -15,7 +16,9 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
+import java.util.Properties;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -27,17 +30,19 @@ public class ImageFileSourceTest {
   private final ImageWithData imageFile = Files.imageFile;
   private final File textFile = Files.textFile;
   private OutputSocket.Factory osf;
+  private ImageCache imageCache;
 
   @Before
   public void setUp() throws URISyntaxException {
     osf = new MockOutputSocketFactory(new EventBus());
+    imageCache = new ImageCache(new MatPool());
   }
 
   @Test
   public void testLoadImageToMat() throws IOException {
     // Given above setup
     // When
-    final ImageFileSource fileSource = new ImageFileSource(osf, origin -> null, this
+    final ImageFileSource fileSource = new ImageFileSource(osf, origin -> null, imageCache, this
         .imageFile.file);
     fileSource.initialize();
     OutputSocket<Mat> outputSocket = fileSource.getOutputSockets().get(0);
@@ -48,9 +53,39 @@ public class ImageFileSourceTest {
     imageFile.assertSameImage(outputSocket.getValue().get());
   }
 
+  @Test
+  public void testDecodeModeFromProperties() throws IOException {
+    final Properties properties = new Properties();
+    properties.setProperty("path", imageFile.file.getAbsolutePath());
+    DecodeMode.COLOR_HALF.store(properties);
+    final ImageFileSource fileSource = new ImageFileSource(osf, origin -> null, imageCache,
+        properties);
+    fileSource.initialize();
+    final Mat image = fileSource.getOutputSockets().get(0).getValue().get();
+
+    assertEquals((imageFile.getCols() + 1) / 2, image.cols());
+    assertEquals((imageFile.getRows() + 1) / 2, image.rows());
+    assertEquals("The decode mode should be saved with the source", DecodeMode.COLOR_HALF,
+        DecodeMode.fromProperties(fileSource.getProperties()));
+  }
+
+  @Test
+  public void testGrayscaleDecodeMode() throws IOException {
+    final Properties properties = new Properties();
+    properties.setProperty("path", imageFile.file.getAbsolutePath());
+    DecodeMode.GRAYSCALE.store(properties);
+    final ImageFileSource fileSource = new ImageFileSource(osf, origin -> null, imageCache,
+        properties);
+    fileSource.initialize();
+    final Mat image = fileSource.getOutputSockets().get(0).getValue().get();
+
+    assertEquals(1, image.channels());
+    assertEquals(imageFile.getCols(), image.cols());
+  }
+
   @Test(expected = IOException.class)
   public void testReadInTextFile() throws IOException {
-    final ImageFileSource fileSource = new ImageFileSource(osf, origin -> null, this
+    final ImageFileSource fileSource = new ImageFileSource(osf, origin -> null, imageCache, this
         .textFile);
     fileSource.initialize();
     OutputSocket<Mat> outputSocket = fileSource.getOutputSockets().get(0);
@@ -61,14 +96,15 @@ public class ImageFileSourceTest {
   public void testReadInFileWithoutExtension() throws MalformedURLException, IOException {
     final File testFile = new File("temp" + File.separator + "fdkajdl3eaf");
 
-    final ImageFileSource fileSource = new ImageFileSource(osf, origin -> null, testFile);
+    final ImageFileSource fileSource = new ImageFileSource(osf, origin -> null, imageCache,
+        testFile);
     fileSource.initialize();
     fail("initialize() should have thrown an IOException");
   }
 
   @Test
   public void testCallingInitializeAfterGetOutputSocketUpdatesOutputSocket() throws IOException {
-    final ImageFileSource source = new ImageFileSource(osf, origin -> null, this
+    final ImageFileSource source = new ImageFileSource(osf, origin -> null, imageCache, this
         .imageFile.file);
     // Calling this before loading the image should throw an exception
     final OutputSocket<Mat> imageSource = source.getOutputSockets().get(0);
@@ -0,0 +1,137 @@
+package edu.wpi.grip.core.sources;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+public class MjpegStreamParserTest {
+
+  private static final String CONTENT_TYPE = "multipart/x-mixed-replace; boundary=myboundary";
+
+  /**
+   * A small fake JPEG that has bytes from the boundary and the end of image marker in it.
+   */
+  private static byte[] jpeg(int id) {
+    return new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) id, '\r', '\n', '-', '-', 'm', (byte) 0xFF,
+        (byte) 0xFF, (byte) 0xD9};
+  }
+
+  /**
+   * A small fake JPEG that follows the JPEG structure, with a thumbnail in an APP1 segment and
+   * image data that has a stuffed 0xFF byte and a restart marker in it.
+   */
+  private static byte[] jpegWithThumbnail(int id) {
+    return new byte[]{(byte) 0xFF, (byte) 0xD8,
+        (byte) 0xFF, (byte) 0xE1, 0, 8, 'E', 'x', (byte) 0xFF, (byte) 0xD8, (byte) 0xFF,
+        (byte) 0xD9,
+        (byte) 0xFF, (byte) 0xDA, 0, 4, 1, 2,
+        (byte) id, (byte) 0xFF, 0, 0x34, (byte) 0xFF, (byte) 0xD0, 0x56,
+        (byte) 0xFF, (byte) 0xFF, (byte) 0xD9};
+  }
+
+  private static void part(ByteArrayOutputStream stream, byte[] jpeg, boolean withLength)
+      throws IOException {
+    String headers = "--myboundary\r\nContent-Type: image/jpeg\r\n";
+    if (withLength) {
+      headers += "CONTENT-LENGTH:  " + jpeg.length + "\r\n";
+    }
+    stream.write((headers + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    stream.write(jpeg);
+    stream.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static ReadableByteChannel channel(ByteArrayOutputStream stream) {
+    return Channels.newChannel(new ByteArrayInputStream(stream.toByteArray()));
+  }
+
+  private static byte[] read(MjpegStreamParser parser) throws IOException {
+    final ByteBuffer frame = parser.readFrame(ByteBuffer.allocateDirect(4));
+    final byte[] bytes = new byte[frame.remaining()];
+    frame.get(bytes);
+    return bytes;
+  }
+
+  @Test
+  public void testPartsWithContentLength() throws IOException {
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    part(stream, jpeg(1), true);
+    part(stream, jpeg(2), true);
+    final MjpegStreamParser parser = new MjpegStreamParser(channel(stream), CONTENT_TYPE);
+    assertArrayEquals(jpeg(1), read(parser));
+    assertArrayEquals(jpeg(2), read(parser));
+  }
+
+  @Test
+  public void testPartsDelimitedByBoundary() throws IOException {
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    part(stream, jpeg(1), false);
+    part(stream, jpeg(2), false);
+    stream.write("--myboundary\r\n".getBytes(StandardCharsets.US_ASCII));
+    final MjpegStreamParser parser = new MjpegStreamParser(channel(stream), CONTENT_TYPE);
+    assertArrayEquals(jpeg(1), read(parser));
+    assertArrayEquals(jpeg(2), read(parser));
+  }
+
+  @Test
+  public void testPartsDelimitedByEndOfImageWithoutBoundary() throws IOException {
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    part(stream, jpeg(1), false);
+    part(stream, jpeg(2), false);
+    final MjpegStreamParser parser = new MjpegStreamParser(channel(stream), "multipart/x-mixed");
+    assertArrayEquals(jpeg(1), read(parser));
+    assertArrayEquals(jpeg(2), read(parser));
+  }
+
+  @Test
+  public void testEndOfThumbnailIsNotTheEndOfImage() throws IOException {
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    part(stream, jpegWithThumbnail(1), false);
+    part(stream, jpegWithThumbnail(2), false);
+    final MjpegStreamParser parser =
+        new MjpegStreamParser(channel(stream), "multipart/x-mixed", 3);
+    assertArrayEquals(jpegWithThumbnail(1), read(parser));
+    assertArrayEquals(jpegWithThumbnail(2), read(parser));
+  }
+
+  @Test
+  public void testPartsSplitAcrossReads() throws IOException {
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    for (int i = 0; i < 4; i++) {
+      part(stream, jpeg(i), i % 2 == 0);
+    }
+    stream.write("--myboundary--\r\n".getBytes(StandardCharsets.US_ASCII));
+    final MjpegStreamParser parser = new MjpegStreamParser(channel(stream), CONTENT_TYPE, 3);
+    for (int i = 0; i < 4; i++) {
+      assertArrayEquals(jpeg(i), read(parser));
+    }
+  }
+
+  @Test(expected = EOFException.class)
+  public void testEndOfStream() throws IOException {
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    part(stream, jpeg(1), true);
+    final MjpegStreamParser parser = new MjpegStreamParser(channel(stream), CONTENT_TYPE);
+    read(parser);
+    read(parser);
+  }
+
+  @Test
+  public void testDelimiterFromContentType() {
+    assertArrayEquals("\r\n--myboundary".getBytes(StandardCharsets.US_ASCII),
+        MjpegStreamParser.delimiterFor("multipart/x-mixed-replace;Boundary=\"myboundary\""));
+    assertArrayEquals("\r\n--myboundary".getBytes(StandardCharsets.US_ASCII),
+        MjpegStreamParser.delimiterFor("multipart/x-mixed-replace; boundary=--myboundary"));
+    assertNull(MjpegStreamParser.delimiterFor("image/jpeg"));
+    assertNull(MjpegStreamParser.delimiterFor(null));
+  }
+}
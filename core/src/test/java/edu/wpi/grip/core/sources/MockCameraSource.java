@@ -1,5 +1,6 @@
 package edu.wpi.grip.core.sources;
 
+import edu.wpi.grip.core.MatPool;
 import edu.wpi.grip.core.sockets.MockOutputSocketFactory;
 import edu.wpi.grip.core.util.MockExceptionWitness;
 
@@ -13,12 +14,12 @@ public class MockCameraSource extends CameraSource {
 
   public MockCameraSource(EventBus eventBus, String address) throws IOException {
     super(eventBus, new MockOutputSocketFactory(eventBus), new MockFrameGrabberFactory(),
-        MockExceptionWitness.MOCK_FACTORY, address);
+        MockExceptionWitness.MOCK_FACTORY, new MatPool(), address);
   }
 
   public MockCameraSource(EventBus eventBus, int deviceNumber) throws IOException {
     super(eventBus, new MockOutputSocketFactory(eventBus), new MockFrameGrabberFactory(),
-        MockExceptionWitness.MOCK_FACTORY, deviceNumber);
+        MockExceptionWitness.MOCK_FACTORY, new MatPool(), deviceNumber);
   }
 
   @Override
@@ -1,7 +1,10 @@
 package edu.wpi.grip.core.sources;
 
+import edu.wpi.grip.core.MatPool;
 import edu.wpi.grip.core.sockets.MockOutputSocketFactory;
 import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.core.util.ExceptionWitness;
+import edu.wpi.grip.core.util.MockExceptionWitness;
 import edu.wpi.grip.util.Files;
 import edu.wpi.grip.util.ImageWithData;
 
@@ -16,6 +19,8 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Properties;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class MultiImageFileSourceTest {
   private static final ImageWithData imageFile = Files.imageFile;
@@ -24,31 +29,73 @@ public class MultiImageFileSourceTest {
   private MultiImageFileSource source;
   private MultiImageFileSource sourceWithIndexSet;
   private OutputSocket.Factory osf;
+  private ImageCache imageCache;
 
   @Before
   public void setUp() throws IOException {
     osf = new MockOutputSocketFactory(new EventBus());
+    imageCache = new ImageCache(new MatPool());
     source = new MultiImageFileSource(
         new EventBus(),
         osf,
         origin -> null,
+        imageCache,
         Arrays.asList(imageFile.file, gompeiJpegFile.file));
     sourceWithIndexSet = new MultiImageFileSource(
         new EventBus(),
         osf,
         origin -> null,
+        imageCache,
         Arrays.asList(imageFile.file, gompeiJpegFile.file), 1);
     source.initialize();
     sourceWithIndexSet.initialize();
   }
 
   @Test(expected = IOException.class)
-  public void createMultiImageFileSourceWithTextFile() throws IOException {
+  public void createMultiImageFileSourceWithTextFileFirst() throws IOException {
     new MultiImageFileSource(
         new EventBus(),
         osf,
         origin -> null,
-        Arrays.asList(imageFile.file, gompeiJpegFile.file, textFile)).initialize();
+        imageCache,
+        Arrays.asList(textFile, imageFile.file, gompeiJpegFile.file)).initialize();
+  }
+
+  @Test
+  public void createMultiImageFileSourceWithTextFile() throws IOException {
+    final ExceptionWitness[] witness = {null};
+    final MultiImageFileSource withTextFile = new MultiImageFileSource(
+        new EventBus(),
+        osf,
+        origin -> witness[0] = new MockExceptionWitness(new EventBus(), origin),
+        imageCache,
+        Arrays.asList(imageFile.file, gompeiJpegFile.file, textFile));
+    // Only the image that is shown first is loaded right away
+    withTextFile.initialize();
+    assertTrue(withTextFile.updateOutputSockets());
+    OutputSocket<Mat> outputSocket = withTextFile.getOutputSockets().get(0);
+    imageFile.assertSameImage(outputSocket.getValue().get());
+    assertFalse(witness[0].isException());
+  }
+
+  @Test
+  public void testTextFileIsReportedWhenItIsReached() throws IOException {
+    final ExceptionWitness[] witness = {null};
+    final MultiImageFileSource withTextFile = new MultiImageFileSource(
+        new EventBus(),
+        osf,
+        origin -> witness[0] = new MockExceptionWitness(new EventBus(), origin),
+        imageCache,
+        Arrays.asList(imageFile.file, gompeiJpegFile.file, textFile));
+    withTextFile.initialize();
+    withTextFile.updateOutputSockets();
+
+    withTextFile.previous();
+    assertFalse("The text file can't be shown", withTextFile.updateOutputSockets());
+    assertTrue("The text file should have been reported", witness[0].isException());
+    withTextFile.next();
+    withTextFile.updateOutputSockets();
+    assertFalse("Moving past the text file should clear it", witness[0].isException());
   }
 
   @Test
@@ -82,6 +129,7 @@ public class MultiImageFileSourceTest {
         new EventBus(),
         osf,
         origin -> null,
+        imageCache,
         properties);
     newSource.initialize();
     newSource.updateOutputSockets();
@@ -0,0 +1,58 @@
+package edu.wpi.grip.core.sources;
+
+import edu.wpi.grip.core.MatPool;
+import edu.wpi.grip.core.sockets.MockOutputSocketFactory;
+import edu.wpi.grip.core.sockets.OutputSocket;
+
+import com.google.common.eventbus.EventBus;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+public class VideoFileSourceTest {
+  private EventBus eventBus;
+  private OutputSocket.Factory osf;
+  private final MatPool matPool = new MatPool();
+
+  @Before
+  public void setUp() {
+    eventBus = new EventBus();
+    osf = new MockOutputSocketFactory(eventBus);
+  }
+
+  @Test
+  public void testDefaultPlaybackIsNotStoredInProperties() {
+    final File file = new File("video.mp4").getAbsoluteFile();
+    final VideoFileSource source =
+        new VideoFileSource(osf, origin -> null, eventBus, matPool, file);
+    final Properties expected = new Properties();
+    expected.setProperty("path", file.getPath());
+    assertEquals(expected, source.getProperties());
+  }
+
+  @Test
+  public void testPlaybackOptionsAreStoredInProperties() {
+    final Properties properties = new Properties();
+    properties.setProperty("path", new File("video.mp4").getAbsolutePath());
+    PlaybackMode.AS_FAST_AS_POSSIBLE.store(properties);
+    properties.setProperty("decodeAhead", "8");
+    properties.setProperty("loop", "false");
+    final VideoFileSource source =
+        new VideoFileSource(osf, origin -> null, eventBus, matPool, properties);
+    assertEquals(properties, source.getProperties());
+    assertEquals(PlaybackMode.AS_FAST_AS_POSSIBLE, PlaybackMode.fromProperties(properties));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeAheadMustBePositive() {
+    final Properties properties = new Properties();
+    properties.setProperty("path", new File("video.mp4").getAbsolutePath());
+    properties.setProperty("decodeAhead", "0");
+    new VideoFileSource(osf, origin -> null, eventBus, matPool, properties);
+  }
+}
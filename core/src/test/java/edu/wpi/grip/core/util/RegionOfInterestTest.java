@@ -0,0 +1,77 @@
+package edu.wpi.grip.core.util;
+
+import org.junit.Test;
+
+import static org.bytedeco.javacpp.opencv_core.CV_8UC1;
+import static org.bytedeco.javacpp.opencv_core.CV_8UC3;
+import static org.bytedeco.javacpp.opencv_core.Mat;
+import static org.bytedeco.javacpp.opencv_core.Point;
+import static org.bytedeco.javacpp.opencv_core.Rect;
+import static org.bytedeco.javacpp.opencv_core.Size;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RegionOfInterestTest {
+
+  private static Mat region(Mat frame, int x, int y, int width, int height) {
+    return new Mat(frame, new Rect(x, y, width, height));
+  }
+
+  @Test
+  public void testOffsetAndFrameSizeOfRegion() {
+    final Mat region = region(new Mat(40, 30, CV_8UC3), 5, 7, 10, 20);
+    final Point offset = RegionOfInterest.offsetOf(region);
+    final Size frameSize = RegionOfInterest.frameSizeOf(region);
+    assertEquals(5, offset.x());
+    assertEquals(7, offset.y());
+    assertEquals(30, frameSize.width());
+    assertEquals(40, frameSize.height());
+  }
+
+  @Test
+  public void testOffsetOfWholeImageIsZero() {
+    final Mat image = new Mat(40, 30, CV_8UC3);
+    final Point offset = RegionOfInterest.offsetOf(image);
+    assertEquals(0, offset.x());
+    assertEquals(0, offset.y());
+    assertEquals(30, RegionOfInterest.frameSizeOf(image).width());
+  }
+
+  @Test
+  public void testMatchRegionMakesOutputARegionAtTheSameOffset() {
+    final Mat input = region(new Mat(40, 30, CV_8UC3), 5, 7, 10, 20);
+    final Mat output = new Mat();
+    RegionOfInterest.matchRegion(input, output, CV_8UC1);
+    assertTrue("The output should be a region of a frame", output.isSubmatrix());
+    assertEquals(CV_8UC1, output.type());
+    assertEquals(20, output.rows());
+    assertEquals(10, output.cols());
+    assertEquals(5, RegionOfInterest.offsetOf(output).x());
+    assertEquals(7, RegionOfInterest.offsetOf(output).y());
+    assertEquals(40, RegionOfInterest.frameSizeOf(output).height());
+  }
+
+  @Test
+  public void testMatchRegionKeepsAMatchingOutput() {
+    final Mat frame = new Mat(40, 30, CV_8UC3);
+    final Mat output = new Mat();
+    RegionOfInterest.matchRegion(region(frame, 5, 7, 10, 20), output, CV_8UC1);
+    final long data = output.data().address();
+    RegionOfInterest.matchRegion(region(frame, 5, 7, 10, 20), output, CV_8UC1);
+    assertEquals("The same region should not be allocated again", data, output.data().address());
+    RegionOfInterest.matchRegion(region(frame, 6, 7, 10, 20), output, CV_8UC1);
+    assertNotEquals("A moved region should be allocated again", data, output.data().address());
+    assertEquals(6, RegionOfInterest.offsetOf(output).x());
+  }
+
+  @Test
+  public void testMatchRegionLetsGoOfRegionForWholeInput() {
+    final Mat output = new Mat();
+    RegionOfInterest.matchRegion(region(new Mat(40, 30, CV_8UC3), 5, 7, 10, 20), output,
+        CV_8UC1);
+    RegionOfInterest.matchRegion(new Mat(40, 30, CV_8UC3), output, CV_8UC1);
+    assertFalse("The output should not be a region anymore", output.isSubmatrix());
+  }
+}
@@ -0,0 +1,69 @@
+package edu.wpi.grip.util;
+
+import edu.wpi.grip.core.AdditionOperation;
+import edu.wpi.grip.core.Connection;
+import edu.wpi.grip.core.OperationMetaData;
+import edu.wpi.grip.core.Pipeline;
+import edu.wpi.grip.core.Step;
+import edu.wpi.grip.core.events.ConnectionAddedEvent;
+import edu.wpi.grip.core.sockets.InputSocket;
+import edu.wpi.grip.core.sockets.OutputSocket;
+
+import com.google.common.eventbus.EventBus;
+import com.google.inject.Inject;
+
+/**
+ * Adds steps to the injected pipeline and connects them, for tests that need a few steps wired
+ * together.
+ */
+public class PipelineTestHelper {
+  private final EventBus eventBus;
+  private final Pipeline pipeline;
+  private final Step.Factory stepFactory;
+  private final Connection.Factory<Object> connectionFactory;
+  private final OperationMetaData additionMeta;
+
+  @Inject
+  PipelineTestHelper(EventBus eventBus, Pipeline pipeline, Step.Factory stepFactory,
+                     Connection.Factory<Object> connectionFactory,
+                     InputSocket.Factory isf, OutputSocket.Factory osf) {
+    this.eventBus = eventBus;
+    this.pipeline = pipeline;
+    this.stepFactory = stepFactory;
+    this.connectionFactory = connectionFactory;
+    this.additionMeta = new OperationMetaData(AdditionOperation.DESCRIPTION,
+        () -> new AdditionOperation(isf, osf));
+  }
+
+  /**
+   * Creates a step and adds it to the end of the pipeline.
+   */
+  public Step addStep(OperationMetaData meta) {
+    final Step step = stepFactory.create(meta);
+    pipeline.addStep(step);
+    return step;
+  }
+
+  /**
+   * Adds a step that sums its two inputs to the end of the pipeline.
+   */
+  public Step addAdditionStep() {
+    return addStep(additionMeta);
+  }
+
+  /**
+   * Connects the first output of one step to the first input of another.
+   */
+  public void connect(Step from, Step to) {
+    connect(from, to, 0);
+  }
+
+  /**
+   * Connects the first output of one step to an input of another.
+   */
+  @SuppressWarnings("unchecked")
+  public void connect(Step from, Step to, int input) {
+    eventBus.post(new ConnectionAddedEvent(connectionFactory.create(
+        from.getOutputSockets().get(0), (InputSocket<Object>) to.getInputSockets().get(input))));
+  }
+}
@@ -390,7 +390,9 @@ public class MainWindowController {
   @SuppressWarnings({"PMD.UnusedPrivateMethod", "PMD.UnusedFormalParameter"})
   private void runStopped(TimerEvent event) {
     if (event.getTarget() instanceof PipelineRunner) {
-      Platform.runLater(() -> updateElapsedTimeLabel(event.getElapsedTime()));
+      // The timer posts the same event every run, so the time has to be copied out first
+      final long elapsed = event.getElapsedTime();
+      Platform.runLater(() -> updateElapsedTimeLabel(elapsed));
     }
   }
 
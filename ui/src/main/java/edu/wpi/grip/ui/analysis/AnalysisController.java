@@ -1,15 +1,23 @@
 package edu.wpi.grip.ui.analysis;
 
+import edu.wpi.grip.core.ExecutionMode;
+import edu.wpi.grip.core.NativeMemoryAccountant;
 import edu.wpi.grip.core.OperationDescription;
+import edu.wpi.grip.core.PipelineRunner;
 import edu.wpi.grip.core.Step;
 import edu.wpi.grip.core.StepIndexer;
+import edu.wpi.grip.core.StepResultCache;
+import edu.wpi.grip.core.StepWatchdog;
 import edu.wpi.grip.core.events.BenchmarkEvent;
+import edu.wpi.grip.core.events.ProjectSettingsChangedEvent;
 import edu.wpi.grip.core.events.RunStoppedEvent;
 import edu.wpi.grip.core.events.StepRemovedEvent;
 import edu.wpi.grip.core.events.TimerEvent;
 import edu.wpi.grip.core.metrics.BenchmarkRunner;
 import edu.wpi.grip.core.metrics.CsvExporter;
 import edu.wpi.grip.core.metrics.Statistics;
+import edu.wpi.grip.core.settings.ProjectSettings;
+import edu.wpi.grip.core.settings.SettingsProvider;
 
 import com.google.common.collect.EvictingQueue;
 import com.google.common.eventbus.Subscribe;
@@ -58,6 +66,8 @@ public class AnalysisController {
   private TableColumn<StepStatisticsEntry, String> operationColumn;
   @FXML
   private TableColumn<StepStatisticsEntry, Statistics> timeColumn;
+  @FXML
+  private TableColumn<StepStatisticsEntry, String> memoryColumn;
 
   // Benchmarking
   @FXML
@@ -67,6 +77,43 @@ public class AnalysisController {
   @Inject
   private BenchmarkRunner benchmarker;
 
+  // Execution mode
+  @FXML
+  private Label executionModeLabel;
+  @Inject
+  private SettingsProvider settingsProvider;
+
+  // Frame counters
+  @FXML
+  private Label frameCountersLabel;
+  @Inject
+  private PipelineRunner pipelineRunner;
+  private long lastDroppedFrames = 0;
+  private long lastStaleFrames = 0;
+  private long lastSkippedDecodes = 0;
+  private long lastCoalescedRuns = 0;
+  private long lastDeadlineMisses = 0;
+  @Inject
+  private StepWatchdog stepWatchdog;
+  private long lastWatchdogTrips = 0;
+
+  // Step result cache
+  @FXML
+  private Label stepCacheLabel;
+  @Inject
+  private StepResultCache stepResultCache;
+  private long lastCacheHits = 0;
+  private long lastCacheMisses = 0;
+
+  // Native memory
+  @FXML
+  private Label memoryLabel;
+  @Inject
+  private NativeMemoryAccountant memoryAccountant;
+  private long lastMemoryBytes = -1;
+  private long lastPeakMemoryBytes = -1;
+  private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
   private final Callback<StepStatisticsEntry, Observable[]> extractor =
       entry -> new Observable[]{entry.stepProperty(), entry.analysisProperty()};
   private final ObservableList<StepStatisticsEntry> tableItems
@@ -88,10 +135,15 @@ public class AnalysisController {
    */
   public void initialize() {
     table.setPlaceholder(new Label("Waiting for steps"));
-    operationColumn.prefWidthProperty().bind(table.widthProperty().multiply(0.499));
-    timeColumn.prefWidthProperty().bind(table.widthProperty().multiply(0.499));
+    operationColumn.prefWidthProperty().bind(table.widthProperty().multiply(0.349));
+    timeColumn.prefWidthProperty().bind(table.widthProperty().multiply(0.4));
+    memoryColumn.prefWidthProperty().bind(table.widthProperty().multiply(0.249));
     operationColumn.setCellValueFactory(
         e -> new SimpleStringProperty(e.getValue().getStep().getOperationDescription().name()));
+    memoryColumn.setCellValueFactory(e -> new SimpleStringProperty(
+        memoryAccountant.getUsage(e.getValue().getStep())
+            .map(usage -> formatMemory(usage.getBytes(), usage.getPeakBytes()))
+            .orElse("")));
     timeColumn.setCellValueFactory(e -> e.getValue().analysisProperty());
     timeColumn.setCellFactory(col -> new TableCell<StepStatisticsEntry, Statistics>() {
       @Override
@@ -118,6 +170,25 @@ public class AnalysisController {
       }
       benchmarkButton.setDisable(newValue.isEmpty());
     });
+    updateExecutionModeLabel(settingsProvider.getProjectSettings());
+  }
+
+  private void updateExecutionModeLabel(ProjectSettings settings) {
+    String text = "Execution mode: " + settings.getExecutionMode();
+    final int threads = settings.getExecutionThreads();
+    final String threadText = threads > 0 ? threads + " threads" : "all processors";
+    if (settings.getExecutionMode() == ExecutionMode.PARALLEL) {
+      text += " (" + threadText + ")";
+    } else if (settings.getExecutionMode() == ExecutionMode.FRAME_PIPELINED) {
+      text += " (" + settings.getFramesInFlight() + " frames, " + threadText + ")";
+    }
+    executionModeLabel.setText(text);
+  }
+
+  @Subscribe
+  @SuppressWarnings("PMD.UnusedPrivateMethod")
+  private void onSettingsChanged(ProjectSettingsChangedEvent event) {
+    Platform.runLater(() -> updateExecutionModeLabel(event.getProjectSettings()));
   }
 
   @Subscribe
@@ -161,6 +232,67 @@ public class AnalysisController {
     Statistics statistics = Statistics.of(averageRunTimes);
     // Update the stats after the pipeline finishes
     lastStats = statistics;
+    updateFrameCounters();
+    updateStepCacheCounters();
+    updateMemoryLabel();
+  }
+
+  private void updateFrameCounters() {
+    final long droppedFrames = pipelineRunner.getDroppedFrameCount();
+    final long staleFrames = pipelineRunner.getStaleFrameCount();
+    final long skippedDecodes = pipelineRunner.getSkippedDecodeCount();
+    final long coalescedRuns = pipelineRunner.getCoalescedRunCount();
+    final long deadlineMisses = pipelineRunner.getDeadlineMissCount();
+    final long watchdogTrips = stepWatchdog.getTripCount();
+    // Only bother the UI thread when something has changed
+    if (droppedFrames != lastDroppedFrames || staleFrames != lastStaleFrames
+        || skippedDecodes != lastSkippedDecodes
+        || coalescedRuns != lastCoalescedRuns
+        || deadlineMisses != lastDeadlineMisses || watchdogTrips != lastWatchdogTrips) {
+      lastDroppedFrames = droppedFrames;
+      lastStaleFrames = staleFrames;
+      lastSkippedDecodes = skippedDecodes;
+      lastCoalescedRuns = coalescedRuns;
+      lastDeadlineMisses = deadlineMisses;
+      lastWatchdogTrips = watchdogTrips;
+      final long abandonedSteps = stepWatchdog.getAbandonedCount();
+      Platform.runLater(() -> frameCountersLabel.setText(
+          "Dropped frames: " + droppedFrames + ", skipped decodes: " + skippedDecodes
+              + ", stale frames: " + staleFrames
+              + ", coalesced runs: " + coalescedRuns
+              + ", deadline misses: " + deadlineMisses + ", watchdog trips: " + watchdogTrips
+              + " (" + abandonedSteps + " abandoned)"));
+    }
+  }
+
+  private void updateStepCacheCounters() {
+    final long hits = stepResultCache.getHitCount();
+    final long misses = stepResultCache.getMissCount();
+    if (hits != lastCacheHits || misses != lastCacheMisses) {
+      lastCacheHits = hits;
+      lastCacheMisses = misses;
+      final long evictions = stepResultCache.getEvictionCount();
+      final long megabytes = stepResultCache.getSize() / (1024 * 1024);
+      Platform.runLater(() -> stepCacheLabel.setText(String.format(
+          "Step cache: %d hits, %d misses, %d evictions, %d MB", hits, misses, evictions,
+          megabytes)));
+    }
+  }
+
+  private void updateMemoryLabel() {
+    memoryAccountant.sampleIfStale();
+    final NativeMemoryAccountant.Usage total = memoryAccountant.getTotal();
+    if (total.getBytes() != lastMemoryBytes || total.getPeakBytes() != lastPeakMemoryBytes) {
+      lastMemoryBytes = total.getBytes();
+      lastPeakMemoryBytes = total.getPeakBytes();
+      Platform.runLater(() -> memoryLabel.setText(
+          "Native memory: " + formatMemory(total.getBytes(), total.getPeakBytes())));
+    }
+  }
+
+  private static String formatMemory(long bytes, long peakBytes) {
+    return String.format("%.1f MB (peak %.1f MB)", bytes / BYTES_PER_MEGABYTE,
+        peakBytes / BYTES_PER_MEGABYTE);
   }
 
   @Subscribe
@@ -5,6 +5,7 @@ import edu.wpi.grip.core.events.UnexpectedThrowableEvent;
 import edu.wpi.grip.core.http.GripServer;
 import edu.wpi.grip.core.sources.CameraSource;
 import edu.wpi.grip.core.sources.ClassifierSource;
+import edu.wpi.grip.core.sources.DirectorySource;
 import edu.wpi.grip.core.sources.HttpSource;
 import edu.wpi.grip.core.sources.ImageFileSource;
 import edu.wpi.grip.core.sources.MultiImageFileSource;
@@ -48,6 +49,7 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 
@@ -79,7 +81,8 @@ public class AddSourceButton extends MenuButton {
                   HttpSource.Factory httpSourceFactory,
                   NetworkTableEntrySource.Factory networkTableSourceFactory,
                   ClassifierSource.Factory classifierSourceFactory,
-                  VideoFileSource.Factory videoFileSourceFactory) {
+                  VideoFileSource.Factory videoFileSourceFactory,
+                  DirectorySource.Factory directorySourceFactory) {
     super("Add Source");
     this.eventBus = eventBus;
 
@@ -147,6 +150,20 @@ public class AddSourceButton extends MenuButton {
           }
         });
 
+    addMenuItem("Directory",
+        getClass().getResource("/edu/wpi/grip/ui/icons/add-image.png"),
+        e -> {
+          // Images written into the directory from now on are run through the pipeline
+          final DirectoryChooser dc = new DirectoryChooser();
+          dc.setTitle("Choose a directory to watch for new images");
+          final File directory = dc.showDialog(getScene().getWindow());
+          if (directory != null) {
+            final DirectorySource source = directorySourceFactory.create(directory);
+            source.initializeSafely();
+            eventBus.post(new SourceAddedEvent(source));
+          }
+        });
+
     webcamButton = addMenuItem("Webcam",
         getClass().getResource("/edu/wpi/grip/ui/icons/add-webcam.png"), mouseEvent -> {
           final Parent root = this.getScene().getRoot();
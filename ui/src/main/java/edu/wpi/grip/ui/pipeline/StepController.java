@@ -213,8 +213,9 @@ public class StepController implements Controller {
     if (event.getTarget() != this.step) {
       return;
     }
-    Platform.runLater(() ->
-        elapsedTime.setText(String.format("Ran in %.1f ms", event.getElapsedTime() / 1e3)));
+    // The timer posts the same event every run, so the time has to be copied out first
+    final long elapsed = event.getElapsedTime();
+    Platform.runLater(() -> elapsedTime.setText(String.format("Ran in %.1f ms", elapsed / 1e3)));
   }
 
   @Subscribe
@@ -2,6 +2,7 @@ package edu.wpi.grip.ui.preview;
 
 import edu.wpi.grip.core.operations.composite.BlobsReport;
 import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.core.util.RegionOfInterest;
 import edu.wpi.grip.ui.util.GripPlatform;
 
 import javafx.geometry.Orientation;
@@ -59,6 +60,9 @@ public final class BlobsSocketPreviewView extends ImageBasedPreviewView<BlobsRep
     synchronized (this) {
       final BlobsReport blobsReport = this.getSocket().getValue().get();
       final Mat input = blobsReport.getInput();
+      // The blobs are in the coordinates of the whole frame, which is more than the input if it is
+      // a region of interest
+      final Point offset = RegionOfInterest.offsetOf(input);
 
       if (input.channels() == 3) {
         input.copyTo(tmp);
@@ -74,8 +78,8 @@ public final class BlobsSocketPreviewView extends ImageBasedPreviewView<BlobsRep
       if (!blobsReport.getBlobs().isEmpty()) {
         // For each line in the report, draw a line along with the starting and ending points
         for (BlobsReport.Blob blob : blobsReport.getBlobs()) {
-          point.x((int) blob.x);
-          point.y((int) blob.y);
+          point.x((int) blob.x - offset.x());
+          point.y((int) blob.y - offset.y());
           circle(tmp, point, (int) (blob.size / 2), Scalar.WHITE, 2, LINE_8, 0);
         }
       }
@@ -13,6 +13,11 @@ import static org.bytedeco.javacpp.opencv_core.Mat;
 public class ImageSocketPreviewView extends ImageBasedPreviewView<Mat> {
 
   private final GripPlatform platform;
+  /**
+   * The image being shown. The socket's image belongs to the pipeline, so it is copied here on the
+   * thread that renders it and only this copy is read by the UI thread.
+   */
+  private final Mat tmp = new Mat();
 
   /**
    * @param socket An output socket to preview.
@@ -29,8 +34,9 @@ public class ImageSocketPreviewView extends ImageBasedPreviewView<Mat> {
       this.getSocket().getValue()
           .filter(ImageBasedPreviewView::isPreviewable)
           .ifPresent(mat -> {
+            mat.copyTo(tmp);
             platform.runAsSoonAsPossible(() -> {
-              Image image = imageConverter.convert(mat, getImageHeight());
+              Image image = imageConverter.convert(tmp, getImageHeight());
               imageView.setImage(image);
             });
           });
@@ -2,6 +2,7 @@ package edu.wpi.grip.ui.preview;
 
 import edu.wpi.grip.core.operations.composite.LinesReport;
 import edu.wpi.grip.core.sockets.OutputSocket;
+import edu.wpi.grip.core.util.RegionOfInterest;
 import edu.wpi.grip.ui.util.GripPlatform;
 import edu.wpi.grip.ui.util.ImageConverter;
 
@@ -79,6 +80,9 @@ public final class LinesSocketPreviewView extends ImageBasedPreviewView<LinesRep
           cvtColor(input, tmp, CV_GRAY2BGR);
         }
 
+        // The lines are in the coordinates of the whole frame, which is more than the input if
+        // it is a region of interest
+        final Point offset = RegionOfInterest.offsetOf(input);
         input = tmp;
 
         // If we don't want to see the background image, set it to black
@@ -88,10 +92,10 @@ public final class LinesSocketPreviewView extends ImageBasedPreviewView<LinesRep
 
         // For each line in the report, draw a line along with the starting and ending points
         for (LinesReport.Line line : lines) {
-          startPoint.x((int) line.x1);
-          startPoint.y((int) line.y1);
-          endPoint.x((int) line.x2);
-          endPoint.y((int) line.y2);
+          startPoint.x((int) line.x1 - offset.x());
+          startPoint.y((int) line.y1 - offset.y());
+          endPoint.x((int) line.x2 - offset.x());
+          endPoint.y((int) line.y2 - offset.y());
           line(input, startPoint, endPoint, Scalar.WHITE, 2, LINE_8, 0);
           circle(input, startPoint, 2, Scalar.WHITE, 2, LINE_8, 0);
           circle(input, endPoint, 2, Scalar.WHITE, 2, LINE_8, 0);
@@ -1,5 +1,6 @@
 package edu.wpi.grip.ui.codegeneration;
 
+import edu.wpi.grip.core.MatPool;
 import edu.wpi.grip.core.Pipeline;
 import edu.wpi.grip.core.events.SourceAddedEvent;
 import edu.wpi.grip.core.operations.OperationsUtil;
@@ -60,6 +61,8 @@ public class AbstractGenerationTesting {
   protected OperationsUtil opUtil;
   @Inject
   protected PipelineGenerator gen;
+  @Inject
+  protected MatPool matPool;
 
   static {
     System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
@@ -66,7 +66,7 @@ public class FindContoursGenerationTesting extends AbstractGenerationTesting {
 
     Step step1 = gen.addStep(new OperationMetaData(
         OperationDescription.from(FindContoursOperation.class),
-        () -> new FindContoursOperation(isf, osf)));
+        () -> new FindContoursOperation(isf, osf, matPool)));
     OutputSocket imgOut1 = pipeline.getSteps().get(0).getOutputSockets().get(0);
     for (InputSocket sock : step1.getInputSockets()) {
       if (sock.getSocketHint().isCompatibleWith(imgOut1.getSocketHint())) {
@@ -72,7 +72,7 @@ public class FindLinesGenerationTesting extends AbstractGenerationTesting {
 
     Step step1 = gen.addStep(new OperationMetaData(
         OperationDescription.from(FindLinesOperation.class),
-        () -> new FindLinesOperation(isf, osf)));
+        () -> new FindLinesOperation(isf, osf, matPool)));
     OutputSocket imgOut1 = pipeline.getSteps().get(0).getOutputSockets().get(0);
     for (InputSocket sock : step1.getInputSockets()) {
       if (sock.getSocketHint().isCompatibleWith(imgOut1.getSocketHint())) {